@@ -7,6 +7,7 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Component;
 
 import io.swagger.v3.oas.models.OpenAPI;
@@ -16,6 +17,7 @@ import io.swagger.v3.oas.models.info.License;
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class ApiApplication {
 
     public static void main(String[] args) {
@@ -53,15 +53,18 @@ public class SecurityConfig {
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/posts/search").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/posts/*/comments").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/posts/*/comments").permitAll()
-                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/tags").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/tags", "/api/tags/cloud").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/story-seeds").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/story-seeds/slug/**").permitAll()
                         .requestMatchers("/api/story-seeds/**").authenticated()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/debug/**").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/cursor", "/api/stories/search/cursor").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/trending", "/api/stories/hot", "/api/stories/most-forked").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/{id:[\\d]+}").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/slug/**").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/search").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/search/facets", "/api/stories/search/suggest").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/tag/**").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/{id:[\\d]+}/contributors").permitAll()
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/stories/{id:[\\d]+}/contributors/count").permitAll()
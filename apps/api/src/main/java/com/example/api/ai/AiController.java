@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -62,26 +63,40 @@ public class AiController {
     private final AiChatService aiChatService;
     private final NovelOptionsService novelOptionsService;
     private final PersonaChatCache personaChatCache;
+    private final PersonaChatSummarizer personaChatSummarizer;
     private final UserRepository userRepository;
     private final UserPersonaProfileRepository personaProfileRepository;
     private final StoryRepository storyRepository;
     private final ObjectMapper objectMapper;
+    private final StreamChunkCoalescer streamChunkCoalescer;
 
     public AiController(
             AiChatService aiChatService,
             NovelOptionsService novelOptionsService,
             PersonaChatCache personaChatCache,
+            PersonaChatSummarizer personaChatSummarizer,
             UserRepository userRepository,
             UserPersonaProfileRepository personaProfileRepository,
             StoryRepository storyRepository,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            StreamChunkCoalescer streamChunkCoalescer) {
         this.aiChatService = aiChatService;
         this.novelOptionsService = novelOptionsService;
         this.personaChatCache = personaChatCache;
+        this.personaChatSummarizer = personaChatSummarizer;
         this.userRepository = userRepository;
         this.personaProfileRepository = personaProfileRepository;
         this.storyRepository = storyRepository;
         this.objectMapper = objectMapper;
+        this.streamChunkCoalescer = streamChunkCoalescer;
+    }
+
+    /** 把更早对话的滚动摘要附加到分身系统提示 */
+    private static String withHistorySummary(String systemPrompt, PersonaChatCache.Window history) {
+        if (history.summary() == null || history.summary().isBlank()) {
+            return systemPrompt;
+        }
+        return systemPrompt + "\n\n此前对话摘要：" + history.summary();
     }
 
     /** 获取客户端 IP 地址 */
@@ -154,6 +169,21 @@ public class AiController {
         }
     }
 
+    /**
+     * 流式输出统计：生成次数、上游增量数、发送帧数、平均每次生成的帧数。仅管理员。
+     */
+    @GetMapping("/stream-stats")
+    public Map<String, Object> streamStats() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        boolean admin = userRepository.findByUsername(username)
+                .map(User::isAdmin)
+                .orElse(false);
+        if (!admin) {
+            throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
+        }
+        return streamChunkCoalescer.stats();
+    }
+
     /**
      * 已登录用户 AI 对话（找灵感等）。需 JWT。
      */
@@ -197,7 +227,7 @@ public class AiController {
         response.setHeader("Cache-Control", "no-cache");
         response.setHeader("Connection", "keep-alive");
         try {
-            novelOptionsService.stream(request, model, new AiChatService.StreamChatCallback() {
+            novelOptionsService.stream(request, model, streamChunkCoalescer.wrap(new AiChatService.StreamChatCallback() {
                 @Override
                 public void onChunk(String chunk) {
                     try {
@@ -219,7 +249,7 @@ public class AiController {
                     }
                     safeWriteDoneOrError(response, "data: [ERROR]");
                 }
-            });
+            }));
         } catch (IOException e) {
             throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "AI 服务暂时不可用");
         }
@@ -245,7 +275,7 @@ public class AiController {
         response.setHeader("Connection", "keep-alive");
 
         try {
-            aiChatService.streamChat(history, userContent, systemPrompt, model, new AiChatService.StreamChatCallback() {
+            aiChatService.streamChat(history, userContent, systemPrompt, model, streamChunkCoalescer.wrap(new AiChatService.StreamChatCallback() {
                 @Override
                 public void onChunk(String chunk) {
                     try {
@@ -267,7 +297,7 @@ public class AiController {
                     }
                     safeWriteDoneOrError(response, "data: [ERROR]");
                 }
-            });
+            }));
         } catch (IOException e) {
             // AI 服务未配置或不可用，返回 503
             throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "AI 服务暂时不可用");
@@ -332,12 +362,13 @@ public class AiController {
         }
         String systemPrompt = systemBuilder.length() > 0 ? systemBuilder.toString().trim() : "你是该作者的 AI 分身，请以该作者的口吻与读者交流。";
 
-        List<ChatMessage> history = personaChatCache.get(sessionId, authorId);
+        PersonaChatCache.Window history = personaChatCache.window(sessionId, authorId);
+        systemPrompt = withHistorySummary(systemPrompt, history);
         String userContent = request.content() != null ? request.content() : "";
-        String content = aiChatService.chat(history, userContent, systemPrompt);
+        String content = aiChatService.chat(history.messages(), userContent, systemPrompt);
 
-        personaChatCache.append(sessionId, authorId, "user", userContent);
-        personaChatCache.append(sessionId, authorId, "assistant", content);
+        personaChatCache.appendTurn(sessionId, authorId, userContent, content);
+        personaChatSummarizer.compactIfNeeded(sessionId, authorId);
 
         boolean generatedSession = (sessionIdHeader == null || sessionIdHeader.isBlank())
                 && (httpRequest.getParameter("sessionId") == null || httpRequest.getParameter("sessionId").isBlank());
@@ -405,7 +436,8 @@ public class AiController {
         }
         String systemPrompt = systemBuilder.length() > 0 ? systemBuilder.toString().trim() : "你是该作者的 AI 分身，请以该作者的口吻与读者交流。";
 
-        List<ChatMessage> history = personaChatCache.get(sessionId, authorId);
+        PersonaChatCache.Window history = personaChatCache.window(sessionId, authorId);
+        systemPrompt = withHistorySummary(systemPrompt, history);
         final String finalUserContent = request.content() != null ? request.content() : "";
         final String finalSessionId = sessionId;
         final Long finalAuthorId = authorId;
@@ -418,7 +450,7 @@ public class AiController {
 
         final StringBuilder fullResponse = new StringBuilder();
 
-        aiChatService.streamChat(history, finalUserContent, systemPrompt, model, new AiChatService.StreamChatCallback() {
+        aiChatService.streamChat(history.messages(), finalUserContent, systemPrompt, model, streamChunkCoalescer.wrap(new AiChatService.StreamChatCallback() {
             @Override
             public void onChunk(String chunk) {
                 fullResponse.append(chunk);
@@ -431,8 +463,8 @@ public class AiController {
 
             @Override
             public void onComplete() {
-                personaChatCache.append(finalSessionId, finalAuthorId, "user", finalUserContent);
-                personaChatCache.append(finalSessionId, finalAuthorId, "assistant", fullResponse.toString());
+                personaChatCache.appendTurn(finalSessionId, finalAuthorId, finalUserContent, fullResponse.toString());
+                personaChatSummarizer.compactIfNeeded(finalSessionId, finalAuthorId);
                 safeWriteDoneOrError(response, "data: [DONE]");
             }
 
@@ -443,7 +475,7 @@ public class AiController {
                 }
                 safeWriteDoneOrError(response, "data: [ERROR]");
             }
-        });
+        }));
     }
 
     /**
@@ -2,69 +2,216 @@ package com.example.api.ai;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Component;
 
 import com.example.api.ai.dto.ChatMessage;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.api.rag.TokenBudgetManager;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
- * 分身对话历史缓存，key: persona:{sessionId}:{authorId}，TTL 1 小时。
+ * 分身对话历史，TTL 1 小时（每轮刷新）：
+ * <ul>
+ *   <li>消息：Redis 列表 persona:chat:{sessionId}:{authorId}，每轮一次 MULTI（RPUSH 问答两条 + LTRIM 上限），
+ *       只追加不读回，并发的两轮不会互相覆盖</li>
+ *   <li>摘要：persona:chat:sum:{sessionId}:{authorId}，更早的对话由 {@link PersonaChatSummarizer} 滚动压缩到这里，
+ *       并从列表头部移除；移除前在 WATCH 下核对列表头部仍是被压缩的那些消息，
+ *       等待大模型期间硬上限裁掉了头部时放弃本次压缩，不会误删未压缩的消息</li>
+ *   <li>取上下文：摘要 + 按 token 预算从最新往前取的若干条消息，提示词长度有上界</li>
+ * </ul>
  */
 @Component
 public class PersonaChatCache {
 
-    private static final String KEY_PREFIX = "persona:";
+    private static final Logger logger = LoggerFactory.getLogger(PersonaChatCache.class);
+
+    private static final String LIST_PREFIX = "persona:chat:";
+    private static final String SUMMARY_PREFIX = "persona:chat:sum:";
     private static final Duration TTL = Duration.ofHours(1);
+    /** 列表硬上限（条），正常情况下摘要压缩远早于此 */
+    private static final int MAX_MESSAGES = 200;
+    /** 写入摘要时列表被并发追加（WATCH 冲突）的重试次数 */
+    private static final int MAX_REPLACE_ATTEMPTS = 3;
+    /** 每条消息的角色、分隔符等额外 token */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    /** 放入提示词的历史（含摘要）token 预算 */
+    public static final int HISTORY_BUDGET = 2000;
 
     private final RedisTemplate<String, String> redisTemplate;
     private final ObjectMapper objectMapper;
+    private final TokenBudgetManager tokenBudgetManager;
 
-    public PersonaChatCache(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper) {
+    public PersonaChatCache(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper,
+                            TokenBudgetManager tokenBudgetManager) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        this.tokenBudgetManager = tokenBudgetManager;
     }
 
-    private String key(String sessionId, Long authorId) {
-        return KEY_PREFIX + sessionId + ":" + authorId;
+    static String listKey(String sessionId, Long authorId) {
+        return LIST_PREFIX + sessionId + ":" + authorId;
     }
 
+    static String summaryKey(String sessionId, Long authorId) {
+        return SUMMARY_PREFIX + sessionId + ":" + authorId;
+    }
+
+    // ==================== 读取 ====================
+
     /**
-     * 获取该会话下与某作者的对话历史。
+     * 本轮提示词使用的历史：摘要 + 预算内最近的消息（从用户消息开始，按时间顺序）
      */
-    public List<ChatMessage> get(String sessionId, Long authorId) {
-        String k = key(sessionId, authorId);
+    public Window window(String sessionId, Long authorId) {
         try {
-            String raw = redisTemplate.opsForValue().get(k);
-            if (raw == null || raw.isBlank()) {
-                return new ArrayList<>();
+            String summary = redisTemplate.opsForValue().get(summaryKey(sessionId, authorId));
+            List<ChatMessage> messages = messages(sessionId, authorId);
+            int remaining = HISTORY_BUDGET - tokenBudgetManager.countTokens(summary);
+            int from = messages.size();
+            while (from > 0) {
+                int tokens = tokens(messages.get(from - 1));
+                if (tokens > remaining) {
+                    break;
+                }
+                remaining -= tokens;
+                from--;
             }
+            // 不以半轮（助手回复）开头
+            while (from < messages.size() && !"user".equals(messages.get(from).role())) {
+                from++;
+            }
+            return new Window(summary, new ArrayList<>(messages.subList(from, messages.size())));
+        } catch (Exception e) {
+            // Redis连接失败，没有历史
+            logger.debug("Persona chat history unavailable for {}:{}: {}", sessionId, authorId, e.getMessage());
+            return new Window(null, new ArrayList<>());
+        }
+    }
+
+    /**
+     * 列表中的全部消息（最多 {@link #MAX_MESSAGES} 条），无法解析的条目跳过（此时头部核对不通过，不会压缩）
+     */
+    List<ChatMessage> messages(String sessionId, Long authorId) {
+        List<String> raw = redisTemplate.opsForList().range(listKey(sessionId, authorId), 0, -1);
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ChatMessage> messages = new ArrayList<>(raw.size());
+        for (String json : raw) {
             try {
-                List<ChatMessage> list = objectMapper.readValue(raw, new TypeReference<List<ChatMessage>>() {});
-                return list != null ? list : new ArrayList<>();
-            } catch (Exception e) {
-                return new ArrayList<>();
+                messages.add(objectMapper.readValue(json, ChatMessage.class));
+            } catch (Exception ignored) {
             }
+        }
+        return messages;
+    }
+
+    int tokens(ChatMessage message) {
+        return tokenBudgetManager.countTokens(message.content()) + MESSAGE_OVERHEAD_TOKENS;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 追加一轮问答并刷新 TTL（一次 MULTI，不读取已有历史）
+     */
+    public void appendTurn(String sessionId, Long authorId, String userContent, String assistantContent) {
+        String listKey = listKey(sessionId, authorId);
+        String summaryKey = summaryKey(sessionId, authorId);
+        try {
+            String user = objectMapper.writeValueAsString(ChatMessage.user(userContent != null ? userContent : ""));
+            String assistant = objectMapper.writeValueAsString(ChatMessage.assistant(assistantContent != null ? assistantContent : ""));
+            redisTemplate.execute(new SessionCallback<List<Object>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.multi();
+                    ops.opsForList().rightPushAll(listKey, user, assistant);
+                    ops.opsForList().trim(listKey, -MAX_MESSAGES, -1);
+                    ops.expire(listKey, TTL);
+                    ops.expire(summaryKey, TTL);
+                    return ops.exec();
+                }
+            });
         } catch (Exception e) {
-            // Redis连接失败，返回空列表
-            return new ArrayList<>();
+            logger.debug("Failed to append persona chat turn for {}:{}: {}", sessionId, authorId, e.getMessage());
         }
     }
 
     /**
-     * 追加一条消息并刷新 TTL。
+     * 写入新摘要并从列表头部移除已压缩的消息（WATCH 列表 + MULTI）。
+     * 列表头部已不是 folded（压缩期间被硬上限裁剪）时不写入，返回 false；
+     * 仅尾部被并发追加导致 EXEC 失败时重新核对后重试
      */
-    public void append(String sessionId, Long authorId, String role, String content) {
-        List<ChatMessage> list = new ArrayList<>(get(sessionId, authorId));
-        list.add(new ChatMessage(role, content != null ? content : ""));
-        String k = key(sessionId, authorId);
+    boolean replaceWithSummary(String sessionId, Long authorId, String summary, List<ChatMessage> folded) {
+        String listKey = listKey(sessionId, authorId);
+        String summaryKey = summaryKey(sessionId, authorId);
+        for (int attempt = 0; attempt < MAX_REPLACE_ATTEMPTS; attempt++) {
+            boolean[] headChanged = new boolean[1];
+            List<Object> result = redisTemplate.execute(new SessionCallback<List<Object>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.watch(listKey);
+                    List<String> head = ops.opsForList().range(listKey, 0, folded.size() - 1);
+                    if (!sameMessages(head, folded)) {
+                        ops.unwatch();
+                        headChanged[0] = true;
+                        return null;
+                    }
+                    ops.multi();
+                    ops.opsForValue().set(summaryKey, summary, TTL);
+                    ops.opsForList().trim(listKey, folded.size(), -1);
+                    ops.expire(listKey, TTL);
+                    return ops.exec();
+                }
+            });
+            if (headChanged[0]) {
+                return false;
+            }
+            if (result != null && !result.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean sameMessages(List<String> raw, List<ChatMessage> expected) {
+        if (raw == null || raw.size() != expected.size()) {
+            return false;
+        }
         try {
-            String json = objectMapper.writeValueAsString(list);
-            redisTemplate.opsForValue().set(k, json, TTL);
-        } catch (Exception ignored) {
+            for (int i = 0; i < raw.size(); i++) {
+                if (!objectMapper.readValue(raw.get(i), ChatMessage.class).equals(expected.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
         }
     }
+
+    String summary(String sessionId, Long authorId) {
+        return redisTemplate.opsForValue().get(summaryKey(sessionId, authorId));
+    }
+
+    /**
+     * 提示词中的历史
+     *
+     * @param summary  更早对话的滚动摘要，可为 null
+     * @param messages 预算内最近的消息
+     */
+    public record Window(String summary, List<ChatMessage> messages) {
+    }
 }
@@ -0,0 +1,115 @@
+package com.example.api.ai;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import com.example.api.ai.dto.ChatMessage;
+import com.example.api.rag.TokenBudgetManager;
+
+/**
+ * 分身对话的滚动摘要：列表中的消息超过 {@link #COMPACT_THRESHOLD} 个 token 时，把较早的整轮问答连同已有摘要
+ * 交给大模型压缩为新摘要，只保留约 {@link #KEEP_RECENT_TOKENS} 个 token 的最近消息。
+ * 每轮对话结束后异步触发，同一会话同时只有一个压缩任务（Redis SETNX 锁）。
+ */
+@Component
+public class PersonaChatSummarizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonaChatSummarizer.class);
+
+    private static final String LOCK_PREFIX = "persona:chat:lock:";
+    private static final Duration LOCK_TTL = Duration.ofMinutes(2);
+
+    /** 列表 token 超过该值时压缩，留出余量，避免每轮都调用大模型 */
+    static final int COMPACT_THRESHOLD = PersonaChatCache.HISTORY_BUDGET * 3 / 2;
+    /** 压缩后保留的最近消息 token 数 */
+    static final int KEEP_RECENT_TOKENS = PersonaChatCache.HISTORY_BUDGET / 2;
+    /** 送去压缩的内容上限 */
+    private static final int MAX_SUMMARY_INPUT_TOKENS = 4000;
+
+    private static final String SUMMARY_SYSTEM_PROMPT =
+            "以下是读者与作者 AI 分身的对话，以及此前对话的摘要（如有）。请合并为一段 300 字以内的摘要，"
+                    + "保留读者关心的问题、已给出的回答要点和双方约定，不要编造对话中没有的内容。";
+
+    private final PersonaChatCache personaChatCache;
+    private final AiChatService aiChatService;
+    private final TokenBudgetManager tokenBudgetManager;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public PersonaChatSummarizer(PersonaChatCache personaChatCache,
+                                 AiChatService aiChatService,
+                                 TokenBudgetManager tokenBudgetManager,
+                                 RedisTemplate<String, String> redisTemplate) {
+        this.personaChatCache = personaChatCache;
+        this.aiChatService = aiChatService;
+        this.tokenBudgetManager = tokenBudgetManager;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Async
+    public void compactIfNeeded(String sessionId, Long authorId) {
+        String lockKey = LOCK_PREFIX + sessionId + ":" + authorId;
+        try {
+            List<ChatMessage> messages = personaChatCache.messages(sessionId, authorId);
+            int[] tokens = messages.stream().mapToInt(personaChatCache::tokens).toArray();
+            int total = 0;
+            for (int t : tokens) {
+                total += t;
+            }
+            if (total <= COMPACT_THRESHOLD) {
+                return;
+            }
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, "1", LOCK_TTL))) {
+                return;
+            }
+            try {
+                compact(sessionId, authorId, messages, tokens);
+            } finally {
+                redisTemplate.delete(lockKey);
+            }
+        } catch (Exception e) {
+            logger.warn("Persona chat compaction failed for {}:{}: {}", sessionId, authorId, e.getMessage());
+        }
+    }
+
+    private void compact(String sessionId, Long authorId, List<ChatMessage> messages, int[] tokens) {
+        // 从最新往前保留 KEEP_RECENT_TOKENS，之前的按整轮（偶数条，问答成对追加）压缩
+        int keepFrom = messages.size();
+        int kept = 0;
+        while (keepFrom > 0 && kept + tokens[keepFrom - 1] <= KEEP_RECENT_TOKENS) {
+            kept += tokens[keepFrom - 1];
+            keepFrom--;
+        }
+        int folded = keepFrom - keepFrom % 2;
+        if (folded <= 0) {
+            return;
+        }
+
+        StringBuilder input = new StringBuilder();
+        String previous = personaChatCache.summary(sessionId, authorId);
+        if (previous != null && !previous.isBlank()) {
+            input.append("【此前摘要】\n").append(previous).append("\n\n");
+        }
+        input.append("【对话】\n");
+        for (ChatMessage message : messages.subList(0, folded)) {
+            input.append("user".equals(message.role()) ? "读者：" : "分身：").append(message.content()).append("\n");
+        }
+        String summary = aiChatService.chat(Collections.emptyList(),
+                tokenBudgetManager.truncateToBudget(input.toString(), MAX_SUMMARY_INPUT_TOKENS), SUMMARY_SYSTEM_PROMPT);
+        if (summary == null || summary.isBlank()) {
+            return;
+        }
+        if (!personaChatCache.replaceWithSummary(sessionId, authorId, summary.trim(), messages.subList(0, folded))) {
+            // 等待大模型期间列表头部已变化（硬上限裁剪），丢弃本次摘要，下一轮对话后重新压缩
+            logger.debug("Persona chat history for {}:{} changed during compaction, summary discarded", sessionId, authorId);
+            return;
+        }
+        logger.debug("Compacted {} persona chat messages for {}:{}", folded, sessionId, authorId);
+    }
+}
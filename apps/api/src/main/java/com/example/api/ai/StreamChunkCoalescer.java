@@ -0,0 +1,188 @@
+package com.example.api.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 流式输出合并：上游增量往往只有一两个汉字，逐个发送会产生大量 SSE 帧和 flush。
+ * 在 {@link AiChatService.StreamChatCallback} 与输出之间缓冲内容，满足以下任一条件时合并为一帧发送：
+ * <ul>
+ *   <li>缓冲字符数达到 maxChars</li>
+ *   <li>缓冲内容等待超过 maxDelayMs（由共享的定时线程触发，上游停顿时也能及时发送）</li>
+ *   <li>遇到句末标点且缓冲字符数不少于 minSentenceChars</li>
+ * </ul>
+ * 对下游的每一次写（内容块、结束、出错）都在该流回调的锁内进行，定时线程与生产线程不会同时写同一个响应。
+ * 同时统计每次生成的上游增量数与实际发送帧数。
+ */
+@Component
+public class StreamChunkCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamChunkCoalescer.class);
+
+    private final StreamCoalescingProperties properties;
+    /** 所有流共享的定时发送线程 */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sse-coalesce-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder upstreamChunks = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+
+    public StreamChunkCoalescer(StreamCoalescingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 包装输出回调；未开启合并时仍统计帧数，内容原样转发
+     */
+    public AiChatService.StreamChatCallback wrap(AiChatService.StreamChatCallback delegate) {
+        return new CoalescingCallback(delegate);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 累计统计：生成次数、上游增量数、发送帧数及平均每次生成的帧数
+     */
+    public Map<String, Object> stats() {
+        long g = generations.sum();
+        long f = frames.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("generations", g);
+        stats.put("upstreamChunks", upstreamChunks.sum());
+        stats.put("frames", f);
+        stats.put("chars", chars.sum());
+        stats.put("framesPerGeneration", g > 0 ? (double) f / g : 0.0);
+        return stats;
+    }
+
+    private static boolean endsWithSentenceBoundary(CharSequence buffer) {
+        if (buffer.length() == 0) {
+            return false;
+        }
+        char c = buffer.charAt(buffer.length() - 1);
+        return c == '。' || c == '！' || c == '？' || c == '…' || c == '；' || c == '\n'
+                || c == '!' || c == '?' || c == '”' || c == '」';
+    }
+
+    private class CoalescingCallback implements AiChatService.StreamChatCallback {
+
+        private final AiChatService.StreamChatCallback delegate;
+        private final StringBuilder buffer = new StringBuilder();
+        /** 等待 maxDelayMs 后发送缓冲内容的定时任务，缓冲区为空时为 null */
+        private ScheduledFuture<?> pendingFlush;
+        /** 定时任务的代次，已取消（但仍执行到）的旧任务据此忽略 */
+        private long timerSeq;
+        private int upstream;
+        private int sent;
+        private boolean finished;
+
+        private CoalescingCallback(AiChatService.StreamChatCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void onChunk(String chunk) {
+            if (finished || chunk == null || chunk.isEmpty()) {
+                return;
+            }
+            upstream++;
+            if (!properties.isEnabled()) {
+                emit(chunk);
+                return;
+            }
+            buffer.append(chunk);
+            if (buffer.length() >= properties.getMaxChars()
+                    || (properties.isSentenceBoundary()
+                        && buffer.length() >= properties.getMinSentenceChars()
+                        && endsWithSentenceBoundary(buffer))) {
+                flush();
+            } else if (pendingFlush == null) {
+                long seq = ++timerSeq;
+                pendingFlush = scheduler.schedule(() -> flushOnTimer(seq), properties.getMaxDelayMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (finished) {
+                return;
+            }
+            flush();
+            finish();
+            delegate.onComplete();
+        }
+
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            if (finished) {
+                return;
+            }
+            flush();
+            finish();
+            delegate.onError(throwable);
+        }
+
+        /**
+         * 定时线程调用；缓冲区已由生产线程发送（任务已被取消或被新任务替代）时忽略
+         */
+        private synchronized void flushOnTimer(long seq) {
+            if (seq != timerSeq || pendingFlush == null) {
+                return;
+            }
+            pendingFlush = null;
+            if (!finished) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (pendingFlush != null) {
+                pendingFlush.cancel(false);
+                pendingFlush = null;
+            }
+            if (buffer.length() == 0) {
+                return;
+            }
+            String data = buffer.toString();
+            buffer.setLength(0);
+            emit(data);
+        }
+
+        private void emit(String data) {
+            sent++;
+            chars.add(data.length());
+            try {
+                delegate.onChunk(data);
+            } catch (Exception e) {
+                logger.debug("Stream output failed: {}", e.getMessage());
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            generations.increment();
+            upstreamChunks.add(upstream);
+            frames.add(sent);
+            logger.debug("Stream finished: {} upstream chunks coalesced into {} frames", upstream, sent);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.api.ai;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 流式输出合并配置
+ * 从 application.yml 的 ai.stream.coalesce 节点读取配置
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.stream.coalesce")
+public class StreamCoalescingProperties {
+
+    /**
+     * 是否合并内容块，关闭后每个上游增量单独发送
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓冲字符数达到该值时立即发送
+     */
+    private int maxChars = 64;
+
+    /**
+     * 缓冲内容最长等待时间（毫秒），超时后发送
+     */
+    private long maxDelayMs = 100;
+
+    /**
+     * 遇到句末标点时发送
+     */
+    private boolean sentenceBoundary = true;
+
+    /**
+     * 按句末标点发送时的最少字符数，避免过短的帧
+     */
+    private int minSentenceChars = 8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    public void setMaxChars(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    public void setMaxDelayMs(long maxDelayMs) {
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public boolean isSentenceBoundary() {
+        return sentenceBoundary;
+    }
+
+    public void setSentenceBoundary(boolean sentenceBoundary) {
+        this.sentenceBoundary = sentenceBoundary;
+    }
+
+    public int getMinSentenceChars() {
+        return minSentenceChars;
+    }
+
+    public void setMinSentenceChars(int minSentenceChars) {
+        this.minSentenceChars = minSentenceChars;
+    }
+}
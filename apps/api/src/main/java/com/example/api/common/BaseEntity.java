@@ -35,6 +35,13 @@ public abstract class BaseEntity {
         this.updatedAt = Instant.now();
     }
 
+    /**
+     * 标记为已修改：关联表中的数据变化而本行字段未变时，使本行仍会 UPDATE 并刷新 updatedAt
+     */
+    protected void touch() {
+        this.updatedAt = Instant.now();
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,166 @@
+package com.example.api.common;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * 大段 Markdown 正文的压缩存储（列类型为 BLOB），用法：{@code @Convert(converter = CompressedTextConverter.class)}。
+ * <p>
+ * 存储格式：首字节为格式版本，其后为数据：
+ * <ul>
+ *   <li>{@link #FORMAT_RAW}：UTF-8 原文（短文本或压缩无收益时）</li>
+ *   <li>{@link #FORMAT_DEFLATE}：UTF-8 原文经 raw deflate 压缩</li>
+ *   <li>其他首字节：迁移前的 UTF-8 原文（LONGTEXT 改为 BLOB 后字节不变，正文不会以控制字符 0x00/0x01 开头），
+ *       由 {@link CompressedTextMigrator} 在后台逐批改写</li>
+ * </ul>
+ * 统计编码/解码次数、字节数与耗时，用于对比压缩的 CPU 开销与节省的存储和 I/O。
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    public static final byte FORMAT_RAW = 0x00;
+    public static final byte FORMAT_DEFLATE = 0x01;
+
+    /** 短于该字节数不压缩 */
+    private static final int MIN_COMPRESS_BYTES = 256;
+
+    private static final LongAdder encodes = new LongAdder();
+    private static final LongAdder encodeRawBytes = new LongAdder();
+    private static final LongAdder encodeStoredBytes = new LongAdder();
+    private static final LongAdder encodeNanos = new LongAdder();
+    private static final LongAdder decodes = new LongAdder();
+    private static final LongAdder decodeStoredBytes = new LongAdder();
+    private static final LongAdder decodeNanos = new LongAdder();
+    private static final LongAdder legacyDecodes = new LongAdder();
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return attribute != null ? encode(attribute) : null;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return dbData != null ? decode(dbData) : null;
+    }
+
+    public static byte[] encode(String text) {
+        long start = System.nanoTime();
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        byte[] stored = null;
+        if (raw.length >= MIN_COMPRESS_BYTES) {
+            byte[] compressed = deflate(raw);
+            if (compressed.length < raw.length) {
+                stored = withFormat(FORMAT_DEFLATE, compressed);
+            }
+        }
+        if (stored == null) {
+            stored = withFormat(FORMAT_RAW, raw);
+        }
+        encodes.increment();
+        encodeRawBytes.add(raw.length);
+        encodeStoredBytes.add(stored.length);
+        encodeNanos.add(System.nanoTime() - start);
+        return stored;
+    }
+
+    public static String decode(byte[] stored) {
+        long start = System.nanoTime();
+        String text;
+        if (stored.length == 0) {
+            text = "";
+        } else if (stored[0] == FORMAT_DEFLATE) {
+            text = new String(inflate(stored), StandardCharsets.UTF_8);
+        } else if (stored[0] == FORMAT_RAW) {
+            text = new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+        } else {
+            legacyDecodes.increment();
+            text = new String(stored, StandardCharsets.UTF_8);
+        }
+        decodes.increment();
+        decodeStoredBytes.add(stored.length);
+        decodeNanos.add(System.nanoTime() - start);
+        return text;
+    }
+
+    /**
+     * 是否已是带格式版本的存储（否则为迁移前的原文）
+     */
+    public static boolean isEncoded(byte[] stored) {
+        return stored.length > 0 && (stored[0] == FORMAT_RAW || stored[0] == FORMAT_DEFLATE);
+    }
+
+    private static byte[] withFormat(byte format, byte[] data) {
+        byte[] out = new byte[data.length + 1];
+        out[0] = format;
+        System.arraycopy(data, 0, out, 1, data.length);
+        return out;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, 1, stored.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("truncated input");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed text: " + Arrays.toString(Arrays.copyOf(stored, 8)), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 压缩统计：编码/解码次数、原文与存储字节数、压缩率、平均耗时（微秒）、读到的未迁移原文次数
+     */
+    public static Map<String, Object> stats() {
+        long encodeCount = encodes.sum();
+        long decodeCount = decodes.sum();
+        long rawBytes = encodeRawBytes.sum();
+        long storedBytes = encodeStoredBytes.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("encodes", encodeCount);
+        stats.put("encodeRawBytes", rawBytes);
+        stats.put("encodeStoredBytes", storedBytes);
+        stats.put("compressionRatio", rawBytes > 0 ? (double) storedBytes / rawBytes : 1.0);
+        stats.put("avgEncodeMicros", encodeCount > 0 ? encodeNanos.sum() / encodeCount / 1000 : 0);
+        stats.put("decodes", decodeCount);
+        stats.put("decodeStoredBytes", decodeStoredBytes.sum());
+        stats.put("avgDecodeMicros", decodeCount > 0 ? decodeNanos.sum() / decodeCount / 1000 : 0);
+        stats.put("legacyDecodes", legacyDecodes.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.api.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 后台把迁移前的原文（LONGTEXT 改为 BLOB 后的 UTF-8 字节）逐批改写为 {@link CompressedTextConverter} 格式。
+ * <ul>
+ *   <li>按主键游标分批，每批一次 batchUpdate；UPDATE 带原值条件，期间被业务改写的行自动跳过</li>
+ *   <li>每张表扫描到末尾后本进程内不再处理；重启后只需各表一次空查询即可确认完成</li>
+ *   <li>记录原文/压缩后字节数与耗时，输出到日志并通过 {@link #stats()} 查看</li>
+ * </ul>
+ */
+@Component
+public class CompressedTextMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressedTextMigrator.class);
+
+    /** 需迁移的列：表、主键列、正文列 */
+    private static final List<Target> TARGETS = List.of(
+            new Target("story_chapter_contents", "chapter_id", "content_markdown"),
+            new Target("story_commits", "id", "content_markdown"),
+            new Target("story_readme", "id", "content_markdown"),
+            new Target("story_commit_summaries", "id", "medium_summary"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    /** 每张表的游标（已处理到的主键），-1 表示已完成 */
+    private final Map<String, Long> cursors = new ConcurrentHashMap<>();
+    private final LongAdder migratedRows = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder encodeMillis = new LongAdder();
+
+    public CompressedTextMigrator(JdbcTemplate jdbcTemplate,
+                                  @Value("${storage.compression.migrate:true}") boolean enabled,
+                                  @Value("${storage.compression.migrate-batch-size:200}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelay = 30_000, fixedDelayString = "${storage.compression.migrate-interval-ms:5000}")
+    public void migrateBatch() {
+        if (!enabled) {
+            return;
+        }
+        for (Target target : TARGETS) {
+            long cursor = cursors.getOrDefault(target.table(), 0L);
+            if (cursor < 0) {
+                continue;
+            }
+            try {
+                cursors.put(target.table(), migrate(target, cursor));
+            } catch (Exception e) {
+                logger.warn("Compressed text migration of {} failed, will retry: {}", target.table(), e.getMessage());
+            }
+            // 每次只处理一张表的一批，控制单次占用
+            return;
+        }
+    }
+
+    /**
+     * 处理 cursor 之后的一批，返回新游标（-1 表示该表已完成）
+     */
+    private long migrate(Target target, long cursor) {
+        String select = "SELECT " + target.idColumn() + ", " + target.column() + " FROM " + target.table()
+                + " WHERE " + target.idColumn() + " > ? AND " + target.column() + " IS NOT NULL"
+                + " AND LEFT(" + target.column() + ", 1) NOT IN (X'00', X'01')"
+                + " ORDER BY " + target.idColumn() + " LIMIT ?";
+        List<Object[]> rows = jdbcTemplate.query(select,
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getBytes(2)}, cursor, batchSize);
+        if (rows.isEmpty()) {
+            logger.info("Compressed text migration of {} complete", target.table());
+            return -1;
+        }
+
+        long start = System.currentTimeMillis();
+        long batchRaw = 0;
+        long batchStored = 0;
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            byte[] legacy = (byte[]) row[1];
+            byte[] encoded = CompressedTextConverter.encode(new String(legacy, StandardCharsets.UTF_8));
+            batchRaw += legacy.length;
+            batchStored += encoded.length;
+            updates.add(new Object[]{encoded, row[0], legacy});
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        jdbcTemplate.batchUpdate("UPDATE " + target.table() + " SET " + target.column() + " = ? WHERE "
+                + target.idColumn() + " = ? AND " + target.column() + " = ?", updates);
+
+        migratedRows.add(rows.size());
+        rawBytes.add(batchRaw);
+        storedBytes.add(batchStored);
+        encodeMillis.add(elapsed);
+        logger.info("Compressed {} rows of {}: {} -> {} bytes, encode {} ms",
+                rows.size(), target.table(), batchRaw, batchStored, elapsed);
+        return (Long) rows.get(rows.size() - 1)[0];
+    }
+
+    /**
+     * 迁移进度与收益：已迁移行数、原文/压缩后字节数、压缩耗时，以及各表是否完成
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("migratedRows", migratedRows.sum());
+        stats.put("rawBytes", rawBytes.sum());
+        stats.put("storedBytes", storedBytes.sum());
+        stats.put("encodeMillis", encodeMillis.sum());
+        Map<String, Object> tables = new LinkedHashMap<>();
+        for (Target target : TARGETS) {
+            Long cursor = cursors.get(target.table());
+            tables.put(target.table(), cursor == null ? "pending" : cursor < 0 ? "done" : "at " + cursor);
+        }
+        stats.put("tables", tables);
+        return stats;
+    }
+
+    private record Target(String table, String idColumn, String column) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.api.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * 资源版本，用于 HTTP 条件请求（ETag / Last-Modified）。
+ * <p>
+ * 由只查 id、version、updatedAt、计数等列的轻量查询得到，不加载正文；
+ * 控制器先调用 {@link #notModified}，命中时直接返回 304，不再查询、序列化响应体。
+ *
+ * @param etag         强 ETag（带引号）
+ * @param lastModified 最后修改时间，可为 null。只有当 ETag 的每个组成部分变化时它都随之变晚才能提供，
+ *                     否则只带 If-Modified-Since 的客户端会拿到过期的 304
+ */
+public record ResourceVersion(String etag, Instant lastModified) {
+
+    /** 公开资源：允许缓存，但每次使用前必须向服务端校验 */
+    public static final String PUBLIC = "no-cache";
+    /** 用户私有资源：只允许浏览器缓存，每次使用前校验 */
+    public static final String PRIVATE = "private, no-cache";
+
+    /**
+     * 由组成版本的各字段（id、version、updatedAt、计数……）生成强 ETag
+     */
+    public static ResourceVersion of(Instant lastModified, Object... parts) {
+        StringJoiner joiner = new StringJoiner(":");
+        for (Object part : parts) {
+            joiner.add(Objects.toString(part, ""));
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(joiner.toString().getBytes(StandardCharsets.UTF_8));
+            return new ResourceVersion("\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"", lastModified);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 多个时间中最新的一个（忽略 null）
+     */
+    public static Instant latest(Instant... instants) {
+        Instant latest = null;
+        for (Instant instant : instants) {
+            if (instant != null && (latest == null || instant.isAfter(latest))) {
+                latest = instant;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 写入 ETag / Last-Modified / Cache-Control 响应头，并按 If-None-Match（优先）或 If-Modified-Since 判断；
+     * 返回 true 时响应已置为 304，控制器应直接返回 null
+     */
+    public boolean notModified(ServletWebRequest request, String cacheControl) {
+        // lastModified 为 null 时只写 ETag，If-Modified-Since 不参与判断
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return lastModified != null
+                ? request.checkNotModified(etag, lastModified.toEpochMilli())
+                : request.checkNotModified(etag);
+    }
+}
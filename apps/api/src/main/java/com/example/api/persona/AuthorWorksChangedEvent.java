@@ -0,0 +1,7 @@
+package com.example.api.persona;
+
+/**
+ * 作者的作品（标题、简介、发布状态）可能变化，事务提交后排队更新作者分身
+ */
+public record AuthorWorksChangedEvent(Long authorId) {
+}
@@ -0,0 +1,135 @@
+package com.example.api.persona;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 作者分身更新的后台队列（Redis 有序集合，score 为到期时间）：
+ * <ul>
+ *   <li>同一作者在窗口内的多次触发合并为一次（ZADD NX，到期时间取第一次触发 + debounce）</li>
+ *   <li>定时取出到期的作者，ZREM 成功的节点才处理，多节点不会重复调用大模型</li>
+ *   <li>定时任务只负责认领，提炼交给 {@link PersonaDistillWorker} 在异步线程池中执行；
+ *       本节点同时进行的提炼不超过 batchSize 个，未认领的留在队列中</li>
+ *   <li>处理失败的作者延后重试；Redis 不可用时退化为本节点内存队列</li>
+ * </ul>
+ */
+@Component
+public class PersonaDistillQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonaDistillQueue.class);
+
+    private static final String QUEUE_KEY = "persona:distill:queue";
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(10);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final PersonaDistillWorker distillWorker;
+    private final Duration debounce;
+    private final int batchSize;
+
+    /** Redis 不可用时的本节点队列：作者ID -> 到期时间 */
+    private final Map<Long, Long> localQueue = new ConcurrentHashMap<>();
+    /** 本节点已认领、尚未完成的提炼数 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public PersonaDistillQueue(RedisTemplate<String, String> redisTemplate,
+                               PersonaDistillWorker distillWorker,
+                               @Value("${persona.distill.debounce:PT2M}") Duration debounce,
+                               @Value("${persona.distill.batch-size:5}") int batchSize) {
+        this.redisTemplate = redisTemplate;
+        this.distillWorker = distillWorker;
+        this.debounce = debounce;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 作品变更的事务提交后入队（无事务时立即入队）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorWorksChanged(AuthorWorksChangedEvent event) {
+        if (event.authorId() != null) {
+            schedule(event.authorId(), System.currentTimeMillis() + debounce.toMillis());
+        }
+    }
+
+    private void schedule(Long authorId, long dueAt) {
+        try {
+            redisTemplate.opsForZSet().addIfAbsent(QUEUE_KEY, String.valueOf(authorId), dueAt);
+        } catch (Exception e) {
+            logger.debug("Persona queue unavailable, queueing author {} locally: {}", authorId, e.getMessage());
+            localQueue.putIfAbsent(authorId, dueAt);
+        }
+    }
+
+    /**
+     * 认领到期的作者并提交异步提炼，不在定时任务线程上调用大模型
+     */
+    @Scheduled(initialDelay = 60_000, fixedDelayString = "${persona.distill.poll-interval-ms:15000}")
+    public void drain() {
+        int capacity = batchSize - inFlight.get();
+        if (capacity <= 0) {
+            return;
+        }
+        for (Long authorId : claimDue(System.currentTimeMillis(), capacity)) {
+            inFlight.incrementAndGet();
+            try {
+                distillWorker.distill(authorId).whenComplete((result, error) -> {
+                    inFlight.decrementAndGet();
+                    if (error != null) {
+                        retry(authorId, error);
+                    }
+                });
+            } catch (Exception e) {
+                // 线程池拒绝提交
+                inFlight.decrementAndGet();
+                retry(authorId, e);
+            }
+        }
+    }
+
+    private void retry(Long authorId, Throwable error) {
+        logger.warn("Persona distill for author {} failed, retrying in {}: {}", authorId, RETRY_DELAY, error.getMessage());
+        schedule(authorId, System.currentTimeMillis() + RETRY_DELAY.toMillis());
+    }
+
+    /**
+     * 取出到期的作者（本地队列 + Redis 中，合计最多 limit 个）
+     */
+    private List<Long> claimDue(long now, int limit) {
+        List<Long> claimed = new ArrayList<>();
+        localQueue.forEach((authorId, dueAt) -> {
+            if (claimed.size() < limit && dueAt <= now && localQueue.remove(authorId, dueAt)) {
+                claimed.add(authorId);
+            }
+        });
+        if (claimed.size() >= limit) {
+            return claimed;
+        }
+        try {
+            Set<String> due = redisTemplate.opsForZSet().rangeByScore(QUEUE_KEY, 0, now, 0, limit - claimed.size());
+            if (due != null) {
+                for (String member : due) {
+                    Long removed = redisTemplate.opsForZSet().remove(QUEUE_KEY, member);
+                    if (removed != null && removed > 0) {
+                        claimed.add(Long.valueOf(member));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Persona queue poll failed: {}", e.getMessage());
+        }
+        return claimed;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.api.persona;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * 在异步线程池中执行作者分身提炼（调用大模型，耗时可达数十秒），
+ * 不占用定时任务线程；由 {@link PersonaDistillQueue} 认领到期作者后提交。
+ */
+@Component
+public class PersonaDistillWorker {
+
+    private final PersonaProfileService personaProfileService;
+
+    public PersonaDistillWorker(PersonaProfileService personaProfileService) {
+        this.personaProfileService = personaProfileService;
+    }
+
+    /**
+     * 提炼一位作者的分身，失败时返回的 future 以异常结束，由队列决定重试
+     */
+    @Async
+    public CompletableFuture<Void> distill(Long authorId) {
+        personaProfileService.updateForAuthor(authorId);
+        return CompletableFuture.completedFuture(null);
+    }
+}
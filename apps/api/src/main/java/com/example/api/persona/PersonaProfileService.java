@@ -2,11 +2,13 @@ package com.example.api.persona;
 
 /**
  * 作者分身提炼：根据已发布文章更新 user_persona_profile 的 distilled_content。
+ * 作品变更通过 {@link AuthorWorksChangedEvent} 进入 {@link PersonaDistillQueue}，合并后在后台调用。
  */
 public interface PersonaProfileService {
 
     /**
-     * 根据该作者已发布文章（标题 + 正文截断）调用大模型提炼写作风格，写入/更新 user_persona_profile。
+     * 根据该作者已发布文章（标题 + 简介截断）更新 user_persona_profile：
+     * 作品未变化时不调用大模型，只有部分作品变化时把变化合并进现有画像，必要时全量重提炼。
      *
      * @param authorId 作者用户 ID
      */
@@ -1,86 +1,241 @@
 package com.example.api.persona;
 
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
-import org.springframework.data.domain.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.api.ai.AiChatService;
 import com.example.api.story.Story;
 import com.example.api.story.StoryRepository;
-import com.example.api.user.User;
 import com.example.api.user.UserRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+/**
+ * 作者分身的增量提炼。
+ * <ul>
+ *   <li>画像记录已并入的作品及其指纹（标题 + 截断简介的哈希），作品未变化时不调用大模型</li>
+ *   <li>有新增、修改、下架的作品时，只把这些变化连同现有画像交给大模型合并</li>
+ *   <li>首次提炼、旧画像没有作品记录、变化超过一半或连续增量合并达到上限时全量重提炼，避免画像漂移</li>
+ * </ul>
+ * 读取与写回各用一个短事务，调用大模型期间不占用数据库连接。
+ */
 @Service
 public class PersonaProfileServiceImpl implements PersonaProfileService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PersonaProfileServiceImpl.class);
+
     private static final int MAX_STORIES_FOR_DISTILL = 20;
     private static final int CONTENT_TRUNCATE_LEN = 500;
+    private static final int MAX_INPUT_LEN = 8000;
+    /** 连续增量合并达到该次数后全量重提炼 */
+    private static final int MAX_INCREMENTAL_MERGES = 10;
     private static final String DISTILL_SYSTEM_PROMPT =
             "请根据以下该作者已发布小说的标题与简介，提炼该作者的写作风格、常写话题、语言特点，输出一段 200 字以内的描述。";
+    private static final String MERGE_SYSTEM_PROMPT =
+            "以下是该作者现有的写作风格描述，以及此后新增或修改的小说（标题与简介）、已下架的小说标题。"
+                    + "请保留现有描述中仍然成立的部分，合并这些变化，输出更新后的一段 200 字以内的描述。";
+
+    private static final TypeReference<LinkedHashMap<Long, FoldedStory>> FOLDED_TYPE = new TypeReference<>() {
+    };
 
     private final UserPersonaProfileRepository personaProfileRepository;
     private final StoryRepository storyRepository;
     private final UserRepository userRepository;
     private final AiChatService aiChatService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
 
     public PersonaProfileServiceImpl(
             UserPersonaProfileRepository personaProfileRepository,
             StoryRepository storyRepository,
             UserRepository userRepository,
-            AiChatService aiChatService) {
+            AiChatService aiChatService,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
         this.personaProfileRepository = personaProfileRepository;
         this.storyRepository = storyRepository;
         this.userRepository = userRepository;
         this.aiChatService = aiChatService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
-    @Transactional
     public void updateForAuthor(Long authorId) {
-        User author = userRepository.findById(authorId).orElse(null);
-        if (author == null) {
+        Snapshot snapshot = transactionTemplate.execute(status -> loadSnapshot(authorId));
+        if (snapshot == null) {
+            return;
+        }
+
+        Map<Long, FoldedStory> current = new LinkedHashMap<>();
+        snapshot.published().forEach(s -> current.put(s.getId(), FoldedStory.of(s)));
+        Map<Long, FoldedStory> folded = snapshot.folded();
+        List<Story> changed = snapshot.published().stream()
+                .filter(s -> !current.get(s.getId()).equals(folded.get(s.getId())))
+                .toList();
+        List<Long> removed = folded.keySet().stream()
+                .filter(id -> !snapshot.publishedIds().contains(id))
+                .toList();
+        if (changed.isEmpty() && removed.isEmpty() && snapshot.distilledContent() != null) {
+            logger.debug("Persona of author {} is up to date", authorId);
             return;
         }
 
-        Page<Story> publishedPage = storyRepository.findByAuthor_IdAndPublishedTrueOrderByUpdatedAtDesc(
-                authorId, PageRequest.of(0, MAX_STORIES_FOR_DISTILL));
-        List<Story> published = publishedPage.getContent();
+        // 仍在发布、只是不在最近 N 部之内的作品保留记录（画像已包含），下架的移除
+        Map<Long, FoldedStory> nextFolded = new LinkedHashMap<>(current);
+        folded.forEach((id, story) -> {
+            if (!removed.contains(id)) {
+                nextFolded.putIfAbsent(id, story);
+            }
+        });
 
-        String distilledContent = buildDistilledContent(published);
+        boolean full = snapshot.published().isEmpty()
+                || snapshot.distilledContent() == null || snapshot.distilledContent().isBlank()
+                || folded.isEmpty()
+                || snapshot.incrementalMerges() >= MAX_INCREMENTAL_MERGES
+                || changed.size() * 2 > snapshot.published().size();
+        String distilledContent;
+        if (full) {
+            distilledContent = distill(snapshot.published());
+        } else {
+            List<String> removedTitles = removed.stream().map(id -> folded.get(id).title()).toList();
+            distilledContent = merge(snapshot.distilledContent(), changed, removedTitles);
+        }
+        logger.info("Persona of author {} {}: {} changed, {} removed, {} published",
+                authorId, full ? "fully distilled" : "merged", changed.size(), removed.size(), snapshot.published().size());
+
+        String foldedJson = writeFolded(nextFolded);
+        transactionTemplate.executeWithoutResult(status -> {
+            UserPersonaProfile profile = personaProfileRepository.findByUserId(authorId)
+                    .orElseGet(() -> new UserPersonaProfile(userRepository.getReferenceById(authorId), null));
+            if (full) {
+                profile.applyFullDistill(distilledContent, foldedJson);
+            } else {
+                profile.applyIncrementalMerge(distilledContent, foldedJson);
+            }
+            personaProfileRepository.save(profile);
+        });
+    }
 
+    private Snapshot loadSnapshot(Long authorId) {
+        if (!userRepository.existsById(authorId)) {
+            return null;
+        }
+        List<Story> published = storyRepository.findByAuthor_IdAndPublishedTrueOrderByUpdatedAtDesc(
+                authorId, PageRequest.of(0, MAX_STORIES_FOR_DISTILL)).getContent();
+        Set<Long> publishedIds = new HashSet<>(storyRepository.findPublishedIdsByAuthorId(authorId));
         UserPersonaProfile profile = personaProfileRepository.findByUserId(authorId).orElse(null);
         if (profile == null) {
-            profile = new UserPersonaProfile(author, distilledContent);
-        } else {
-            profile.setDistilledContent(distilledContent);
-            profile.setUpdatedAt(Instant.now());
+            return new Snapshot(published, publishedIds, Map.of(), null, 0);
         }
-        personaProfileRepository.save(profile);
+        return new Snapshot(published, publishedIds, readFolded(profile.getFoldedStories()),
+                profile.getDistilledContent(), profile.getIncrementalMerges());
     }
 
-    private String buildDistilledContent(List<Story> published) {
-        if (published == null || published.isEmpty()) {
+    private String distill(List<Story> published) {
+        if (published.isEmpty()) {
             return "";
         }
         StringBuilder input = new StringBuilder();
-        for (Story s : published) {
+        appendStories(input, published);
+        return chat(input, DISTILL_SYSTEM_PROMPT);
+    }
+
+    private String merge(String existing, List<Story> changed, List<String> removedTitles) {
+        StringBuilder input = new StringBuilder();
+        input.append("【现有描述】\n").append(existing).append("\n\n");
+        if (!changed.isEmpty()) {
+            input.append("【新增或修改的小说】\n");
+            appendStories(input, changed);
+            input.append("\n");
+        }
+        if (!removedTitles.isEmpty()) {
+            input.append("【已下架的小说】\n").append(String.join("、", removedTitles)).append("\n");
+        }
+        return chat(input, MERGE_SYSTEM_PROMPT);
+    }
+
+    private static void appendStories(StringBuilder input, List<Story> stories) {
+        for (Story s : stories) {
             input.append("【").append(s.getTitle()).append("】");
-            String content = s.getStorySummary();
-            if (content != null && content.length() > CONTENT_TRUNCATE_LEN) {
-                content = content.substring(0, CONTENT_TRUNCATE_LEN) + "...";
-            }
+            String content = truncatedSummary(s);
             if (content != null) {
                 input.append(content);
             }
             input.append("\n");
         }
-        String userContent = input.length() > 8000 ? input.substring(0, 8000) : input.toString();
-        String result = aiChatService.chat(Collections.emptyList(), userContent, DISTILL_SYSTEM_PROMPT);
+    }
+
+    private String chat(StringBuilder input, String systemPrompt) {
+        String userContent = input.length() > MAX_INPUT_LEN ? input.substring(0, MAX_INPUT_LEN) : input.toString();
+        String result = aiChatService.chat(Collections.emptyList(), userContent, systemPrompt);
         return result != null ? result.trim() : "";
     }
+
+    private static String truncatedSummary(Story s) {
+        String content = s.getStorySummary();
+        if (content != null && content.length() > CONTENT_TRUNCATE_LEN) {
+            content = content.substring(0, CONTENT_TRUNCATE_LEN) + "...";
+        }
+        return content;
+    }
+
+    private Map<Long, FoldedStory> readFolded(String json) {
+        if (json == null || json.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, FOLDED_TYPE);
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable folded stories, persona will be fully distilled: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private String writeFolded(Map<Long, FoldedStory> folded) {
+        try {
+            return objectMapper.writeValueAsString(folded);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 读取事务中取得的数据：最近发布的作品、全部已发布作品 ID、画像现状
+     */
+    private record Snapshot(List<Story> published, Set<Long> publishedIds, Map<Long, FoldedStory> folded,
+                            String distilledContent, int incrementalMerges) {
+    }
+
+    /**
+     * 已并入画像的作品：标题（下架时告知大模型）与输入内容的指纹
+     */
+    record FoldedStory(String title, String fingerprint) {
+
+        static FoldedStory of(Story story) {
+            String input = Objects.toString(story.getTitle(), "") + "\n" + Objects.toString(truncatedSummary(story), "");
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+                return new FoldedStory(story.getTitle(), HexFormat.of().formatHex(digest, 0, 16));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
 }
@@ -30,6 +30,17 @@ public class UserPersonaProfile {
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt;
 
+    /** 已并入画像的作品：JSON，作品ID -> 标题与指纹 */
+    @Column(name = "folded_stories", columnDefinition = "LONGTEXT")
+    private String foldedStories;
+
+    /** 上次全量提炼后的增量合并次数 */
+    @Column(name = "incremental_merges", nullable = false)
+    private int incrementalMerges;
+
+    @Column(name = "full_distilled_at")
+    private Instant fullDistilledAt;
+
     protected UserPersonaProfile() {
     }
 
@@ -67,4 +78,35 @@ public class UserPersonaProfile {
     public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public String getFoldedStories() {
+        return foldedStories;
+    }
+
+    public int getIncrementalMerges() {
+        return incrementalMerges;
+    }
+
+    public Instant getFullDistilledAt() {
+        return fullDistilledAt;
+    }
+
+    /**
+     * 全量提炼的结果：重置增量合并计数
+     */
+    public void applyFullDistill(String distilledContent, String foldedStories) {
+        setDistilledContent(distilledContent);
+        this.foldedStories = foldedStories;
+        this.incrementalMerges = 0;
+        this.fullDistilledAt = this.updatedAt;
+    }
+
+    /**
+     * 增量合并的结果
+     */
+    public void applyIncrementalMerge(String distilledContent, String foldedStories) {
+        setDistilledContent(distilledContent);
+        this.foldedStories = foldedStories;
+        this.incrementalMerges++;
+    }
 }
@@ -1,9 +1,11 @@
 package com.example.api.rag;
 
 import com.example.api.common.BaseEntity;
+import com.example.api.common.CompressedTextConverter;
 import com.example.api.readerfork.StoryCommit;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Index;
@@ -29,7 +31,9 @@ public class StoryCommitSummary extends BaseEntity {
     @Column(nullable = false, length = 500)
     private String shortSummary;
 
-    @Column(columnDefinition = "TEXT")
+    /** 压缩存储（见 {@link CompressedTextConverter}） */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "MEDIUMBLOB")
     private String mediumSummary;
 
     @Column(columnDefinition = "JSON")
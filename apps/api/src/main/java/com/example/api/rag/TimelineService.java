@@ -14,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -116,10 +117,16 @@ public class TimelineService {
         List<StoryCommit> allCommits = commitRepository
                 .findByFork_IdOrderBySortOrderAsc(forkId);
 
-        List<StoryCommit> commitsBeforeDivergence = allCommits.stream()
-                .filter(c -> c.getSortOrder() <= divergenceCommit.getSortOrder())
-                .sorted(Comparator.comparingInt(StoryCommit::getSortOrder))
-                .collect(Collectors.toList());
+        // 章节只追加不删除，同一 fork 下可能存在多条分支，只取分支点的祖先链
+        Map<Long, StoryCommit> byId = allCommits.stream()
+                .collect(Collectors.toMap(StoryCommit::getId, c -> c));
+        List<StoryCommit> commitsBeforeDivergence = new ArrayList<>();
+        StoryCommit cursor = byId.get(divergenceCommitId);
+        while (cursor != null) {
+            commitsBeforeDivergence.add(cursor);
+            cursor = cursor.getParentCommit() != null ? byId.get(cursor.getParentCommit().getId()) : null;
+        }
+        commitsBeforeDivergence.sort(Comparator.comparingInt(StoryCommit::getSortOrder));
 
         for (int i = 0; i < commitsBeforeDivergence.size(); i++) {
             StoryCommit commit = commitsBeforeDivergence.get(i);
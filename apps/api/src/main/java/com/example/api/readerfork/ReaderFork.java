@@ -46,6 +46,14 @@ public class ReaderFork extends BaseEntity {
     @jakarta.persistence.Column(name = "last_read_commit_id")
     private Long lastReadCommitId;
 
+    /** 当前 HEAD 章节ID（null 表示位于故事开头，章节只追加不删除） */
+    @jakarta.persistence.Column(name = "head_commit_id")
+    private Long headCommitId;
+
+    /** HEAD 所在路径的章节数；null 表示旧数据，尚未启用 HEAD，按全部章节的线性历史处理 */
+    @jakarta.persistence.Column(name = "head_depth")
+    private Integer headDepth = 0;
+
     protected ReaderFork() {
     }
 
@@ -106,4 +114,20 @@ public class ReaderFork extends BaseEntity {
     public void setLastReadCommitId(Long lastReadCommitId) {
         this.lastReadCommitId = lastReadCommitId;
     }
+
+    public Long getHeadCommitId() {
+        return headCommitId;
+    }
+
+    public Integer getHeadDepth() {
+        return headDepth;
+    }
+
+    /**
+     * 移动 HEAD 指针
+     */
+    public void moveHead(Long headCommitId, int headDepth) {
+        this.headCommitId = headCommitId;
+        this.headDepth = headDepth;
+    }
 }
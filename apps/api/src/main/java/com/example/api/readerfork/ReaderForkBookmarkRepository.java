@@ -19,6 +19,4 @@ public interface ReaderForkBookmarkRepository extends JpaRepository<ReaderForkBo
     Optional<Integer> findMaxSortOrderByForkIdAndReaderId(@Param("forkId") Long forkId, @Param("readerId") Long readerId);
 
     void deleteByForkIdAndReaderIdAndId(Long forkId, Long readerId, Long id);
-
-    void deleteByForkId(Long forkId);
 }
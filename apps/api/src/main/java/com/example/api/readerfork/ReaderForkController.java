@@ -1,12 +1,13 @@
 package com.example.api.readerfork;
 
-import java.io.IOException;
 import java.util.List;
 
 import com.example.api.ai.AiPreviewService;
 import com.example.api.ai.AiPreviewSummaryService;
+import com.example.api.ai.StreamChunkCoalescer;
 import com.example.api.ai.dto.AiPreviewRequest;
 import com.example.api.ai.dto.AiPreviewResponse;
+import com.example.api.common.ResourceVersion;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,15 +19,18 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.example.api.ai.AiChatService;
 import com.example.api.readerfork.dto.BookmarkResponse;
+import com.example.api.readerfork.dto.CheckoutRequest;
 import com.example.api.readerfork.dto.ChooseRequest;
 import com.example.api.readerfork.dto.CreateBookmarkRequest;
+import com.example.api.readerfork.dto.ReaderForkEventResponse;
 import com.example.api.readerfork.dto.ReaderForkResponse;
 import com.example.api.readerfork.dto.RollbackRequest;
 import com.example.api.readerfork.dto.RollbackToBranchPointRequest;
@@ -42,13 +46,19 @@ public class ReaderForkController {
     private final ReaderForkService readerForkService;
     private final AiPreviewService aiPreviewService;
     private final AiPreviewSummaryService aiPreviewSummaryService;
+    private final ReaderForkGenerationStreams generationStreams;
+    private final StreamChunkCoalescer streamChunkCoalescer;
 
     public ReaderForkController(ReaderForkService readerForkService, 
                                 AiPreviewService aiPreviewService,
-                                AiPreviewSummaryService aiPreviewSummaryService) {
+                                AiPreviewSummaryService aiPreviewSummaryService,
+                                ReaderForkGenerationStreams generationStreams,
+                                StreamChunkCoalescer streamChunkCoalescer) {
         this.readerForkService = readerForkService;
         this.aiPreviewService = aiPreviewService;
         this.aiPreviewSummaryService = aiPreviewSummaryService;
+        this.generationStreams = generationStreams;
+        this.streamChunkCoalescer = streamChunkCoalescer;
     }
 
     @PostMapping("/story-seeds/{storySeedId}/fork")
@@ -74,7 +84,13 @@ public class ReaderForkController {
     @GetMapping("/reader-forks/{forkId}/commits")
     public List<StoryCommitResponse> listCommits(
             @AuthenticationPrincipal UserDetails user,
-            @PathVariable Long forkId) {
+            @PathVariable Long forkId,
+            ServletWebRequest request) {
+        // 条件请求：HEAD 与章节未变时直接 304（版本查询只匹配本人的副本，他人请求照常走权限校验）
+        ResourceVersion version = readerForkService.getCommitsVersion(user.getUsername(), forkId);
+        if (version != null && version.notModified(request, ResourceVersion.PRIVATE)) {
+            return null;
+        }
         return readerForkService.listCommits(user.getUsername(), forkId);
     }
 
@@ -84,7 +100,8 @@ public class ReaderForkController {
             @AuthenticationPrincipal UserDetails user,
             @PathVariable Long forkId,
             @Valid @RequestBody ChooseRequest request) {
-        return readerForkService.choose(user.getUsername(), forkId, request.branchPointId(), request.optionId());
+        return readerForkService.choose(user.getUsername(), forkId, request.branchPointId(), request.optionId(),
+                request.idempotencyKey());
     }
 
     @PostMapping("/reader-forks/{forkId}/rollback")
@@ -96,6 +113,21 @@ public class ReaderForkController {
         readerForkService.rollback(user.getUsername(), forkId, request.commitId());
     }
 
+    @PostMapping("/reader-forks/{forkId}/checkout")
+    public ReaderForkResponse checkout(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable Long forkId,
+            @RequestBody CheckoutRequest request) {
+        return readerForkService.checkout(user.getUsername(), forkId, request.commitId());
+    }
+
+    @GetMapping("/reader-forks/{forkId}/events")
+    public List<ReaderForkEventResponse> listEvents(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable Long forkId) {
+        return readerForkService.listEvents(user.getUsername(), forkId);
+    }
+
     @PostMapping("/reader-forks/{forkId}/progress")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void updateReadingProgress(
@@ -110,36 +142,32 @@ public class ReaderForkController {
             @AuthenticationPrincipal UserDetails user,
             @PathVariable Long forkId,
             @Valid @RequestBody ChooseRequest request) {
-        SseEmitter emitter = new SseEmitter(60000L);
-
-        readerForkService.streamChoose(
-                user.getUsername(),
+        String username = user.getUsername();
+        // 副本不存在或无权限时直接返回 4xx，不建立 SSE
+        readerForkService.requireOwnedFork(username, forkId);
+        ReaderForkGenerationStreams.GenerationStream stream = generationStreams.open(username, forkId);
+
+        // 生成与本次连接解耦，断线后可通过 generationId + Last-Event-ID 续传
+        generationStreams.run(stream, () -> readerForkService.streamChoose(
+                username,
                 forkId,
                 request.branchPointId(),
                 request.optionId(),
-                new AiChatService.StreamChatCallback() {
-                    @Override
-                    public void onChunk(String chunk) {
-                        try {
-                            emitter.send(SseEmitter.event().data(chunk));
-                        } catch (IOException e) {
-                            emitter.completeWithError(e);
-                        }
-                    }
-
-                    @Override
-                    public void onComplete() {
-                        emitter.complete();
-                    }
-
-                    @Override
-                    public void onError(Throwable throwable) {
-                        emitter.completeWithError(throwable);
-                    }
-                }
-        );
+                request.idempotencyKey(),
+                streamChunkCoalescer.wrap(stream)));
 
-        return emitter;
+        return generationStreams.subscribe(stream, null);
+    }
+
+    @GetMapping(path = "/reader-forks/{forkId}/generations/{generationId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter resumeGeneration(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable Long forkId,
+            @PathVariable String generationId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        ReaderForkGenerationStreams.GenerationStream stream =
+                generationStreams.find(user.getUsername(), forkId, generationId);
+        return generationStreams.subscribe(stream, lastEventId);
     }
 
     @GetMapping("/reader-forks/{forkId}/bookmarks")
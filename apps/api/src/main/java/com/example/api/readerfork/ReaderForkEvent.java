@@ -0,0 +1,100 @@
+package com.example.api.readerfork;
+
+import com.example.api.common.BaseEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/**
+ * 阅读副本事件（只追加，不修改、不删除）
+ * 选择、回退、切换、书签都会记录一条事件，事件中保存操作后的 HEAD，
+ * 因此任意历史状态都可以直接通过事件上的 HEAD 恢复，无需删除任何章节。
+ */
+@Entity
+@Table(
+        name = "reader_fork_events",
+        indexes = {
+                @Index(name = "idx_reader_fork_events_fork_id", columnList = "fork_id, id")
+        })
+public class ReaderForkEvent extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "fork_id", nullable = false)
+    private ReaderFork fork;
+
+    @Column(name = "event_type", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private EventType eventType;
+
+    /** 事件涉及的章节（新生成/复用/回退目标/书签所在章节） */
+    @Column(name = "commit_id")
+    private Long commitId;
+
+    /** 事件发生前的 HEAD */
+    @Column(name = "previous_head_commit_id")
+    private Long previousHeadCommitId;
+
+    /** 事件发生后的 HEAD（null 表示回到开头） */
+    @Column(name = "head_commit_id")
+    private Long headCommitId;
+
+    /** 事件发生后 HEAD 所在路径的章节数 */
+    @Column(name = "head_depth", nullable = false)
+    private int headDepth;
+
+    public enum EventType {
+        /** 选择选项并生成新章节 */
+        CHOOSE,
+        /** 选择了曾经生成过的选项，直接复用已有章节 */
+        REDO,
+        /** HEAD 回退到更早的章节 */
+        ROLLBACK,
+        /** HEAD 切换到任意已有章节（包括回退后再前进） */
+        CHECKOUT,
+        /** 添加书签 */
+        BOOKMARK
+    }
+
+    protected ReaderForkEvent() {
+    }
+
+    public ReaderForkEvent(ReaderFork fork, EventType eventType, Long commitId, Long previousHeadCommitId) {
+        this.fork = fork;
+        this.eventType = eventType;
+        this.commitId = commitId;
+        this.previousHeadCommitId = previousHeadCommitId;
+        this.headCommitId = fork.getHeadCommitId();
+        this.headDepth = fork.getHeadDepth() != null ? fork.getHeadDepth() : 0;
+    }
+
+    public ReaderFork getFork() {
+        return fork;
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public Long getCommitId() {
+        return commitId;
+    }
+
+    public Long getPreviousHeadCommitId() {
+        return previousHeadCommitId;
+    }
+
+    public Long getHeadCommitId() {
+        return headCommitId;
+    }
+
+    public int getHeadDepth() {
+        return headDepth;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.api.readerfork;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReaderForkEventRepository extends JpaRepository<ReaderForkEvent, Long> {
+
+    List<ReaderForkEvent> findByFork_IdOrderByIdAsc(Long forkId);
+}
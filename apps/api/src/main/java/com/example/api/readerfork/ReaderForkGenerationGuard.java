@@ -0,0 +1,307 @@
+package com.example.api.readerfork;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.api.ai.AiChatService;
+import com.example.api.common.ApiException;
+import com.example.api.readerfork.dto.StoryCommitResponse;
+
+/**
+ * 阅读副本续写的单飞控制：同一个 fork 同一时间只允许一次 AI 生成。
+ * <ul>
+ *   <li>本机：分段锁 + 进行中生成表，重复请求（相同幂等键，或未传幂等键时相同分支点/选项）直接挂到进行中的生成上</li>
+ *   <li>多节点：Redis 租约（SET NX + 过期时间），其他节点上的并发请求返回 409；生成期间定时续租，
+ *       长时间的生成不会因租约过期而被其他节点重复执行</li>
+ *   <li>幂等结果：带幂等键的请求完成后，将章节ID写入 Redis，重试时直接返回已生成的章节</li>
+ * </ul>
+ * Redis 不可用时降级为仅本机控制。
+ */
+@Component
+public class ReaderForkGenerationGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReaderForkGenerationGuard.class);
+
+    private static final String LEASE_KEY_PREFIX = "fork_generation:";
+    private static final String RESULT_KEY_PREFIX = "fork_choose_result:";
+    private static final Duration LEASE_TTL = Duration.ofMinutes(3);
+    /** 续租间隔，远小于租约 TTL，偶尔错过一次也不会过期 */
+    private static final long LEASE_RENEW_INTERVAL_MS = 30_000;
+    private static final Duration RESULT_TTL = Duration.ofMinutes(10);
+    private static final long ATTACH_TIMEOUT_SECONDS = 180;
+    private static final int LOCK_STRIPES = 64;
+
+    /** 仅当租约仍属于自己时才删除，避免误删其他节点续租后的租约 */
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /** 仅当租约仍属于自己时才续期 */
+    private static final DefaultRedisScript<Long> RENEW_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Map<Long, Generation> inFlight = new ConcurrentHashMap<>();
+
+    public ReaderForkGenerationGuard(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 去重键：优先使用客户端传入的幂等键，否则按分支点和选项去重（防双击）
+     */
+    public String dedupeKey(String idempotencyKey, Long branchPointId, Long optionId) {
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            return "key:" + idempotencyKey.trim();
+        }
+        return "option:" + branchPointId + ":" + optionId;
+    }
+
+    /**
+     * 查询带幂等键的请求是否已完成，返回已生成的章节ID
+     */
+    public Long findCompletedCommitId(Long forkId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        try {
+            String value = redisTemplate.opsForValue().get(resultKey(forkId, idempotencyKey.trim()));
+            return value != null ? Long.valueOf(value) : null;
+        } catch (Exception e) {
+            logger.warn("Failed to read choose result for fork {}: {}", forkId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 进入生成：成为 leader 负责调用 AI，或挂到进行中的相同请求上成为 follower。
+     * 同一 fork 上已有不同的生成在进行时抛出 409。
+     */
+    public Admission admit(Long forkId, String dedupeKey, String idempotencyKey) {
+        ReentrantLock lock = locks[Math.floorMod(forkId.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            Generation existing = inFlight.get(forkId);
+            if (existing != null) {
+                if (existing.dedupeKey.equals(dedupeKey)) {
+                    return new Admission(existing, false);
+                }
+                throw new ApiException(HttpStatus.CONFLICT, "该阅读副本正在生成中，请稍候");
+            }
+            String token = UUID.randomUUID().toString();
+            if (!tryAcquireLease(forkId, token)) {
+                throw new ApiException(HttpStatus.CONFLICT, "该阅读副本正在生成中，请稍候");
+            }
+            Generation generation = new Generation(forkId, dedupeKey, idempotencyKey, token);
+            inFlight.put(forkId, generation);
+            return new Admission(generation, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * leader 在事务内调用：事务结束（提交或回滚）后再释放单飞控制并通知 follower，
+     * 确保 follower 拿到结果时章节已经落库。
+     */
+    public void releaseAfterCompletion(Generation generation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("releaseAfterCompletion requires an active transaction");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                finish(generation, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * leader 未能开启事务（如连接池耗尽）时调用：立即释放单飞控制，follower 收到失败
+     */
+    public void abandon(Generation generation) {
+        finish(generation, false);
+    }
+
+    private void finish(Generation generation, boolean committed) {
+        inFlight.remove(generation.forkId, generation);
+        releaseLease(generation.forkId, generation.leaseToken);
+        StoryCommitResponse result = committed ? generation.result : null;
+        if (result != null && generation.idempotencyKey != null && !generation.idempotencyKey.isBlank()) {
+            try {
+                redisTemplate.opsForValue().set(resultKey(generation.forkId, generation.idempotencyKey.trim()),
+                        String.valueOf(result.id()), RESULT_TTL);
+            } catch (Exception e) {
+                logger.warn("Failed to store choose result for fork {}: {}", generation.forkId, e.getMessage());
+            }
+        }
+        generation.complete(result);
+    }
+
+    private boolean tryAcquireLease(Long forkId, String token) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(leaseKey(forkId), token, LEASE_TTL));
+        } catch (Exception e) {
+            // Redis 不可用时降级为仅本机单飞
+            logger.warn("Failed to acquire generation lease for fork {}, falling back to local lock: {}", forkId, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 为本机所有进行中的生成续租；租约已不属于自己（如 Redis 故障期间过期）时只记录日志
+     */
+    @Scheduled(fixedDelay = LEASE_RENEW_INTERVAL_MS)
+    public void renewLeases() {
+        for (Generation generation : inFlight.values()) {
+            try {
+                Long renewed = redisTemplate.execute(RENEW_LEASE_SCRIPT, List.of(leaseKey(generation.forkId)),
+                        generation.leaseToken, String.valueOf(LEASE_TTL.toMillis()));
+                if (renewed == null || renewed == 0) {
+                    logger.warn("Generation lease for fork {} was lost before renewal", generation.forkId);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to renew generation lease for fork {}: {}", generation.forkId, e.getMessage());
+            }
+        }
+    }
+
+    private void releaseLease(Long forkId, String token) {
+        try {
+            redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey(forkId)), token);
+        } catch (Exception e) {
+            logger.warn("Failed to release generation lease for fork {}: {}", forkId, e.getMessage());
+        }
+    }
+
+    private String leaseKey(Long forkId) {
+        return LEASE_KEY_PREFIX + forkId;
+    }
+
+    private String resultKey(Long forkId, String idempotencyKey) {
+        return RESULT_KEY_PREFIX + forkId + ":" + idempotencyKey;
+    }
+
+    public record Admission(Generation generation, boolean leader) {
+    }
+
+    /**
+     * 一次进行中的生成：缓存已生成的内容，供后来挂上的流式请求补发
+     */
+    public static class Generation {
+
+        private final Long forkId;
+        private final String dedupeKey;
+        private final String idempotencyKey;
+        private final String leaseToken;
+        private final StringBuilder content = new StringBuilder();
+        private final List<AiChatService.StreamChatCallback> followers = new ArrayList<>();
+        private final CompletableFuture<StoryCommitResponse> future = new CompletableFuture<>();
+        private StoryCommitResponse result;
+        private boolean finished;
+
+        private Generation(Long forkId, String dedupeKey, String idempotencyKey, String leaseToken) {
+            this.forkId = forkId;
+            this.dedupeKey = dedupeKey;
+            this.idempotencyKey = idempotencyKey;
+            this.leaseToken = leaseToken;
+        }
+
+        /**
+         * leader 收到新的内容块时调用，转发给所有 follower
+         */
+        public synchronized void publishChunk(String chunk) {
+            content.append(chunk);
+            for (AiChatService.StreamChatCallback follower : followers) {
+                try {
+                    follower.onChunk(chunk);
+                } catch (Exception ignored) {
+                }
+            }
+        }
+
+        /**
+         * leader 生成并保存章节后调用，事务提交后结果才对 follower 可见
+         */
+        public synchronized void succeed(StoryCommitResponse result) {
+            this.result = result;
+        }
+
+        /**
+         * 流式 follower：先补发已生成的内容，再接收后续内容
+         */
+        public synchronized void follow(AiChatService.StreamChatCallback callback) {
+            if (content.length() > 0) {
+                callback.onChunk(content.toString());
+            }
+            if (finished) {
+                if (result != null) {
+                    callback.onComplete();
+                } else {
+                    callback.onError(new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "生成失败，请重试"));
+                }
+                return;
+            }
+            followers.add(callback);
+        }
+
+        /**
+         * 非流式 follower：等待 leader 完成并返回同一个章节
+         */
+        public StoryCommitResponse awaitResult() {
+            try {
+                StoryCommitResponse response = future.get(ATTACH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (response == null) {
+                    throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "生成失败，请重试");
+                }
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "生成被中断，请重试");
+            } catch (ExecutionException | TimeoutException e) {
+                throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "生成超时，请重试");
+            }
+        }
+
+        private synchronized void complete(StoryCommitResponse committedResult) {
+            this.result = committedResult;
+            this.finished = true;
+            for (AiChatService.StreamChatCallback follower : followers) {
+                try {
+                    if (committedResult != null) {
+                        follower.onComplete();
+                    } else {
+                        follower.onError(new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "生成失败，请重试"));
+                    }
+                } catch (Exception ignored) {
+                }
+            }
+            followers.clear();
+            future.complete(committedResult);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.api.readerfork;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.api.ai.AiChatService;
+import com.example.api.common.ApiException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 续写生成流与 HTTP 连接解耦：
+ * 生成在后台线程执行，内容块按序号写入每次生成的缓冲区（内存，有大小上限和过期时间，定时清理），
+ * 连接断开后客户端携带 Last-Event-ID 重新订阅即可补发缺失的内容并继续接收，多个标签页也可以同时订阅同一次生成。
+ * <p>
+ * SSE 事件：
+ * <ul>
+ *   <li>generation：订阅后的第一个事件，data 为 generationId，用于断线重连</li>
+ *   <li>默认事件（message）：id 为序号，data 为内容块</li>
+ *   <li>done / error：生成结束；Last-Event-ID 早于缓冲区（缺失的内容已被丢弃）时也以 error 结束，
+ *       客户端在生成结束后重新加载章节</li>
+ * </ul>
+ * 缓冲区在本机内存中，多节点部署时重连需要会话保持。
+ */
+@Component
+public class ReaderForkGenerationStreams {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReaderForkGenerationStreams.class);
+
+    /** SSE 连接超时（AI 流式读取超时为 120 秒） */
+    private static final long EMITTER_TIMEOUT_MS = 180_000L;
+    /** 每次生成最多保留的内容块数量与字符数，超出后丢弃最早的块 */
+    private static final int MAX_BUFFERED_CHUNKS = 4096;
+    private static final int MAX_BUFFERED_CHARS = 64 * 1024;
+    /** 生成结束后缓冲区保留时间 */
+    private static final long RETAIN_AFTER_FINISH_MS = 5 * 60_000L;
+    /** 未结束的生成最长保留时间 */
+    private static final long MAX_AGE_MS = 15 * 60_000L;
+    private static final String GAP_MESSAGE = "部分内容已不在缓冲区，请在生成结束后刷新章节";
+
+    private final Map<String, GenerationStream> streams = new ConcurrentHashMap<>();
+    /** 生成过程主要是等待大模型的阻塞 IO，使用虚拟线程 */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 创建一次生成的缓冲区
+     */
+    public GenerationStream open(String username, Long forkId) {
+        GenerationStream stream = new GenerationStream(UUID.randomUUID().toString(), username, forkId);
+        streams.put(stream.getGenerationId(), stream);
+        return stream;
+    }
+
+    /**
+     * 在后台线程执行生成，生成结果写入缓冲区；HTTP 连接断开不影响生成
+     */
+    public void run(GenerationStream stream, Runnable generation) {
+        executor.execute(() -> {
+            try {
+                generation.run();
+            } catch (Exception e) {
+                stream.onError(e);
+            }
+        });
+    }
+
+    /**
+     * 查找生成缓冲区并校验归属
+     */
+    public GenerationStream find(String username, Long forkId, String generationId) {
+        GenerationStream stream = streams.get(generationId);
+        if (stream == null || stream.isExpired(System.currentTimeMillis()) || !stream.forkId.equals(forkId)) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "生成记录不存在或已过期");
+        }
+        if (!stream.username.equals(username)) {
+            throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
+        }
+        return stream;
+    }
+
+    /**
+     * 订阅生成：先补发 lastEventId 之后的内容，再接收实时内容
+     * @param lastEventId 客户端已收到的最后一个序号，null 表示从头开始
+     */
+    public SseEmitter subscribe(GenerationStream stream, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        emitter.onCompletion(() -> stream.unsubscribe(emitter));
+        emitter.onTimeout(() -> stream.unsubscribe(emitter));
+        emitter.onError(e -> stream.unsubscribe(emitter));
+        stream.subscribe(emitter, lastEventId != null ? lastEventId : 0L);
+        return emitter;
+    }
+
+    /**
+     * 定时清理已过期的缓冲区
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        streams.values().removeIf(s -> s.isExpired(now));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private record Chunk(long seq, String data) {
+    }
+
+    /**
+     * 一次生成的缓冲区，同时作为生成回调写入内容。
+     * 缓冲区的锁只用于追加内容和为订阅者截取待发送的事件，写 SSE 在锁外进行，
+     * 慢客户端不会阻塞生成线程追加内容，也不会阻塞其他订阅者
+     */
+    public static class GenerationStream implements AiChatService.StreamChatCallback {
+
+        private final String generationId;
+        private final String username;
+        private final Long forkId;
+        private final long createdAt = System.currentTimeMillis();
+        private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+        private int bufferedChars;
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private long lastSeq;
+        private boolean finished;
+        private String errorMessage;
+        private long finishedAt;
+
+        private GenerationStream(String generationId, String username, Long forkId) {
+            this.generationId = generationId;
+            this.username = username;
+            this.forkId = forkId;
+        }
+
+        public String getGenerationId() {
+            return generationId;
+        }
+
+        @Override
+        public void onChunk(String chunk) {
+            List<Subscriber> targets;
+            synchronized (this) {
+                if (finished || chunk == null || chunk.isEmpty()) {
+                    return;
+                }
+                chunks.addLast(new Chunk(++lastSeq, chunk));
+                bufferedChars += chunk.length();
+                while (chunks.size() > 1 && (chunks.size() > MAX_BUFFERED_CHUNKS || bufferedChars > MAX_BUFFERED_CHARS)) {
+                    bufferedChars -= chunks.removeFirst().data().length();
+                }
+                targets = List.copyOf(subscribers);
+            }
+            targets.forEach(this::drain);
+        }
+
+        @Override
+        public void onComplete() {
+            finish(null);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            String message = throwable instanceof ApiException && throwable.getMessage() != null
+                    ? throwable.getMessage()
+                    : "生成失败，请重试";
+            if (!(throwable instanceof ApiException)) {
+                logger.warn("Generation {} failed: {}", generationId, throwable != null ? throwable.getMessage() : null);
+            }
+            finish(message);
+        }
+
+        private void finish(String error) {
+            List<Subscriber> targets;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                errorMessage = error;
+                finishedAt = System.currentTimeMillis();
+                targets = List.copyOf(subscribers);
+            }
+            targets.forEach(this::drain);
+        }
+
+        private void subscribe(SseEmitter emitter, long lastEventId) {
+            Subscriber subscriber = new Subscriber(emitter, lastEventId);
+            synchronized (this) {
+                subscribers.add(subscriber);
+            }
+            drain(subscriber);
+        }
+
+        private synchronized void unsubscribe(SseEmitter emitter) {
+            subscribers.removeIf(s -> s.emitter == emitter);
+        }
+
+        /**
+         * 把订阅者尚未收到的事件写出。同一订阅者同一时间只有一个线程在写（其余线程只登记待写），
+         * 保证事件按序号顺序发送；每轮在锁内截取事件，在锁外写出
+         */
+        private void drain(Subscriber subscriber) {
+            if (subscriber.pending.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                List<SseEmitter.SseEventBuilder> events;
+                boolean terminal;
+                synchronized (this) {
+                    events = subscriber.closed ? List.of() : takeEvents(subscriber);
+                    boolean gap = !subscriber.closed && subscriber.gap;
+                    terminal = gap || (!subscriber.closed && finished && !subscriber.terminalSent);
+                    if (terminal) {
+                        subscriber.terminalSent = true;
+                        subscriber.closed = true;
+                        if (gap) {
+                            events.add(SseEmitter.event().name("error").data(GAP_MESSAGE));
+                        } else {
+                            events.add(errorMessage == null
+                                    ? SseEmitter.event().name("done").data("[DONE]")
+                                    : SseEmitter.event().name("error").data(errorMessage));
+                        }
+                        subscribers.remove(subscriber);
+                    }
+                }
+                if (!sendAll(subscriber.emitter, events)) {
+                    synchronized (this) {
+                        subscriber.closed = true;
+                        subscribers.remove(subscriber);
+                    }
+                } else if (terminal) {
+                    subscriber.emitter.complete();
+                }
+                missed = subscriber.pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * 持有缓冲区锁时调用：订阅者尚未收到的事件（首次订阅含 generation 事件）；
+         * 落后于缓冲区时不再发送内容块，标记为缺失，由 drain 以 error 结束
+         */
+        private List<SseEmitter.SseEventBuilder> takeEvents(Subscriber subscriber) {
+            List<SseEmitter.SseEventBuilder> events = new ArrayList<>();
+            if (!subscriber.started) {
+                subscriber.started = true;
+                events.add(SseEmitter.event().name("generation").data(generationId));
+            }
+            Chunk oldest = chunks.peekFirst();
+            if (oldest != null && subscriber.sentSeq < oldest.seq() - 1) {
+                // 缺失的内容已不在缓冲区
+                subscriber.gap = true;
+                return events;
+            }
+            for (Chunk c : chunks) {
+                if (c.seq() > subscriber.sentSeq) {
+                    events.add(SseEmitter.event().id(String.valueOf(c.seq())).data(c.data()));
+                }
+            }
+            subscriber.sentSeq = Math.max(subscriber.sentSeq, lastSeq);
+            return events;
+        }
+
+        private static boolean sendAll(SseEmitter emitter, List<SseEmitter.SseEventBuilder> events) {
+            try {
+                for (SseEmitter.SseEventBuilder event : events) {
+                    emitter.send(event);
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开，生成继续，可通过 Last-Event-ID 重连
+                return false;
+            }
+        }
+
+        private synchronized boolean isExpired(long now) {
+            if (finished) {
+                return now - finishedAt > RETAIN_AFTER_FINISH_MS;
+            }
+            return now - createdAt > MAX_AGE_MS;
+        }
+    }
+
+    /**
+     * 一个 SSE 订阅：已发送到的序号，以及待写标记（drain 的互斥计数）
+     */
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicInteger pending = new AtomicInteger();
+        private long sentSeq;
+        private boolean started;
+        private boolean terminalSent;
+        private boolean closed;
+        /** 缺失的内容已不在缓冲区 */
+        private boolean gap;
+
+        private Subscriber(SseEmitter emitter, long lastEventId) {
+            this.emitter = emitter;
+            this.sentSeq = lastEventId;
+        }
+    }
+}
@@ -3,7 +3,12 @@ package com.example.api.readerfork;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.api.readerfork.dto.ReaderForkResponse;
 
 public interface ReaderForkRepository extends JpaRepository<ReaderFork, Long> {
 
@@ -13,9 +18,41 @@ public interface ReaderForkRepository extends JpaRepository<ReaderFork, Long> {
 
     List<ReaderFork> findByReader_Username(String username);
 
+    /**
+     * 我的阅读副本列表（预取 storySeed、story、reader，避免逐条懒加载）
+     */
+    @EntityGraph(attributePaths = {"storySeed", "story", "reader"})
     List<ReaderFork> findByReader_UsernameOrderByUpdatedAtDesc(String username);
 
+    /**
+     * 我的阅读副本列表的响应投影：一条 JOIN 直接组装响应，不加载 fork、种子、小说实体
+     */
+    @Query("SELECT new com.example.api.readerfork.dto.ReaderForkResponse(f.id, seed.id, " +
+           "COALESCE(seed.title, s.title), COALESCE(seed.slug, s.slug), s.id, f.fromChapterSortOrder, " +
+           "f.lastReadCommitId, f.headCommitId, r.id, r.username, f.title, f.createdAt, f.updatedAt) " +
+           "FROM ReaderFork f JOIN f.reader r LEFT JOIN f.storySeed seed LEFT JOIN f.story s " +
+           "WHERE r.username = :username ORDER BY f.updatedAt DESC")
+    List<ReaderForkResponse> findResponsesByReaderUsername(@Param("username") String username);
+
+    /**
+     * 按ID加载阅读副本并预取 storySeed、story、reader（权限校验和组装响应都要用到，一条 JOIN 代替多次懒加载）
+     */
+    @EntityGraph(attributePaths = {"storySeed", "story", "reader"})
+    Optional<ReaderFork> findWithRefsById(Long id);
+
+    @EntityGraph(attributePaths = {"storySeed", "story", "reader"})
     Optional<ReaderFork> findByStorySeed_IdAndReader_Id(Long storySeedId, Long readerId);
 
+    @EntityGraph(attributePaths = {"storySeed", "story", "reader"})
     Optional<ReaderFork> findByStory_IdAndReader_Id(Long storyId, Long readerId);
+
+    /**
+     * 阅读副本章节列表的版本字段（HTTP 条件请求用，只匹配本人的副本）：
+     * 副本ID、HEAD、副本更新时间、章节数、章节最后修改时间
+     */
+    @Query("SELECT f.id, f.headCommitId, f.updatedAt, " +
+           "(SELECT COUNT(c) FROM StoryCommit c WHERE c.fork = f), " +
+           "(SELECT MAX(c.updatedAt) FROM StoryCommit c WHERE c.fork = f) " +
+           "FROM ReaderFork f WHERE f.id = :forkId AND f.reader.username = :username")
+    List<Object[]> findCommitsVersion(@Param("forkId") Long forkId, @Param("username") String username);
 }
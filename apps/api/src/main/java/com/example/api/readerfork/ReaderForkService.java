@@ -3,8 +3,10 @@ package com.example.api.readerfork;
 import java.util.List;
 
 import com.example.api.ai.AiChatService;
+import com.example.api.common.ResourceVersion;
 import com.example.api.readerfork.dto.BookmarkResponse;
 import com.example.api.readerfork.dto.CreateBookmarkRequest;
+import com.example.api.readerfork.dto.ReaderForkEventResponse;
 import com.example.api.readerfork.dto.ReaderForkResponse;
 import com.example.api.readerfork.dto.StoryCommitResponse;
 
@@ -25,10 +27,35 @@ public interface ReaderForkService {
 
     List<StoryCommitResponse> listCommits(String username, Long forkId);
 
-    StoryCommitResponse choose(String username, Long forkId, Long branchPointId, Long optionId);
+    /**
+     * 阅读副本章节列表的版本（ETag / Last-Modified）；副本不存在或不属于该用户时返回 null
+     */
+    ResourceVersion getCommitsVersion(String username, Long forkId);
+
+    /**
+     * 选择选项并生成章节。同一 fork 同一时间只允许一次生成，重复请求返回同一个章节
+     * @param idempotencyKey 幂等键（可为空，为空时按分支点和选项去重进行中的请求）
+     */
+    StoryCommitResponse choose(String username, Long forkId, Long branchPointId, Long optionId, String idempotencyKey);
+
+    /**
+     * 校验阅读副本存在且属于该用户（流式接口切换为 SSE 之前调用，失败时返回 4xx）
+     */
+    void requireOwnedFork(String username, Long forkId);
 
     void rollback(String username, Long forkId, Long commitId);
 
+    /**
+     * 将 HEAD 切换到任意已生成的章节（章节只追加不删除，回退后可再前进）
+     * @param commitId 目标章节ID，null 表示回到故事开头
+     */
+    ReaderForkResponse checkout(String username, Long forkId, Long commitId);
+
+    /**
+     * 列出阅读副本的事件日志（选择、回退、切换、书签）
+     */
+    List<ReaderForkEventResponse> listEvents(String username, Long forkId);
+
     /**
      * 更新阅读进度
      * @param username 用户名
@@ -43,9 +70,11 @@ public interface ReaderForkService {
      * @param forkId Fork ID
      * @param branchPointId 分支点ID
      * @param optionId 选项ID
+     * @param idempotencyKey 幂等键（可为空），重复请求会挂到进行中的生成上
      * @param callback 流式回调
      */
-    void streamChoose(String username, Long forkId, Long branchPointId, Long optionId, AiChatService.StreamChatCallback callback);
+    void streamChoose(String username, Long forkId, Long branchPointId, Long optionId, String idempotencyKey,
+            AiChatService.StreamChatCallback callback);
 
     List<BookmarkResponse> listBookmarks(String username, Long forkId);
 
@@ -1,19 +1,33 @@
 package com.example.api.readerfork;
 
+import java.time.Instant;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.api.common.ApiException;
+import com.example.api.common.ResourceVersion;
 import com.example.api.readerfork.dto.ReaderForkResponse;
 import com.example.api.readerfork.dto.StoryCommitResponse;
 import com.example.api.story.Story;
 import com.example.api.story.StoryChapter;
 import com.example.api.story.StoryChapterRepository;
 import com.example.api.story.StoryRepository;
+import com.example.api.story.counter.StoryCounterBuffer;
+import com.example.api.story.deletion.StoryDeletionService;
+import com.example.api.story.ranking.StoryActivityEvent;
 import com.example.api.storyseed.StoryBranchPoint;
 import com.example.api.storyseed.StoryBranchPointRepository;
 import com.example.api.storyseed.StoryCharacterRepository;
@@ -36,6 +50,7 @@ import com.example.api.rag.LayeredPromptBuilderV2;
 import com.example.api.rag.TimelineService;
 import com.example.api.readerfork.dto.BookmarkResponse;
 import com.example.api.readerfork.dto.CreateBookmarkRequest;
+import com.example.api.readerfork.dto.ReaderForkEventResponse;
 
 @Service
 public class ReaderForkServiceImpl implements ReaderForkService {
@@ -44,6 +59,7 @@ public class ReaderForkServiceImpl implements ReaderForkService {
 
     private final ReaderForkRepository readerForkRepository;
     private final ReaderForkBookmarkRepository readerForkBookmarkRepository;
+    private final ReaderForkEventRepository readerForkEventRepository;
     private final StoryCommitRepository storyCommitRepository;
     private final StorySeedRepository storySeedRepository;
     private final StoryBranchPointRepository storyBranchPointRepository;
@@ -61,9 +77,16 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     private final TimelineService timelineService;
     private final LayeredPromptBuilderV2 layeredPromptBuilder;
     private final HybridRAGPromptBuilder hybridRAGPromptBuilder;
+    private final ReaderForkGenerationGuard generationGuard;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StoryCounterBuffer counterBuffer;
+    private final StoryDeletionService storyDeletionService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
 
     public ReaderForkServiceImpl(ReaderForkRepository readerForkRepository,
             ReaderForkBookmarkRepository readerForkBookmarkRepository,
+            ReaderForkEventRepository readerForkEventRepository,
             StoryCommitRepository storyCommitRepository,
             StorySeedRepository storySeedRepository,
             StoryBranchPointRepository storyBranchPointRepository,
@@ -80,9 +103,15 @@ public class ReaderForkServiceImpl implements ReaderForkService {
             EntityGraphService entityGraphService,
             TimelineService timelineService,
             LayeredPromptBuilderV2 layeredPromptBuilder,
-            HybridRAGPromptBuilder hybridRAGPromptBuilder) {
+            HybridRAGPromptBuilder hybridRAGPromptBuilder,
+            ReaderForkGenerationGuard generationGuard,
+            ApplicationEventPublisher eventPublisher,
+            StoryCounterBuffer counterBuffer,
+            StoryDeletionService storyDeletionService,
+            PlatformTransactionManager transactionManager) {
         this.readerForkRepository = readerForkRepository;
         this.readerForkBookmarkRepository = readerForkBookmarkRepository;
+        this.readerForkEventRepository = readerForkEventRepository;
         this.storyCommitRepository = storyCommitRepository;
         this.storySeedRepository = storySeedRepository;
         this.storyBranchPointRepository = storyBranchPointRepository;
@@ -100,6 +129,13 @@ public class ReaderForkServiceImpl implements ReaderForkService {
         this.timelineService = timelineService;
         this.layeredPromptBuilder = layeredPromptBuilder;
         this.hybridRAGPromptBuilder = hybridRAGPromptBuilder;
+        this.generationGuard = generationGuard;
+        this.eventPublisher = eventPublisher;
+        this.counterBuffer = counterBuffer;
+        this.storyDeletionService = storyDeletionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Override
@@ -234,8 +270,9 @@ public class ReaderForkServiceImpl implements ReaderForkService {
         fork.setFromChapterSortOrder(fromChapterSortOrder);
         ReaderFork saved = readerForkRepository.save(fork);
         
-        // 增加fork计数
-        storyRepository.incrementForkCount(story.getId());
+        // 增加fork计数（写后缓冲，定时批量落库）
+        counterBuffer.addForks(story.getId(), 1);
+        eventPublisher.publishEvent(new StoryActivityEvent(story.getId(), StoryActivityEvent.Type.FORK));
         
         return toForkResponse(saved);
     }
@@ -243,7 +280,7 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     private String buildOpeningFromChapters(Long storyId, Integer upToSortOrder) {
         List<StoryChapter> chapters = upToSortOrder != null && upToSortOrder > 0
                 ? storyChapterRepository.findByStoryIdUpToSortOrder(storyId, upToSortOrder)
-                : storyChapterRepository.findByStoryIdOrderBySortOrderAsc(storyId);
+                : storyChapterRepository.findWithContentByStoryIdOrderBySortOrderAsc(storyId);
         StringBuilder sb = new StringBuilder();
         for (StoryChapter c : chapters) {
             if (sb.length() > 0) sb.append("\n\n");
@@ -255,15 +292,26 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     @Override
     @Transactional(readOnly = true)
     public List<ReaderForkResponse> listMyForks(String username) {
-        return readerForkRepository.findByReader_UsernameOrderByUpdatedAtDesc(username).stream()
-                .map(this::toForkResponse)
+        // 响应投影，一条 JOIN；未回填 story_id 的旧副本按种子标题批量补齐
+        List<ReaderForkResponse> forks = readerForkRepository.findResponsesByReaderUsername(username);
+        Map<String, Long> legacyStoryIds = findLegacyStoryIds(forks.stream()
+                .filter(f -> f.storyId() == null && f.storySeedId() != null)
+                .map(ReaderForkResponse::storySeedTitle)
+                .toList());
+        if (legacyStoryIds.isEmpty()) {
+            return forks;
+        }
+        return forks.stream()
+                .map(f -> f.storyId() == null && f.storySeedId() != null
+                        ? f.withStoryId(legacyStoryIds.get(f.storySeedTitle()))
+                        : f)
                 .toList();
     }
 
     @Override
     @Transactional(readOnly = true)
     public ReaderForkResponse getFork(String username, Long forkId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
@@ -274,27 +322,120 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     @Override
     @Transactional(readOnly = true)
     public List<StoryCommitResponse> listCommits(String username, Long forkId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
-        return storyCommitRepository.findByFork_IdOrderBySortOrderAsc(forkId).stream()
+        return loadHeadPath(fork).stream()
                 .map(this::toCommitResponse)
                 .toList();
     }
 
     @Override
-    @Transactional
-    public StoryCommitResponse choose(String username, Long forkId, Long branchPointId, Long optionId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
-        if (!fork.getReader().getUsername().equals(username)) {
-            throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
+    @Transactional(readOnly = true)
+    public ResourceVersion getCommitsVersion(String username, Long forkId) {
+        List<Object[]> rows = readerForkRepository.findCommitsVersion(forkId, username);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        Instant lastModified = ResourceVersion.latest((Instant) row[2], (Instant) row[4]);
+        return ResourceVersion.of(lastModified, "commits", row[0], row[1], row[2], row[3], row[4]);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void requireOwnedFork(String username, Long forkId) {
+        loadOwnedFork(username, forkId);
+    }
+
+    /**
+     * 不在外层开事务：follower 等待 leader 期间不占用数据库连接，
+     * 校验、读取结果与 leader 的生成各自使用独立的事务
+     */
+    @Override
+    public StoryCommitResponse choose(String username, Long forkId, Long branchPointId, Long optionId, String idempotencyKey) {
+        // 校验权限；相同幂等键的重试，直接返回已生成的章节
+        StoryCommitResponse completed = readOnlyTransaction.execute(status -> {
+            loadOwnedFork(username, forkId);
+            StoryCommit commit = findCompletedCommit(forkId, idempotencyKey);
+            return commit != null ? toCommitResponse(commit) : null;
+        });
+        if (completed != null) {
+            return completed;
         }
 
-        List<StoryCommit> commits = storyCommitRepository.findByFork_IdOrderBySortOrderAsc(forkId);
-        int nextSortOrder = commits.size() + 1;
+        // 同一 fork 同一时间只允许一次生成，重复请求在事务外等待进行中的生成结果，再读取已提交的章节
+        ReaderForkGenerationGuard.Admission admission = generationGuard.admit(forkId,
+                generationGuard.dedupeKey(idempotencyKey, branchPointId, optionId), idempotencyKey);
+        if (!admission.leader()) {
+            StoryCommitResponse result = admission.generation().awaitResult();
+            return readOnlyTransaction.execute(status -> storyCommitRepository.findById(result.id())
+                    .map(this::toCommitResponse)
+                    .orElse(result));
+        }
+        ReaderForkGenerationGuard.Generation generation = admission.generation();
+        try {
+            return transactionTemplate.execute(status ->
+                    generate(username, forkId, branchPointId, optionId, generation));
+        } catch (CannotCreateTransactionException e) {
+            generationGuard.abandon(generation);
+            throw e;
+        }
+    }
+
+    /**
+     * leader 在事务内生成章节，事务结束后释放单飞控制并通知 follower
+     */
+    private StoryCommitResponse generate(String username, Long forkId, Long branchPointId, Long optionId,
+            ReaderForkGenerationGuard.Generation generation) {
+        generationGuard.releaseAfterCompletion(generation);
+
+        ChooseContext ctx = prepareChoose(username, forkId, branchPointId, optionId);
+        ReaderFork fork = ctx.fork();
+        StoryOption option = ctx.option();
+
+        // 之前在同一位置选过同一选项（回退后重选），直接复用已生成的章节；重做不计入选项的选择次数
+        if (ctx.reusable() != null) {
+            moveHead(fork, ctx.reusable(), ReaderForkEvent.EventType.REDO);
+            StoryCommitResponse response = toCommitResponse(ctx.reusable());
+            generation.succeed(response);
+            return response;
+        }
+
+        counterBuffer.addSelections(option.getId(), 1);
+
+        // 使用混合RAG模式构建Prompt
+        HybridPromptResult promptResult = hybridRAGPromptBuilder.buildPrompt(
+                fork.getStorySeed(), fork.getStory(), ctx.path(), option, forkId);
+        String generated = aiChatService.chat(List.of(), promptResult.prompt(), STORY_GENERATE_SYSTEM);
+        if (generated == null || generated.isBlank()) {
+            generated = "*（生成内容为空，请重试或检查 AI 配置）*";
+        }
+
+        StoryCommit commit = new StoryCommit(fork, ctx.parent(), ctx.nextPoint(), option, generated.trim(), ctx.nextSortOrder());
+        StoryCommit saved = storyCommitRepository.save(commit);
+        moveHead(fork, saved, ReaderForkEvent.EventType.CHOOSE);
+
+        commitSummaryService.generateSummaryAsync(saved);
+        entityRecognitionService.recognizeAndIndexEntitiesAsync(saved, fork.getStorySeed());
+        entityGraphService.extractAndBuildRelationshipsAsync(saved, fork.getStorySeed());
+
+        StoryCommitResponse response = toCommitResponse(saved);
+        generation.succeed(response);
+        return response;
+    }
+
+    /**
+     * 选择选项前的校验：基于 HEAD 路径计算下一个分支点，并查找可复用的已生成章节
+     */
+    private ChooseContext prepareChoose(String username, Long forkId, Long branchPointId, Long optionId) {
+        ReaderFork fork = loadOwnedFork(username, forkId);
+
+        List<StoryCommit> allCommits = storyCommitRepository.findByFork_IdOrderBySortOrderAsc(forkId);
+        List<StoryCommit> path = resolveHeadPath(fork, allCommits);
+        int nextSortOrder = path.size() + 1;
         List<StoryBranchPoint> branchPoints = storyBranchPointRepository
                 .findByStorySeed_IdOrderBySortOrderAsc(fork.getStorySeed().getId());
         if (nextSortOrder > branchPoints.size()) {
@@ -311,32 +452,92 @@ public class ReaderForkServiceImpl implements ReaderForkService {
             throw new ApiException(HttpStatus.BAD_REQUEST, "选项不属于当前分支点");
         }
 
-        option.setSelectionCount(option.getSelectionCount() + 1);
-        storyOptionRepository.save(option);
+        StoryCommit parent = path.isEmpty() ? null : path.get(path.size() - 1);
+        StoryCommit reusable = allCommits.stream()
+                .filter(c -> c.getSortOrder() == nextSortOrder)
+                .filter(c -> c.getOption() != null && c.getOption().getId().equals(optionId))
+                .filter(c -> parent == null
+                        ? c.getParentCommit() == null
+                        : c.getParentCommit() != null && c.getParentCommit().getId().equals(parent.getId()))
+                .findFirst()
+                .orElse(null);
+        return new ChooseContext(fork, path, parent, nextPoint, option, nextSortOrder, reusable);
+    }
 
-        // 使用混合RAG模式构建Prompt
-        HybridPromptResult promptResult = hybridRAGPromptBuilder.buildPrompt(
-                fork.getStorySeed(), fork.getStory(), commits, option, forkId);
-        String generated = aiChatService.chat(List.of(), promptResult.prompt(), STORY_GENERATE_SYSTEM);
-        if (generated == null || generated.isBlank()) {
-            generated = "*（生成内容为空，请重试或检查 AI 配置）*";
+    /**
+     * 加载阅读副本并校验属于当前用户
+     */
+    private ReaderFork loadOwnedFork(String username, Long forkId) {
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
+        if (!fork.getReader().getUsername().equals(username)) {
+            throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
+        return fork;
+    }
 
-        StoryCommit parent = commits.isEmpty() ? null : commits.get(commits.size() - 1);
-        StoryCommit commit = new StoryCommit(fork, parent, nextPoint, option, generated.trim(), nextSortOrder);
-        StoryCommit saved = storyCommitRepository.save(commit);
+    /**
+     * 相同幂等键已完成的章节（须属于该副本），没有时返回 null
+     */
+    private StoryCommit findCompletedCommit(Long forkId, String idempotencyKey) {
+        Long completedCommitId = generationGuard.findCompletedCommitId(forkId, idempotencyKey);
+        if (completedCommitId == null) {
+            return null;
+        }
+        return storyCommitRepository.findById(completedCommitId)
+                .filter(completed -> completed.getFork().getId().equals(forkId))
+                .orElse(null);
+    }
 
-        commitSummaryService.generateSummaryAsync(saved);
-        entityRecognitionService.recognizeAndIndexEntitiesAsync(saved, fork.getStorySeed());
-        entityGraphService.extractAndBuildRelationshipsAsync(saved, fork.getStorySeed());
+    private record ChooseContext(ReaderFork fork, List<StoryCommit> path, StoryCommit parent,
+            StoryBranchPoint nextPoint, StoryOption option, int nextSortOrder, StoryCommit reusable) {
+    }
 
-        return toCommitResponse(saved);
+    /**
+     * 加载 HEAD 路径上的章节（从开头到 HEAD）
+     */
+    private List<StoryCommit> loadHeadPath(ReaderFork fork) {
+        return resolveHeadPath(fork, storyCommitRepository.findByFork_IdOrderBySortOrderAsc(fork.getId()));
+    }
+
+    /**
+     * 章节只追加不删除，同一副本下可能存在多条分支，只有 HEAD 的祖先链是当前可见的剧情。
+     * 一次查询取出全部章节后在内存中沿 parent 回溯，避免逐级查询。
+     */
+    private List<StoryCommit> resolveHeadPath(ReaderFork fork, List<StoryCommit> allCommits) {
+        if (fork.getHeadDepth() == null) {
+            // 旧数据尚未启用 HEAD，历史是线性的
+            return allCommits;
+        }
+        if (fork.getHeadCommitId() == null) {
+            return List.of();
+        }
+        Map<Long, StoryCommit> byId = allCommits.stream()
+                .collect(Collectors.toMap(StoryCommit::getId, Function.identity()));
+        LinkedList<StoryCommit> path = new LinkedList<>();
+        StoryCommit cursor = byId.get(fork.getHeadCommitId());
+        while (cursor != null) {
+            path.addFirst(cursor);
+            cursor = cursor.getParentCommit() != null ? byId.get(cursor.getParentCommit().getId()) : null;
+        }
+        return path;
+    }
+
+    /**
+     * 移动 HEAD 并追加事件；target 为 null 表示回到故事开头
+     */
+    private void moveHead(ReaderFork fork, StoryCommit target, ReaderForkEvent.EventType eventType) {
+        Long previousHead = fork.getHeadCommitId();
+        fork.moveHead(target != null ? target.getId() : null, target != null ? target.getSortOrder() : 0);
+        readerForkRepository.save(fork);
+        readerForkEventRepository.save(new ReaderForkEvent(fork, eventType,
+                target != null ? target.getId() : null, previousHead));
     }
 
     @Override
     @Transactional
     public void rollback(String username, Long forkId, Long commitId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
@@ -346,52 +547,109 @@ public class ReaderForkServiceImpl implements ReaderForkService {
         if (!commit.getFork().getId().equals(forkId)) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "章节不属于当前阅读副本");
         }
-        storyCommitRepository.deleteByFork_IdAndSortOrderGreaterThan(forkId, commit.getSortOrder());
+        // 只能回退到当前 HEAD 路径上的章节，切换到其他分支用 checkout
+        if (loadHeadPath(fork).stream().noneMatch(c -> c.getId().equals(commitId))) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "只能回退到当前剧情路径上的章节");
+        }
+        // 只移动 HEAD，之后的章节保留，重新选择相同选项时可直接复用
+        moveHead(fork, commit, ReaderForkEvent.EventType.ROLLBACK);
     }
 
     @Override
     @Transactional
-    public void updateReadingProgress(String username, Long forkId, Long commitId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+    public ReaderForkResponse checkout(String username, Long forkId, Long commitId) {
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
-        storyCommitRepository.findById(commitId)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
-        fork.setLastReadCommitId(commitId);
-        readerForkRepository.save(fork);
+        StoryCommit target = null;
+        if (commitId != null) {
+            target = storyCommitRepository.findById(commitId)
+                    .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
+            if (!target.getFork().getId().equals(forkId)) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "章节不属于当前阅读副本");
+            }
+        }
+        moveHead(fork, target, ReaderForkEvent.EventType.CHECKOUT);
+        return toForkResponse(fork);
     }
 
     @Override
-    @Transactional
-    public void streamChoose(String username, Long forkId, Long branchPointId, Long optionId, AiChatService.StreamChatCallback callback) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+    @Transactional(readOnly = true)
+    public List<ReaderForkEventResponse> listEvents(String username, Long forkId) {
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
+        return readerForkEventRepository.findByFork_IdOrderByIdAsc(forkId).stream()
+                .map(e -> new ReaderForkEventResponse(
+                        e.getId(),
+                        forkId,
+                        e.getEventType().name(),
+                        e.getCommitId(),
+                        e.getPreviousHeadCommitId(),
+                        e.getHeadCommitId(),
+                        e.getHeadDepth(),
+                        e.getCreatedAt()))
+                .toList();
+    }
 
-        List<StoryCommit> commits = storyCommitRepository.findByFork_IdOrderBySortOrderAsc(forkId);
-        int nextSortOrder = commits.size() + 1;
-        List<StoryBranchPoint> branchPoints = storyBranchPointRepository
-                .findByStorySeed_IdOrderBySortOrderAsc(fork.getStorySeed().getId());
-        if (nextSortOrder > branchPoints.size()) {
-            throw new ApiException(HttpStatus.BAD_REQUEST, "没有更多分支点");
-        }
-        StoryBranchPoint nextPoint = branchPoints.get(nextSortOrder - 1);
-        if (!nextPoint.getId().equals(branchPointId)) {
-            throw new ApiException(HttpStatus.BAD_REQUEST, "请按顺序选择当前分支点的选项");
+    @Override
+    @Transactional
+    public void updateReadingProgress(String username, Long forkId, Long commitId) {
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
+        if (!fork.getReader().getUsername().equals(username)) {
+            throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
+        storyCommitRepository.findById(commitId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
+        fork.setLastReadCommitId(commitId);
+        readerForkRepository.save(fork);
+    }
 
-        StoryOption option = storyOptionRepository.findById(optionId)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "选项不存在"));
-        if (!option.getBranchPoint().getId().equals(branchPointId)) {
-            throw new ApiException(HttpStatus.BAD_REQUEST, "选项不属于当前分支点");
+    @Override
+    @Transactional
+    public void streamChoose(String username, Long forkId, Long branchPointId, Long optionId, String idempotencyKey,
+            AiChatService.StreamChatCallback callback) {
+        loadOwnedFork(username, forkId);
+
+        // 相同幂等键的重试，直接返回已生成的章节内容
+        StoryCommit completed = findCompletedCommit(forkId, idempotencyKey);
+        if (completed != null) {
+            callback.onChunk(completed.getContentMarkdown());
+            callback.onComplete();
+            return;
+        }
+
+        // 重复请求挂到进行中的生成上：补发已生成的内容并继续接收，不会再次调用大模型
+        ReaderForkGenerationGuard.Admission admission = generationGuard.admit(forkId,
+                generationGuard.dedupeKey(idempotencyKey, branchPointId, optionId), idempotencyKey);
+        if (!admission.leader()) {
+            admission.generation().follow(callback);
+            return;
+        }
+        ReaderForkGenerationGuard.Generation generation = admission.generation();
+        generationGuard.releaseAfterCompletion(generation);
+
+        ChooseContext ctx = prepareChoose(username, forkId, branchPointId, optionId);
+        ReaderFork fork = ctx.fork();
+        StoryOption option = ctx.option();
+
+        // 复用已生成的章节，无需再次调用大模型
+        if (ctx.reusable() != null) {
+            moveHead(fork, ctx.reusable(), ReaderForkEvent.EventType.REDO);
+            generation.publishChunk(ctx.reusable().getContentMarkdown());
+            generation.succeed(toCommitResponse(ctx.reusable()));
+            callback.onChunk(ctx.reusable().getContentMarkdown());
+            callback.onComplete();
+            return;
         }
 
         HybridPromptResult promptResult = hybridRAGPromptBuilder.buildPrompt(
-                fork.getStorySeed(), fork.getStory(), commits, option, forkId);
+                fork.getStorySeed(), fork.getStory(), ctx.path(), option, forkId);
 
         StringBuilder generatedContent = new StringBuilder();
 
@@ -405,6 +663,7 @@ public class ReaderForkServiceImpl implements ReaderForkService {
                         @Override
                         public void onChunk(String chunk) {
                             generatedContent.append(chunk);
+                            generation.publishChunk(chunk);
                             callback.onChunk(chunk);
                         }
 
@@ -415,9 +674,10 @@ public class ReaderForkServiceImpl implements ReaderForkService {
                                 generated = "*（生成内容为空，请重试或检查 AI 配置）*";
                             }
 
-                            StoryCommit parent = commits.isEmpty() ? null : commits.get(commits.size() - 1);
-                            StoryCommit commit = new StoryCommit(fork, parent, nextPoint, option, generated.trim(), nextSortOrder);
+                            StoryCommit commit = new StoryCommit(fork, ctx.parent(), ctx.nextPoint(), option, generated.trim(), ctx.nextSortOrder());
                             StoryCommit saved = storyCommitRepository.save(commit);
+                            moveHead(fork, saved, ReaderForkEvent.EventType.CHOOSE);
+                            generation.succeed(toCommitResponse(saved));
 
                             commitSummaryService.generateSummaryAsync(saved);
                             entityRecognitionService.recognizeAndIndexEntitiesAsync(saved, fork.getStorySeed());
@@ -490,6 +750,25 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     }
 
     private ReaderForkResponse toForkResponse(ReaderFork fork) {
+        Map<String, Long> legacyStoryIds = fork.getStory() == null && fork.getStorySeed() != null
+                ? findLegacyStoryIds(List.of(fork.getStorySeed().getTitle()))
+                : Map.of();
+        return toForkResponse(fork, legacyStoryIds);
+    }
+
+    /**
+     * 旧数据中未回填 story_id 的副本（迁移时同一读者已有该小说的副本而跳过），按种子标题一次查出对应小说ID
+     */
+    private Map<String, Long> findLegacyStoryIds(List<String> seedTitles) {
+        List<String> titles = seedTitles.stream().filter(Objects::nonNull).distinct().toList();
+        if (titles.isEmpty()) {
+            return Map.of();
+        }
+        return storyRepository.findFirstIdsByTitleIn(titles).stream()
+                .collect(Collectors.toMap(row -> (String) row[0], row -> (Long) row[1]));
+    }
+
+    private ReaderForkResponse toForkResponse(ReaderFork fork, Map<String, Long> legacyStoryIds) {
         String storySlug = null;
         if (fork.getStorySeed() != null) {
             storySlug = fork.getStorySeed().getSlug();
@@ -497,19 +776,10 @@ public class ReaderForkServiceImpl implements ReaderForkService {
             storySlug = fork.getStory().getSlug();
         }
         
-        // 获取 storyId：优先使用 fork.getStory()，如果没有则尝试通过 title 查找
-        Long storyId = null;
-        if (fork.getStory() != null) {
-            storyId = fork.getStory().getId();
-        } else if (fork.getStorySeed() != null) {
-            // 尝试通过 title 查找对应的 Story（Story 和 StorySeed 的 title 应该相同）
-            String seedTitle = fork.getStorySeed().getTitle();
-            List<Story> storiesByTitle = storyRepository.findByTitle(seedTitle);
-            if (!storiesByTitle.isEmpty()) {
-                storyId = storiesByTitle.get(0).getId();
-            }
-        }
-        
+        // story_id 在创建 fork 时写入，旧数据由迁移脚本回填；未能回填的按种子标题批量查出
+        Long storyId = fork.getStory() != null ? fork.getStory().getId()
+                : fork.getStorySeed() != null ? legacyStoryIds.get(fork.getStorySeed().getTitle()) : null;
+
         return new ReaderForkResponse(
                 fork.getId(),
                 fork.getStorySeed() != null ? fork.getStorySeed().getId() : null,
@@ -518,6 +788,7 @@ public class ReaderForkServiceImpl implements ReaderForkService {
                 storyId,
                 fork.getFromChapterSortOrder(),
                 fork.getLastReadCommitId(),
+                fork.getHeadCommitId(),
                 fork.getReader().getId(),
                 fork.getReader().getUsername(),
                 fork.getTitle(),
@@ -561,21 +832,32 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     @Override
     @Transactional(readOnly = true)
     public List<BookmarkResponse> listBookmarks(String username, Long forkId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
-        return readerForkBookmarkRepository.findByForkIdAndReaderIdOrderBySortOrderAscCreatedAtAsc(forkId, fork.getReader().getId())
-                .stream()
-                .map(this::toBookmarkResponse)
+        List<ReaderForkBookmark> bookmarks = readerForkBookmarkRepository
+                .findByForkIdAndReaderIdOrderBySortOrderAscCreatedAtAsc(forkId, fork.getReader().getId());
+        // 一次 IN 查询取出所有书签对应的章节及选项
+        List<Long> commitIds = bookmarks.stream()
+                .map(ReaderForkBookmark::getCommitId)
+                .filter(id -> id != null)
+                .distinct()
+                .toList();
+        Map<Long, StoryCommit> commits = commitIds.isEmpty()
+                ? Map.of()
+                : storyCommitRepository.findByIdInWithOption(commitIds).stream()
+                        .collect(Collectors.toMap(StoryCommit::getId, Function.identity()));
+        return bookmarks.stream()
+                .map(b -> toBookmarkResponse(b, b.getCommitId() != null ? commits.get(b.getCommitId()) : null))
                 .toList();
     }
 
     @Override
     @Transactional
     public BookmarkResponse createBookmark(String username, Long forkId, CreateBookmarkRequest request) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
@@ -598,13 +880,15 @@ public class ReaderForkServiceImpl implements ReaderForkService {
         }
 
         ReaderForkBookmark saved = readerForkBookmarkRepository.save(bookmark);
+        readerForkEventRepository.save(new ReaderForkEvent(fork, ReaderForkEvent.EventType.BOOKMARK,
+                saved.getCommitId(), fork.getHeadCommitId()));
         return toBookmarkResponse(saved);
     }
 
     @Override
     @Transactional
     public BookmarkResponse updateBookmark(String username, Long forkId, Long bookmarkId, CreateBookmarkRequest request) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
@@ -632,7 +916,7 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     @Override
     @Transactional
     public void deleteBookmark(String username, Long forkId, Long bookmarkId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
@@ -647,32 +931,34 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     @Override
     @Transactional
     public void rollbackToBranchPoint(String username, Long forkId, Integer branchPointSortOrder) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
 
-        List<StoryCommit> commits = storyCommitRepository.findByFork_IdOrderBySortOrderAsc(forkId);
+        List<StoryCommit> commits = loadHeadPath(fork);
         
         if (branchPointSortOrder < 0 || branchPointSortOrder > commits.size()) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "无效的分支点序号");
         }
 
-        if (branchPointSortOrder == 0) {
-            storyCommitRepository.deleteByFork_Id(forkId);
-        } else {
-            StoryCommit targetCommit = commits.get(branchPointSortOrder - 1);
-            storyCommitRepository.deleteByFork_IdAndSortOrderGreaterThan(forkId, targetCommit.getSortOrder());
-        }
+        StoryCommit targetCommit = branchPointSortOrder == 0 ? null : commits.get(branchPointSortOrder - 1);
+        moveHead(fork, targetCommit, ReaderForkEvent.EventType.ROLLBACK);
     }
 
     private BookmarkResponse toBookmarkResponse(ReaderForkBookmark bookmark) {
+        StoryCommit commit = bookmark.getCommitId() != null
+                ? storyCommitRepository.findById(bookmark.getCommitId()).orElse(null)
+                : null;
+        return toBookmarkResponse(bookmark, commit);
+    }
+
+    private BookmarkResponse toBookmarkResponse(ReaderForkBookmark bookmark, StoryCommit commit) {
         String commitTitle = null;
         String commitSummary = null;
         
         if (bookmark.getCommitId() != null) {
-            StoryCommit commit = storyCommitRepository.findById(bookmark.getCommitId()).orElse(null);
             if (commit != null) {
                 commitTitle = commit.getOption() != null ? commit.getOption().getLabel() : null;
                 if (commit.getContentMarkdown() != null) {
@@ -703,13 +989,13 @@ public class ReaderForkServiceImpl implements ReaderForkService {
     @Override
     @Transactional
     public void deleteFork(String username, Long forkId) {
-        ReaderFork fork = readerForkRepository.findById(forkId)
+        ReaderFork fork = readerForkRepository.findWithRefsById(forkId)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "阅读副本不存在"));
         if (!fork.getReader().getUsername().equals(username)) {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
-        storyCommitRepository.deleteByFork_Id(forkId);
-        readerForkBookmarkRepository.deleteByForkId(forkId);
-        readerForkRepository.deleteById(forkId);
+        // 提交、事件、书签、PR 按外键顺序各一条 DELETE，不逐条加载提交
+        storyDeletionService.deleteFork(forkId);
+        eventPublisher.publishEvent(new StoryActivityEvent(fork.getStory().getId(), StoryActivityEvent.Type.UNFORK));
     }
 }
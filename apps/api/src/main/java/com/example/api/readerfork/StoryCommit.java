@@ -1,10 +1,12 @@
 package com.example.api.readerfork;
 
 import com.example.api.common.BaseEntity;
+import com.example.api.common.CompressedTextConverter;
 import com.example.api.storyseed.StoryBranchPoint;
 import com.example.api.storyseed.StoryOption;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Index;
@@ -37,7 +39,9 @@ public class StoryCommit extends BaseEntity {
     @JoinColumn(name = "option_id")
     private StoryOption option;
 
-    @Column(nullable = false, columnDefinition = "LONGTEXT")
+    /** 压缩存储（见 {@link CompressedTextConverter}） */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
     private String contentMarkdown;
 
     @Column(nullable = false)
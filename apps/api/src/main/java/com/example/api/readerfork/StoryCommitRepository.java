@@ -1,14 +1,19 @@
 package com.example.api.readerfork;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface StoryCommitRepository extends JpaRepository<StoryCommit, Long> {
 
     List<StoryCommit> findByFork_IdOrderBySortOrderAsc(Long forkId);
 
-    void deleteByFork_Id(Long forkId);
-
-    void deleteByFork_IdAndSortOrderGreaterThan(Long forkId, int sortOrder);
+    /**
+     * 批量加载章节并预取选项（用于书签列表，避免逐条查询）
+     */
+    @Query("SELECT c FROM StoryCommit c LEFT JOIN FETCH c.option WHERE c.id IN :ids")
+    List<StoryCommit> findByIdInWithOption(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,7 @@
+package com.example.api.readerfork.dto;
+
+/**
+ * 切换 HEAD：commitId 为 null 表示回到故事开头
+ */
+public record CheckoutRequest(Long commitId) {
+}
@@ -0,0 +1,17 @@
+package com.example.api.readerfork.dto;
+
+import java.time.Instant;
+
+public record ReaderForkEventResponse(
+        Long id,
+        Long forkId,
+        /** CHOOSE / REDO / ROLLBACK / CHECKOUT / BOOKMARK */
+        String eventType,
+        Long commitId,
+        Long previousHeadCommitId,
+        /** 事件发生后的 HEAD，null 表示回到开头 */
+        Long headCommitId,
+        int headDepth,
+        Instant createdAt
+) {
+}
@@ -13,10 +13,17 @@ public record ReaderForkResponse(
         Integer fromChapterSortOrder,
         /** 最后阅读的章节ID */
         Long lastReadCommitId,
+        /** 当前 HEAD 章节ID，null 表示位于故事开头 */
+        Long headCommitId,
         Long readerId,
         String readerUsername,
         String title,
         Instant createdAt,
         Instant updatedAt
 ) {
+
+    public ReaderForkResponse withStoryId(Long storyId) {
+        return new ReaderForkResponse(id, storySeedId, storySeedTitle, storySeedSlug, storyId, fromChapterSortOrder,
+                lastReadCommitId, headCommitId, readerId, readerUsername, title, createdAt, updatedAt);
+    }
 }
@@ -1,9 +1,12 @@
 package com.example.api.readerfork.dto;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 public record StreamChooseRequest(
         @NotNull Long branchPointId,
-        @NotNull Long optionId
+        @NotNull Long optionId,
+        /** 幂等键（可选），客户端重试/双击时传相同的值，不会重复生成 */
+        @Size(max = 100) String idempotencyKey
 ) {
 }
@@ -6,10 +6,10 @@ import com.example.api.ai.dto.ChatMessage;
 import com.example.api.common.ApiException;
 import com.example.api.story.dto.AiWritingRequest;
 import com.example.api.story.dto.AiWritingResponse;
-import com.example.api.storyseed.StoryCharacter;
-import com.example.api.storyseed.StoryCharacterRepository;
-import com.example.api.storyseed.StoryTerm;
-import com.example.api.storyseed.StoryTermRepository;
+import com.example.api.story.knowledge.StoryKnowledgeBundle;
+import com.example.api.story.knowledge.StoryKnowledgeCache;
+import com.example.api.storyseed.dto.StoryCharacterResponse;
+import com.example.api.storyseed.dto.StoryTermResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,8 +35,7 @@ public class AiWritingServiceImpl implements AiWritingService {
     private final StoryRepository storyRepository;
     private final StoryChapterRepository chapterRepository;
     private final AiChatService aiChatService;
-    private final StoryCharacterRepository characterRepository;
-    private final StoryTermRepository termRepository;
+    private final StoryKnowledgeCache knowledgeCache;
     private final ChapterSummaryService chapterSummaryService;
     private final StoryChapterSummaryRepository chapterSummaryRepository;
 
@@ -44,15 +43,13 @@ public class AiWritingServiceImpl implements AiWritingService {
             StoryRepository storyRepository,
             StoryChapterRepository chapterRepository,
             AiChatService aiChatService,
-            StoryCharacterRepository characterRepository,
-            StoryTermRepository termRepository,
+            StoryKnowledgeCache knowledgeCache,
             ChapterSummaryService chapterSummaryService,
             StoryChapterSummaryRepository chapterSummaryRepository) {
         this.storyRepository = storyRepository;
         this.chapterRepository = chapterRepository;
         this.aiChatService = aiChatService;
-        this.characterRepository = characterRepository;
-        this.termRepository = termRepository;
+        this.knowledgeCache = knowledgeCache;
         this.chapterSummaryService = chapterSummaryService;
         this.chapterSummaryRepository = chapterSummaryRepository;
     }
@@ -157,21 +154,22 @@ public class AiWritingServiceImpl implements AiWritingService {
         sb.append("\n");
 
         // 角色设定
-        List<StoryCharacter> characters = characterRepository.findByStory_IdOrderBySortOrderAsc(story.getId());
+        StoryKnowledgeBundle knowledge = knowledgeCache.get(story.getId());
+        List<StoryCharacterResponse> characters = knowledge.characters();
         if (!characters.isEmpty()) {
             sb.append("【角色设定】\n");
-            for (StoryCharacter ch : characters) {
-                sb.append(ch.getName()).append("：").append(ch.getDescription()).append("\n");
+            for (StoryCharacterResponse ch : characters) {
+                sb.append(ch.name()).append("：").append(ch.description()).append("\n");
             }
             sb.append("\n");
         }
 
         // 术语设定
-        List<StoryTerm> terms = termRepository.findByStory_IdOrderBySortOrderAsc(story.getId());
+        List<StoryTermResponse> terms = knowledge.terms();
         if (!terms.isEmpty()) {
             sb.append("【术语设定】\n");
-            for (StoryTerm term : terms) {
-                sb.append(term.getName()).append("：").append(term.getDefinition()).append("\n");
+            for (StoryTermResponse term : terms) {
+                sb.append(term.name()).append("：").append(term.definition()).append("\n");
             }
             sb.append("\n");
         }
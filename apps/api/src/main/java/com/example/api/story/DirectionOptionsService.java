@@ -5,10 +5,10 @@ import com.example.api.ai.AiDebugContext;
 import com.example.api.common.ApiException;
 import com.example.api.story.dto.GenerateDirectionOptionsResponse;
 import com.example.api.story.dto.GenerateDirectionOptionsResponse.DirectionOption;
-import com.example.api.storyseed.StoryCharacter;
-import com.example.api.storyseed.StoryCharacterRepository;
-import com.example.api.storyseed.StoryTerm;
-import com.example.api.storyseed.StoryTermRepository;
+import com.example.api.story.knowledge.StoryKnowledgeBundle;
+import com.example.api.story.knowledge.StoryKnowledgeCache;
+import com.example.api.storyseed.dto.StoryCharacterResponse;
+import com.example.api.storyseed.dto.StoryTermResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -37,21 +37,18 @@ public class DirectionOptionsService {
 
     private final StoryRepository storyRepository;
     private final StoryChapterSummaryRepository summaryRepository;
-    private final StoryCharacterRepository characterRepository;
-    private final StoryTermRepository termRepository;
+    private final StoryKnowledgeCache knowledgeCache;
     private final AiChatService aiChatService;
     private final ObjectMapper objectMapper;
 
     public DirectionOptionsService(StoryRepository storyRepository,
                                    StoryChapterSummaryRepository summaryRepository,
-                                   StoryCharacterRepository characterRepository,
-                                   StoryTermRepository termRepository,
+                                   StoryKnowledgeCache knowledgeCache,
                                    AiChatService aiChatService,
                                    ObjectMapper objectMapper) {
         this.storyRepository = storyRepository;
         this.summaryRepository = summaryRepository;
-        this.characterRepository = characterRepository;
-        this.termRepository = termRepository;
+        this.knowledgeCache = knowledgeCache;
         this.aiChatService = aiChatService;
         this.objectMapper = objectMapper;
     }
@@ -109,19 +106,20 @@ public class DirectionOptionsService {
         }
         sb.append("\n");
 
-        List<StoryCharacter> characters = characterRepository.findByStory_IdOrderBySortOrderAsc(story.getId());
+        StoryKnowledgeBundle knowledge = knowledgeCache.get(story.getId());
+        List<StoryCharacterResponse> characters = knowledge.characters();
         if (!characters.isEmpty()) {
             sb.append("【角色】\n");
-            for (StoryCharacter c : characters) {
-                sb.append("- ").append(c.getName()).append("：").append(c.getDescription() != null ? c.getDescription() : "").append("\n");
+            for (StoryCharacterResponse c : characters) {
+                sb.append("- ").append(c.name()).append("：").append(c.description() != null ? c.description() : "").append("\n");
             }
             sb.append("\n");
         }
-        List<StoryTerm> terms = termRepository.findByStory_IdOrderBySortOrderAsc(story.getId());
+        List<StoryTermResponse> terms = knowledge.terms();
         if (!terms.isEmpty()) {
             sb.append("【术语】\n");
-            for (StoryTerm t : terms) {
-                sb.append("- ").append(t.getName()).append("：").append(t.getDefinition() != null ? t.getDefinition() : "").append("\n");
+            for (StoryTermResponse t : terms) {
+                sb.append("- ").append(t.name()).append("：").append(t.definition() != null ? t.definition() : "").append("\n");
             }
             sb.append("\n");
         }
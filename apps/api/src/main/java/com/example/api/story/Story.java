@@ -6,6 +6,9 @@ import com.example.api.inspiration.Inspiration;
 import com.example.api.storyseed.StoryBranchPoint;
 import com.example.api.user.User;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
@@ -35,7 +38,10 @@ import java.util.List;
                 @Index(name = "idx_stories_published", columnList = "published"),
                 @Index(name = "idx_stories_author_published", columnList = "author_id, published"),
                 @Index(name = "idx_stories_open_source", columnList = "is_open_source"),
-                @Index(name = "idx_stories_license", columnList = "open_source_license")
+                @Index(name = "idx_stories_license", columnList = "open_source_license"),
+                @Index(name = "idx_stories_published_created", columnList = "published, created_at, id"),
+                @Index(name = "idx_stories_published_open_source_created", columnList = "published, is_open_source, created_at, id"),
+                @Index(name = "idx_stories_author_created", columnList = "author_id, created_at, id")
         })
 public class Story extends BaseEntity {
 
@@ -56,12 +62,26 @@ public class Story extends BaseEntity {
     @Column(name = "open_source_license", length = 50)
     private String openSourceLicense;
 
-    @Column(name = "fork_count")
+    /*
+     * 计数列只由批量 UPDATE 维护（StoryRepository.adjustCounts / adjustChapterCount），
+     * 实体不写入：编辑小说时不会把加载时的旧值写回，覆盖期间落库的增量
+     */
+
+    @ColumnDefault("0")
+    @Column(name = "fork_count", insertable = false, updatable = false)
     private Integer forkCount = 0;
 
-    @Column(name = "star_count")
+    @ColumnDefault("0")
+    @Column(name = "star_count", insertable = false, updatable = false)
     private Integer starCount = 0;
 
+    /**
+     * 章节数（冗余计数，由章节增删原子维护）
+     */
+    @ColumnDefault("0")
+    @Column(name = "chapter_count", nullable = false, insertable = false, updatable = false)
+    private Integer chapterCount = 0;
+
     @Version
     private Long version = 0L;
 
@@ -96,7 +116,13 @@ public class Story extends BaseEntity {
     @JoinColumn(name = "inspiration_id")
     private Inspiration inspiration;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    /**
+     * 标签 - 懒加载：详情/列表查询通过 @EntityGraph 显式预取，
+     * 其余场景按需批量加载（一次 IN 查询最多初始化 50 本小说的标签），
+     * 避免 Fork、Star、提交等只引用小说的路径被动多查一次标签表
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @CollectionTable(name = "story_tags", joinColumns = @JoinColumn(name = "story_id"))
     @Column(name = "tag", nullable = false)
     private List<String> tags = new ArrayList<>();
@@ -128,10 +154,10 @@ public class Story extends BaseEntity {
     // ========== 便捷方法 ==========
 
     /**
-     * 是否可以有内容（通过章节数量判断）
+     * 是否可以有内容（通过章节数量判断，不加载章节列表）
      */
     public boolean hasContent() {
-        return chapters != null && !chapters.isEmpty();
+        return chapterCount != null && chapterCount > 0;
     }
 
     /**
@@ -141,29 +167,6 @@ public class Story extends BaseEntity {
         return Boolean.TRUE.equals(openSource) && published;
     }
 
-    /**
-     * 增加Fork计数
-     */
-    public void incrementForkCount() {
-        this.forkCount++;
-    }
-
-    /**
-     * 增加Star计数
-     */
-    public void incrementStarCount() {
-        this.starCount++;
-    }
-
-    /**
-     * 减少Star计数
-     */
-    public void decrementStarCount() {
-        if (this.starCount != null && this.starCount > 0) {
-            this.starCount--;
-        }
-    }
-
     // ========== Getter / Setter ==========
 
     public String getTitle() {
@@ -210,17 +213,11 @@ public class Story extends BaseEntity {
         return forkCount;
     }
 
-    public void setForkCount(Integer forkCount) {
-        this.forkCount = forkCount;
-    }
 
     public Integer getStarCount() {
         return starCount;
     }
 
-    public void setStarCount(Integer starCount) {
-        this.starCount = starCount;
-    }
 
     public Long getVersion() {
         return version;
@@ -286,6 +283,11 @@ public class Story extends BaseEntity {
         this.tags = tags;
     }
 
+    public Integer getChapterCount() {
+        return chapterCount;
+    }
+
+
     public List<StoryChapter> getChapters() {
         return chapters;
     }
@@ -1,18 +1,27 @@
 package com.example.api.story;
 
+import org.springframework.http.HttpStatus;
+
+import com.example.api.common.ApiException;
 import com.example.api.common.BaseEntity;
 import com.example.api.user.User;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 
 /**
  * 小说章节：支持树形分支结构，任意章节都可以作为分叉点
+ * <p>
+ * 树结构用物化路径索引：ancestorPath 为根到父章节的ID路径（如 /12/45/，根章节为 /），depth 为层级。
+ * 子树 = ancestorPath 以「本章路径 + 本章ID/」开头的章节（前缀范围扫描），祖先 = 路径中的ID（主键查询），
+ * 不再使用递归 CTE。创建时由父章节计算，改父章节、删除章节时由 {@link StoryChapterRepository#rebaseSubtree} 批量改写子树。
  */
 @Entity
 @Table(
@@ -22,10 +31,20 @@ import jakarta.persistence.Table;
                 @Index(name = "idx_story_chapters_story_sort", columnList = "story_id, sort_order"),
                 @Index(name = "idx_story_chapters_author_id", columnList = "author_id"),
                 @Index(name = "idx_story_chapters_parent_id", columnList = "parent_chapter_id"),
-                @Index(name = "idx_story_chapters_mainline", columnList = "story_id, is_mainline")
+                @Index(name = "idx_story_chapters_mainline", columnList = "story_id, is_mainline"),
+                @Index(name = "idx_story_chapters_story_path", columnList = "story_id, ancestor_path")
         })
 public class StoryChapter extends BaseEntity {
 
+    public static final String ROOT_PATH = "/";
+    /**
+     * ancestor_path 列宽，超过即层级过深。
+     * 每层占「章节ID + /」，ID 为 6～7 位时约可容纳 400 层分支
+     */
+    public static final int MAX_PATH_LENGTH = 3000;
+    /** 超出 {@link #MAX_PATH_LENGTH} 时的提示 */
+    public static final String PATH_TOO_DEEP_MESSAGE = "分支层级过深（最多约 400 层），请挂到更浅的章节下";
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "story_id", nullable = false)
     private Story story;
@@ -47,8 +66,9 @@ public class StoryChapter extends BaseEntity {
     @Column(nullable = false, length = 200)
     private String title;
 
-    @Column(name = "content_markdown", columnDefinition = "LONGTEXT")
-    private String contentMarkdown;
+    /** 正文（独立表，延迟加载；需字节码增强，见 build.gradle 的 hibernate.enhancement） */
+    @OneToOne(mappedBy = "chapter", fetch = FetchType.LAZY, cascade = CascadeType.ALL, optional = false)
+    private StoryChapterContent content;
 
     /** 是否主创的主线（特殊标记） */
     @Column(name = "is_mainline")
@@ -62,6 +82,18 @@ public class StoryChapter extends BaseEntity {
     @Column(name = "published", nullable = false)
     private Boolean published = false;
 
+    /** 祖先路径：根到父章节的ID，以 / 分隔并首尾带 /（ascii，便于整列进入索引） */
+    @Column(name = "ancestor_path", nullable = false, columnDefinition = "VARCHAR(3000) CHARACTER SET ascii DEFAULT '/'")
+    private String ancestorPath = ROOT_PATH;
+
+    /** 层级（根章节为 0） */
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    /** 字数（随正文写入计算，树形展示等不加载正文） */
+    @Column(name = "word_count", nullable = false)
+    private int wordCount;
+
     protected StoryChapter() {
     }
 
@@ -69,7 +101,7 @@ public class StoryChapter extends BaseEntity {
         this.story = story;
         this.sortOrder = sortOrder;
         this.title = title != null ? title : ("第" + sortOrder + "章");
-        this.contentMarkdown = contentMarkdown != null ? contentMarkdown : "";
+        setContentMarkdown(contentMarkdown != null ? contentMarkdown : "");
     }
 
     public StoryChapter(Story story, User author, int sortOrder, String title, String contentMarkdown) {
@@ -77,7 +109,7 @@ public class StoryChapter extends BaseEntity {
         this.author = author;
         this.sortOrder = sortOrder;
         this.title = title != null ? title : ("第" + sortOrder + "章");
-        this.contentMarkdown = contentMarkdown != null ? contentMarkdown : "";
+        setContentMarkdown(contentMarkdown != null ? contentMarkdown : "");
     }
 
     /**
@@ -87,11 +119,11 @@ public class StoryChapter extends BaseEntity {
                                             int sortOrder, String title, String contentMarkdown) {
         StoryChapter chapter = new StoryChapter();
         chapter.story = story;
-        chapter.parentChapter = parentChapter;
+        chapter.setParentChapter(parentChapter);
         chapter.author = author;
         chapter.sortOrder = sortOrder;
         chapter.title = title != null ? title : ("第" + sortOrder + "章");
-        chapter.contentMarkdown = contentMarkdown != null ? contentMarkdown : "";
+        chapter.setContentMarkdown(contentMarkdown != null ? contentMarkdown : "");
         chapter.isMainline = false;
         return chapter;
     }
@@ -116,8 +148,38 @@ public class StoryChapter extends BaseEntity {
         return parentChapter;
     }
 
+    /**
+     * 设置父章节并重算本章的祖先路径、层级（父章节须已持久化）；
+     * 已有子章节时，调用方还需用 {@link StoryChapterRepository#rebaseSubtree} 改写子树
+     */
     public void setParentChapter(StoryChapter parentChapter) {
         this.parentChapter = parentChapter;
+        if (parentChapter == null) {
+            this.ancestorPath = ROOT_PATH;
+            this.depth = 0;
+        } else {
+            String path = parentChapter.subtreePrefix();
+            if (path.length() > MAX_PATH_LENGTH) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, PATH_TOO_DEEP_MESSAGE);
+            }
+            this.ancestorPath = path;
+            this.depth = parentChapter.getDepth() + 1;
+        }
+    }
+
+    public String getAncestorPath() {
+        return ancestorPath;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 子树前缀：后代章节的 ancestorPath 都以它开头
+     */
+    public String subtreePrefix() {
+        return ancestorPath + getId() + "/";
     }
 
     public int getSortOrder() {
@@ -136,12 +198,24 @@ public class StoryChapter extends BaseEntity {
         this.title = title;
     }
 
+    /**
+     * 正文（首次访问时单独查询 story_chapter_contents，批量读取请用带正文的查询）
+     */
     public String getContentMarkdown() {
-        return contentMarkdown;
+        return content != null ? content.getContentMarkdown() : null;
     }
 
+    /**
+     * 设置正文并同步字数；已持久化的章节同时刷新 updatedAt（正文在另一张表，章节行本身不会变脏）
+     */
     public void setContentMarkdown(String contentMarkdown) {
-        this.contentMarkdown = contentMarkdown;
+        if (content == null) {
+            content = new StoryChapterContent(this, contentMarkdown);
+        } else {
+            content.setContentMarkdown(contentMarkdown);
+            touch();
+        }
+        this.wordCount = countWords(contentMarkdown);
     }
 
     public Boolean getIsMainline() {
@@ -172,8 +246,15 @@ public class StoryChapter extends BaseEntity {
      * 获取章节字数
      */
     public int getWordCount() {
-        if (contentMarkdown == null) return 0;
-        String plainText = contentMarkdown
+        return wordCount;
+    }
+
+    /**
+     * 去掉 Markdown 标记和空白后的字数
+     */
+    public static int countWords(String markdown) {
+        if (markdown == null) return 0;
+        String plainText = markdown
                 .replaceAll("[#*_`\\[\\](){}|>-]", "")
                 .replaceAll("\\s+", "")
                 .trim();
@@ -0,0 +1,62 @@
+package com.example.api.story;
+
+import com.example.api.common.CompressedTextConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+
+/**
+ * 章节正文：与章节共享主键的独立表。
+ * <p>
+ * 章节列表、分支树、排序、贡献者统计等只读 story_chapters 的元数据行，不再把正文带过 JDBC；
+ * 需要正文的读取路径通过实体图显式抓取（见 {@link StoryChapterRepository}）。
+ */
+@Entity
+@Table(name = "story_chapter_contents")
+public class StoryChapterContent {
+
+    @Id
+    @Column(name = "chapter_id")
+    private Long id;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "chapter_id")
+    private StoryChapter chapter;
+
+    /** 压缩存储（见 {@link CompressedTextConverter}） */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "content_markdown", columnDefinition = "LONGBLOB")
+    private String contentMarkdown;
+
+    protected StoryChapterContent() {
+    }
+
+    StoryChapterContent(StoryChapter chapter, String contentMarkdown) {
+        this.chapter = chapter;
+        this.contentMarkdown = contentMarkdown;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public StoryChapter getChapter() {
+        return chapter;
+    }
+
+    public String getContentMarkdown() {
+        return contentMarkdown;
+    }
+
+    void setContentMarkdown(String contentMarkdown) {
+        this.contentMarkdown = contentMarkdown;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.api.story;
 
+import com.example.api.common.ResourceVersion;
 import com.example.api.story.dto.PublishChapterResponse;
 import com.example.api.story.dto.StoryChapterCreateRequest;
 import com.example.api.story.dto.StoryChapterResponse;
@@ -20,6 +21,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -40,7 +42,13 @@ public class StoryChapterController {
     @GetMapping("/slug/{slug}/chapters")
     public List<StoryChapterResponse> listChaptersBySlug(
             @PathVariable String slug,
-            @RequestParam(required = false) Integer upToSortOrder) {
+            @RequestParam(required = false) Integer upToSortOrder,
+            ServletWebRequest request) {
+        // 条件请求：章节未变时直接 304，不加载正文
+        ResourceVersion version = chapterService.getPublishedChaptersVersion(slug, upToSortOrder);
+        if (version != null && version.notModified(request, ResourceVersion.PUBLIC)) {
+            return null;
+        }
         return chapterService.listChaptersByStorySlug(slug, upToSortOrder);
     }
 
@@ -0,0 +1,35 @@
+package com.example.api.story;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 校正 stories.chapter_count（全表 UPDATE ... JOIN）。
+ * 计数列只由章节增删的批量 UPDATE 维护，V26 迁移已按实际数量回填，正常情况下不会漂移，
+ * 因此默认不执行；需要时由运维配置 story.chapter-count.reconcile-cron 临时开启。
+ */
+@Component
+public class StoryChapterCountReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoryChapterCountReconciler.class);
+
+    private final StoryRepository storyRepository;
+
+    public StoryChapterCountReconciler(StoryRepository storyRepository) {
+        this.storyRepository = storyRepository;
+    }
+
+    @Scheduled(cron = "${story.chapter-count.reconcile-cron:-}")
+    public void reconcile() {
+        try {
+            int repaired = storyRepository.reconcileChapterCounts();
+            if (repaired > 0) {
+                logger.warn("Repaired chapter_count drift on {} stories", repaired);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to reconcile story chapter counts: {}", e.getMessage());
+        }
+    }
+}
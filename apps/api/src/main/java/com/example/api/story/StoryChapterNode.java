@@ -0,0 +1,40 @@
+package com.example.api.story;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 章节树节点投影：只含树形展示所需的列（不加载正文），由 JPQL 构造表达式直接生成
+ *
+ * @param depth        层级（根章节为 0）
+ * @param ancestorPath 祖先路径（如 /12/45/）
+ */
+public record StoryChapterNode(
+        Long id,
+        Long parentId,
+        String title,
+        int sortOrder,
+        Long authorId,
+        String authorName,
+        Boolean isMainline,
+        String branchName,
+        int wordCount,
+        Instant createdAt,
+        int depth,
+        String ancestorPath
+) {
+
+    /**
+     * 祖先章节ID（根在前），由祖先路径解析，不查库
+     */
+    public List<Long> ancestorIds() {
+        List<Long> ids = new ArrayList<>();
+        for (String part : ancestorPath.split("/")) {
+            if (!part.isEmpty()) {
+                ids.add(Long.valueOf(part));
+            }
+        }
+        return ids;
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.api.story;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -14,10 +20,16 @@ import java.util.Set;
 public interface StoryChapterRepository extends JpaRepository<StoryChapter, Long> {
 
     /**
-     * 获取小说的所有章节（包括所有分支）
+     * 获取小说的所有章节（包括所有分支；只含元数据，正文延迟加载）
      */
     List<StoryChapter> findByStoryIdOrderBySortOrderAsc(Long storyId);
 
+    /**
+     * 获取小说的所有章节及正文（一次 JOIN，避免逐章加载正文）
+     */
+    @EntityGraph(attributePaths = "content")
+    List<StoryChapter> findWithContentByStoryIdOrderBySortOrderAsc(Long storyId);
+
     /**
      * 获取小说的主线章节
      */
@@ -33,26 +45,97 @@ public interface StoryChapterRepository extends JpaRepository<StoryChapter, Long
      */
     List<StoryChapter> findByStoryIdAndAuthorIdOrderBySortOrderAsc(Long storyId, Long authorId);
 
+    @EntityGraph(attributePaths = "content")
     @Query("SELECT c FROM StoryChapter c WHERE c.story.id = :storyId AND c.sortOrder <= :upTo ORDER BY c.sortOrder ASC")
     List<StoryChapter> findByStoryIdUpToSortOrder(@Param("storyId") Long storyId, @Param("upTo") int upToSortOrder);
 
     Optional<StoryChapter> findByIdAndStoryId(Long id, Long storyId);
 
+    /**
+     * 加锁读取章节及正文（SELECT ... FOR UPDATE）：修改、删除章节时与写入差异、并发保存串行，
+     * 正文在同一次加锁读取中取得，读到的是已提交的最新内容
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = "content")
+    @Query("SELECT c FROM StoryChapter c WHERE c.id = :id AND c.story.id = :storyId")
+    Optional<StoryChapter> findByIdAndStoryIdForUpdate(@Param("id") Long id, @Param("storyId") Long storyId);
+
     Optional<StoryChapter> findByStoryIdAndSortOrder(Long storyId, int sortOrder);
 
+    /**
+     * 指定序号的章节及正文，主线章节在前（分支小说章节选取差异基准）
+     */
+    @EntityGraph(attributePaths = "content")
+    @Query("SELECT c FROM StoryChapter c WHERE c.story.id = :storyId AND c.sortOrder = :sortOrder " +
+           "ORDER BY c.isMainline DESC, c.id ASC")
+    List<StoryChapter> findWithContentByStoryIdAndSortOrder(@Param("storyId") Long storyId, @Param("sortOrder") int sortOrder);
+
+    /**
+     * 同 {@link #findWithContentByStoryIdAndSortOrder}，并锁定这些章节（写入差异期间基准正文不会被修改）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = "content")
+    @Query("SELECT c FROM StoryChapter c WHERE c.story.id = :storyId AND c.sortOrder = :sortOrder " +
+           "ORDER BY c.isMainline DESC, c.id ASC")
+    List<StoryChapter> findWithContentByStoryIdAndSortOrderForUpdate(@Param("storyId") Long storyId, @Param("sortOrder") int sortOrder);
+
+    /**
+     * 批量获取章节及正文
+     */
+    @EntityGraph(attributePaths = "content")
+    List<StoryChapter> findWithContentByIdIn(Collection<Long> ids);
+
     int countByStoryId(Long storyId);
 
+    // ==================== 排序（集合式，语句数与章节数无关） ====================
+
+    /**
+     * 序号在 [from, to] 内的章节整体平移 delta，一条 UPDATE；同时刷新 updatedAt，使章节列表 ETag 随之变化。
+     * 被平移的章节不会同时在持久化上下文中修改，因此只先 flush、不清空上下文
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StoryChapter c SET c.sortOrder = c.sortOrder + :delta, c.updatedAt = :now " +
+           "WHERE c.story.id = :storyId AND c.sortOrder >= :from AND c.sortOrder <= :to")
+    int shiftSortOrder(@Param("storyId") Long storyId,
+                       @Param("from") int from,
+                       @Param("to") int to,
+                       @Param("delta") int delta,
+                       @Param("now") Instant now);
+
+    /**
+     * 序号在 [from, to] 内的章节ID（走 (story_id, sort_order) 索引，用于修补分支树快照）
+     */
+    @Query("SELECT c.id FROM StoryChapter c WHERE c.story.id = :storyId AND c.sortOrder >= :from AND c.sortOrder <= :to")
+    List<Long> findIdsInSortOrderRange(@Param("storyId") Long storyId, @Param("from") int from, @Param("to") int to);
+
     /**
-     * 获取小说的所有已发布章节（读者可见）
+     * 获取小说的所有已发布章节及正文（读者可见）
      */
+    @EntityGraph(attributePaths = "content")
     List<StoryChapter> findByStoryIdAndPublishedTrueOrderBySortOrderAsc(Long storyId);
 
     /**
-     * 获取小说的已发布章节（限制到指定章节序号）
+     * 获取小说的已发布章节及正文（限制到指定章节序号）
      */
+    @EntityGraph(attributePaths = "content")
     @Query("SELECT c FROM StoryChapter c WHERE c.story.id = :storyId AND c.published = true AND c.sortOrder <= :upTo ORDER BY c.sortOrder ASC")
     List<StoryChapter> findByStoryIdAndPublishedTrueUpToSortOrder(@Param("storyId") Long storyId, @Param("upTo") int upToSortOrder);
 
+    /**
+     * 已发布小说的已发布章节（sortOrder <= upTo）版本字段（HTTP 条件请求用，不加载正文）：
+     * 小说ID、章节数、章节ID之和、最后修改时间；小说不存在或未发布时无结果
+     */
+    @Query("SELECT s.id, COUNT(c), COALESCE(SUM(c.id), 0), MAX(c.updatedAt) FROM Story s " +
+           "LEFT JOIN StoryChapter c ON c.story = s AND c.published = true AND c.sortOrder <= :upTo " +
+           "WHERE s.slug = :slug AND s.published = true GROUP BY s.id")
+    List<Object[]> findPublishedChaptersVersion(@Param("slug") String slug, @Param("upTo") int upToSortOrder);
+
+    /**
+     * 获取小说已发布章节的标题（搜索索引用，不加载正文）
+     */
+    @Query("SELECT c.title FROM StoryChapter c WHERE c.story.id = :storyId AND c.published = true ORDER BY c.sortOrder ASC")
+    List<String> findPublishedTitlesByStoryId(@Param("storyId") Long storyId);
+
     /**
      * 获取小说的已发布章节数量
      */
@@ -70,37 +153,91 @@ public interface StoryChapterRepository extends JpaRepository<StoryChapter, Long
     @Query("SELECT COUNT(DISTINCT c.author.id) FROM StoryChapter c WHERE c.story.id = :storyId AND c.author IS NOT NULL")
     int countDistinctAuthorsByStoryId(@Param("storyId") Long storyId);
 
+    /**
+     * 按作者汇总章节（贡献者统计，不加载正文）：作者ID、用户名、章节数、字数、首次创建时间、最后修改时间
+     */
+    @Query("SELECT a.id, a.username, COUNT(c), COALESCE(SUM(c.wordCount), 0), MIN(c.createdAt), MAX(c.updatedAt) " +
+           "FROM StoryChapter c JOIN c.author a WHERE c.story.id = :storyId GROUP BY a.id, a.username")
+    List<Object[]> summarizeByAuthor(@Param("storyId") Long storyId);
+
     /**
      * 获取小说的所有作者（去重）
      */
     @Query("SELECT DISTINCT c.author FROM StoryChapter c WHERE c.story.id = :storyId AND c.author IS NOT NULL")
     List<com.example.api.user.User> findDistinctAuthorsByStoryId(@Param("storyId") Long storyId);
 
+    // ==================== 章节树（物化路径，不加载正文） ====================
+
+    /**
+     * 小说的全部章节节点
+     */
+    @Query("SELECT new com.example.api.story.StoryChapterNode(c.id, c.parentChapter.id, c.title, c.sortOrder, " +
+           "a.id, a.username, c.isMainline, c.branchName, c.wordCount, c.createdAt, c.depth, c.ancestorPath) " +
+           "FROM StoryChapter c LEFT JOIN c.author a " +
+           "WHERE c.story.id = :storyId ORDER BY c.sortOrder ASC, c.id ASC")
+    List<StoryChapterNode> findNodesByStoryId(@Param("storyId") Long storyId);
+
+    /**
+     * 某章节的直接子章节节点
+     */
+    @Query("SELECT new com.example.api.story.StoryChapterNode(c.id, c.parentChapter.id, c.title, c.sortOrder, " +
+           "a.id, a.username, c.isMainline, c.branchName, c.wordCount, c.createdAt, c.depth, c.ancestorPath) " +
+           "FROM StoryChapter c LEFT JOIN c.author a " +
+           "WHERE c.story.id = :storyId AND c.parentChapter.id = :parentId ORDER BY c.sortOrder ASC, c.id ASC")
+    List<StoryChapterNode> findChildNodes(@Param("storyId") Long storyId, @Param("parentId") Long parentId);
+
+    /**
+     * 某作者的章节节点
+     */
+    @Query("SELECT new com.example.api.story.StoryChapterNode(c.id, c.parentChapter.id, c.title, c.sortOrder, " +
+           "a.id, a.username, c.isMainline, c.branchName, c.wordCount, c.createdAt, c.depth, c.ancestorPath) " +
+           "FROM StoryChapter c LEFT JOIN c.author a " +
+           "WHERE c.story.id = :storyId AND a.id = :authorId ORDER BY c.sortOrder ASC, c.id ASC")
+    List<StoryChapterNode> findAuthorNodes(@Param("storyId") Long storyId, @Param("authorId") Long authorId);
+
     /**
-     * 递归获取某个章节的所有后代章节（用于树形展示）
-     */
-    @Query(value = """
-        WITH RECURSIVE chapter_tree AS (
-            SELECT * FROM story_chapters WHERE id = :chapterId
-            UNION ALL
-            SELECT c.* FROM story_chapters c
-            INNER JOIN chapter_tree ct ON c.parent_chapter_id = ct.id
-        )
-        SELECT * FROM chapter_tree
-        """, nativeQuery = true)
-    List<StoryChapter> findAllDescendants(@Param("chapterId") Long chapterId);
-
-    /**
-     * 获取某个章节的祖先链（用于面包屑）
-     */
-    @Query(value = """
-        WITH RECURSIVE chapter_path AS (
-            SELECT * FROM story_chapters WHERE id = :chapterId
-            UNION ALL
-            SELECT c.* FROM story_chapters c
-            INNER JOIN chapter_path cp ON c.id = cp.parent_chapter_id
-        )
-        SELECT * FROM chapter_path ORDER BY sort_order ASC
-        """, nativeQuery = true)
-    List<StoryChapter> findAncestorChain(@Param("chapterId") Long chapterId);
+     * 按ID取章节节点（祖先链：ID 由祖先路径解析）
+     */
+    @Query("SELECT new com.example.api.story.StoryChapterNode(c.id, c.parentChapter.id, c.title, c.sortOrder, " +
+           "a.id, a.username, c.isMainline, c.branchName, c.wordCount, c.createdAt, c.depth, c.ancestorPath) " +
+           "FROM StoryChapter c LEFT JOIN c.author a " +
+           "WHERE c.story.id = :storyId AND c.id IN :ids ORDER BY c.depth ASC")
+    List<StoryChapterNode> findNodesByIdIn(@Param("storyId") Long storyId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 子树（不含根）：祖先路径以 prefix 开头，走 (story_id, ancestor_path) 索引的前缀范围扫描
+     */
+    @Query("SELECT new com.example.api.story.StoryChapterNode(c.id, c.parentChapter.id, c.title, c.sortOrder, " +
+           "a.id, a.username, c.isMainline, c.branchName, c.wordCount, c.createdAt, c.depth, c.ancestorPath) " +
+           "FROM StoryChapter c LEFT JOIN c.author a " +
+           "WHERE c.story.id = :storyId AND c.ancestorPath LIKE CONCAT(:prefix, '%') ORDER BY c.depth ASC, c.sortOrder ASC, c.id ASC")
+    List<StoryChapterNode> findSubtreeNodes(@Param("storyId") Long storyId, @Param("prefix") String prefix);
+
+    /**
+     * 改写子树：祖先路径以 oldPrefix 开头的章节，把前缀替换为 newPrefix、层级加 depthDelta。
+     * 用于改父章节（整棵子树搬家）和删除章节（子树上移一层），一条语句完成，不逐个加载后代
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE story_chapters SET ancestor_path = CONCAT(:newPrefix, SUBSTRING(ancestor_path, :cut)), " +
+                   "depth = depth + :depthDelta " +
+                   "WHERE story_id = :storyId AND ancestor_path LIKE CONCAT(:oldPrefix, '%')", nativeQuery = true)
+    int rebaseSubtree(@Param("storyId") Long storyId,
+                      @Param("oldPrefix") String oldPrefix,
+                      @Param("newPrefix") String newPrefix,
+                      @Param("cut") int cut,
+                      @Param("depthDelta") int depthDelta);
+
+    /**
+     * 子树中祖先路径最长的长度（改父章节前检查是否超出列宽）
+     */
+    @Query(value = "SELECT COALESCE(MAX(CHAR_LENGTH(ancestor_path)), 0) FROM story_chapters " +
+                   "WHERE story_id = :storyId AND ancestor_path LIKE CONCAT(:prefix, '%')", nativeQuery = true)
+    int findMaxSubtreePathLength(@Param("storyId") Long storyId, @Param("prefix") String prefix);
+
+    /**
+     * 把某章节的直接子章节挂到新的父章节下（newParentId 为 null 时成为根章节）
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE story_chapters SET parent_chapter_id = :newParentId WHERE parent_chapter_id = :chapterId", nativeQuery = true)
+    int reattachChildren(@Param("chapterId") Long chapterId, @Param("newParentId") Long newParentId);
 }
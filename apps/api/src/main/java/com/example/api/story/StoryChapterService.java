@@ -1,5 +1,6 @@
 package com.example.api.story;
 
+import com.example.api.common.ResourceVersion;
 import com.example.api.story.dto.PublishChapterResponse;
 import com.example.api.story.dto.StoryChapterCreateRequest;
 import com.example.api.story.dto.StoryChapterResponse;
@@ -21,6 +22,11 @@ public interface StoryChapterService {
      */
     List<StoryChapterResponse> listChaptersByStorySlug(String slug, Integer upToSortOrder);
 
+    /**
+     * 公开章节列表的版本（ETag / Last-Modified），不加载正文；小说不存在或未发布时返回 null
+     */
+    ResourceVersion getPublishedChaptersVersion(String slug, Integer upToSortOrder);
+
     /**
      * 获取单章（作者本人）
      */
@@ -41,6 +47,11 @@ public interface StoryChapterService {
      */
     void deleteChapter(String username, Long storyId, Long chapterId);
 
+    /**
+     * 恢复章节正文到某个历史版本（记录为新版本）
+     */
+    PublishChapterResponse restoreRevision(String username, Long storyId, Long chapterId, int revisionNo);
+
     /**
      * 发布章节（会触发预压缩；失败时降级存原文，warning 非空提示用户）
      */
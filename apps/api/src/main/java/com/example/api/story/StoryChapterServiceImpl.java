@@ -2,18 +2,28 @@ package com.example.api.story;
 
 import com.example.api.ai.AiDebugContext;
 import com.example.api.common.ApiException;
+import com.example.api.common.ResourceVersion;
+import com.example.api.story.branch.BranchTreeChangedEvent;
+import com.example.api.story.cache.StoryChangedEvent;
+import com.example.api.story.diff.PrChapterContentStore;
 import com.example.api.story.dto.PublishChapterResponse;
 import com.example.api.story.dto.StoryChapterCreateRequest;
 import com.example.api.story.dto.StoryChapterResponse;
 import com.example.api.story.dto.StoryChapterUpdateRequest;
+import com.example.api.story.revision.ChapterRevisionService;
+import com.example.api.story.revision.dto.ChapterRevisionContentResponse;
+import com.example.api.story.search.StorySearchService;
 import com.example.api.user.User;
 import com.example.api.user.UserRepository;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,15 +39,27 @@ public class StoryChapterServiceImpl implements StoryChapterService {
     private final StoryRepository storyRepository;
     private final UserRepository userRepository;
     private final ChapterSummaryService chapterSummaryService;
+    private final StorySearchService storySearchService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PrChapterContentStore prChapterContentStore;
+    private final ChapterRevisionService chapterRevisionService;
 
     public StoryChapterServiceImpl(StoryChapterRepository chapterRepository,
                                    StoryRepository storyRepository,
                                    UserRepository userRepository,
-                                   ChapterSummaryService chapterSummaryService) {
+                                   ChapterSummaryService chapterSummaryService,
+                                   StorySearchService storySearchService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PrChapterContentStore prChapterContentStore,
+                                   ChapterRevisionService chapterRevisionService) {
         this.chapterRepository = chapterRepository;
         this.storyRepository = storyRepository;
         this.userRepository = userRepository;
         this.chapterSummaryService = chapterSummaryService;
+        this.storySearchService = storySearchService;
+        this.eventPublisher = eventPublisher;
+        this.prChapterContentStore = prChapterContentStore;
+        this.chapterRevisionService = chapterRevisionService;
     }
 
     @Override
@@ -45,7 +67,7 @@ public class StoryChapterServiceImpl implements StoryChapterService {
     public List<StoryChapterResponse> listChapters(String username, Long storyId) {
         Story story = storyRepository.findByIdAndAuthorUsername(storyId, username)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
-        return chapterRepository.findByStoryIdOrderBySortOrderAsc(story.getId()).stream()
+        return chapterRepository.findWithContentByStoryIdOrderBySortOrderAsc(story.getId()).stream()
                 .map(StoryChapterResponse::fromEntity)
                 .collect(Collectors.toList());
     }
@@ -64,6 +86,21 @@ public class StoryChapterServiceImpl implements StoryChapterService {
         return chapters.stream().map(StoryChapterResponse::fromEntity).collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ResourceVersion getPublishedChaptersVersion(String slug, Integer upToSortOrder) {
+        int upTo = upToSortOrder != null && upToSortOrder > 0 ? upToSortOrder : Integer.MAX_VALUE;
+        List<Object[]> rows = chapterRepository.findPublishedChaptersVersion(slug, upTo);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        Instant lastModified = (Instant) row[3];
+        // 章节增删、发布状态变化改变数量或ID之和，编辑、调整顺序改变最后修改时间；
+        // 删除、取消发布可能使最后修改时间变早，因此不提供 Last-Modified，只按 ETag 校验
+        return ResourceVersion.of(null, "chapters", row[0], upTo, row[1], row[2], lastModified);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public StoryChapterResponse getChapter(String username, Long storyId, Long chapterId) {
@@ -84,12 +121,10 @@ public class StoryChapterServiceImpl implements StoryChapterService {
         int sortOrder = request.sortOrder() != null && request.sortOrder() >= 1 && request.sortOrder() <= count + 1
                 ? request.sortOrder()
                 : count + 1;
-        List<StoryChapter> existing = chapterRepository.findByStoryIdOrderBySortOrderAsc(storyId);
-        for (StoryChapter c : existing) {
-            if (c.getSortOrder() >= sortOrder) {
-                c.setSortOrder(c.getSortOrder() + 1);
-                chapterRepository.save(c);
-            }
+        // 插入位置及之后的章节整体后移一位
+        List<Long> changedIds = new ArrayList<>(chapterRepository.findIdsInSortOrderRange(storyId, sortOrder, Integer.MAX_VALUE));
+        if (!changedIds.isEmpty()) {
+            chapterRepository.shiftSortOrder(storyId, sortOrder, Integer.MAX_VALUE, 1, Instant.now());
         }
         String title = request.title() != null && !request.title().isBlank()
                 ? request.title().trim()
@@ -102,6 +137,14 @@ public class StoryChapterServiceImpl implements StoryChapterService {
         chapter.setPublished(shouldPublish);
         chapter = chapterRepository.save(chapter);
         System.out.println("DEBUG: chapter saved with published=" + chapter.getPublished());
+        chapterRevisionService.record(chapter, null, author != null ? author.getId() : null);
+        storyRepository.adjustChapterCount(storyId, 1);
+        if (shouldPublish) {
+            storySearchService.reindexAfterCommit(storyId);
+        }
+        eventPublisher.publishEvent(StoryChangedEvent.of(storyId, story.getSlug()));
+        changedIds.add(chapter.getId());
+        eventPublisher.publishEvent(BranchTreeChangedEvent.changed(storyId, changedIds));
         return StoryChapterResponse.fromEntity(chapter);
     }
 
@@ -110,14 +153,20 @@ public class StoryChapterServiceImpl implements StoryChapterService {
     public PublishChapterResponse updateChapter(String username, Long storyId, Long chapterId, StoryChapterUpdateRequest request) {
         Story story = storyRepository.findByIdAndAuthorUsername(storyId, username)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
-        StoryChapter chapter = chapterRepository.findByIdAndStoryId(chapterId, story.getId())
+        StoryChapter chapter = chapterRepository.findByIdAndStoryIdForUpdate(chapterId, story.getId())
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
         
         // 标记内容是否发生变化（只有内容变化才需要重新预压缩）
         boolean contentChanged = false;
+        String previousContent = null;
+        // 树形字段（标题、字数、序号）变化的章节，提交后修补分支树快照
+        List<Long> treeChangedIds = new ArrayList<>();
         
+        boolean titleChanged = false;
         if (request.title() != null) {
-            chapter.setTitle(request.title().isBlank() ? ("第" + chapter.getSortOrder() + "章") : request.title().trim());
+            String newTitle = request.title().isBlank() ? ("第" + chapter.getSortOrder() + "章") : request.title().trim();
+            titleChanged = !newTitle.equals(chapter.getTitle());
+            chapter.setTitle(newTitle);
         }
         if (request.contentMarkdown() != null) {
             // 检查内容是否真的发生了变化
@@ -125,6 +174,9 @@ public class StoryChapterServiceImpl implements StoryChapterService {
             String oldContent = chapter.getContentMarkdown();
             if (oldContent == null || !oldContent.equals(newContent)) {
                 contentChanged = true;
+                previousContent = oldContent;
+                // 以本章为基准存差异的分支章节先还原为全文
+                prChapterContentStore.materializeForBase(chapter.getId(), oldContent);
             }
             chapter.setContentMarkdown(newContent);
         }
@@ -132,26 +184,27 @@ public class StoryChapterServiceImpl implements StoryChapterService {
             int newOrder = Math.max(1, request.sortOrder());
             int oldOrder = chapter.getSortOrder();
             if (newOrder != oldOrder) {
-                List<StoryChapter> all = chapterRepository.findByStoryIdOrderBySortOrderAsc(storyId);
-                for (StoryChapter c : all) {
-                    int o = c.getSortOrder();
-                    if (oldOrder < newOrder) {
-                        if (o > oldOrder && o <= newOrder) {
-                            c.setSortOrder(o - 1);
-                            chapterRepository.save(c);
-                        }
-                    } else {
-                        if (o >= newOrder && o < oldOrder) {
-                            c.setSortOrder(o + 1);
-                            chapterRepository.save(c);
-                        }
-                    }
-                }
+                // 后移：(old, new] 前移一位；前移：[new, old) 后移一位（区间不含本章）
+                int from = oldOrder < newOrder ? oldOrder + 1 : newOrder;
+                int to = oldOrder < newOrder ? newOrder : oldOrder - 1;
+                int delta = oldOrder < newOrder ? -1 : 1;
+                treeChangedIds.addAll(chapterRepository.findIdsInSortOrderRange(storyId, from, to));
+                chapterRepository.shiftSortOrder(storyId, from, to, delta, Instant.now());
                 chapter.setSortOrder(newOrder);
             }
         }
         chapter = chapterRepository.save(chapter);
         System.out.println("DEBUG: chapter saved, id=" + chapter.getId() + ", published=" + chapter.getPublished() + ", contentChanged=" + contentChanged);
+        if (contentChanged) {
+            chapterRevisionService.record(chapter, previousContent, story.getAuthor().getId());
+        }
+        if (Boolean.TRUE.equals(chapter.getPublished()) && (titleChanged || contentChanged)) {
+            storySearchService.reindexAfterCommit(story.getId());
+        }
+        if (titleChanged || contentChanged || !treeChangedIds.isEmpty()) {
+            treeChangedIds.add(chapter.getId());
+            eventPublisher.publishEvent(BranchTreeChangedEvent.changed(story.getId(), treeChangedIds));
+        }
         
         String warning = null;
         Map<String, Object> debugInfo = null;
@@ -189,19 +242,45 @@ public class StoryChapterServiceImpl implements StoryChapterService {
 
     @Override
     @Transactional
-    public void deleteChapter(String username, Long storyId, Long chapterId) {
+    public PublishChapterResponse restoreRevision(String username, Long storyId, Long chapterId, int revisionNo) {
         Story story = storyRepository.findByIdAndAuthorUsername(storyId, username)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
-        StoryChapter chapter = chapterRepository.findByIdAndStoryId(chapterId, story.getId())
+        chapterRepository.findByIdAndStoryId(chapterId, story.getId())
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
+        ChapterRevisionContentResponse revision = chapterRevisionService.load(chapterId, revisionNo);
+        return updateChapter(username, storyId, chapterId,
+                new StoryChapterUpdateRequest(revision.title(), revision.contentMarkdown(), null));
+    }
+
+    @Override
+    @Transactional
+    public void deleteChapter(String username, Long storyId, Long chapterId) {
+        // 锁定小说行：子树改写与并发的移动章节串行
+        Story story = storyRepository.findByIdAndAuthorUsernameForUpdate(storyId, username)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
+        StoryChapter chapter = chapterRepository.findByIdAndStoryIdForUpdate(chapterId, story.getId())
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
         int order = chapter.getSortOrder();
-        chapterRepository.delete(chapter);
-        for (StoryChapter c : chapterRepository.findByStoryIdOrderBySortOrderAsc(storyId)) {
-            if (c.getSortOrder() > order) {
-                c.setSortOrder(c.getSortOrder() - 1);
-                chapterRepository.save(c);
-            }
+        boolean wasPublished = Boolean.TRUE.equals(chapter.getPublished());
+        // 子章节挂到被删章节的父章节下，整棵子树的祖先路径去掉该章节、层级减一
+        Long parentId = chapter.getParentChapter() != null ? chapter.getParentChapter().getId() : null;
+        String prefix = chapter.subtreePrefix();
+        prChapterContentStore.materializeForBase(chapterId, chapter.getContentMarkdown());
+        List<Long> treeChangedIds = new ArrayList<>();
+        chapterRepository.findSubtreeNodes(story.getId(), prefix).forEach(n -> treeChangedIds.add(n.id()));
+        chapterRepository.reattachChildren(chapterId, parentId);
+        chapterRepository.rebaseSubtree(story.getId(), prefix, chapter.getAncestorPath(), prefix.length() + 1, -1);
+        chapterRevisionService.deleteAll(chapterId);
+        chapterRepository.deleteById(chapterId);
+        storyRepository.adjustChapterCount(story.getId(), -1);
+        if (wasPublished) {
+            storySearchService.reindexAfterCommit(story.getId());
         }
+        eventPublisher.publishEvent(StoryChangedEvent.of(story.getId(), story.getSlug()));
+        // 之后的章节整体前移一位
+        treeChangedIds.addAll(chapterRepository.findIdsInSortOrderRange(story.getId(), order + 1, Integer.MAX_VALUE));
+        chapterRepository.shiftSortOrder(story.getId(), order + 1, Integer.MAX_VALUE, -1, Instant.now());
+        eventPublisher.publishEvent(BranchTreeChangedEvent.changed(story.getId(), treeChangedIds, List.of(chapterId)));
     }
 
     @Override
@@ -213,6 +292,7 @@ public class StoryChapterServiceImpl implements StoryChapterService {
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
         chapter.setPublished(true);
         chapter = chapterRepository.save(chapter);
+        storySearchService.reindexAfterCommit(story.getId());
         String warning = chapterSummaryService.generateAndSave(chapter);
         StoryChapterResponse resp = StoryChapterResponse.fromEntity(chapter);
         return warning != null ? PublishChapterResponse.withWarning(resp, warning) : PublishChapterResponse.ok(resp);
@@ -227,6 +307,7 @@ public class StoryChapterServiceImpl implements StoryChapterService {
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
         chapter.setPublished(false);
         chapter = chapterRepository.save(chapter);
+        storySearchService.reindexAfterCommit(story.getId());
         return StoryChapterResponse.fromEntity(chapter);
     }
 }
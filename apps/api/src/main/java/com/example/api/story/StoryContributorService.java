@@ -1,13 +1,12 @@
 package com.example.api.story;
 
 import com.example.api.story.dto.ContributorResponse;
-import com.example.api.user.User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -29,42 +28,17 @@ public class StoryContributorService {
      */
     @Transactional(readOnly = true)
     public List<ContributorResponse> getContributors(Long storyId) {
-        // 获取小说的所有章节
-        List<StoryChapter> chapters = chapterRepository.findByStoryIdOrderBySortOrderAsc(storyId);
-
-        // 按作者分组统计
-        Map<User, List<StoryChapter>> chaptersByAuthor = chapters.stream()
-                .filter(c -> c.getAuthor() != null)
-                .collect(Collectors.groupingBy(StoryChapter::getAuthor));
-
-        return chaptersByAuthor.entrySet().stream()
-                .map(entry -> {
-                    User author = entry.getKey();
-                    List<StoryChapter> authorChapters = entry.getValue();
-
-                    int chapterCount = authorChapters.size();
-                    int wordCount = authorChapters.stream()
-                            .mapToInt(StoryChapter::getWordCount)
-                            .sum();
-
-                    var firstChapter = authorChapters.stream()
-                            .min(Comparator.comparing(StoryChapter::getCreatedAt))
-                            .orElse(null);
-
-                    var lastChapter = authorChapters.stream()
-                            .max(Comparator.comparing(StoryChapter::getUpdatedAt))
-                            .orElse(null);
-
-                    return new ContributorResponse(
-                            author.getId(),
-                            author.getUsername(),
-                            null, // avatarUrl 暂不支持
-                            chapterCount,
-                            wordCount,
-                            firstChapter != null ? firstChapter.getCreatedAt() : null,
-                            lastChapter != null ? lastChapter.getUpdatedAt() : null
-                    );
-                })
+        // 按作者聚合章节数、字数、时间（只读元数据列）
+        return chapterRepository.summarizeByAuthor(storyId).stream()
+                .map(row -> new ContributorResponse(
+                        (Long) row[0],
+                        (String) row[1],
+                        null, // avatarUrl 暂不支持
+                        ((Number) row[2]).intValue(),
+                        ((Number) row[3]).intValue(),
+                        (Instant) row[4],
+                        (Instant) row[5]
+                ))
                 .sorted(Comparator.comparingInt(ContributorResponse::wordCount).reversed())
                 .collect(Collectors.toList());
     }
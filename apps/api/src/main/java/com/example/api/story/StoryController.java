@@ -1,18 +1,33 @@
 package com.example.api.story;
 
 import com.example.api.common.ApiException;
+import com.example.api.common.CompressedTextConverter;
+import com.example.api.common.CompressedTextMigrator;
+import com.example.api.common.ResourceVersion;
 import com.example.api.readerfork.ReaderForkService;
 import com.example.api.readerfork.dto.CreateForkRequest;
 import com.example.api.readerfork.dto.ReaderForkResponse;
+import com.example.api.story.cache.StoryCache;
+import com.example.api.story.counter.StoryCounterBuffer;
+import com.example.api.story.diff.PrChapterContentStore;
+import com.example.api.story.dto.CursorPage;
 import com.example.api.story.dto.StoryCreateRequest;
 import com.example.api.story.dto.StoryListItemResponse;
 import com.example.api.story.dto.StoryResponse;
 import com.example.api.story.dto.StoryUpdateRequest;
+import com.example.api.story.knowledge.StoryKnowledgeCache;
+import com.example.api.story.ranking.StoryActivityEvent;
+import com.example.api.story.ranking.StoryRankingService;
+import com.example.api.story.search.StorySearchService;
+import com.example.api.tag.TagResponse;
 import com.example.api.user.User;
 import com.example.api.user.UserRepository;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -32,6 +47,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -48,6 +64,10 @@ public class StoryController {
 
     /** 列表接口允许的排序字段，避免非法 sort 导致 500 */
     private static final List<String> ALLOWED_SORT_FIELDS = List.of("createdAt", "updatedAt", "title");
+    /** 相关度检索的结果数上限 */
+    static final String SEARCH_LIMIT_HEADER = "X-Search-Result-Limit";
+    /** 总数达到上限（实际命中可能更多） */
+    static final String TOTAL_CAPPED_HEADER = "X-Total-Capped";
 
     private final StoryService storyService;
     private final StoryRepository storyRepository;
@@ -55,16 +75,34 @@ public class StoryController {
     private final ReaderForkService readerForkService;
     private final UserRepository userRepository;
     private final StoryContributorService storyContributorService;
+    private final StoryCache storyCache;
+    private final CompressedTextMigrator compressedTextMigrator;
+    private final PrChapterContentStore prChapterContentStore;
+    private final StoryKnowledgeCache knowledgeCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StoryRankingService storyRankingService;
+    private final StoryCounterBuffer counterBuffer;
 
     public StoryController(StoryService storyService, StoryRepository storyRepository,
                           StoryStarRepository storyStarRepository, ReaderForkService readerForkService,
-                          UserRepository userRepository, StoryContributorService storyContributorService) {
+                          UserRepository userRepository, StoryContributorService storyContributorService,
+                          StoryCache storyCache, ApplicationEventPublisher eventPublisher,
+                          StoryRankingService storyRankingService, StoryCounterBuffer counterBuffer,
+                          CompressedTextMigrator compressedTextMigrator, PrChapterContentStore prChapterContentStore,
+                          StoryKnowledgeCache knowledgeCache) {
         this.storyService = storyService;
         this.storyRepository = storyRepository;
         this.storyStarRepository = storyStarRepository;
         this.readerForkService = readerForkService;
         this.userRepository = userRepository;
         this.storyContributorService = storyContributorService;
+        this.storyCache = storyCache;
+        this.eventPublisher = eventPublisher;
+        this.storyRankingService = storyRankingService;
+        this.counterBuffer = counterBuffer;
+        this.compressedTextMigrator = compressedTextMigrator;
+        this.prChapterContentStore = prChapterContentStore;
+        this.knowledgeCache = knowledgeCache;
     }
 
     /**
@@ -88,6 +126,43 @@ public class StoryController {
         }
     }
 
+    /**
+     * 游标分页列出已发布的小说（无限滚动），按创建时间倒序
+     * cursor: 上一页返回的 nextCursor，首页不传；withTotal: 是否计算总数（默认不计算）
+     */
+    @GetMapping("/cursor")
+    public CursorPage<StoryListItemResponse> scrollPublished(
+            @RequestParam(required = false, defaultValue = "all") String filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return storyService.scrollPublished(filter, cursor, size, withTotal);
+    }
+
+    /**
+     * 趋势榜：近几小时内互动（阅读、Star、Fork）增长最快的小说
+     */
+    @GetMapping("/trending")
+    public List<StoryListItemResponse> trending(@RequestParam(defaultValue = "10") int size) {
+        return storyRankingService.trending(size);
+    }
+
+    /**
+     * 热门榜：近几天内综合热度最高的小说
+     */
+    @GetMapping("/hot")
+    public List<StoryListItemResponse> hot(@RequestParam(defaultValue = "10") int size) {
+        return storyRankingService.hot(size);
+    }
+
+    /**
+     * 最多 Fork 的小说
+     */
+    @GetMapping("/most-forked")
+    public List<StoryListItemResponse> mostForked(@RequestParam(defaultValue = "10") int size) {
+        return storyRankingService.mostForked(size);
+    }
+
     /**
      * 高级搜索小说
      */
@@ -96,18 +171,62 @@ public class StoryController {
             @RequestParam(required = false) String q,
             @RequestParam(required = false) Boolean openSource,
             @RequestParam(required = false) List<String> tags,
-            @PageableDefault(size = 10) Pageable pageable) {
-        return storyService.advancedSearch(q, openSource, tags, pageable);
+            @PageableDefault(size = 10) Pageable pageable,
+            HttpServletResponse response) {
+        Page<StoryListItemResponse> page = storyService.advancedSearch(q, openSource, tags, pageable);
+        return q != null && !q.isBlank() ? markSearchLimit(page, response) : page;
     }
 
     /**
-     * 搜索小说
+     * 搜索小说。按相关度最多取前 1000 个结果，totalElements 也以此为上限，
+     * 见响应头 {@value #SEARCH_LIMIT_HEADER}，达到上限时带 {@value #TOTAL_CAPPED_HEADER}: true
      */
     @GetMapping("/search")
     public Page<StoryListItemResponse> search(
             @RequestParam String q,
-            @PageableDefault(size = 10) Pageable pageable) {
-        return storyService.searchPublished(q, pageable);
+            @PageableDefault(size = 10) Pageable pageable,
+            HttpServletResponse response) {
+        return markSearchLimit(storyService.searchPublished(q, pageable), response);
+    }
+
+    /**
+     * 游标分页搜索小说
+     */
+    @GetMapping("/search/cursor")
+    public CursorPage<StoryListItemResponse> scrollSearch(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return storyService.scrollSearch(q, cursor, size, withTotal);
+    }
+
+    /**
+     * 搜索结果的标签分面（基于相关度前 1000 个结果统计，见响应头 {@value #SEARCH_LIMIT_HEADER}）
+     */
+    @GetMapping("/search/facets")
+    public List<TagResponse> searchFacets(@RequestParam String q, HttpServletResponse response) {
+        response.setHeader(SEARCH_LIMIT_HEADER, String.valueOf(StorySearchService.MAX_CANDIDATES));
+        return storyService.searchFacets(q);
+    }
+
+    /**
+     * 相关度检索的结果数上限写入响应头；总数达到上限时实际命中可能更多
+     */
+    private static <T> Page<T> markSearchLimit(Page<T> page, HttpServletResponse response) {
+        response.setHeader(SEARCH_LIMIT_HEADER, String.valueOf(StorySearchService.MAX_CANDIDATES));
+        if (page.getTotalElements() >= StorySearchService.MAX_CANDIDATES) {
+            response.setHeader(TOTAL_CAPPED_HEADER, "true");
+        }
+        return page;
+    }
+
+    /**
+     * 搜索建议（标题、标签前缀匹配）
+     */
+    @GetMapping("/search/suggest")
+    public List<String> suggest(@RequestParam String q) {
+        return storyService.suggest(q);
     }
 
     /**
@@ -120,12 +239,44 @@ public class StoryController {
         return storyService.listPublishedByTag(tag, pageable);
     }
 
+    /**
+     * 游标分页按标签筛选
+     */
+    @GetMapping("/tag/{tag}/cursor")
+    public CursorPage<StoryListItemResponse> scrollByTag(
+            @PathVariable String tag,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return storyService.scrollPublishedByTag(tag, cursor, size, withTotal);
+    }
+
     /**
      * 根据slug获取小说详情
      */
     @GetMapping("/slug/{slug}")
-    public StoryResponse getBySlug(@PathVariable String slug) {
-        return storyService.getBySlug(slug);
+    public StoryResponse getBySlug(@AuthenticationPrincipal UserDetails userDetails,
+                                   @PathVariable String slug, ServletWebRequest request) {
+        // 条件请求：版本未变时直接 304，不读缓存、不序列化，也不计入阅读
+        ResourceVersion version = storyService.getDetailVersion(slug);
+        if (version != null && version.notModified(request, ResourceVersion.PUBLIC)) {
+            return null;
+        }
+        StoryResponse story = storyService.getBySlug(slug);
+        String viewer = userDetails != null
+                ? "u:" + userDetails.getUsername()
+                : "ip:" + clientIp(request.getRequest());
+        eventPublisher.publishEvent(new StoryActivityEvent(story.id(), StoryActivityEvent.Type.READ, viewer));
+        return story;
+    }
+
+    /** 阅读去重用的客户端 IP（经反向代理时取 X-Forwarded-For 的第一个） */
+    private static String clientIp(HttpServletRequest request) {
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded != null && !forwarded.isBlank() && !"unknown".equalsIgnoreCase(forwarded)) {
+            return forwarded.split(",")[0].trim();
+        }
+        return request.getRemoteAddr();
     }
 
     /**
@@ -208,6 +359,18 @@ public class StoryController {
         }
     }
 
+    /**
+     * 游标分页列出当前用户的小说
+     */
+    @GetMapping("/my/cursor")
+    public CursorPage<StoryListItemResponse> scrollMyStories(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return storyService.scrollMyStories(userDetails.getUsername(), cursor, size, withTotal);
+    }
+
     /**
      * 创建小说
      */
@@ -249,6 +412,43 @@ public class StoryController {
         return storyService.getAllTags();
     }
 
+    /**
+     * 小说详情/列表两级缓存统计（命中率、陈旧度、失效消息数）（仅管理员）
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats(@AuthenticationPrincipal UserDetails userDetails) {
+        requireAdmin(userDetails);
+        return storyCache.stats();
+    }
+
+    /**
+     * 知识包（Wiki + 设定）缓存统计：本机/Redis 命中、加载次数与平均加载耗时（仅管理员）
+     */
+    @GetMapping("/cache/knowledge/stats")
+    public Map<String, Object> knowledgeCacheStats(@AuthenticationPrincipal UserDetails userDetails) {
+        requireAdmin(userDetails);
+        return knowledgeCache.stats();
+    }
+
+    /**
+     * 正文压缩存储统计：编码/解码耗时与压缩率、后台迁移进度与节省的字节数、分支章节差异存储（仅管理员）
+     */
+    @GetMapping("/storage/stats")
+    public Map<String, Object> storageStats(@AuthenticationPrincipal UserDetails userDetails) {
+        requireAdmin(userDetails);
+        return Map.of("converter", CompressedTextConverter.stats(), "migration", compressedTextMigrator.stats(),
+                "prChapterDeltas", prChapterContentStore.stats());
+    }
+
+    private void requireAdmin(UserDetails userDetails) {
+        boolean admin = userDetails != null && userRepository.findByUsername(userDetails.getUsername())
+                .map(User::isAdmin)
+                .orElse(false);
+        if (!admin) {
+            throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
+        }
+    }
+
     /**
      * 获取当前用户的所有标签
      */
@@ -265,8 +465,9 @@ public class StoryController {
     public void starStory(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long id) {
-        Story story = storyRepository.findById(id)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
+        if (!storyRepository.existsById(id)) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "小说不存在");
+        }
 
         Long userId = getUserId(userDetails);
 
@@ -274,13 +475,12 @@ public class StoryController {
             throw new ApiException(HttpStatus.BAD_REQUEST, "已经Star过了");
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "用户不存在"));
-
-        StoryStar star = new StoryStar(story, user);
+        // 只需外键：用引用代替加载小说、用户实体
+        StoryStar star = new StoryStar(storyRepository.getReferenceById(id), userRepository.getReferenceById(userId));
         storyStarRepository.save(star);
         
-        storyStarRepository.incrementStarCount(id);
+        counterBuffer.addStars(id, 1);
+        eventPublisher.publishEvent(new StoryActivityEvent(id, StoryActivityEvent.Type.STAR));
     }
 
     /**
@@ -297,8 +497,12 @@ public class StoryController {
             throw new ApiException(HttpStatus.BAD_REQUEST, "还没有Star过");
         }
         
-        storyStarRepository.deleteByStoryIdAndUserId(id, userId);
-        storyStarRepository.decrementStarCount(id);
+        // 并发的取消请求只有真正删除了记录的那个计数
+        if (storyStarRepository.deleteByStoryIdAndUserId(id, userId) == 0) {
+            return;
+        }
+        counterBuffer.addStars(id, -1);
+        eventPublisher.publishEvent(new StoryActivityEvent(id, StoryActivityEvent.Type.UNSTAR));
     }
 
     /**
@@ -313,8 +517,7 @@ public class StoryController {
     }
 
     private Long getUserId(UserDetails userDetails) {
-        return userRepository.findByUsername(userDetails.getUsername())
-                .map(User::getId)
+        return userRepository.findIdByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "用户不存在"));
     }
 
@@ -337,8 +540,9 @@ public class StoryController {
      */
     @GetMapping("/{id}/contributors")
     public List<com.example.api.story.dto.ContributorResponse> getContributors(@PathVariable Long id) {
-        Story story = storyRepository.findById(id)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
+        if (!storyRepository.existsById(id)) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "小说不存在");
+        }
         return storyContributorService.getContributors(id);
     }
 
@@ -347,8 +551,9 @@ public class StoryController {
      */
     @GetMapping("/{id}/contributors/count")
     public Map<String, Integer> getContributorCount(@PathVariable Long id) {
-        Story story = storyRepository.findById(id)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
+        if (!storyRepository.existsById(id)) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "小说不存在");
+        }
         int count = storyContributorService.getContributorCount(id);
         return Map.of("count", count);
     }
@@ -0,0 +1,65 @@
+package com.example.api.story;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.springframework.http.HttpStatus;
+
+import com.example.api.common.ApiException;
+
+/**
+ * 列表游标（keyset 分页）：记录上一页最后一条的 (createdAt, id)，下一页从其之后继续，
+ * 不使用 OFFSET，深翻页不会变慢。对客户端是不透明的 Base64 字符串。
+ * 搜索结果按相关度排序，游标记录上一页最后一条的 (score, id)（createdAt 为 null），
+ * 与排序键一致，上一页的小说下架或分数变化后仍能从正确位置继续。
+ */
+record StoryCursor(Instant createdAt, Integer score, long id) {
+
+    /** 第一页的时间上界：取当前时间之后一天（容忍节点间时钟偏差），在 TIMESTAMP 列的取值范围内 */
+    private static final Duration FIRST_PAGE_SKEW = Duration.ofDays(1);
+
+    static StoryCursor first() {
+        return new StoryCursor(Instant.now().plus(FIRST_PAGE_SKEW), null, Long.MAX_VALUE);
+    }
+
+    static StoryCursor of(StoryListRow row) {
+        return new StoryCursor(row.createdAt(), null, row.id());
+    }
+
+    static StoryCursor afterHit(int score, long id) {
+        return new StoryCursor(null, score, id);
+    }
+
+    String encode() {
+        String raw = createdAt != null
+                ? createdAt.getEpochSecond() + "." + createdAt.getNano() + ":" + id
+                : "s" + score + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，为空时返回第一页
+     */
+    static StoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return first();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            long id = Long.parseLong(raw.substring(colon + 1));
+            if (raw.startsWith("s")) {
+                return afterHit(Integer.parseInt(raw.substring(1, colon)), id);
+            }
+            String time = raw.substring(0, colon);
+            int dot = time.indexOf('.');
+            Instant createdAt = Instant.ofEpochSecond(
+                    Long.parseLong(time.substring(0, dot)), Long.parseLong(time.substring(dot + 1)));
+            return new StoryCursor(createdAt, null, id);
+        } catch (RuntimeException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "无效的分页游标");
+        }
+    }
+}
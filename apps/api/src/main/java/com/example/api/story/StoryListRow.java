@@ -0,0 +1,23 @@
+package com.example.api.story;
+
+import java.time.Instant;
+
+/**
+ * 列表项读取投影：只取列表需要的列（作者名经 JOIN 取得），不加载 Story 实体，
+ * 不进入持久化上下文，也不会触发懒加载；标签由 {@link StoryRepository#findTagsByStoryIdIn} 一次批量取出
+ */
+public record StoryListRow(
+        Long id,
+        String title,
+        String slug,
+        boolean published,
+        Boolean openSource,
+        String openSourceLicense,
+        Integer forkCount,
+        Integer starCount,
+        String storySummary,
+        String authorUsername,
+        Instant createdAt,
+        Integer chapterCount
+) {
+}
@@ -1,8 +1,10 @@
 package com.example.api.story;
 
 import com.example.api.common.BaseEntity;
+import com.example.api.common.CompressedTextConverter;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Index;
@@ -11,6 +13,13 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
+/**
+ * 分支小说章节。
+ * <p>
+ * 正文有两种存储方式：与原小说同序号的基准章节差异较小时，只存相对基准正文的词元级差异
+ * （{@link #contentDelta}，并记录基准章节ID与正文哈希），否则存全文（{@link #contentMarkdown}）。
+ * 读写正文须经 {@link com.example.api.story.diff.PrChapterContentStore}。
+ */
 @Entity
 @Table(
         name = "story_pr_chapters",
@@ -18,7 +27,8 @@ import jakarta.persistence.UniqueConstraint;
                 @UniqueConstraint(name = "uk_pr_chapters_novel_sort", columnNames = {"pr_novel_id", "sort_order"})
         },
         indexes = {
-                @Index(name = "idx_pr_chapters_novel_id", columnList = "pr_novel_id")
+                @Index(name = "idx_pr_chapters_novel_id", columnList = "pr_novel_id"),
+                @Index(name = "idx_pr_chapters_base_chapter", columnList = "base_chapter_id")
         })
 public class StoryPrChapter extends BaseEntity {
 
@@ -32,9 +42,23 @@ public class StoryPrChapter extends BaseEntity {
     @Column(nullable = false, length = 200)
     private String title;
 
+    /** 全文；以差异存储时为 null */
     @Column(columnDefinition = "LONGTEXT", name = "content_markdown")
     private String contentMarkdown;
 
+    /** 差异的基准章节（story_chapters.id）；全文存储时为 null */
+    @Column(name = "base_chapter_id")
+    private Long baseChapterId;
+
+    /** 生成差异时基准正文的 SHA-256，还原前校验基准未变 */
+    @Column(name = "base_content_hash", columnDefinition = "CHAR(64) CHARACTER SET ascii")
+    private String baseContentHash;
+
+    /** 相对基准正文的差异（{@link com.example.api.story.diff.TextDelta} 的 JSON，压缩存储） */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "content_delta", columnDefinition = "LONGBLOB")
+    private String contentDelta;
+
     @Column(columnDefinition = "TEXT")
     private String summary;
 
@@ -74,12 +98,47 @@ public class StoryPrChapter extends BaseEntity {
         this.title = title;
     }
 
+    /**
+     * 存储的全文；以差异存储时为 null，需经 {@link com.example.api.story.diff.PrChapterContentStore} 还原
+     */
     public String getContentMarkdown() {
         return contentMarkdown;
     }
 
+    /**
+     * 以全文存储（清除差异）
+     */
     public void setContentMarkdown(String contentMarkdown) {
         this.contentMarkdown = contentMarkdown;
+        this.baseChapterId = null;
+        this.baseContentHash = null;
+        this.contentDelta = null;
+    }
+
+    /**
+     * 以相对基准章节正文的差异存储（清除全文）
+     */
+    public void setContentDelta(Long baseChapterId, String baseContentHash, String contentDelta) {
+        this.contentMarkdown = null;
+        this.baseChapterId = baseChapterId;
+        this.baseContentHash = baseContentHash;
+        this.contentDelta = contentDelta;
+    }
+
+    public boolean isDeltaStored() {
+        return contentDelta != null;
+    }
+
+    public Long getBaseChapterId() {
+        return baseChapterId;
+    }
+
+    public String getBaseContentHash() {
+        return baseContentHash;
+    }
+
+    public String getContentDelta() {
+        return contentDelta;
     }
 
     public String getSummary() {
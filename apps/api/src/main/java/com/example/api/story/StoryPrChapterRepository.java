@@ -1,8 +1,11 @@
 package com.example.api.story;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +19,11 @@ public interface StoryPrChapterRepository extends JpaRepository<StoryPrChapter,
     void deleteByPrNovel_IdAndSortOrderGreaterThan(Long prNovelId, int sortOrder);
 
     int countByPrNovel_Id(Long prNovelId);
+
+    /**
+     * 以该章节为基准、按差异存储的分支章节（基准正文变化或删除前需先还原为全文）。
+     * 加锁读取：读到的是已提交的最新数据，不会漏掉刚写入的差异
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<StoryPrChapter> findByBaseChapterIdAndContentDeltaIsNotNull(Long baseChapterId);
 }
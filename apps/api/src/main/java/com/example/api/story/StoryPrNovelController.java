@@ -78,6 +78,17 @@ public class StoryPrNovelController {
         return storyPrNovelService.listChapters(userDetails.getUsername(), prNovelId);
     }
 
+    /**
+     * 分支章节相对原小说基准章节的行级差异（审阅用）
+     */
+    @GetMapping("/story-pr-novels/{prNovelId}/chapters/{chapterId}/diff")
+    public StoryPrChapterDiffResponse diffChapter(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long prNovelId,
+            @PathVariable Long chapterId) {
+        return storyPrNovelService.diffChapter(userDetails.getUsername(), prNovelId, chapterId);
+    }
+
     @PutMapping("/story-pr-novels/{prNovelId}/chapters/{chapterId}")
     public StoryPrChapterResponse updateChapter(
             @AuthenticationPrincipal UserDetails userDetails,
@@ -26,6 +26,8 @@ public interface StoryPrNovelService {
 
     List<StoryPrChapterResponse> listChapters(String username, Long prNovelId);
 
+    StoryPrChapterDiffResponse diffChapter(String username, Long prNovelId, Long chapterId);
+
     StoryPrSubmissionResponse submit(String username, StoryPrSubmissionCreateRequest request);
 
     List<StoryPrSubmissionResponse> listMySubmissions(String username);
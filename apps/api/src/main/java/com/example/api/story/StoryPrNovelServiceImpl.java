@@ -5,6 +5,7 @@ import com.example.api.readerfork.ReaderFork;
 import com.example.api.readerfork.ReaderForkRepository;
 import com.example.api.readerfork.ReaderForkService;
 import com.example.api.readerfork.dto.ReaderForkResponse;
+import com.example.api.story.diff.PrChapterContentStore;
 import com.example.api.story.dto.*;
 import com.example.api.user.User;
 import com.example.api.user.UserRepository;
@@ -15,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -27,6 +29,7 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
     private final ReaderForkRepository readerForkRepository;
     private final UserRepository userRepository;
     private final ReaderForkService readerForkService;
+    private final PrChapterContentStore prChapterContentStore;
 
     public StoryPrNovelServiceImpl(
             StoryPrNovelRepository storyPrNovelRepository,
@@ -35,7 +38,8 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
             StoryRepository storyRepository,
             ReaderForkRepository readerForkRepository,
             UserRepository userRepository,
-            ReaderForkService readerForkService) {
+            ReaderForkService readerForkService,
+            PrChapterContentStore prChapterContentStore) {
         this.storyPrNovelRepository = storyPrNovelRepository;
         this.storyPrChapterRepository = storyPrChapterRepository;
         this.storyPrSubmissionRepository = storyPrSubmissionRepository;
@@ -43,6 +47,7 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
         this.readerForkRepository = readerForkRepository;
         this.userRepository = userRepository;
         this.readerForkService = readerForkService;
+        this.prChapterContentStore = prChapterContentStore;
     }
 
     @Override
@@ -199,7 +204,7 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
                 request.sortOrder(),
                 request.title()
         );
-        chapter.setContentMarkdown(request.contentMarkdown());
+        prChapterContentStore.write(chapter, request.contentMarkdown());
         chapter.setSummary(request.summary());
 
         // 计算字数
@@ -208,7 +213,7 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
         }
 
         StoryPrChapter saved = storyPrChapterRepository.save(chapter);
-        return toChapterResponse(saved);
+        return toChapterResponse(saved, request.contentMarkdown());
     }
 
     @Override
@@ -237,7 +242,7 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
         }
 
         chapter.setTitle(request.title());
-        chapter.setContentMarkdown(request.contentMarkdown());
+        prChapterContentStore.write(chapter, request.contentMarkdown());
         chapter.setSummary(request.summary());
 
         if (request.contentMarkdown() != null) {
@@ -245,7 +250,7 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
         }
 
         StoryPrChapter saved = storyPrChapterRepository.save(chapter);
-        return toChapterResponse(saved);
+        return toChapterResponse(saved, request.contentMarkdown());
     }
 
     @Override
@@ -292,12 +297,39 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限查看");
         }
 
-        return storyPrChapterRepository.findByPrNovel_IdOrderBySortOrderAsc(prNovelId)
-                .stream()
-                .map(this::toChapterResponse)
+        List<StoryPrChapter> chapters = storyPrChapterRepository.findByPrNovel_IdOrderBySortOrderAsc(prNovelId);
+        Map<Long, String> contents = prChapterContentStore.readAll(chapters);
+        return chapters.stream()
+                .map(chapter -> toChapterResponse(chapter, contents.get(chapter.getId())))
                 .toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public StoryPrChapterDiffResponse diffChapter(String username, Long prNovelId, Long chapterId) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "请先登录"));
+
+        StoryPrNovel prNovel = storyPrNovelRepository.findById(prNovelId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "分支小说不存在"));
+
+        boolean isCreator = prNovel.getCreator().getId().equals(user.getId());
+        boolean isAuthor = prNovel.getStory().getAuthor().getId().equals(user.getId());
+
+        if (!isCreator && !isAuthor) {
+            throw new ApiException(HttpStatus.FORBIDDEN, "无权限查看");
+        }
+
+        StoryPrChapter chapter = storyPrChapterRepository.findById(chapterId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
+
+        if (!chapter.getPrNovel().getId().equals(prNovelId)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "章节不属于该分支小说");
+        }
+
+        return prChapterContentStore.diff(chapter);
+    }
+
     @Override
     @Transactional
     public StoryPrSubmissionResponse submit(String username, StoryPrSubmissionCreateRequest request) {
@@ -436,13 +468,13 @@ public class StoryPrNovelServiceImpl implements StoryPrNovelService {
         );
     }
 
-    private StoryPrChapterResponse toChapterResponse(StoryPrChapter chapter) {
+    private StoryPrChapterResponse toChapterResponse(StoryPrChapter chapter, String contentMarkdown) {
         return new StoryPrChapterResponse(
                 chapter.getId(),
                 chapter.getPrNovel().getId(),
                 chapter.getSortOrder(),
                 chapter.getTitle(),
-                chapter.getContentMarkdown(),
+                contentMarkdown,
                 chapter.getSummary(),
                 chapter.getWordCount(),
                 chapter.getCreatedAt(),
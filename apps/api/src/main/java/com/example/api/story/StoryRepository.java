@@ -4,14 +4,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.LockModeType;
+
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface StoryRepository extends JpaRepository<Story, Long> {
@@ -21,8 +27,9 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
     long countByPublishedFalse();
 
     /**
-     * 根据slug查找已发布的小说
+     * 根据slug查找已发布的小说（详情页，预取 author 和 tags）
      */
+    @EntityGraph(attributePaths = {"author", "tags"})
     Optional<Story> findBySlugAndPublishedTrue(String slug);
 
     /**
@@ -36,28 +43,34 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
     List<Story> findByTitle(String title);
 
     /**
-     * 列出所有已发布的小说（预取 author 和 tags 避免列表序列化时懒加载异常）
+     * 按标题批量取每个标题下最早的小说ID（[标题, ID]），供未回填 story_id 的旧阅读副本一次查出
      */
-    @EntityGraph(attributePaths = {"author", "tags"})
+    @Query("SELECT s.title, MIN(s.id) FROM Story s WHERE s.title IN :titles GROUP BY s.title")
+    List<Object[]> findFirstIdsByTitleIn(@Param("titles") Collection<String> titles);
+
+    /**
+     * 列出所有已发布的小说（预取 author；tags 为集合，与分页同时 fetch join 会退化为内存分页，由 @BatchSize 批量加载）
+     */
+    @EntityGraph(attributePaths = {"author"})
     Page<Story> findByPublishedTrue(Pageable pageable);
 
     /**
-     * 列出开源的小说（预取 author 和 tags）
+     * 列出开源的小说（预取 author，tags 批量加载）
      */
-    @EntityGraph(attributePaths = {"author", "tags"})
+    @EntityGraph(attributePaths = {"author"})
     Page<Story> findByPublishedTrueAndOpenSourceTrue(Pageable pageable);
 
     /**
-     * 列出有章节内容的小说（预取 author 和 tags）
+     * 列出有章节内容的小说（预取 author，tags 批量加载）
      */
-    @EntityGraph(attributePaths = {"author", "tags"})
-    @Query("SELECT DISTINCT s FROM Story s JOIN s.chapters c WHERE s.published = true ORDER BY s.createdAt DESC")
+    @EntityGraph(attributePaths = {"author"})
+    @Query("SELECT s FROM Story s WHERE s.published = true AND s.chapterCount > 0 ORDER BY s.createdAt DESC")
     Page<Story> findByPublishedTrueAndHasChapters(Pageable pageable);
 
     /**
-     * 列出作者的所有小说（分页，预取 author 和 tags 避免列表序列化时懒加载异常）
+     * 列出作者的所有小说（分页，预取 author，tags 批量加载）
      */
-    @EntityGraph(attributePaths = {"author", "tags"})
+    @EntityGraph(attributePaths = {"author"})
     @Query("SELECT s FROM Story s WHERE s.author.username = :username ORDER BY s.createdAt DESC")
     Page<Story> findByAuthorUsername(@Param("username") String username, Pageable pageable);
 
@@ -73,9 +86,13 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
     @EntityGraph(attributePaths = {"author"})
     Page<Story> findByAuthor_IdAndPublishedTrueOrderByUpdatedAtDesc(Long authorId, Pageable pageable);
 
+    @Query("SELECT s.id FROM Story s WHERE s.author.id = :authorId AND s.published = true")
+    List<Long> findPublishedIdsByAuthorId(@Param("authorId") Long authorId);
+
     /**
-     * 根据ID查找已发布的小说
+     * 根据ID查找已发布的小说（预取 author 和 tags）
      */
+    @EntityGraph(attributePaths = {"author", "tags"})
     Optional<Story> findByIdAndPublishedTrue(Long id);
 
     /**
@@ -85,54 +102,164 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
     Optional<Story> findByIdAndAuthorUsername(Long id, String username);
 
     /**
-     * 搜索已发布的小说（标题、摘要、标签，预取 author 和 tags）
+     * 根据ID和作者验证所有权并锁定小说行（SELECT ... FOR UPDATE）：
+     * 移动、删除章节等改写整棵分支树的操作按小说串行执行
      */
-    @EntityGraph(attributePaths = {"author", "tags"})
-    @Query("SELECT DISTINCT s FROM Story s LEFT JOIN s.tags t " +
-           "WHERE s.published = true AND (LOWER(s.title) LIKE LOWER(CONCAT('%', :q, '%')) " +
-           "OR LOWER(s.storySummary) LIKE LOWER(CONCAT('%', :q, '%')) " +
-           "OR LOWER(t) LIKE LOWER(CONCAT('%', :q, '%'))) " +
-           "ORDER BY s.createdAt DESC")
-    Page<Story> searchPublished(@Param("q") String query, Pageable pageable);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Story s WHERE s.id = :id AND s.author.username = :username")
+    Optional<Story> findByIdAndAuthorUsernameForUpdate(@Param("id") Long id, @Param("username") String username);
 
     /**
-     * 高级搜索：支持多标签筛选、状态筛选等
+     * 按ID批量加载已发布的小说（搜索结果回表，预取 author 和 tags）
      */
     @EntityGraph(attributePaths = {"author", "tags"})
+    List<Story> findByIdInAndPublishedTrue(Collection<Long> ids);
+
+    /**
+     * 按ID批量取已发布小说的列表项投影（游标列表、搜索结果回表）
+     */
+    @Query("SELECT new com.example.api.story.StoryListRow(s.id, s.title, s.slug, s.published, s.openSource, " +
+           "s.openSourceLicense, s.forkCount, s.starCount, s.storySummary, a.username, s.createdAt, s.chapterCount) " +
+           "FROM Story s JOIN s.author a WHERE s.id IN :ids AND s.published = true")
+    List<StoryListRow> findListRowsByIdInAndPublishedTrue(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按ID批量取列表项投影（不限发布状态，我的小说）
+     */
+    @Query("SELECT new com.example.api.story.StoryListRow(s.id, s.title, s.slug, s.published, s.openSource, " +
+           "s.openSourceLicense, s.forkCount, s.starCount, s.storySummary, a.username, s.createdAt, s.chapterCount) " +
+           "FROM Story s JOIN s.author a WHERE s.id IN :ids")
+    List<StoryListRow> findListRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量取小说的标签（[小说ID, 标签]），配合列表项投影使用
+     */
+    @Query("SELECT s.id, t FROM Story s JOIN s.tags t WHERE s.id IN :ids")
+    List<Object[]> findTagsByStoryIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 在给定的小说ID中按开源状态、标签筛选（高级搜索）
+     */
+    @Query("SELECT s.id FROM Story s " +
+           "WHERE s.id IN :ids " +
+           "AND (:openSource IS NULL OR s.openSource = :openSource) " +
+           "AND (:tags IS NULL OR EXISTS (SELECT 1 FROM s.tags t WHERE t IN :tags))")
+    Set<Long> filterIds(
+        @Param("ids") Collection<Long> ids,
+        @Param("openSource") Boolean openSource,
+        @Param("tags") List<String> tags
+    );
+
+    /**
+     * 高级搜索（无关键词时）：按开源状态、多标签筛选（预取 author，tags 批量加载）
+     */
+    @EntityGraph(attributePaths = {"author"})
     @Query("SELECT DISTINCT s FROM Story s " +
            "WHERE s.published = true " +
-           "AND (:q IS NULL OR LOWER(s.title) LIKE LOWER(CONCAT('%', :q, '%')) " +
-           "OR LOWER(s.storySummary) LIKE LOWER(CONCAT('%', :q, '%'))) " +
            "AND (:openSource IS NULL OR s.openSource = :openSource) " +
            "AND (:tags IS NULL OR EXISTS (SELECT 1 FROM s.tags t WHERE t IN :tags)) " +
            "ORDER BY s.createdAt DESC")
     Page<Story> advancedSearch(
-        @Param("q") String query,
         @Param("openSource") Boolean openSource,
         @Param("tags") List<String> tags,
         Pageable pageable
     );
 
     /**
-     * 根据标签查找已发布的小说（预取 author 和 tags）
+     * 给定小说中各标签的数量（搜索结果的标签分面）
      */
-    @EntityGraph(attributePaths = {"author", "tags"})
-    @Query("SELECT DISTINCT s FROM Story s JOIN s.tags t " +
-           "WHERE s.published = true AND LOWER(t) = LOWER(:tag) " +
+    @Query("SELECT t, COUNT(s) FROM Story s JOIN s.tags t WHERE s.id IN :ids GROUP BY t ORDER BY COUNT(s) DESC")
+    List<Object[]> countTagsByStoryIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 标题前缀匹配（搜索建议，prefix 中的 %、_、! 需以 ! 转义）
+     */
+    @Query("SELECT s.title FROM Story s WHERE s.published = true AND s.title LIKE CONCAT(:prefix, '%') ESCAPE '!' " +
+           "ORDER BY s.starCount DESC, s.id DESC")
+    List<String> suggestTitles(@Param("prefix") String prefix, Pageable pageable);
+
+    /**
+     * 已发布小说的ID（分页，用于重建搜索索引）
+     */
+    @Query("SELECT s.id FROM Story s WHERE s.published = true")
+    List<Long> findPublishedIds(Pageable pageable);
+
+    /**
+     * 指定时间之后有更新的小说ID（搜索索引换表后补建重建期间的变更）
+     */
+    @Query("SELECT s.id FROM Story s WHERE s.updatedAt >= :since")
+    List<Long> findIdsUpdatedSince(@Param("since") Instant since);
+
+    /**
+     * 已发布小说的 Star/Fork 数（初始化发现页排行）
+     */
+    @Query("SELECT s.id, s.starCount, s.forkCount FROM Story s " +
+           "WHERE s.published = true AND (s.starCount > 0 OR s.forkCount > 0)")
+    List<Object[]> findPopularityCounts();
+
+    /**
+     * 根据标签查找已发布的小说（预取 author，tags 批量加载）
+     */
+    @EntityGraph(attributePaths = {"author"})
+    @Query("SELECT s FROM Story s WHERE s.published = true " +
+           "AND s.id IN (SELECT l.storyId FROM StoryTagLink l WHERE l.tagId = :tagId) " +
            "ORDER BY s.createdAt DESC")
-    Page<Story> findByPublishedTrueAndTag(@Param("tag") String tag, Pageable pageable);
+    Page<Story> findByPublishedTrueAndTag(@Param("tagId") Long tagId, Pageable pageable);
+
+    // ==================== 游标分页（keyset）====================
+    // 只查 id，按 (createdAt, id) 降序从游标之后取 pageable.size 条，不走 OFFSET、不做 COUNT；
+    // 再按 id 回表预取 author 和 tags（集合预取与 LIMIT 同用会退化为内存分页）
+
+    /**
+     * 已发布小说的下一页 ID（可选仅开源、仅有章节）
+     */
+    @Query("SELECT s.id FROM Story s WHERE s.published = true " +
+           "AND (:openSourceOnly = false OR s.openSource = true) " +
+           "AND (:withChapters = false OR s.chapterCount > 0) " +
+           "AND (s.createdAt < :cursorAt OR (s.createdAt = :cursorAt AND s.id < :cursorId)) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Long> findPublishedIdsBefore(@Param("openSourceOnly") boolean openSourceOnly,
+                                      @Param("withChapters") boolean withChapters,
+                                      @Param("cursorAt") Instant cursorAt,
+                                      @Param("cursorId") Long cursorId,
+                                      Pageable limit);
+
+    @Query("SELECT COUNT(s) FROM Story s WHERE s.published = true " +
+           "AND (:openSourceOnly = false OR s.openSource = true) " +
+           "AND (:withChapters = false OR s.chapterCount > 0)")
+    long countPublished(@Param("openSourceOnly") boolean openSourceOnly,
+                        @Param("withChapters") boolean withChapters);
+
+    /**
+     * 某标签下已发布小说的下一页 ID（经 story_tag_links 主键 (tag_id, story_id) 定位）
+     */
+    @Query("SELECT s.id FROM Story s, StoryTagLink l WHERE l.storyId = s.id AND l.tagId = :tagId " +
+           "AND s.published = true " +
+           "AND (s.createdAt < :cursorAt OR (s.createdAt = :cursorAt AND s.id < :cursorId)) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Long> findPublishedIdsByTagBefore(@Param("tagId") Long tagId,
+                                           @Param("cursorAt") Instant cursorAt,
+                                           @Param("cursorId") Long cursorId,
+                                           Pageable limit);
 
     /**
-     * 获取所有标签
+     * 作者小说库的下一页 ID（含未发布）
      */
-    @Query("SELECT DISTINCT t FROM Story s JOIN s.tags t WHERE s.published = true")
-    List<String> findAllTags();
+    @Query("SELECT s.id FROM Story s WHERE s.author.username = :username " +
+           "AND (s.createdAt < :cursorAt OR (s.createdAt = :cursorAt AND s.id < :cursorId)) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Long> findIdsByAuthorUsernameBefore(@Param("username") String username,
+                                             @Param("cursorAt") Instant cursorAt,
+                                             @Param("cursorId") Long cursorId,
+                                             Pageable limit);
+
+    long countByAuthor_Username(String username);
 
     /**
-     * 获取所有标签及其使用次数
+     * 按ID批量加载（不限发布状态，预取 author 和 tags）
      */
-    @Query("SELECT t, COUNT(s) FROM Story s JOIN s.tags t WHERE s.published = true GROUP BY t ORDER BY COUNT(s) DESC")
-    List<Object[]> findAllTagCounts();
+    @EntityGraph(attributePaths = {"author", "tags"})
+    List<Story> findByIdIn(Collection<Long> ids);
 
     /**
      * 获取作者的所有标签
@@ -146,12 +273,27 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
     boolean existsBySlug(String slug);
 
     /**
-     * 原子增加fork计数
+     * 原子调整star、fork计数（StoryCounterBuffer 批量落库，每本小说一条 UPDATE，不低于 0）
      */
     @Modifying
-    @Transactional
-    @Query("UPDATE Story s SET s.forkCount = s.forkCount + 1 WHERE s.id = :storyId")
-    void incrementForkCount(@Param("storyId") Long storyId);
+    @Query("UPDATE Story s SET " +
+           "s.starCount = CASE WHEN s.starCount + :starDelta > 0 THEN s.starCount + :starDelta ELSE 0 END, " +
+           "s.forkCount = CASE WHEN s.forkCount + :forkDelta > 0 THEN s.forkCount + :forkDelta ELSE 0 END " +
+           "WHERE s.id = :storyId")
+    void adjustCounts(@Param("storyId") Long storyId, @Param("starDelta") int starDelta, @Param("forkDelta") int forkDelta);
+
+    /**
+     * 按ID查 slug（计数落库后失效详情缓存）
+     */
+    @Query("SELECT s.id, s.slug FROM Story s WHERE s.id IN :ids")
+    List<Object[]> findSlugsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 已发布小说详情的版本字段（HTTP 条件请求用，不加载实体）：id、version、updatedAt、starCount、forkCount、chapterCount
+     */
+    @Query("SELECT s.id, s.version, s.updatedAt, s.starCount, s.forkCount, s.chapterCount FROM Story s " +
+           "WHERE s.slug = :slug AND s.published = true")
+    List<Object[]> findDetailVersionBySlug(@Param("slug") String slug);
 
     /**
      * 原子减少fork计数
@@ -160,4 +302,23 @@ public interface StoryRepository extends JpaRepository<Story, Long> {
     @Transactional
     @Query("UPDATE Story s SET s.forkCount = CASE WHEN s.forkCount > 0 THEN s.forkCount - 1 ELSE 0 END WHERE s.id = :storyId")
     void decrementForkCount(@Param("storyId") Long storyId);
+
+    /**
+     * 原子调整章节数（新增章节 +1，删除章节 -1，不会小于 0）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Story s SET s.chapterCount = CASE WHEN s.chapterCount + :delta > 0 THEN s.chapterCount + :delta ELSE 0 END WHERE s.id = :storyId")
+    void adjustChapterCount(@Param("storyId") Long storyId, @Param("delta") int delta);
+
+    /**
+     * 按 story_chapters 实际数量校正 chapter_count，返回修正的行数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE stories s " +
+           "LEFT JOIN (SELECT story_id, COUNT(*) AS cnt FROM story_chapters GROUP BY story_id) c ON c.story_id = s.id " +
+           "SET s.chapter_count = COALESCE(c.cnt, 0) " +
+           "WHERE s.chapter_count <> COALESCE(c.cnt, 0)", nativeQuery = true)
+    int reconcileChapterCounts();
 }
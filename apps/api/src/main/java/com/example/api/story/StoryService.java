@@ -1,9 +1,12 @@
 package com.example.api.story;
 
+import com.example.api.common.ResourceVersion;
+import com.example.api.story.dto.CursorPage;
 import com.example.api.story.dto.StoryCreateRequest;
 import com.example.api.story.dto.StoryListItemResponse;
 import com.example.api.story.dto.StoryResponse;
 import com.example.api.story.dto.StoryUpdateRequest;
+import com.example.api.tag.TagResponse;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -33,10 +36,20 @@ public interface StoryService {
     Page<StoryListItemResponse> listOpenSource(Pageable pageable);
 
     /**
-     * 搜索已发布的小说
+     * 搜索已发布的小说（全文索引，按相关度排序）
      */
     Page<StoryListItemResponse> searchPublished(String query, Pageable pageable);
 
+    /**
+     * 搜索结果的标签分面（标签及命中数量）
+     */
+    List<TagResponse> searchFacets(String query);
+
+    /**
+     * 搜索建议：按前缀匹配小说标题和标签
+     */
+    List<String> suggest(String prefix);
+
     /**
      * 高级搜索：支持多标签筛选、状态筛选等
      */
@@ -52,6 +65,11 @@ public interface StoryService {
      */
     StoryResponse getBySlug(String slug);
 
+    /**
+     * 小说详情的版本（ETag / Last-Modified），只查版本字段；小说不存在或未发布时返回 null
+     */
+    ResourceVersion getDetailVersion(String slug);
+
     /**
      * 根据ID获取已发布小说详情（公开访问）
      */
@@ -77,6 +95,29 @@ public interface StoryService {
      */
     Page<StoryListItemResponse> listMyInteractive(String username, Pageable pageable);
 
+    // ==================== 游标分页 ====================
+    // cursor 为上一页返回的 nextCursor（首页传空），withTotal=true 时额外计算总数
+
+    /**
+     * 游标分页列出已发布小说（filter: all/completed/interactive）
+     */
+    CursorPage<StoryListItemResponse> scrollPublished(String filter, String cursor, int size, boolean withTotal);
+
+    /**
+     * 游标分页列出某标签下的小说
+     */
+    CursorPage<StoryListItemResponse> scrollPublishedByTag(String tag, String cursor, int size, boolean withTotal);
+
+    /**
+     * 游标分页搜索（按相关度排序）
+     */
+    CursorPage<StoryListItemResponse> scrollSearch(String query, String cursor, int size, boolean withTotal);
+
+    /**
+     * 游标分页列出当前用户的小说
+     */
+    CursorPage<StoryListItemResponse> scrollMyStories(String username, String cursor, int size, boolean withTotal);
+
     /**
      * 创建小说
      */
@@ -1,40 +1,54 @@
 package com.example.api.story;
 
 import com.example.api.common.ApiException;
+import com.example.api.common.ResourceVersion;
 import com.example.api.inspiration.Inspiration;
 import com.example.api.inspiration.InspirationRepository;
-import com.example.api.readerfork.ReaderForkRepository;
-import com.example.api.readerfork.StoryPullRequestRepository;
+import com.example.api.persona.AuthorWorksChangedEvent;
+import com.example.api.story.branch.BranchTreeChangedEvent;
+import com.example.api.story.cache.StoryCache;
+import com.example.api.story.cache.StoryChangedEvent;
+import com.example.api.story.counter.StoryCounterBuffer;
+import com.example.api.story.deletion.StoryDeletionService;
+import com.example.api.story.dto.CursorPage;
 import com.example.api.story.dto.StoryCreateRequest;
 import com.example.api.story.dto.StoryListItemResponse;
 import com.example.api.story.dto.StoryResponse;
 import com.example.api.story.dto.StoryUpdateRequest;
-import com.example.api.story.wiki.StoryWikiCharacterRepository;
-import com.example.api.story.wiki.StoryWikiPageRepository;
-import com.example.api.story.wiki.StoryWikiTimelineEventRepository;
-import com.example.api.storyseed.StoryBranchPointRepository;
-import com.example.api.storyseed.StoryCharacterRepository;
-import com.example.api.storyseed.StoryReadmeRepository;
-import com.example.api.storyseed.StoryTermRepository;
+import com.example.api.story.knowledge.StoryKnowledgeChangedEvent;
+import com.example.api.story.ranking.StoryActivityEvent;
+import com.example.api.story.search.StorySearchService;
+import com.example.api.tag.Tag;
+import com.example.api.tag.TagRepository;
+import com.example.api.tag.TagResponse;
+import com.example.api.tag.TagService;
+import com.example.api.tag.TagServiceImpl;
 import com.example.api.user.User;
 import com.example.api.user.UserRepository;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.text.Normalizer;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -44,70 +58,64 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class StoryServiceImpl implements StoryService {
 
+    private static final int SUGGEST_LIMIT = 10;
+    private static final int MAX_SCROLL_SIZE = 50;
+
     private final StoryRepository storyRepository;
     private final StoryChapterRepository storyChapterRepository;
     private final UserRepository userRepository;
     private final InspirationRepository inspirationRepository;
-    private final StoryStarRepository storyStarRepository;
-    private final ReaderForkRepository readerForkRepository;
-    private final StoryWikiPageRepository storyWikiPageRepository;
-    private final StoryWikiCharacterRepository storyWikiCharacterRepository;
-    private final StoryWikiTimelineEventRepository storyWikiTimelineEventRepository;
-    private final StoryReadmeRepository storyReadmeRepository;
-    private final StoryCharacterRepository storyCharacterRepository;
-    private final StoryTermRepository storyTermRepository;
-    private final StoryBranchPointRepository storyBranchPointRepository;
-    private final StoryPullRequestRepository storyPullRequestRepository;
+    private final StoryDeletionService storyDeletionService;
+    private final StorySearchService storySearchService;
+    private final StoryCache storyCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StoryCounterBuffer counterBuffer;
+    private final TagService tagService;
+    private final TagRepository tagRepository;
 
     public StoryServiceImpl(StoryRepository storyRepository,
                             StoryChapterRepository storyChapterRepository,
                             UserRepository userRepository,
                             InspirationRepository inspirationRepository,
-                            StoryStarRepository storyStarRepository,
-                            ReaderForkRepository readerForkRepository,
-                            StoryWikiPageRepository storyWikiPageRepository,
-                            StoryWikiCharacterRepository storyWikiCharacterRepository,
-                            StoryWikiTimelineEventRepository storyWikiTimelineEventRepository,
-                            StoryReadmeRepository storyReadmeRepository,
-                            StoryCharacterRepository storyCharacterRepository,
-                            StoryTermRepository storyTermRepository,
-                            StoryBranchPointRepository storyBranchPointRepository,
-                            StoryPullRequestRepository storyPullRequestRepository) {
+                            StoryDeletionService storyDeletionService,
+                            StorySearchService storySearchService,
+                            StoryCache storyCache,
+                            ApplicationEventPublisher eventPublisher,
+                            StoryCounterBuffer counterBuffer,
+                            TagService tagService,
+                            TagRepository tagRepository) {
         this.storyRepository = storyRepository;
         this.storyChapterRepository = storyChapterRepository;
         this.userRepository = userRepository;
         this.inspirationRepository = inspirationRepository;
-        this.storyStarRepository = storyStarRepository;
-        this.readerForkRepository = readerForkRepository;
-        this.storyWikiPageRepository = storyWikiPageRepository;
-        this.storyWikiCharacterRepository = storyWikiCharacterRepository;
-        this.storyWikiTimelineEventRepository = storyWikiTimelineEventRepository;
-        this.storyReadmeRepository = storyReadmeRepository;
-        this.storyCharacterRepository = storyCharacterRepository;
-        this.storyTermRepository = storyTermRepository;
-        this.storyBranchPointRepository = storyBranchPointRepository;
-        this.storyPullRequestRepository = storyPullRequestRepository;
+        this.storyDeletionService = storyDeletionService;
+        this.storySearchService = storySearchService;
+        this.storyCache = storyCache;
+        this.eventPublisher = eventPublisher;
+        this.counterBuffer = counterBuffer;
+        this.tagService = tagService;
+        this.tagRepository = tagRepository;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<StoryListItemResponse> listPublished(Pageable pageable) {
-        Page<Story> result = storyRepository.findByPublishedTrue(pageable);
-        return mapToListItemWithHasContent(result);
+        return storyCache.getPage("all", pageable,
+                () -> mapToListItemWithHasContent(storyRepository.findByPublishedTrue(pageable)));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<StoryListItemResponse> listCompleted(Pageable pageable) {
-        return mapToListItemWithHasContent(
-                storyRepository.findByPublishedTrueAndHasChapters(pageable));
+        return storyCache.getPage("completed", pageable,
+                () -> mapToListItemWithHasContent(storyRepository.findByPublishedTrueAndHasChapters(pageable)));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<StoryListItemResponse> listInteractive(Pageable pageable) {
-        return mapToListItemWithHasContent(
-                storyRepository.findByPublishedTrueAndOpenSourceTrue(pageable));
+        return storyCache.getPage("interactive", pageable,
+                () -> mapToListItemWithHasContent(storyRepository.findByPublishedTrueAndOpenSourceTrue(pageable)));
     }
 
     @Override
@@ -121,69 +129,220 @@ public class StoryServiceImpl implements StoryService {
     @Transactional(readOnly = true)
     public Page<StoryListItemResponse> searchPublished(String query, Pageable pageable) {
         return mapToListItemWithHasContent(
-                storyRepository.searchPublished(query, pageable));
+                pageOfRankedStories(storySearchService.search(query), pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<StoryListItemResponse> advancedSearch(String query, Boolean openSource, List<String> tags, Pageable pageable) {
-        return mapToListItemWithHasContent(
-                storyRepository.advancedSearch(query, openSource, tags, pageable));
+        List<String> tagFilter = tags != null && !tags.isEmpty() ? tags : null;
+        if (query == null || query.isBlank()) {
+            return mapToListItemWithHasContent(
+                    storyRepository.advancedSearch(openSource, tagFilter, pageable));
+        }
+        List<Long> ranked = storySearchService.search(query);
+        if (!ranked.isEmpty() && (openSource != null || tagFilter != null)) {
+            Set<Long> matched = storyRepository.filterIds(ranked, openSource, tagFilter);
+            ranked = ranked.stream().filter(matched::contains).toList();
+        }
+        return mapToListItemWithHasContent(pageOfRankedStories(ranked, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TagResponse> searchFacets(String query) {
+        List<Long> ranked = storySearchService.search(query);
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+        return storyRepository.countTagsByStoryIds(ranked).stream()
+                .map(row -> new TagResponse((String) row[0], ((Number) row[1]).longValue()))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> suggest(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        PageRequest limit = PageRequest.of(0, SUGGEST_LIMIT);
+        Set<String> suggestions = new LinkedHashSet<>(storyRepository.suggestTitles(escapeLike(prefix.trim()), limit));
+        suggestions.addAll(tagRepository.suggestNames(escapeLike(TagServiceImpl.canonicalKey(prefix)), limit));
+        return suggestions.stream().limit(SUGGEST_LIMIT).toList();
+    }
+
+    /** LIKE 前缀转义（查询中 ESCAPE '!'） */
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /** 按相关度顺序取当前页的小说并回表（候选ID已排序） */
+    private Page<Story> pageOfRankedStories(List<Long> ranked, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        List<Long> pageIds = ranked.subList(from, to);
+        if (pageIds.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, ranked.size());
+        }
+        List<Story> stories = loadInOrder(pageIds, storyRepository::findByIdInAndPublishedTrue, Story::getId);
+        return new PageImpl<>(stories, pageable, ranked.size());
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<StoryListItemResponse> listPublishedByTag(String tag, Pageable pageable) {
-        return mapToListItemWithHasContent(
-                storyRepository.findByPublishedTrueAndTag(tag, pageable));
+        String key = TagServiceImpl.canonicalKey(tag);
+        return storyCache.getPage("tag:" + key, pageable, () -> tagRepository.findByNameKey(key)
+                .map(t -> mapToListItemWithHasContent(storyRepository.findByPublishedTrueAndTag(t.getId(), pageable)))
+                .orElseGet(() -> new PageImpl<>(List.of(), pageable, 0)));
     }
 
-    private Set<Long> findStoryIdsWithChaptersSafe(List<Long> ids) {
-        try {
-            return storyChapterRepository.findDistinctStoryIdsByStoryIdIn(ids);
-        } catch (Exception e) {
-            log.warn("findDistinctStoryIdsByStoryIdIn failed, assuming no chapters: {}", e.getMessage());
-            return Collections.emptySet();
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<StoryListItemResponse> scrollPublished(String filter, String cursor, int size, boolean withTotal) {
+        boolean openSourceOnly = "interactive".equals(filter);
+        boolean withChapters = "completed".equals(filter);
+        return scroll(cursor, size, withTotal,
+                (after, limit) -> storyRepository.findPublishedIdsBefore(openSourceOnly, withChapters, after.createdAt(), after.id(), limit),
+                storyRepository::findListRowsByIdInAndPublishedTrue,
+                () -> storyRepository.countPublished(openSourceOnly, withChapters));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<StoryListItemResponse> scrollPublishedByTag(String tag, String cursor, int size, boolean withTotal) {
+        Tag found = tagRepository.findByNameKey(TagServiceImpl.canonicalKey(tag)).orElse(null);
+        if (found == null) {
+            return new CursorPage<>(List.of(), null, false, withTotal ? 0L : null);
         }
+        // 使用次数已预计算在 tags.story_count，不再 COUNT
+        return scroll(cursor, size, withTotal,
+                (after, limit) -> storyRepository.findPublishedIdsByTagBefore(found.getId(), after.createdAt(), after.id(), limit),
+                storyRepository::findListRowsByIdInAndPublishedTrue,
+                found::getStoryCount);
     }
 
-    /** 列表转 DTO 时用批量查询判断是否有章节，避免访问懒加载 chapters 导致 500 */
-    private Page<StoryListItemResponse> mapToListItemWithHasContent(Page<Story> result) {
-        List<Story> content = result.getContent();
-        if (content.isEmpty()) {
-            return result.map(s -> StoryListItemResponse.fromEntity(s, false, 0));
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<StoryListItemResponse> scrollMyStories(String username, String cursor, int size, boolean withTotal) {
+        return scroll(cursor, size, withTotal,
+                (after, limit) -> storyRepository.findIdsByAuthorUsernameBefore(username, after.createdAt(), after.id(), limit),
+                storyRepository::findListRowsByIdIn,
+                () -> storyRepository.countByAuthor_Username(username));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<StoryListItemResponse> scrollSearch(String query, String cursor, int size, boolean withTotal) {
+        // 相关度排序的 keyset：游标为上一页最后一条的 (score, id)，与 ORDER BY SUM(weight) DESC, story_id DESC 一致
+        StoryCursor after = cursor != null && !cursor.isBlank() ? StoryCursor.decode(cursor) : null;
+        if (after != null && after.score() == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "无效的分页游标");
+        }
+        int limit = clampScrollSize(size);
+        List<StorySearchService.Hit> hits = storySearchService.searchAfter(query,
+                after != null ? after.score() : null, after != null ? after.id() : null, limit + 1);
+        boolean hasNext = hits.size() > limit;
+        List<StorySearchService.Hit> page = hasNext ? hits.subList(0, limit) : hits;
+        List<StoryListRow> rows = loadInOrder(page.stream().map(StorySearchService.Hit::storyId).toList(),
+                storyRepository::findListRowsByIdInAndPublishedTrue, StoryListRow::id);
+        StorySearchService.Hit last = page.isEmpty() ? null : page.get(page.size() - 1);
+        String next = hasNext ? StoryCursor.afterHit(last.score(), last.storyId()).encode() : null;
+        return new CursorPage<>(toListItems(rows), next, hasNext, withTotal ? storySearchService.count(query) : null);
+    }
+
+    /**
+     * keyset 分页：多取一条判断是否有下一页，按 ID 回表后保持原顺序
+     */
+    private CursorPage<StoryListItemResponse> scroll(String cursor, int size, boolean withTotal,
+                                                     KeysetQuery idQuery,
+                                                     Function<List<Long>, List<StoryListRow>> loader,
+                                                     LongSupplier counter) {
+        StoryCursor after = StoryCursor.decode(cursor);
+        if (after.createdAt() == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "无效的分页游标");
+        }
+        int limit = clampScrollSize(size);
+        List<Long> ids = idQuery.find(after, PageRequest.of(0, limit + 1));
+        boolean hasNext = ids.size() > limit;
+        List<StoryListRow> rows = loadInOrder(hasNext ? ids.subList(0, limit) : ids, loader, StoryListRow::id);
+        String next = hasNext && !rows.isEmpty() ? StoryCursor.of(rows.get(rows.size() - 1)).encode() : null;
+        return new CursorPage<>(toListItems(rows), next, next != null, withTotal ? counter.getAsLong() : null);
+    }
+
+    @FunctionalInterface
+    private interface KeysetQuery {
+        List<Long> find(StoryCursor after, Pageable limit);
+    }
+
+    private static int clampScrollSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SCROLL_SIZE));
+    }
+
+    private static <T> List<T> loadInOrder(List<Long> ids, Function<List<Long>, List<T>> loader, Function<T, Long> idOf) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
-        List<Long> ids = content.stream().map(Story::getId).toList();
-        Set<Long> withChapters = findStoryIdsWithChaptersSafe(ids);
-        // 批量查询章节数
-        Map<Long, Integer> chapterCounts = new HashMap<>();
-        for (Long id : ids) {
-            chapterCounts.put(id, storyChapterRepository.countByStoryId(id));
+        Map<Long, T> byId = new HashMap<>();
+        for (T item : loader.apply(ids)) {
+            byId.put(idOf.apply(item), item);
         }
-        return result.map(s -> StoryListItemResponse.fromEntity(s, withChapters.contains(s.getId()),
-                chapterCounts.getOrDefault(s.getId(), 0)));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    /** 列表项投影 + 一次批量查询标签，组装列表项 */
+    private List<StoryListItemResponse> toListItems(List<StoryListRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<String>> tags = new HashMap<>();
+        for (Object[] row : storyRepository.findTagsByStoryIdIn(rows.stream().map(StoryListRow::id).toList())) {
+            tags.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return rows.stream().map(r -> StoryListItemResponse.fromRow(r, tags.get(r.id()))).toList();
+    }
+
+    /** 列表转 DTO：章节数取 stories.chapter_count 冗余列，不访问懒加载 chapters，也不逐条 COUNT */
+    private Page<StoryListItemResponse> mapToListItemWithHasContent(Page<Story> result) {
+        return result.map(s -> {
+            int chapterCount = s.getChapterCount() != null ? s.getChapterCount() : 0;
+            return StoryListItemResponse.fromEntity(s, chapterCount > 0, chapterCount);
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
     public StoryResponse getBySlug(String slug) {
-        try {
-            // 尝试从缓存获取
-            return getBySlugWithCache(slug);
-        } catch (Exception e) {
-            // 缓存失败时直接从数据库查询
-            log.warn("Cache access failed, falling back to database: {}", e.getMessage());
+        // 两级缓存（本机 + Redis），Redis 不可用时 StoryCache 内部降级，不影响查询
+        StoryResponse response = storyCache.getDetail(slug, () -> {
             Story story = storyRepository.findBySlugAndPublishedTrue(slug)
                     .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
             return StoryResponse.fromEntity(story);
+        });
+        return withPendingCounts(response);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ResourceVersion getDetailVersion(String slug) {
+        List<Object[]> rows = storyRepository.findDetailVersionBySlug(slug);
+        if (rows.isEmpty()) {
+            return null;
         }
+        Object[] row = rows.get(0);
+        Long id = (Long) row[0];
+        Instant updatedAt = (Instant) row[2];
+        // 计数由写后缓冲落库、不更新 version，需连同本节点未落库的增量一起计入；
+        // 计数变化不改变 updatedAt，因此不提供 Last-Modified，只按 ETag 校验
+        long stars = (row[3] != null ? ((Number) row[3]).longValue() : 0) + counterBuffer.pendingStars(id);
+        long forks = (row[4] != null ? ((Number) row[4]).longValue() : 0) + counterBuffer.pendingForks(id);
+        return ResourceVersion.of(null, "story", id, row[1], updatedAt, stars, forks, row[5]);
     }
 
-    // @Cacheable(value = "stories", key = "#slug")
-    private StoryResponse getBySlugWithCache(String slug) {
-        Story story = storyRepository.findBySlugAndPublishedTrue(slug)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
-        return StoryResponse.fromEntity(story);
+    /** 叠加本节点尚未落库的 Star/Fork 增量 */
+    private StoryResponse withPendingCounts(StoryResponse response) {
+        return response.withPendingCounts(counterBuffer.pendingForks(response.id()), counterBuffer.pendingStars(response.id()));
     }
 
     @Override
@@ -192,7 +351,7 @@ public class StoryServiceImpl implements StoryService {
     public StoryResponse getById(Long id) {
         Story story = storyRepository.findByIdAndPublishedTrue(id)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
-        return StoryResponse.fromEntity(story);
+        return withPendingCounts(StoryResponse.fromEntity(story));
     }
 
     @Override
@@ -266,8 +425,12 @@ public class StoryServiceImpl implements StoryService {
             story.setInspiration(inspiration);
         }
 
-        Story saved = storyRepository.save(story);
+        Story saved = storyRepository.saveAndFlush(story);
         System.out.println("DEBUG: Story saved - id=" + saved.getId() + ", published=" + saved.isPublished());
+        tagService.syncStoryTags(saved.getId(), saved.getTags(), false, saved.isPublished());
+        storySearchService.reindexAfterCommit(saved.getId());
+        eventPublisher.publishEvent(StoryChangedEvent.of(saved.getId(), saved.getSlug()));
+        eventPublisher.publishEvent(new AuthorWorksChangedEvent(author.getId()));
         return StoryResponse.fromEntity(saved);
     }
 
@@ -303,6 +466,7 @@ public class StoryServiceImpl implements StoryService {
         story.setOpenSource(request.openSource());
         story.setOpenSourceLicense(request.openSourceLicense());
 
+        boolean wasPublished = story.isPublished();
         story.setPublished(request.published());
         
         // 处理 tags 字段，避免 null 值
@@ -323,8 +487,12 @@ public class StoryServiceImpl implements StoryService {
         }
 
         log.info("Saving story to database...");
-        Story saved = storyRepository.save(story);
+        Story saved = storyRepository.saveAndFlush(story);
         log.info("Story saved successfully: id={}", saved.getId());
+        tagService.syncStoryTags(saved.getId(), saved.getTags(), wasPublished, saved.isPublished());
+        storySearchService.reindexAfterCommit(saved.getId());
+        eventPublisher.publishEvent(StoryChangedEvent.of(saved.getId(), saved.getSlug()));
+        eventPublisher.publishEvent(new AuthorWorksChangedEvent(saved.getAuthor().getId()));
         
         try {
             log.info("Creating StoryResponse...");
@@ -367,49 +535,21 @@ public class StoryServiceImpl implements StoryService {
         Story story = storyRepository.findByIdAndAuthorUsername(id, username)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
         
-        // 先删除相关的记录，避免外键约束冲突
-        try {
-            // 1. 删除 Star 记录
-            storyStarRepository.deleteByStoryId(id);
-            
-            // 2. 删除 Reader Fork 记录
-            readerForkRepository.findByStory_Id(id).forEach(readerForkRepository::delete);
-            
-            // 3. 删除 Wiki 页面
-            storyWikiPageRepository.findByStoryIdOrderBySortOrderAsc(id).forEach(storyWikiPageRepository::delete);
-            
-            // 4. 删除 Wiki 角色
-            storyWikiCharacterRepository.findByStoryIdOrderBySortOrderAsc(id).forEach(storyWikiCharacterRepository::delete);
-            
-            // 5. 删除 Wiki 时间线事件
-            storyWikiTimelineEventRepository.findByStoryIdOrderBySortOrderAsc(id).forEach(storyWikiTimelineEventRepository::delete);
-            
-            // 6. 删除设定文档
-            storyReadmeRepository.findByStory_Id(id).ifPresent(storyReadmeRepository::delete);
-            
-            // 7. 删除角色设定
-            storyCharacterRepository.findByStory_IdOrderBySortOrderAsc(id).forEach(storyCharacterRepository::delete);
-            
-            // 8. 删除专有名词
-            storyTermRepository.findByStory_IdOrderBySortOrderAsc(id).forEach(storyTermRepository::delete);
-            
-            // 9. 删除分支点
-            storyBranchPointRepository.findByStory_IdOrderBySortOrderAsc(id).forEach(storyBranchPointRepository::delete);
-            
-            // 10. 删除 Pull Request (只针对storySeed，小说的PR会通过级联删除)
-            // storyPullRequestRepository.findByStory_Id(id).forEach(storyPullRequestRepository::delete);
-            
-        } catch (Exception e) {
-            log.warn("删除相关记录时出错: {}", e.getMessage());
-        }
-        
-        // 最后删除小说本身
-        storyRepository.delete(story);
+        // 先同步标签计数（删除 story_tag_links），再按外键依赖顺序集合式删除 Fork、提交、Wiki、章节等及小说本身
+        storyRepository.flush();
+        tagService.syncStoryTags(id, List.of(), story.isPublished(), false);
+        storyDeletionService.deleteStory(id);
+        storySearchService.reindexAfterCommit(id);
+        eventPublisher.publishEvent(StoryChangedEvent.of(id, story.getSlug()));
+        eventPublisher.publishEvent(BranchTreeChangedEvent.reset(id));
+        eventPublisher.publishEvent(new StoryKnowledgeChangedEvent(id));
+        eventPublisher.publishEvent(new AuthorWorksChangedEvent(story.getAuthor().getId()));
+        eventPublisher.publishEvent(new StoryActivityEvent(id, StoryActivityEvent.Type.DELETE));
     }
 
     @Override
     public List<String> getAllTags() {
-        return storyRepository.findAllTags();
+        return tagService.listNames();
     }
 
     @Override
@@ -19,7 +19,7 @@ public interface StoryStarRepository extends JpaRepository<StoryStar, Long> {
     @Modifying
     @Transactional
     @Query("DELETE FROM StoryStar s WHERE s.story.id = :storyId AND s.user.id = :userId")
-    void deleteByStoryIdAndUserId(@Param("storyId") Long storyId, @Param("userId") Long userId);
+    int deleteByStoryIdAndUserId(@Param("storyId") Long storyId, @Param("userId") Long userId);
 
     @Modifying
     @Transactional
@@ -28,12 +28,4 @@ public interface StoryStarRepository extends JpaRepository<StoryStar, Long> {
 
     @Query("SELECT COUNT(s) FROM StoryStar s WHERE s.story.id = :storyId")
     long countByStoryId(@Param("storyId") Long storyId);
-
-    @Modifying
-    @Query("UPDATE Story s SET s.starCount = s.starCount + 1 WHERE s.id = :storyId")
-    void incrementStarCount(@Param("storyId") Long storyId);
-
-    @Modifying
-    @Query("UPDATE Story s SET s.starCount = CASE WHEN s.starCount > 0 THEN s.starCount - 1 ELSE 0 END WHERE s.id = :storyId")
-    void decrementStarCount(@Param("storyId") Long storyId);
 }
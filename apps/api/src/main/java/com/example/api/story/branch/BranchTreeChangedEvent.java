@@ -0,0 +1,27 @@
+package com.example.api.story.branch;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 章节树变更事件，事务提交后增量修补分支树快照（{@link BranchTreeSnapshotCache}）。
+ *
+ * @param storyId    小说ID
+ * @param changedIds 新增或树形字段（标题、序号、父章节、路径、字数、主线……）变化的章节ID
+ * @param removedIds 删除的章节ID
+ * @param reset      丢弃整个快照（小说删除等），忽略 changedIds / removedIds
+ */
+public record BranchTreeChangedEvent(Long storyId, Set<Long> changedIds, Set<Long> removedIds, boolean reset) {
+
+    public static BranchTreeChangedEvent changed(Long storyId, Collection<Long> changedIds) {
+        return new BranchTreeChangedEvent(storyId, Set.copyOf(changedIds), Set.of(), false);
+    }
+
+    public static BranchTreeChangedEvent changed(Long storyId, Collection<Long> changedIds, Collection<Long> removedIds) {
+        return new BranchTreeChangedEvent(storyId, Set.copyOf(changedIds), Set.copyOf(removedIds), false);
+    }
+
+    public static BranchTreeChangedEvent reset(Long storyId) {
+        return new BranchTreeChangedEvent(storyId, Set.of(), Set.of(), true);
+    }
+}
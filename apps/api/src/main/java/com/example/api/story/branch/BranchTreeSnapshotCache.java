@@ -0,0 +1,304 @@
+package com.example.api.story.branch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.api.story.StoryChapterNode;
+import com.example.api.story.StoryChapterRepository;
+import com.example.api.story.branch.dto.BranchStatsResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 每本小说的分支树快照（Redis）：扁平节点 + 预先算好的统计，带单调递增的版本号。
+ * <ul>
+ *   <li>读取：树、主线、统计都由同一份快照得出，一次 Redis GET；未命中时一次投影查询（不含正文）重建</li>
+ *   <li>写入：章节变更提交后只查询变化的节点，修补快照、版本号 +1，并把本次变化追加到变更日志</li>
+ *   <li>增量：持有旧版本的客户端按版本号取变更日志合并后的增量；日志已裁剪或不连续时返回全量</li>
+ * </ul>
+ * 修补用 WATCH/MULTI 乐观事务，先 WATCH 再查库：查库后若有其他修补写入（可能带着更新的节点），本次 EXEC 失败并重新查库，
+ * 较早读到的节点不会覆盖较新的；冲突重试仍失败则丢弃快照与日志（下次读取重建、客户端取全量）。
+ * Redis 不可用时直接查库，不支持增量。
+ */
+@Component
+public class BranchTreeSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BranchTreeSnapshotCache.class);
+
+    private static final String SNAPSHOT_KEY = "branch_tree:snap:";
+    private static final String VERSION_KEY = "branch_tree:ver:";
+    private static final String LOG_KEY = "branch_tree:log:";
+
+    private static final Duration SNAPSHOT_TTL = Duration.ofDays(1);
+    /** 版本号与变更日志保留更久，快照过期重建后仍能给旧客户端增量 */
+    private static final Duration VERSION_TTL = Duration.ofDays(30);
+    /** 变更日志最多保留的版本数 */
+    private static final int MAX_LOG_ENTRIES = 100;
+    private static final int MAX_PATCH_ATTEMPTS = 3;
+
+    private static final Comparator<StoryChapterNode> NODE_ORDER =
+            Comparator.comparingInt(StoryChapterNode::sortOrder).thenComparing(StoryChapterNode::id);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final StoryChapterRepository chapterRepository;
+
+    public BranchTreeSnapshotCache(RedisTemplate<String, String> redisTemplate,
+                                   ObjectMapper objectMapper,
+                                   StoryChapterRepository chapterRepository) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.chapterRepository = chapterRepository;
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 当前快照；未命中时从数据库重建并写回
+     */
+    public Snapshot get(Long storyId) {
+        try {
+            String raw = redisTemplate.opsForValue().get(SNAPSHOT_KEY + storyId);
+            if (raw != null) {
+                return objectMapper.readValue(raw, Snapshot.class);
+            }
+            return rebuild(storyId);
+        } catch (Exception e) {
+            logger.debug("Branch tree snapshot unavailable for story {}: {}", storyId, e.getMessage());
+            return Snapshot.of(0, chapterRepository.findNodesByStoryId(storyId));
+        }
+    }
+
+    /**
+     * 相对 sinceVersion 的增量；无法给出时返回 null（调用方返回全量）
+     */
+    public Delta deltaSince(Long storyId, long sinceVersion, long currentVersion) {
+        if (sinceVersion == currentVersion) {
+            return new Delta(currentVersion, List.of(), List.of());
+        }
+        if (sinceVersion > currentVersion) {
+            return null;
+        }
+        List<String> raw;
+        try {
+            raw = redisTemplate.opsForList().range(LOG_KEY + storyId, 0, -1);
+        } catch (Exception e) {
+            logger.debug("Branch tree log unavailable for story {}: {}", storyId, e.getMessage());
+            return null;
+        }
+        if (raw == null) {
+            return null;
+        }
+        Map<Long, StoryChapterNode> upserted = new LinkedHashMap<>();
+        Set<Long> removed = new LinkedHashSet<>();
+        long expected = sinceVersion + 1;
+        for (String json : raw) {
+            Delta entry;
+            try {
+                entry = objectMapper.readValue(json, Delta.class);
+            } catch (Exception e) {
+                return null;
+            }
+            if (entry.version() <= sinceVersion || entry.version() > currentVersion) {
+                continue;
+            }
+            if (entry.version() != expected) {
+                return null;
+            }
+            for (Long id : entry.removedIds()) {
+                upserted.remove(id);
+                removed.add(id);
+            }
+            for (StoryChapterNode node : entry.nodes()) {
+                removed.remove(node.id());
+                upserted.put(node.id(), node);
+            }
+            expected++;
+        }
+        if (expected != currentVersion + 1) {
+            return null;
+        }
+        return new Delta(currentVersion, new ArrayList<>(upserted.values()), new ArrayList<>(removed));
+    }
+
+    /**
+     * 在 WATCH 版本号下查库重建：重建期间有章节变更（版本号变化）时不写回，避免把旧数据存成新版本
+     */
+    private Snapshot rebuild(Long storyId) {
+        String versionKey = VERSION_KEY + storyId;
+        Snapshot[] built = new Snapshot[1];
+        redisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.watch(versionKey);
+                built[0] = Snapshot.of(parseVersion(ops.opsForValue().get(versionKey)), chapterRepository.findNodesByStoryId(storyId));
+                ops.multi();
+                ops.opsForValue().set(SNAPSHOT_KEY + storyId, write(built[0]), SNAPSHOT_TTL);
+                return ops.exec();
+            }
+        });
+        return built[0];
+    }
+
+    // ==================== 修补 ====================
+
+    /**
+     * 章节变更提交后修补快照（无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTreeChanged(BranchTreeChangedEvent event) {
+        if (event.storyId() == null) {
+            return;
+        }
+        try {
+            if (event.reset()) {
+                redisTemplate.delete(List.of(SNAPSHOT_KEY + event.storyId(), VERSION_KEY + event.storyId(), LOG_KEY + event.storyId()));
+                return;
+            }
+            if (event.changedIds().isEmpty() && event.removedIds().isEmpty()) {
+                return;
+            }
+            for (int attempt = 0; attempt < MAX_PATCH_ATTEMPTS; attempt++) {
+                if (tryPatch(event.storyId(), event.changedIds(), event.removedIds())) {
+                    return;
+                }
+            }
+            logger.debug("Branch tree patch for story {} kept conflicting, discarding snapshot", event.storyId());
+            discard(event.storyId());
+        } catch (Exception e) {
+            logger.warn("Failed to patch branch tree snapshot for story {}: {}", event.storyId(), e.getMessage());
+            try {
+                discard(event.storyId());
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /**
+     * 一次乐观事务：WATCH 后查询变化的节点，版本号 +1、追加变更日志、修补快照（快照不存在时只记日志）；
+     * 查库到 EXEC 之间有其他修补写入时返回 false，由调用方重新查库重试
+     */
+    private boolean tryPatch(Long storyId, Collection<Long> changedIds, Collection<Long> removedIds) {
+        String versionKey = VERSION_KEY + storyId;
+        String snapshotKey = SNAPSHOT_KEY + storyId;
+        String logKey = LOG_KEY + storyId;
+        List<Object> result = redisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.watch(List.of(versionKey, snapshotKey));
+                List<StoryChapterNode> changed = changedIds.isEmpty()
+                        ? List.of()
+                        : chapterRepository.findNodesByIdIn(storyId, changedIds);
+                Set<Long> removed = new HashSet<>(removedIds);
+                // 查不到的变更章节（已被后续事务删除）按删除处理
+                Set<Long> found = new HashSet<>();
+                changed.forEach(node -> found.add(node.id()));
+                changedIds.stream().filter(id -> !found.contains(id)).forEach(removed::add);
+                long version = parseVersion(ops.opsForValue().get(versionKey)) + 1;
+                String rawSnapshot = ops.opsForValue().get(snapshotKey);
+                Snapshot patched = null;
+                if (rawSnapshot != null) {
+                    patched = read(rawSnapshot).patch(version, changed, removed);
+                }
+                String logEntry = write(new Delta(version, changed, List.copyOf(removed)));
+                ops.multi();
+                ops.opsForValue().set(versionKey, String.valueOf(version), VERSION_TTL);
+                ops.opsForList().rightPush(logKey, logEntry);
+                ops.opsForList().trim(logKey, -MAX_LOG_ENTRIES, -1);
+                ops.expire(logKey, VERSION_TTL);
+                if (patched != null) {
+                    ops.opsForValue().set(snapshotKey, write(patched), SNAPSHOT_TTL);
+                }
+                return ops.exec();
+            }
+        });
+        return result != null && !result.isEmpty();
+    }
+
+    /**
+     * 丢弃快照与变更日志并推进版本号：下次读取重建，旧版本客户端取全量
+     */
+    private void discard(Long storyId) {
+        redisTemplate.delete(List.of(SNAPSHOT_KEY + storyId, LOG_KEY + storyId));
+        redisTemplate.opsForValue().increment(VERSION_KEY + storyId);
+        redisTemplate.expire(VERSION_KEY + storyId, VERSION_TTL);
+    }
+
+    private static long parseVersion(String raw) {
+        return raw != null ? Long.parseLong(raw) : 0;
+    }
+
+    private Snapshot read(String raw) {
+        try {
+            return objectMapper.readValue(raw, Snapshot.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ==================== 数据 ====================
+
+    /**
+     * 快照：按 sortOrder 排序的扁平节点与统计
+     */
+    public record Snapshot(long version, List<StoryChapterNode> nodes, BranchStatsResponse stats) {
+
+        static Snapshot of(long version, List<StoryChapterNode> nodes) {
+            List<StoryChapterNode> sorted = new ArrayList<>(nodes);
+            sorted.sort(NODE_ORDER);
+            return new Snapshot(version, sorted, computeStats(sorted));
+        }
+
+        Snapshot patch(long newVersion, List<StoryChapterNode> changed, Set<Long> removed) {
+            Map<Long, StoryChapterNode> byId = new LinkedHashMap<>();
+            nodes.forEach(node -> byId.put(node.id(), node));
+            removed.forEach(byId::remove);
+            changed.forEach(node -> byId.put(node.id(), node));
+            return of(newVersion, new ArrayList<>(byId.values()));
+        }
+
+        private static BranchStatsResponse computeStats(List<StoryChapterNode> nodes) {
+            int total = nodes.size();
+            int mainline = (int) nodes.stream().filter(n -> Boolean.TRUE.equals(n.isMainline())).count();
+            // 分支点：有子章节的章节
+            int branchPoints = (int) nodes.stream().map(StoryChapterNode::parentId).filter(Objects::nonNull).distinct().count();
+            int authors = (int) nodes.stream().map(StoryChapterNode::authorId).filter(Objects::nonNull).distinct().count();
+            return new BranchStatsResponse(total, mainline, total - mainline, branchPoints, authors);
+        }
+    }
+
+    /**
+     * 变更日志条目 / 合并后的增量
+     */
+    public record Delta(long version, List<StoryChapterNode> nodes, List<Long> removedIds) {
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.api.story.branch;
 
 import com.example.api.story.branch.dto.*;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -23,6 +25,23 @@ public class StoryBranchController {
         return branchService.getBranchTree(storyId);
     }
 
+    /**
+     * 树、主线、统计一次返回
+     */
+    @GetMapping("/overview")
+    public BranchTreeOverviewResponse getOverview(@PathVariable Long storyId) {
+        return branchService.getOverview(storyId);
+    }
+
+    /**
+     * 同步分支树：带上已持有的版本号时返回增量
+     */
+    @GetMapping("/sync")
+    public BranchTreeSyncResponse sync(@PathVariable Long storyId,
+                                       @RequestParam(required = false) Long sinceVersion) {
+        return branchService.sync(storyId, sinceVersion);
+    }
+
     /**
      * 获取主线
      */
@@ -36,7 +55,7 @@ public class StoryBranchController {
      */
     @GetMapping("/chapter/{chapterId}/children")
     public List<ChapterNodeResponse> getChildBranches(@PathVariable Long storyId, @PathVariable Long chapterId) {
-        return branchService.getChildBranches(chapterId);
+        return branchService.getChildBranches(storyId, chapterId);
     }
 
     /**
@@ -44,7 +63,7 @@ public class StoryBranchController {
      */
     @GetMapping("/chapter/{chapterId}/descendants")
     public List<ChapterNodeResponse> getDescendantTree(@PathVariable Long storyId, @PathVariable Long chapterId) {
-        return branchService.getDescendantTree(chapterId);
+        return branchService.getDescendantTree(storyId, chapterId);
     }
 
     /**
@@ -52,7 +71,18 @@ public class StoryBranchController {
      */
     @GetMapping("/chapter/{chapterId}/ancestors")
     public List<ChapterNodeResponse> getAncestorChain(@PathVariable Long storyId, @PathVariable Long chapterId) {
-        return branchService.getAncestorChain(chapterId);
+        return branchService.getAncestorChain(storyId, chapterId);
+    }
+
+    /**
+     * 移动章节（连同子树）到新的父章节下（仅小说作者）
+     */
+    @PutMapping("/chapter/{chapterId}/parent")
+    public ChapterNodeResponse moveChapter(@AuthenticationPrincipal UserDetails userDetails,
+                                           @PathVariable Long storyId,
+                                           @PathVariable Long chapterId,
+                                           @RequestBody MoveChapterRequest request) {
+        return branchService.moveChapter(userDetails.getUsername(), storyId, chapterId, request.parentId());
     }
 
     /**
@@ -1,12 +1,15 @@
 package com.example.api.story.branch;
 
+import com.example.api.common.ApiException;
 import com.example.api.story.Story;
 import com.example.api.story.StoryChapter;
+import com.example.api.story.StoryChapterNode;
 import com.example.api.story.StoryChapterRepository;
 import com.example.api.story.StoryRepository;
 import com.example.api.story.branch.dto.*;
-import com.example.api.user.User;
-import com.example.api.user.UserRepository;
+import com.example.api.story.cache.StoryChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,20 +18,26 @@ import java.util.stream.Collectors;
 
 /**
  * 故事分支服务：管理树形章节结构
+ * <p>
+ * 读取均为 {@link StoryChapterNode} 投影（不加载正文）；子树、祖先链走物化路径索引，不再递归查询。
+ * 整棵树、主线、统计由 {@link BranchTreeSnapshotCache} 的版本化快照提供，章节变更后增量修补。
  */
 @Service
 public class StoryBranchService {
 
     private final StoryChapterRepository chapterRepository;
     private final StoryRepository storyRepository;
-    private final UserRepository userRepository;
+    private final BranchTreeSnapshotCache snapshotCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public StoryBranchService(StoryChapterRepository chapterRepository,
                               StoryRepository storyRepository,
-                              UserRepository userRepository) {
+                              BranchTreeSnapshotCache snapshotCache,
+                              ApplicationEventPublisher eventPublisher) {
         this.chapterRepository = chapterRepository;
         this.storyRepository = storyRepository;
-        this.userRepository = userRepository;
+        this.snapshotCache = snapshotCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -36,8 +45,7 @@ public class StoryBranchService {
      */
     @Transactional(readOnly = true)
     public List<ChapterNodeResponse> getBranchTree(Long storyId) {
-        List<StoryChapter> allChapters = chapterRepository.findByStoryIdOrderBySortOrderAsc(storyId);
-        return buildTree(allChapters);
+        return buildTree(snapshotCache.get(storyId).nodes());
     }
 
     /**
@@ -45,41 +53,69 @@ public class StoryBranchService {
      */
     @Transactional(readOnly = true)
     public List<ChapterNodeResponse> getMainline(Long storyId) {
-        List<StoryChapter> mainlineChapters = chapterRepository.findByStoryIdAndIsMainlineTrueOrderBySortOrderAsc(storyId);
-        return mainlineChapters.stream()
-                .map(this::convertToNode)
-                .collect(Collectors.toList());
+        return mainline(snapshotCache.get(storyId).nodes());
+    }
+
+    /**
+     * 树、主线、统计一次返回（同一版本快照）
+     */
+    @Transactional(readOnly = true)
+    public BranchTreeOverviewResponse getOverview(Long storyId) {
+        BranchTreeSnapshotCache.Snapshot snapshot = snapshotCache.get(storyId);
+        return new BranchTreeOverviewResponse(snapshot.version(), buildTree(snapshot.nodes()),
+                mainline(snapshot.nodes()), snapshot.stats());
+    }
+
+    /**
+     * 同步分支树：sinceVersion 为客户端持有的版本，能给出增量时只返回变化的节点，否则返回全量
+     */
+    @Transactional(readOnly = true)
+    public BranchTreeSyncResponse sync(Long storyId, Long sinceVersion) {
+        BranchTreeSnapshotCache.Snapshot snapshot = snapshotCache.get(storyId);
+        if (sinceVersion != null) {
+            BranchTreeSnapshotCache.Delta delta = snapshotCache.deltaSince(storyId, sinceVersion, snapshot.version());
+            if (delta != null) {
+                return new BranchTreeSyncResponse(snapshot.version(), false, delta.nodes(), delta.removedIds(), snapshot.stats());
+            }
+        }
+        return new BranchTreeSyncResponse(snapshot.version(), true, snapshot.nodes(), List.of(), snapshot.stats());
     }
 
     /**
      * 获取某个章节的所有子分支
      */
     @Transactional(readOnly = true)
-    public List<ChapterNodeResponse> getChildBranches(Long chapterId) {
-        List<StoryChapter> children = chapterRepository.findByParentChapterIdOrderBySortOrderAsc(chapterId);
-        return children.stream()
+    public List<ChapterNodeResponse> getChildBranches(Long storyId, Long chapterId) {
+        return chapterRepository.findChildNodes(storyId, chapterId).stream()
                 .map(this::convertToNode)
                 .collect(Collectors.toList());
     }
 
     /**
-     * 获取某个章节的完整后代树
+     * 获取某个章节的完整后代树（含该章节）：一次主键查询 + 一次前缀范围查询
      */
     @Transactional(readOnly = true)
-    public List<ChapterNodeResponse> getDescendantTree(Long chapterId) {
-        List<StoryChapter> descendants = chapterRepository.findAllDescendants(chapterId);
-        return buildTree(descendants);
+    public List<ChapterNodeResponse> getDescendantTree(Long storyId, Long chapterId) {
+        StoryChapterNode root = getNode(storyId, chapterId);
+        List<StoryChapterNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        nodes.addAll(chapterRepository.findSubtreeNodes(storyId, root.ancestorPath() + root.id() + "/"));
+        return buildTree(nodes);
     }
 
     /**
-     * 获取某个章节的祖先链（面包屑）
+     * 获取某个章节的祖先链（面包屑，根在前，含该章节）：祖先ID由路径解析，一次主键 IN 查询
      */
     @Transactional(readOnly = true)
-    public List<ChapterNodeResponse> getAncestorChain(Long chapterId) {
-        List<StoryChapter> ancestors = chapterRepository.findAncestorChain(chapterId);
-        return ancestors.stream()
-                .map(this::convertToNode)
-                .collect(Collectors.toList());
+    public List<ChapterNodeResponse> getAncestorChain(Long storyId, Long chapterId) {
+        StoryChapterNode node = getNode(storyId, chapterId);
+        List<Long> ancestorIds = node.ancestorIds();
+        List<ChapterNodeResponse> chain = new ArrayList<>(ancestorIds.size() + 1);
+        if (!ancestorIds.isEmpty()) {
+            chapterRepository.findNodesByIdIn(storyId, ancestorIds).forEach(n -> chain.add(convertToNode(n)));
+        }
+        chain.add(convertToNode(node));
+        return chain;
     }
 
     /**
@@ -87,70 +123,93 @@ public class StoryBranchService {
      */
     @Transactional(readOnly = true)
     public List<ChapterNodeResponse> getAuthorBranches(Long storyId, Long authorId) {
-        List<StoryChapter> authorChapters = chapterRepository.findByStoryIdAndAuthorIdOrderBySortOrderAsc(storyId, authorId);
-        return buildTree(authorChapters);
+        return buildTree(chapterRepository.findAuthorNodes(storyId, authorId));
     }
 
     /**
-     * 获取分支统计信息
+     * 获取分支统计信息（快照中预先算好）
      */
     @Transactional(readOnly = true)
     public BranchStatsResponse getBranchStats(Long storyId) {
-        List<StoryChapter> allChapters = chapterRepository.findByStoryIdOrderBySortOrderAsc(storyId);
-        List<StoryChapter> mainlineChapters = chapterRepository.findByStoryIdAndIsMainlineTrueOrderBySortOrderAsc(storyId);
-
-        int totalChapters = allChapters.size();
-        int mainlineChapters_count = mainlineChapters.size();
-        int branchChapters = totalChapters - mainlineChapters_count;
-
-        // 统计分支点（有子章节的章节）
-        Set<Long> parentIds = allChapters.stream()
-                .map(c -> c.getParentChapter() != null ? c.getParentChapter().getId() : null)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        int branchPoints = parentIds.size();
-
-        // 统计作者数
-        int authorCount = chapterRepository.countDistinctAuthorsByStoryId(storyId);
-
-        return new BranchStatsResponse(
-                totalChapters,
-                mainlineChapters_count,
-                branchChapters,
-                branchPoints,
-                authorCount
-        );
+        return snapshotCache.get(storyId).stats();
+    }
+
+    /**
+     * 移动章节（连同其子树）到新的父章节下，仅小说作者可操作。
+     * 本章路径随实体更新，后代路径由一条 UPDATE 整体改写。
+     * 先锁定小说行，环路检查与子树改写期间同一小说的其他移动、删除排队等待
+     */
+    @Transactional
+    public ChapterNodeResponse moveChapter(String username, Long storyId, Long chapterId, Long newParentId) {
+        Story story = storyRepository.findByIdAndAuthorUsernameForUpdate(storyId, username)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
+        StoryChapter chapter = chapterRepository.findByIdAndStoryId(chapterId, story.getId())
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
+        StoryChapter newParent = null;
+        if (newParentId != null) {
+            newParent = chapterRepository.findByIdAndStoryId(newParentId, story.getId())
+                    .orElseThrow(() -> new ApiException(HttpStatus.BAD_REQUEST, "父章节不存在"));
+            // 新父章节不能是自己或自己的后代
+            if (newParent.getId().equals(chapter.getId())
+                    || newParent.getAncestorPath().startsWith(chapter.subtreePrefix())) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "不能移动到自己的分支下");
+            }
+        }
+
+        String oldPrefix = chapter.subtreePrefix();
+        List<Long> movedIds = new ArrayList<>();
+        movedIds.add(chapter.getId());
+        chapterRepository.findSubtreeNodes(story.getId(), oldPrefix).forEach(n -> movedIds.add(n.id()));
+        int oldDepth = chapter.getDepth();
+        chapter.setParentChapter(newParent);
+        String newPrefix = chapter.subtreePrefix();
+        int growth = newPrefix.length() - oldPrefix.length();
+        if (growth > 0 && chapterRepository.findMaxSubtreePathLength(story.getId(), oldPrefix) + growth > StoryChapter.MAX_PATH_LENGTH) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, StoryChapter.PATH_TOO_DEEP_MESSAGE);
+        }
+        chapterRepository.save(chapter);
+        // 先 flush 本章，再改写后代（查询后清空持久化上下文）
+        chapterRepository.rebaseSubtree(story.getId(), oldPrefix, newPrefix, oldPrefix.length() + 1, chapter.getDepth() - oldDepth);
+
+        eventPublisher.publishEvent(StoryChangedEvent.of(story.getId(), story.getSlug()));
+        eventPublisher.publishEvent(BranchTreeChangedEvent.changed(story.getId(), movedIds));
+        return convertToNode(getNode(story.getId(), chapterId));
+    }
+
+    private StoryChapterNode getNode(Long storyId, Long chapterId) {
+        return chapterRepository.findNodesByIdIn(storyId, List.of(chapterId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
+    }
+
+    private List<ChapterNodeResponse> mainline(List<StoryChapterNode> nodes) {
+        return nodes.stream()
+                .filter(n -> Boolean.TRUE.equals(n.isMainline()))
+                .map(this::convertToNode)
+                .collect(Collectors.toList());
     }
 
     /**
      * 构建树形结构
      */
-    private List<ChapterNodeResponse> buildTree(List<StoryChapter> chapters) {
+    private List<ChapterNodeResponse> buildTree(List<StoryChapterNode> chapters) {
         Map<Long, ChapterNodeResponse> nodeMap = new HashMap<>();
         List<ChapterNodeResponse> rootNodes = new ArrayList<>();
 
         // 首先创建所有节点
-        for (StoryChapter chapter : chapters) {
-            ChapterNodeResponse node = convertToNode(chapter);
-            nodeMap.put(chapter.getId(), node);
+        for (StoryChapterNode chapter : chapters) {
+            nodeMap.put(chapter.id(), convertToNode(chapter));
         }
 
         // 然后建立父子关系
-        for (StoryChapter chapter : chapters) {
-            ChapterNodeResponse node = nodeMap.get(chapter.getId());
-            if (chapter.getParentChapter() == null) {
-                // 根节点
-                rootNodes.add(node);
+        for (StoryChapterNode chapter : chapters) {
+            ChapterNodeResponse node = nodeMap.get(chapter.id());
+            ChapterNodeResponse parentNode = chapter.parentId() != null ? nodeMap.get(chapter.parentId()) : null;
+            if (parentNode != null) {
+                parentNode.children().add(node);
             } else {
-                // 子节点
-                ChapterNodeResponse parentNode = nodeMap.get(chapter.getParentChapter().getId());
-                if (parentNode != null) {
-                    parentNode.children().add(node);
-                } else {
-                    // 父节点不在当前列表中，作为根节点
-                    rootNodes.add(node);
-                }
+                // 根节点，或父节点不在当前列表中
+                rootNodes.add(node);
             }
         }
 
@@ -160,18 +219,18 @@ public class StoryBranchService {
     /**
      * 转换为节点响应
      */
-    private ChapterNodeResponse convertToNode(StoryChapter chapter) {
+    private ChapterNodeResponse convertToNode(StoryChapterNode chapter) {
         return new ChapterNodeResponse(
-                chapter.getId(),
-                chapter.getTitle(),
-                chapter.getSortOrder(),
-                chapter.getAuthor() != null ? chapter.getAuthor().getId() : null,
-                chapter.getAuthor() != null ? chapter.getAuthor().getUsername() : null,
-                chapter.getParentChapter() != null ? chapter.getParentChapter().getId() : null,
-                chapter.getIsMainline(),
-                chapter.getBranchName(),
-                chapter.getWordCount(),
-                chapter.getCreatedAt(),
+                chapter.id(),
+                chapter.title(),
+                chapter.sortOrder(),
+                chapter.authorId(),
+                chapter.authorName(),
+                chapter.parentId(),
+                chapter.isMainline(),
+                chapter.branchName(),
+                chapter.wordCount(),
+                chapter.createdAt(),
                 new ArrayList<>() // children
         );
     }
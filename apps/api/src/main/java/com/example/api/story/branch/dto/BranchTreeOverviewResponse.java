@@ -0,0 +1,14 @@
+package com.example.api.story.branch.dto;
+
+import java.util.List;
+
+/**
+ * 分支树概览：树、主线、统计一次返回（来自同一版本的快照）
+ */
+public record BranchTreeOverviewResponse(
+        long version,
+        List<ChapterNodeResponse> tree,
+        List<ChapterNodeResponse> mainline,
+        BranchStatsResponse stats
+) {
+}
@@ -0,0 +1,23 @@
+package com.example.api.story.branch.dto;
+
+import com.example.api.story.StoryChapterNode;
+
+import java.util.List;
+
+/**
+ * 分支树同步响应（扁平节点，客户端按 parentId 组树）
+ *
+ * @param version    当前版本
+ * @param full       true：nodes 为全部节点；false：相对请求版本的增量，nodes 为新增/变化的节点
+ * @param nodes      节点
+ * @param removedIds 增量时已删除的章节ID
+ * @param stats      当前版本的统计
+ */
+public record BranchTreeSyncResponse(
+        long version,
+        boolean full,
+        List<StoryChapterNode> nodes,
+        List<Long> removedIds,
+        BranchStatsResponse stats
+) {
+}
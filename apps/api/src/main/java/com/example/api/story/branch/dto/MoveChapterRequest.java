@@ -0,0 +1,11 @@
+package com.example.api.story.branch.dto;
+
+/**
+ * 移动章节（改父章节）请求
+ *
+ * @param parentId 新的父章节ID，为 null 时成为根章节
+ */
+public record MoveChapterRequest(
+        Long parentId
+) {
+}
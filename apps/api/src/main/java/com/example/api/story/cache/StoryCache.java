@@ -0,0 +1,356 @@
+package com.example.api.story.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.api.story.dto.StoryListItemResponse;
+import com.example.api.story.dto.StoryResponse;
+import com.example.api.tag.TagResponse;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * 小说详情、列表页、标签的两级缓存：本机 Caffeine（短 TTL）+ Redis（共享）。
+ * <ul>
+ *   <li>详情按 slug 缓存，变更后删除 Redis 中的 key，并通过 Redis 发布/订阅通知所有节点清除本机缓存；
+ *       每个 slug 另有「详情版本号」，回源前读取、写入前复核，回源期间发生变更时不回写旧数据</li>
+ *   <li>列表页、标签的 key 带「列表版本号」，变更时 INCR 版本号，旧 key 不再命中并随 TTL 过期；
+ *       版本号通过发布/订阅推送，并定时从 Redis 同步，消息丢失时也能收敛</li>
+ *   <li>统计 L1/L2 命中、未命中及命中数据的年龄（陈旧度）</li>
+ * </ul>
+ * Redis 不可用时降级为仅本机缓存。
+ */
+@Component
+public class StoryCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoryCache.class);
+
+    private static final String KEY_PREFIX = "story_cache:";
+    private static final String LIST_GENERATION_KEY = KEY_PREFIX + "list_gen";
+    private static final String DETAIL_GENERATION_PREFIX = KEY_PREFIX + "detail_gen:";
+    private static final String CHANNEL = "story_cache_invalidation";
+    private static final String DETAIL_MESSAGE_PREFIX = "detail:";
+    private static final String LISTS_MESSAGE_PREFIX = "lists:";
+
+    private static final Duration LOCAL_TTL = Duration.ofSeconds(30);
+    private static final long LOCAL_MAX_SIZE = 10_000;
+    private static final Duration DETAIL_TTL = Duration.ofMinutes(5);
+    private static final Duration LIST_TTL = Duration.ofMinutes(2);
+    /** 详情版本号的保留时间，需远大于详情 TTL，过期后视为 0 */
+    private static final Duration DETAIL_GENERATION_TTL = Duration.ofDays(1);
+
+    /** 仅当详情版本号仍为回源前读到的值时才写入 Redis，避免回源期间的失效被旧数据覆盖 */
+    private static final DefaultRedisScript<Long> SET_IF_GENERATION_SCRIPT = new DefaultRedisScript<>(
+            "local g = redis.call('get', KEYS[1]) or '0' "
+                    + "if g ~= ARGV[1] then return 0 end "
+                    + "redis.call('set', KEYS[2], ARGV[2], 'PX', ARGV[3]) return 1",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Entry> local = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterWrite(LOCAL_TTL)
+            .recordStats()
+            .build();
+    private final AtomicLong listGeneration = new AtomicLong();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidationsPublished = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+    private final LongAdder servedAgeMsTotal = new LongAdder();
+    private final LongAccumulator servedAgeMsMax = new LongAccumulator(Math::max, 0);
+
+    public StoryCache(RedisTemplate<String, String> redisTemplate,
+                      ObjectMapper objectMapper,
+                      RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        syncListGeneration();
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 小说详情（已发布，按 slug）
+     */
+    public StoryResponse getDetail(String slug, Supplier<StoryResponse> loader) {
+        return get("detail:" + slug, DETAIL_GENERATION_PREFIX + slug,
+                objectMapper.constructType(StoryResponse.class), DETAIL_TTL, loader);
+    }
+
+    /**
+     * 列表页（name 区分列表类型，如 all/completed/tag:xxx）
+     */
+    public Page<StoryListItemResponse> getPage(String name, Pageable pageable, Supplier<Page<StoryListItemResponse>> loader) {
+        String key = "list:" + listGeneration.get() + ":" + name + ":" + pageable.getPageNumber() + ":"
+                + pageable.getPageSize() + ":" + pageable.getSort();
+        CachedPage cached = get(key, null, objectMapper.constructType(CachedPage.class), LIST_TTL, () -> {
+            Page<StoryListItemResponse> page = loader.get();
+            return new CachedPage(page.getContent(), page.getTotalElements());
+        });
+        return new PageImpl<>(cached.content(), pageable, cached.totalElements());
+    }
+
+    /**
+     * 标签及使用次数
+     */
+    public List<TagResponse> getTagCounts(Supplier<List<TagResponse>> loader) {
+        JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, TagResponse.class);
+        return get("tag_counts:" + listGeneration.get(), null, type, LIST_TTL, loader);
+    }
+
+    /**
+     * generationKey 非空时，回源结果仅在版本号未变时写入缓存；为空时 key 本身已带版本号
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, String generationKey, JavaType valueType, Duration redisTtl, Supplier<T> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = local.getIfPresent(key);
+        if (entry != null) {
+            localHits.increment();
+            recordAge(now - entry.cachedAt());
+            return (T) entry.value();
+        }
+        Entry remote = readRedis(key, valueType);
+        if (remote != null) {
+            redisHits.increment();
+            recordAge(now - remote.cachedAt());
+            local.put(key, remote);
+            return (T) remote.value();
+        }
+        misses.increment();
+        if (generationKey == null) {
+            T value = loader.get();
+            if (value != null) {
+                Entry loaded = new Entry(now, value);
+                local.put(key, loaded);
+                writeRedis(key, loaded, redisTtl);
+            }
+            return value;
+        }
+        String generation = readGeneration(generationKey);
+        T value = loader.get();
+        if (value != null) {
+            putIfGeneration(key, generationKey, generation, new Entry(now, value), redisTtl);
+        }
+        return value;
+    }
+
+    /**
+     * 读取版本号（不存在视为 0），Redis 不可用时返回 null
+     */
+    private String readGeneration(String generationKey) {
+        try {
+            String raw = redisTemplate.opsForValue().get(generationKey);
+            return raw != null ? raw : "0";
+        } catch (Exception e) {
+            logger.debug("Story cache generation read failed for {}: {}", generationKey, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 版本号未变时写入 Redis 与本机缓存。
+     * 本机写入后再复核一次：失效方先 INCR 版本号再清本机缓存，
+     * 复核看到新版本号则由本方清除，否则失效方的清除必然发生在本次写入之后。
+     */
+    private void putIfGeneration(String key, String generationKey, String generation, Entry loaded, Duration ttl) {
+        if (generation == null) {
+            local.put(key, loaded);
+            return;
+        }
+        try {
+            String raw = objectMapper.writeValueAsString(new Envelope<>(loaded.cachedAt(), loaded.value()));
+            Long written = redisTemplate.execute(SET_IF_GENERATION_SCRIPT, List.of(generationKey, KEY_PREFIX + key),
+                    generation, raw, String.valueOf(ttl.toMillis()));
+            if (written == null || written == 0) {
+                return;
+            }
+        } catch (Exception e) {
+            logger.debug("Story cache write failed for {}: {}", key, e.getMessage());
+        }
+        local.put(key, loaded);
+        if (!generation.equals(readGeneration(generationKey))) {
+            local.invalidate(key);
+        }
+    }
+
+    private Entry readRedis(String key, JavaType valueType) {
+        try {
+            String raw = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+            if (raw == null) {
+                return null;
+            }
+            JavaType envelope = objectMapper.getTypeFactory().constructParametricType(Envelope.class, valueType);
+            Envelope<?> decoded = objectMapper.readValue(raw, envelope);
+            return new Entry(decoded.cachedAt(), decoded.value());
+        } catch (Exception e) {
+            logger.debug("Story cache read failed for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, Entry entry, Duration ttl) {
+        try {
+            String raw = objectMapper.writeValueAsString(new Envelope<>(entry.cachedAt(), entry.value()));
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, raw, ttl);
+        } catch (Exception e) {
+            logger.debug("Story cache write failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void recordAge(long ageMs) {
+        servedAgeMsTotal.add(ageMs);
+        servedAgeMsMax.accumulate(ageMs);
+    }
+
+    // ==================== 失效 ====================
+
+    /**
+     * 数据变更的事务提交后失效缓存（无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStoryChanged(StoryChangedEvent event) {
+        if (event.slug() != null) {
+            String key = "detail:" + event.slug();
+            String generationKey = DETAIL_GENERATION_PREFIX + event.slug();
+            try {
+                redisTemplate.opsForValue().increment(generationKey);
+                redisTemplate.expire(generationKey, DETAIL_GENERATION_TTL);
+            } catch (Exception e) {
+                logger.debug("Story cache generation bump failed for {}: {}", key, e.getMessage());
+            }
+            local.invalidate(key);
+            try {
+                redisTemplate.delete(KEY_PREFIX + key);
+            } catch (Exception e) {
+                logger.debug("Story cache delete failed for {}: {}", key, e.getMessage());
+            }
+            publish(DETAIL_MESSAGE_PREFIX + event.slug());
+        }
+        if (event.listsAffected()) {
+            long generation;
+            try {
+                Long incremented = redisTemplate.opsForValue().increment(LIST_GENERATION_KEY);
+                generation = incremented != null ? incremented : listGeneration.get() + 1;
+            } catch (Exception e) {
+                generation = listGeneration.get() + 1;
+            }
+            listGeneration.accumulateAndGet(generation, Math::max);
+            publish(LISTS_MESSAGE_PREFIX + generation);
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+            invalidationsPublished.increment();
+        } catch (Exception e) {
+            logger.debug("Story cache invalidation publish failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他节点（及本节点）发布的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        invalidationsReceived.increment();
+        if (body.startsWith(DETAIL_MESSAGE_PREFIX)) {
+            local.invalidate("detail:" + body.substring(DETAIL_MESSAGE_PREFIX.length()));
+        } else if (body.startsWith(LISTS_MESSAGE_PREFIX)) {
+            try {
+                long generation = Long.parseLong(body.substring(LISTS_MESSAGE_PREFIX.length()));
+                listGeneration.accumulateAndGet(generation, Math::max);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 定时从 Redis 同步列表版本号，发布/订阅消息丢失时列表缓存也能在数秒内收敛
+     */
+    @Scheduled(fixedDelay = 10_000)
+    public void syncListGeneration() {
+        try {
+            String raw = redisTemplate.opsForValue().get(LIST_GENERATION_KEY);
+            if (raw != null) {
+                listGeneration.accumulateAndGet(Long.parseLong(raw), Math::max);
+            }
+        } catch (Exception e) {
+            logger.debug("Story cache list generation sync failed: {}", e.getMessage());
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    /**
+     * 缓存统计：L1/L2 命中、未命中、命中率、命中数据平均/最大年龄（毫秒）、失效消息数
+     */
+    public Map<String, Object> stats() {
+        long l1 = localHits.sum();
+        long l2 = redisHits.sum();
+        long miss = misses.sum();
+        long hits = l1 + l2;
+        long total = hits + miss;
+        CacheStats caffeine = local.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("localHits", l1);
+        stats.put("redisHits", l2);
+        stats.put("misses", miss);
+        stats.put("hitRate", total > 0 ? (double) hits / total : 0.0);
+        stats.put("avgServedAgeMs", hits > 0 ? servedAgeMsTotal.sum() / hits : 0);
+        stats.put("maxServedAgeMs", servedAgeMsMax.get());
+        stats.put("localSize", local.estimatedSize());
+        stats.put("localEvictions", caffeine.evictionCount());
+        stats.put("listGeneration", listGeneration.get());
+        stats.put("invalidationsPublished", invalidationsPublished.sum());
+        stats.put("invalidationsReceived", invalidationsReceived.sum());
+        return stats;
+    }
+
+    private record Entry(long cachedAt, Object value) {
+    }
+
+    /**
+     * Redis 中的缓存值，带写入时间用于统计陈旧度
+     */
+    public record Envelope<T>(long cachedAt, T value) {
+    }
+
+    /**
+     * 列表页缓存值（Page 本身不便反序列化）
+     */
+    public record CachedPage(List<StoryListItemResponse> content, long totalElements) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.api.story.cache;
+
+/**
+ * 小说数据变更事件，事务提交后失效相关缓存。
+ *
+ * @param storyId       小说ID
+ * @param slug          小说 slug，用于失效详情缓存（为 null 时不失效详情）
+ * @param listsAffected 是否影响列表页、标签等聚合数据
+ */
+public record StoryChangedEvent(Long storyId, String slug, boolean listsAffected) {
+
+    /**
+     * 影响详情和列表（小说增删改、章节增删）
+     */
+    public static StoryChangedEvent of(Long storyId, String slug) {
+        return new StoryChangedEvent(storyId, slug, true);
+    }
+
+    /**
+     * 只影响详情（Star 等高频计数变更，列表依赖较短的 TTL 收敛）
+     */
+    public static StoryChangedEvent detailOnly(Long storyId, String slug) {
+        return new StoryChangedEvent(storyId, slug, false);
+    }
+}
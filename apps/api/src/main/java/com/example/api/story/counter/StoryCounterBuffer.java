@@ -0,0 +1,193 @@
+package com.example.api.story.counter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.api.story.StoryRepository;
+import com.example.api.story.cache.StoryChangedEvent;
+import com.example.api.storyseed.StoryOptionRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 高频计数的写后缓冲（write-behind）：Star 数、Fork 数、选项被选次数先累加在内存中，
+ * 定时按 ID 合并为一条 UPDATE 批量落库，避免热门小说/选项的单行锁争用。
+ * <ul>
+ *   <li>在事务中累加时，增量在事务提交后才计入缓冲，回滚的操作不会留下计数</li>
+ *   <li>读取详情时叠加本节点未落库的增量（{@link #pendingStars}、{@link #pendingForks}）</li>
+ *   <li>落库失败的增量放回缓冲，下次重试；进程崩溃最多丢失一个刷新周期内的增量</li>
+ *   <li>正常停机时（@PreDestroy）会再刷新一次</li>
+ * </ul>
+ */
+@Component
+public class StoryCounterBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoryCounterBuffer.class);
+
+    private final Map<Long, LongAdder> starDeltas = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> forkDeltas = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> selectionDeltas = new ConcurrentHashMap<>();
+
+    private final StoryRepository storyRepository;
+    private final StoryOptionRepository storyOptionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StoryCounterBuffer(StoryRepository storyRepository,
+                              StoryOptionRepository storyOptionRepository,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher) {
+        this.storyRepository = storyRepository;
+        this.storyOptionRepository = storyOptionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    // ==================== 累加 ====================
+
+    public void addStars(Long storyId, long delta) {
+        addAfterCommit(starDeltas, storyId, delta);
+    }
+
+    public void addForks(Long storyId, long delta) {
+        addAfterCommit(forkDeltas, storyId, delta);
+    }
+
+    public void addSelections(Long optionId, long delta) {
+        addAfterCommit(selectionDeltas, optionId, delta);
+    }
+
+    /**
+     * 有活动事务时在提交后累加（回滚则丢弃），否则立即累加
+     */
+    private static void addAfterCommit(Map<Long, LongAdder> deltas, Long id, long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(deltas, id, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(deltas, id, delta);
+            }
+        });
+    }
+
+    /**
+     * 与 drain 在同一个 key 上互斥（ConcurrentHashMap.compute 的桶锁），保证取走增量时不会漏加；
+     * 不同 key 之间互不影响，同一 key 的并发累加由 LongAdder 分段承担
+     */
+    private static void add(Map<Long, LongAdder> deltas, Long id, long delta) {
+        if (id == null || delta == 0) {
+            return;
+        }
+        deltas.compute(id, (key, adder) -> {
+            LongAdder target = adder != null ? adder : new LongAdder();
+            target.add(delta);
+            return target;
+        });
+    }
+
+    // ==================== 读取 ====================
+
+    public long pendingStars(Long storyId) {
+        return pending(starDeltas, storyId);
+    }
+
+    public long pendingForks(Long storyId) {
+        return pending(forkDeltas, storyId);
+    }
+
+    public long pendingSelections(Long optionId) {
+        return pending(selectionDeltas, optionId);
+    }
+
+    private static long pending(Map<Long, LongAdder> deltas, Long id) {
+        LongAdder adder = id != null ? deltas.get(id) : null;
+        return adder != null ? adder.sum() : 0;
+    }
+
+    // ==================== 落库 ====================
+
+    @Scheduled(fixedDelayString = "${story.counters.flush-interval-ms:2000}")
+    public void flush() {
+        Map<Long, Long> stars = drain(starDeltas);
+        Map<Long, Long> forks = drain(forkDeltas);
+        Map<Long, Long> selections = drain(selectionDeltas);
+        if (stars.isEmpty() && forks.isEmpty() && selections.isEmpty()) {
+            return;
+        }
+        // 每本小说的 star、fork 增量合并为一条 UPDATE，先按 ID 顺序更新小说、再按 ID 顺序更新选项，
+        // 多节点同时刷新时加锁顺序一致，避免死锁
+        TreeSet<Long> storyIds = new TreeSet<>(stars.keySet());
+        storyIds.addAll(forks.keySet());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Long id : storyIds) {
+                    storyRepository.adjustCounts(id, stars.getOrDefault(id, 0L).intValue(), forks.getOrDefault(id, 0L).intValue());
+                }
+                selections.forEach((id, delta) -> storyOptionRepository.addSelectionCount(id, delta.intValue()));
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to flush story counters, will retry: {}", e.getMessage());
+            stars.forEach((id, delta) -> add(starDeltas, id, delta));
+            forks.forEach((id, delta) -> add(forkDeltas, id, delta));
+            selections.forEach((id, delta) -> add(selectionDeltas, id, delta));
+            return;
+        }
+        evictDetails(storyIds);
+    }
+
+    /**
+     * 取走全部增量：在 compute 内读数并移除条目，与 add 互斥，不会丢失并发累加
+     */
+    private static Map<Long, Long> drain(Map<Long, LongAdder> deltas) {
+        Map<Long, Long> drained = new TreeMap<>();
+        for (Long id : List.copyOf(deltas.keySet())) {
+            deltas.computeIfPresent(id, (key, adder) -> {
+                long delta = adder.sum();
+                if (delta != 0) {
+                    drained.put(key, delta);
+                }
+                return null;
+            });
+        }
+        return drained;
+    }
+
+    /**
+     * 计数已落库，失效这些小说的详情缓存，使其他节点读到新值
+     */
+    private void evictDetails(Collection<Long> storyIds) {
+        if (storyIds.isEmpty()) {
+            return;
+        }
+        try {
+            for (Object[] row : storyRepository.findSlugsByIdIn(storyIds)) {
+                eventPublisher.publishEvent(StoryChangedEvent.detailOnly((Long) row[0], (String) row[1]));
+            }
+        } catch (Exception e) {
+            logger.debug("Failed to evict story details after counter flush: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
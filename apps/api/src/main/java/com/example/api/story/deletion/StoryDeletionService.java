@@ -0,0 +1,148 @@
+package com.example.api.story.deletion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 小说、阅读副本的集合式级联删除：按外键依赖顺序，每张表一条 DELETE（多表 JOIN 限定范围），
+ * 语句数与 Fork、章节数量无关，替代逐个实体 repository.delete 的成千上万条语句。
+ * <ul>
+ *   <li>自引用外键（章节父子、提交父子）先置空再删除，避免同一语句内删除顺序导致外键冲突</li>
+ *   <li>不依赖数据库的 ON DELETE CASCADE（部分表由 ddl-auto 建出，没有级联）</li>
+ *   <li>返回每张表删除的行数，并输出到日志，便于观察大小说删除的进度与耗时</li>
+ * </ul>
+ * 只执行原生 SQL，调用方需先 flush 持久化上下文中未提交的变更；标签关联、搜索索引由调用方同步。
+ */
+@Service
+public class StoryDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoryDeletionService.class);
+
+    private static final String FORKS_OF_STORY = "f.story_id = ?";
+    private static final String SINGLE_FORK = "f.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StoryDeletionService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 删除小说及其全部 Fork、提交、PR、Wiki、设定、分支点、章节
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public DeletionReport deleteStory(Long storyId) {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> deleted = new LinkedHashMap<>();
+
+        deleteForkTree(FORKS_OF_STORY, storyId, deleted);
+
+        // 小说上的 PR（含来自已删除 Fork 之外的提交）
+        run(deleted, "story_pr_chapters",
+                "DELETE ch FROM story_pr_chapters ch JOIN story_pr_novels n ON n.id = ch.pr_novel_id WHERE n.story_id = ?", storyId);
+        run(deleted, "story_pr_submissions",
+                "DELETE FROM story_pr_submissions WHERE story_id = ?", storyId);
+        run(deleted, "story_pr_novels",
+                "DELETE FROM story_pr_novels WHERE story_id = ?", storyId);
+
+        run(deleted, "story_stars", "DELETE FROM story_stars WHERE story_id = ?", storyId);
+        run(deleted, "story_wiki_pages", "DELETE FROM story_wiki_pages WHERE story_id = ?", storyId);
+        run(deleted, "story_wiki_characters", "DELETE FROM story_wiki_characters WHERE story_id = ?", storyId);
+        run(deleted, "story_wiki_timeline_events", "DELETE FROM story_wiki_timeline_events WHERE story_id = ?", storyId);
+        run(deleted, "story_readme", "DELETE FROM story_readme WHERE story_id = ?", storyId);
+        run(deleted, "story_characters", "DELETE FROM story_characters WHERE story_id = ?", storyId);
+        run(deleted, "story_terms", "DELETE FROM story_terms WHERE story_id = ?", storyId);
+
+        run(deleted, "story_options",
+                "DELETE o FROM story_options o JOIN story_branch_points b ON b.id = o.branch_point_id WHERE b.story_id = ?", storyId);
+        run(deleted, "story_branch_points", "DELETE FROM story_branch_points WHERE story_id = ?", storyId);
+
+        run(deleted, "story_chapter_summaries",
+                "DELETE s FROM story_chapter_summaries s JOIN story_chapters c ON c.id = s.chapter_id WHERE c.story_id = ?", storyId);
+        run(deleted, "story_chapter_revisions",
+                "DELETE r FROM story_chapter_revisions r JOIN story_chapters c ON c.id = r.chapter_id WHERE c.story_id = ?", storyId);
+        run(deleted, "story_chapter_contents",
+                "DELETE x FROM story_chapter_contents x JOIN story_chapters c ON c.id = x.chapter_id WHERE c.story_id = ?", storyId);
+        update("UPDATE story_chapters SET parent_chapter_id = NULL WHERE story_id = ? AND parent_chapter_id IS NOT NULL", storyId);
+        run(deleted, "story_chapters", "DELETE FROM story_chapters WHERE story_id = ?", storyId);
+
+        run(deleted, "story_tags", "DELETE FROM story_tags WHERE story_id = ?", storyId);
+        run(deleted, "stories", "DELETE FROM stories WHERE id = ?", storyId);
+
+        DeletionReport report = new DeletionReport(deleted, System.currentTimeMillis() - start);
+        logger.info("Deleted story {}: {} rows in {} ms {}", storyId, report.totalRows(), report.elapsedMs(), report.deletedRows());
+        return report;
+    }
+
+    /**
+     * 删除单个阅读副本及其提交、事件、书签、PR
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public DeletionReport deleteFork(Long forkId) {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> deleted = new LinkedHashMap<>();
+        deleteForkTree(SINGLE_FORK, forkId, deleted);
+        DeletionReport report = new DeletionReport(deleted, System.currentTimeMillis() - start);
+        logger.info("Deleted reader fork {}: {} rows in {} ms", forkId, report.totalRows(), report.elapsedMs());
+        return report;
+    }
+
+    /**
+     * 删除满足 scope（别名 f 指 reader_forks）的 Fork 及其下全部数据：
+     * 先删引用提交的 RAG 数据、PR，再删事件、书签、提交，最后删 Fork
+     */
+    private void deleteForkTree(String scope, Long param, Map<String, Integer> deleted) {
+        String commitsInScope = " JOIN story_commits c ON c.id = x.commit_id JOIN reader_forks f ON f.id = c.fork_id WHERE " + scope;
+        run(deleted, "story_commit_summaries", "DELETE x FROM story_commit_summaries x" + commitsInScope, param);
+        run(deleted, "entity_appearances", "DELETE x FROM entity_appearances x" + commitsInScope, param);
+        run(deleted, "commit_timeline_mapping", "DELETE x FROM commit_timeline_mapping x" + commitsInScope, param);
+        update("UPDATE story_entity_index e JOIN story_commits c ON c.id = e.first_appearance_commit_id "
+                + "JOIN reader_forks f ON f.id = c.fork_id SET e.first_appearance_commit_id = NULL WHERE " + scope, param);
+        update("UPDATE story_entity_index e JOIN story_commits c ON c.id = e.last_appearance_commit_id "
+                + "JOIN reader_forks f ON f.id = c.fork_id SET e.last_appearance_commit_id = NULL WHERE " + scope, param);
+
+        String forkInScope = " JOIN reader_forks f ON f.id = x.fork_id WHERE " + scope;
+        run(deleted, "story_pull_requests", "DELETE x FROM story_pull_requests x" + forkInScope, param);
+        run(deleted, "story_pr_chapters", "DELETE ch FROM story_pr_chapters ch JOIN story_pr_novels x ON x.id = ch.pr_novel_id"
+                + forkInScope, param);
+        run(deleted, "story_pr_submissions", "DELETE s FROM story_pr_submissions s JOIN story_pr_novels x ON x.id = s.pr_novel_id"
+                + forkInScope, param);
+        run(deleted, "story_pr_novels", "DELETE x FROM story_pr_novels x" + forkInScope, param);
+        run(deleted, "reader_fork_events", "DELETE x FROM reader_fork_events x" + forkInScope, param);
+        run(deleted, "reader_fork_bookmarks", "DELETE x FROM reader_fork_bookmarks x" + forkInScope, param);
+
+        update("UPDATE story_commits x JOIN reader_forks f ON f.id = x.fork_id SET x.parent_commit_id = NULL WHERE "
+                + scope + " AND x.parent_commit_id IS NOT NULL", param);
+        run(deleted, "story_commits", "DELETE x FROM story_commits x" + forkInScope, param);
+        run(deleted, "reader_forks", "DELETE f FROM reader_forks f WHERE " + scope, param);
+    }
+
+    private void run(Map<String, Integer> deleted, String table, String sql, Object param) {
+        int rows = jdbcTemplate.update(sql, param);
+        if (rows > 0) {
+            deleted.merge(table, rows, Integer::sum);
+            logger.debug("Deleted {} rows from {}", rows, table);
+        }
+    }
+
+    private void update(String sql, Object param) {
+        jdbcTemplate.update(sql, param);
+    }
+
+    /**
+     * 删除结果：每张表删除的行数（按删除顺序）与耗时
+     */
+    public record DeletionReport(Map<String, Integer> deletedRows, long elapsedMs) {
+
+        public int totalRows() {
+            return deletedRows.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.api.story.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 差异比较的分词（无损：所有词元依次拼接等于原文）。
+ * <ul>
+ *   <li>中日韩文字逐字成词：中文没有空格分词，改一个字只影响一个词元</li>
+ *   <li>连续的其他字母数字成一个词（英文单词、数字）</li>
+ *   <li>换行单独成词，其他连续空白成一个词，标点等其他字符逐个成词</li>
+ * </ul>
+ */
+public final class DiffTokenizer {
+
+    private DiffTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            int cp = text.codePointAt(i);
+            int end = i + Character.charCount(cp);
+            if (isCjk(cp) || cp == '\n') {
+                // 单字成词
+            } else if (Character.isLetterOrDigit(cp)) {
+                while (end < n) {
+                    int next = text.codePointAt(end);
+                    if (!Character.isLetterOrDigit(next) || isCjk(next)) {
+                        break;
+                    }
+                    end += Character.charCount(next);
+                }
+            } else if (Character.isWhitespace(cp)) {
+                while (end < n) {
+                    int next = text.codePointAt(end);
+                    if (!Character.isWhitespace(next) || next == '\n') {
+                        break;
+                    }
+                    end += Character.charCount(next);
+                }
+            }
+            tokens.add(text.substring(i, end));
+            i = end;
+        }
+        return tokens;
+    }
+
+    /**
+     * 按行切分（不含换行符），用于审阅展示的行级差异
+     */
+    public static List<String> lines(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        return List.of(text.split("\n", -1));
+    }
+
+    static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.api.story.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.api.story.dto.StoryPrChapterDiffResponse.DiffHunk;
+import com.example.api.story.dto.StoryPrChapterDiffResponse.DiffLine;
+
+/**
+ * 审阅用的行级差异：按行做 Myers 差异，相邻改动（间隔不超过 2×context 行）合并为一个带上下文的块，
+ * 与 unified diff 的 hunk 一致。
+ */
+public final class LineDiff {
+
+    public static final int DEFAULT_CONTEXT = 3;
+    /** 行级编辑距离上限，超过时整段按删除 + 插入展示 */
+    private static final int MAX_LINE_EDITS = 5000;
+
+    private LineDiff() {
+    }
+
+    public static List<DiffHunk> hunks(String base, String target, int context) {
+        List<String> a = DiffTokenizer.lines(base);
+        List<String> b = DiffTokenizer.lines(target);
+        List<MyersDiff.Run> runs = MyersDiff.diff(a, b, MAX_LINE_EDITS);
+        if (runs == null) {
+            runs = List.of(new MyersDiff.Run(MyersDiff.Op.DELETE, a.size()), new MyersDiff.Run(MyersDiff.Op.INSERT, b.size()));
+        }
+
+        // 展开为逐行序列，记录每行之前已消耗的基准/新文本行数
+        List<DiffLine> lines = new ArrayList<>();
+        List<int[]> positions = new ArrayList<>();
+        int ai = 0;
+        int bi = 0;
+        for (MyersDiff.Run run : runs) {
+            for (int i = 0; i < run.count(); i++) {
+                positions.add(new int[]{ai, bi});
+                switch (run.op()) {
+                    case EQUAL -> {
+                        lines.add(new DiffLine(DiffLine.EQUAL, a.get(ai)));
+                        ai++;
+                        bi++;
+                    }
+                    case DELETE -> lines.add(new DiffLine(DiffLine.DELETE, a.get(ai++)));
+                    case INSERT -> {
+                        lines.add(new DiffLine(DiffLine.INSERT, b.get(bi)));
+                        bi++;
+                    }
+                }
+            }
+        }
+
+        List<DiffHunk> hunks = new ArrayList<>();
+        int i = 0;
+        while (i < lines.size()) {
+            if (isEqual(lines.get(i))) {
+                i++;
+                continue;
+            }
+            int start = Math.max(i - context, 0);
+            int lastChange = i;
+            int j = i + 1;
+            // 两处改动之间的相等行不超过 2×context 时合并（上下文首尾相接）
+            while (j < lines.size() && j - lastChange - 1 <= 2 * context) {
+                if (!isEqual(lines.get(j))) {
+                    lastChange = j;
+                }
+                j++;
+            }
+            int end = Math.min(lastChange + context + 1, lines.size());
+            hunks.add(toHunk(lines, positions, start, end));
+            i = end;
+        }
+        return hunks;
+    }
+
+    private static DiffHunk toHunk(List<DiffLine> lines, List<int[]> positions, int start, int end) {
+        List<DiffLine> slice = List.copyOf(lines.subList(start, end));
+        int baseCount = 0;
+        int targetCount = 0;
+        for (DiffLine line : slice) {
+            if (!DiffLine.INSERT.equals(line.op())) {
+                baseCount++;
+            }
+            if (!DiffLine.DELETE.equals(line.op())) {
+                targetCount++;
+            }
+        }
+        int[] position = positions.get(start);
+        return new DiffHunk(position[0] + 1, baseCount, position[1] + 1, targetCount, slice);
+    }
+
+    private static boolean isEqual(DiffLine line) {
+        return DiffLine.EQUAL.equals(line.op());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.api.story.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Myers 差异算法（O((N+M)·D)）：先去掉公共前后缀，再求最短编辑脚本，结果合并为连续的相等/删除/插入段。
+ * <p>
+ * 回溯所需的每轮状态只保存有效的对角线区间，内存 O(D²)；编辑距离超过 maxEdits 时放弃（返回 null），
+ * 此时两段文本差异很大，调用方应按整体替换处理。
+ */
+public final class MyersDiff {
+
+    public enum Op {
+        EQUAL, DELETE, INSERT
+    }
+
+    /**
+     * 连续的同类编辑：EQUAL/DELETE 消耗原序列 count 个元素，INSERT 消耗新序列 count 个元素
+     */
+    public record Run(Op op, int count) {
+    }
+
+    private MyersDiff() {
+    }
+
+    public static <T> List<Run> diff(List<T> a, List<T> b, int maxEdits) {
+        int prefix = 0;
+        int limit = Math.min(a.size(), b.size());
+        while (prefix < limit && Objects.equals(a.get(prefix), b.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && Objects.equals(a.get(a.size() - 1 - suffix), b.get(b.size() - 1 - suffix))) {
+            suffix++;
+        }
+        List<T> midA = a.subList(prefix, a.size() - suffix);
+        List<T> midB = b.subList(prefix, b.size() - suffix);
+
+        List<Op> ops = shortestEdit(midA, midB, maxEdits);
+        if (ops == null) {
+            return null;
+        }
+        List<Run> runs = new ArrayList<>();
+        append(runs, Op.EQUAL, prefix);
+        for (Op op : ops) {
+            append(runs, op, 1);
+        }
+        append(runs, Op.EQUAL, suffix);
+        return runs;
+    }
+
+    private static void append(List<Run> runs, Op op, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (!runs.isEmpty() && runs.get(runs.size() - 1).op() == op) {
+            Run last = runs.remove(runs.size() - 1);
+            runs.add(new Run(op, last.count() + count));
+        } else {
+            runs.add(new Run(op, count));
+        }
+    }
+
+    /**
+     * 逐元素的编辑脚本（正序）；超出 maxEdits 返回 null
+     */
+    private static <T> List<Op> shortestEdit(List<T> a, List<T> b, int maxEdits) {
+        int n = a.size();
+        int m = b.size();
+        int max = Math.min(n + m, maxEdits);
+        // v[k] 存于 v[k + offset]
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            // 保存本轮开始时 k ∈ [-d-1, d+1] 的状态，回溯时使用
+            int[] snapshot = new int[2 * d + 3];
+            System.arraycopy(v, offset - d - 1, snapshot, 0, snapshot.length);
+            trace.add(snapshot);
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]))
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && Objects.equals(a.get(x), b.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    return backtrack(trace, n, m);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Op> backtrack(List<int[]> trace, int n, int m) {
+        List<Op> ops = new ArrayList<>();
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int prevK = (k == -d || (k != d && at(v, d, k - 1) < at(v, d, k + 1))) ? k + 1 : k - 1;
+            int prevX = at(v, d, prevK);
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                ops.add(Op.EQUAL);
+                x--;
+                y--;
+            }
+            if (d > 0) {
+                ops.add(x == prevX ? Op.INSERT : Op.DELETE);
+            }
+            x = prevX;
+            y = prevY;
+        }
+        Collections.reverse(ops);
+        return ops;
+    }
+
+    private static int at(int[] snapshot, int d, int k) {
+        return snapshot[k + d + 1];
+    }
+}
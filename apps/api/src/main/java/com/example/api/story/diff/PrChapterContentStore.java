@@ -0,0 +1,250 @@
+package com.example.api.story.diff;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.example.api.common.ApiException;
+import com.example.api.story.StoryChapter;
+import com.example.api.story.StoryChapterRepository;
+import com.example.api.story.StoryPrChapter;
+import com.example.api.story.StoryPrChapterRepository;
+import com.example.api.story.dto.StoryPrChapterDiffResponse;
+import com.example.api.story.dto.StoryPrChapterDiffResponse.DiffHunk;
+import com.example.api.story.dto.StoryPrChapterDiffResponse.DiffLine;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 分支小说章节正文的读写：相对原小说同序号章节（主线优先）只存差异，并提供审阅用的行级差异。
+ * <ul>
+ *   <li>写入：锁定基准章节后对基准与新正文做词元级 Myers 差异（中文逐字），差异明显小于全文时存差异，否则存全文；
+ *       基准章节的修改同样先锁章节行，差异不会指向已不存在的基准哈希</li>
+ *   <li>读取：批量加载基准正文后应用差异；基准哈希不符（基准被绕过本类改写）时报冲突</li>
+ *   <li>基准章节正文修改或删除前，由章节服务调用 {@link #materializeForBase} 把依赖它的差异还原为全文</li>
+ *   <li>审阅差异按基准/分支正文哈希缓存（本机 Caffeine），写入时预先计算</li>
+ * </ul>
+ */
+@Component
+public class PrChapterContentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrChapterContentStore.class);
+
+    /** 词元级编辑距离上限，超过即差异过大，存全文 */
+    private static final int MAX_TOKEN_EDITS = 2000;
+    /** 差异 JSON 不超过全文字节数的该比例才按差异存储 */
+    private static final double MAX_DELTA_RATIO = 0.5;
+    private static final TypeReference<List<Object>> OPS = new TypeReference<>() {
+    };
+
+    private final StoryChapterRepository chapterRepository;
+    private final StoryPrChapterRepository prChapterRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CachedDiff> diffCache = Caffeine.newBuilder()
+            .maximumSize(2_000)
+            .expireAfterAccess(Duration.ofHours(6))
+            .recordStats()
+            .build();
+
+    private final LongAdder deltaWrites = new LongAdder();
+    private final LongAdder fullWrites = new LongAdder();
+    private final LongAdder contentBytes = new LongAdder();
+    private final LongAdder deltaBytes = new LongAdder();
+    private final LongAdder materialized = new LongAdder();
+
+    public PrChapterContentStore(StoryChapterRepository chapterRepository,
+                                 StoryPrChapterRepository prChapterRepository,
+                                 ObjectMapper objectMapper) {
+        this.chapterRepository = chapterRepository;
+        this.prChapterRepository = prChapterRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 设置分支章节正文：有基准且差异足够小时存差异，否则存全文；同时预先计算审阅差异。
+     * 须在事务中调用，基准章节行锁到事务提交
+     */
+    public void write(StoryPrChapter chapter, String content) {
+        StoryChapter base = content != null ? findBase(chapter, true) : null;
+        if (base == null) {
+            chapter.setContentMarkdown(content);
+            if (content != null) {
+                fullWrites.increment();
+            }
+            return;
+        }
+        String baseContent = base.getContentMarkdown();
+        String baseHash = TextDelta.hash(baseContent);
+        String delta = encodeDelta(baseContent, content);
+        if (delta != null) {
+            chapter.setContentDelta(base.getId(), baseHash, delta);
+            deltaWrites.increment();
+            contentBytes.add(content.getBytes(StandardCharsets.UTF_8).length);
+            deltaBytes.add(delta.getBytes(StandardCharsets.UTF_8).length);
+        } else {
+            chapter.setContentMarkdown(content);
+            fullWrites.increment();
+        }
+        diffCache.get(diffKey(base.getId(), baseHash, content), key -> computeDiff(baseContent, content));
+    }
+
+    /**
+     * 差异 JSON；差异过大或不比全文小一半时返回 null
+     */
+    private String encodeDelta(String baseContent, String content) {
+        List<Object> ops = TextDelta.between(baseContent, content, MAX_TOKEN_EDITS);
+        if (ops == null) {
+            return null;
+        }
+        String delta;
+        try {
+            delta = objectMapper.writeValueAsString(ops);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        int contentLength = content.getBytes(StandardCharsets.UTF_8).length;
+        return delta.getBytes(StandardCharsets.UTF_8).length <= contentLength * MAX_DELTA_RATIO ? delta : null;
+    }
+
+    /**
+     * 基准章节正文即将修改或删除：依赖它的差异先还原为全文
+     */
+    public void materializeForBase(Long baseChapterId, String baseContent) {
+        List<StoryPrChapter> dependents = prChapterRepository.findByBaseChapterIdAndContentDeltaIsNotNull(baseChapterId);
+        if (dependents.isEmpty()) {
+            return;
+        }
+        for (StoryPrChapter dependent : dependents) {
+            dependent.setContentMarkdown(resolve(dependent, baseContent));
+        }
+        prChapterRepository.saveAll(dependents);
+        materialized.add(dependents.size());
+        logger.debug("Materialized {} PR chapter deltas based on chapter {}", dependents.size(), baseChapterId);
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 单个分支章节的正文
+     */
+    public String read(StoryPrChapter chapter) {
+        return readAll(List.of(chapter)).get(chapter.getId());
+    }
+
+    /**
+     * 批量还原正文（按分支章节ID），基准章节一次查询加载
+     */
+    public Map<Long, String> readAll(List<StoryPrChapter> chapters) {
+        Set<Long> baseIds = chapters.stream()
+                .filter(StoryPrChapter::isDeltaStored)
+                .map(StoryPrChapter::getBaseChapterId)
+                .collect(Collectors.toSet());
+        Map<Long, String> baseContents = new HashMap<>();
+        if (!baseIds.isEmpty()) {
+            chapterRepository.findWithContentByIdIn(baseIds)
+                    .forEach(base -> baseContents.put(base.getId(), base.getContentMarkdown()));
+        }
+        Map<Long, String> contents = new HashMap<>();
+        for (StoryPrChapter chapter : chapters) {
+            contents.put(chapter.getId(), chapter.isDeltaStored()
+                    ? resolve(chapter, baseContents.get(chapter.getBaseChapterId()))
+                    : chapter.getContentMarkdown());
+        }
+        return contents;
+    }
+
+    private String resolve(StoryPrChapter chapter, String baseContent) {
+        if (baseContent == null || !TextDelta.hash(baseContent).equals(chapter.getBaseContentHash())) {
+            throw new ApiException(HttpStatus.CONFLICT, "分支章节的基准章节已变化，无法还原正文");
+        }
+        try {
+            List<Object> ops = objectMapper.readValue(chapter.getContentDelta(), OPS);
+            return TextDelta.apply(baseContent, ops);
+        } catch (Exception e) {
+            throw new IllegalStateException("Corrupted delta of PR chapter " + chapter.getId(), e);
+        }
+    }
+
+    // ==================== 审阅差异 ====================
+
+    /**
+     * 分支章节相对基准章节的行级差异；没有基准章节时整章为新增
+     */
+    public StoryPrChapterDiffResponse diff(StoryPrChapter chapter) {
+        StoryChapter base = chapter.isDeltaStored()
+                ? chapterRepository.findWithContentByIdIn(List.of(chapter.getBaseChapterId())).stream().findFirst().orElse(null)
+                : findBase(chapter, false);
+        String baseContent = base != null ? base.getContentMarkdown() : "";
+        String content = chapter.isDeltaStored() ? resolve(chapter, baseContent) : Objects.toString(chapter.getContentMarkdown(), "");
+        Long baseId = base != null ? base.getId() : null;
+        CachedDiff diff = diffCache.get(diffKey(baseId, TextDelta.hash(baseContent), content), key -> computeDiff(baseContent, content));
+        return new StoryPrChapterDiffResponse(chapter.getId(), baseId, chapter.isDeltaStored(),
+                diff.addedLines(), diff.removedLines(), diff.hunks());
+    }
+
+    private static CachedDiff computeDiff(String baseContent, String content) {
+        List<DiffHunk> hunks = LineDiff.hunks(baseContent, content, LineDiff.DEFAULT_CONTEXT);
+        int added = 0;
+        int removed = 0;
+        for (DiffHunk hunk : hunks) {
+            for (DiffLine line : hunk.lines()) {
+                if (DiffLine.INSERT.equals(line.op())) {
+                    added++;
+                } else if (DiffLine.DELETE.equals(line.op())) {
+                    removed++;
+                }
+            }
+        }
+        return new CachedDiff(added, removed, hunks);
+    }
+
+    private static String diffKey(Long baseId, String baseHash, String content) {
+        return baseId + ":" + baseHash + ":" + TextDelta.hash(content);
+    }
+
+    // ==================== 其他 ====================
+
+    /**
+     * 原小说中同序号的章节（主线优先）；lock 为 true 时加锁读取
+     */
+    private StoryChapter findBase(StoryPrChapter chapter, boolean lock) {
+        Long storyId = chapter.getPrNovel().getStory().getId();
+        List<StoryChapter> candidates = lock
+                ? chapterRepository.findWithContentByStoryIdAndSortOrderForUpdate(storyId, chapter.getSortOrder())
+                : chapterRepository.findWithContentByStoryIdAndSortOrder(storyId, chapter.getSortOrder());
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    /**
+     * 差异存储统计：差异/全文写入次数、差异存储的正文与差异字节数、还原为全文的次数、审阅差异缓存命中率
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("deltaWrites", deltaWrites.sum());
+        stats.put("fullWrites", fullWrites.sum());
+        stats.put("deltaContentBytes", contentBytes.sum());
+        stats.put("deltaBytes", deltaBytes.sum());
+        stats.put("materialized", materialized.sum());
+        stats.put("diffCacheHitRate", diffCache.stats().hitRate());
+        return stats;
+    }
+
+    private record CachedDiff(int addedLines, int removedLines, List<DiffHunk> hunks) {
+    }
+}
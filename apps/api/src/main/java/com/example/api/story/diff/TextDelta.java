@@ -0,0 +1,106 @@
+package com.example.api.story.diff;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * 相对基准词元序列的紧凑差异（可直接 JSON 序列化）：
+ * <ul>
+ *   <li>正整数 n：保留基准的接下来 n 个词元</li>
+ *   <li>负整数 -n：跳过（删除）基准的接下来 n 个词元</li>
+ *   <li>字符串：插入的文本</li>
+ * </ul>
+ * 例如 {@code [120, -2, "新的句子", 300]}。还原时基准必须与生成差异时完全一致（调用方用哈希校验）。
+ */
+public final class TextDelta {
+
+    private TextDelta() {
+    }
+
+    /**
+     * 两段文本的词元级差异；编辑距离超过 maxEdits 时返回 null（差异过大，应存全文）
+     */
+    public static List<Object> between(String base, String target, int maxEdits) {
+        List<String> tokens = DiffTokenizer.tokenize(target);
+        List<MyersDiff.Run> runs = MyersDiff.diff(DiffTokenizer.tokenize(base), tokens, maxEdits);
+        return runs != null ? encode(tokens, runs) : null;
+    }
+
+    /**
+     * 把操作列表应用到基准文本上
+     */
+    public static String apply(String base, List<?> ops) {
+        return apply(DiffTokenizer.tokenize(base), ops);
+    }
+
+    /**
+     * 正文的 SHA-256（十六进制），用于校验差异的基准未变
+     */
+    public static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 由差异结果生成操作列表；runs 须由 {@link MyersDiff#diff}(base, target) 得出
+     */
+    public static List<Object> encode(List<String> target, List<MyersDiff.Run> runs) {
+        List<Object> ops = new ArrayList<>();
+        int t = 0;
+        for (MyersDiff.Run run : runs) {
+            switch (run.op()) {
+                case EQUAL -> {
+                    ops.add(run.count());
+                    t += run.count();
+                }
+                case DELETE -> ops.add(-run.count());
+                case INSERT -> {
+                    StringBuilder inserted = new StringBuilder();
+                    for (int i = 0; i < run.count(); i++) {
+                        inserted.append(target.get(t++));
+                    }
+                    ops.add(inserted.toString());
+                }
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * 把操作列表应用到基准词元上；与基准长度不符时抛出 IllegalArgumentException
+     */
+    public static String apply(List<String> base, List<?> ops) {
+        StringBuilder out = new StringBuilder();
+        int b = 0;
+        for (Object op : ops) {
+            if (op instanceof String inserted) {
+                out.append(inserted);
+            } else if (op instanceof Number number) {
+                int n = number.intValue();
+                if (b + Math.abs(n) > base.size()) {
+                    throw new IllegalArgumentException("Delta exceeds base length " + base.size());
+                }
+                if (n > 0) {
+                    for (int i = 0; i < n; i++) {
+                        out.append(base.get(b + i));
+                    }
+                }
+                b += Math.abs(n);
+            } else {
+                throw new IllegalArgumentException("Unknown delta op: " + op);
+            }
+        }
+        if (b != base.size()) {
+            throw new IllegalArgumentException("Delta covers " + b + " of " + base.size() + " base tokens");
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.api.story.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页结果：nextCursor 为 null 表示没有下一页；
+ * totalElements 仅在请求 withTotal=true 时计算，否则为 null（省去 COUNT 查询）
+ */
+public record CursorPage<T>(
+        List<T> content,
+        String nextCursor,
+        boolean hasNext,
+        Long totalElements
+) {
+}
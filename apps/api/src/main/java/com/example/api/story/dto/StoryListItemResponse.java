@@ -1,6 +1,7 @@
 package com.example.api.story.dto;
 
 import com.example.api.story.Story;
+import com.example.api.story.StoryListRow;
 import com.example.api.user.User;
 
 import java.time.Instant;
@@ -30,7 +31,7 @@ public record StoryListItemResponse(
 ) {
 
     public static StoryListItemResponse fromEntity(Story story) {
-        return fromEntity(story, story.hasContent(), 0);
+        return fromEntity(story, story.hasContent(), story.getChapterCount() != null ? story.getChapterCount() : 0);
     }
 
     /**
@@ -42,6 +43,32 @@ public record StoryListItemResponse(
         return fromEntity(story, hasContent, 0);
     }
 
+    /**
+     * 从列表项投影组装（不经过实体）
+     */
+    public static StoryListItemResponse fromRow(StoryListRow row, List<String> tags) {
+        boolean openSource = Boolean.TRUE.equals(row.openSource());
+        int chapterCount = row.chapterCount() != null ? row.chapterCount() : 0;
+        return new StoryListItemResponse(
+                row.id(),
+                row.title(),
+                row.slug(),
+                row.published(),
+                chapterCount > 0,
+                openSource && row.published(),
+                true,
+                openSource,
+                row.openSourceLicense(),
+                row.forkCount() != null ? row.forkCount() : 0,
+                row.starCount() != null ? row.starCount() : 0,
+                row.storySummary(),
+                row.authorUsername(),
+                tags != null ? tags : List.of(),
+                row.createdAt() != null ? formatter.format(row.createdAt()) : null,
+                chapterCount
+        );
+    }
+
     public static StoryListItemResponse fromEntity(Story story, boolean hasContent, int chapterCount) {
         User author = story.getAuthor();
         List<String> tags = story.getTags();
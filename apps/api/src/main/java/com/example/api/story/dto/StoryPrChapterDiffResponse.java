@@ -0,0 +1,35 @@
+package com.example.api.story.dto;
+
+import java.util.List;
+
+/**
+ * 分支章节相对原小说基准章节的行级差异（审阅用）
+ *
+ * @param baseChapterId 基准章节ID，原小说没有对应序号的章节时为 null（整章为新增）
+ * @param deltaStored   该分支章节是否以差异形式存储
+ */
+public record StoryPrChapterDiffResponse(
+        Long prChapterId,
+        Long baseChapterId,
+        boolean deltaStored,
+        int addedLines,
+        int removedLines,
+        List<DiffHunk> hunks
+) {
+
+    /**
+     * 一个改动块：基准从 baseStart 行起 baseCount 行，对应分支从 prStart 行起 prCount 行（行号从 1 开始）
+     */
+    public record DiffHunk(int baseStart, int baseCount, int prStart, int prCount, List<DiffLine> lines) {
+    }
+
+    /**
+     * 一行：op 为 " "（上下文）、"-"（删除）、"+"（新增）
+     */
+    public record DiffLine(String op, String text) {
+
+        public static final String EQUAL = " ";
+        public static final String DELETE = "-";
+        public static final String INSERT = "+";
+    }
+}
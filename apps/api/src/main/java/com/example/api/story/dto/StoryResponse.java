@@ -81,4 +81,18 @@ public record StoryResponse(
                 story.getUpdatedAt() != null ? formatter.format(story.getUpdatedAt()) : null
         );
     }
+
+    /**
+     * 叠加尚未落库的 Fork/Star 增量（见 StoryCounterBuffer）
+     */
+    public StoryResponse withPendingCounts(long pendingForks, long pendingStars) {
+        if (pendingForks == 0 && pendingStars == 0) {
+            return this;
+        }
+        return new StoryResponse(id, title, slug, published, hasContent, isForkable, openSource, openSourceLicense,
+                (int) Math.max(0, (forkCount != null ? forkCount : 0) + pendingForks),
+                (int) Math.max(0, (starCount != null ? starCount : 0) + pendingStars),
+                starredByCurrentUser, styleParams, storySummary, intentKeywords, authorId, authorUsername,
+                inspirationId, inspirationTitle, tags, branchPoints, createdAt, updatedAt);
+    }
 }
@@ -0,0 +1,27 @@
+package com.example.api.story.knowledge;
+
+import java.util.List;
+
+import com.example.api.story.wiki.dto.WikiCharacterResponse;
+import com.example.api.story.wiki.dto.WikiPageResponse;
+import com.example.api.story.wiki.dto.WikiTimelineEventResponse;
+import com.example.api.storyseed.dto.StoryCharacterResponse;
+import com.example.api.storyseed.dto.StoryTermResponse;
+
+/**
+ * 小说知识包：Wiki 页面、Wiki 角色档案、时间线、设定角色、专有名词与 README，
+ * Wiki 界面与 AI 提示词构建共用的只读模型（各列表均按 sortOrder 排序）。
+ *
+ * @param version 知识包版本号，任一 Wiki/设定变更后递增，可用作 ETag；-1 表示 Redis 不可用、没有版本号
+ */
+public record StoryKnowledgeBundle(
+        Long storyId,
+        long version,
+        List<WikiPageResponse> pages,
+        List<WikiCharacterResponse> wikiCharacters,
+        List<WikiTimelineEventResponse> timelineEvents,
+        List<StoryCharacterResponse> characters,
+        List<StoryTermResponse> terms,
+        String readme
+) {
+}
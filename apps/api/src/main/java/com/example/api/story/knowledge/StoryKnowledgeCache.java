@@ -0,0 +1,229 @@
+package com.example.api.story.knowledge;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.api.story.wiki.StoryWikiCharacterRepository;
+import com.example.api.story.wiki.StoryWikiPageRepository;
+import com.example.api.story.wiki.StoryWikiTimelineEventRepository;
+import com.example.api.story.wiki.dto.WikiCharacterResponse;
+import com.example.api.story.wiki.dto.WikiPageResponse;
+import com.example.api.story.wiki.dto.WikiTimelineEventResponse;
+import com.example.api.storyseed.StoryCharacterRepository;
+import com.example.api.storyseed.StoryReadme;
+import com.example.api.storyseed.StoryReadmeRepository;
+import com.example.api.storyseed.StoryTermRepository;
+import com.example.api.storyseed.dto.StoryCharacterResponse;
+import com.example.api.storyseed.dto.StoryTermResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 小说知识包的两级缓存：本机 Caffeine + Redis（共享），未命中时在一个只读事务内用六条查询一次加载全部集合。
+ * <ul>
+ *   <li>Redis 中的知识包 key 带版本号，变更提交后 INCR 版本号，旧 key 不再命中并随 TTL 过期，
+ *       加载期间发生变更也只会写入旧版本的 key</li>
+ *   <li>本机缓存通过 Redis 发布/订阅通知各节点失效，并设较短 TTL，消息丢失时也能收敛；
+ *       读取或加载期间版本号已变化的知识包不放入本机缓存，旧版本不会在失效之后被写回</li>
+ * </ul>
+ * Redis 不可用时降级为仅本机缓存。
+ */
+@Component
+public class StoryKnowledgeCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoryKnowledgeCache.class);
+
+    private static final String VERSION_KEY = "story_knowledge:ver:";
+    private static final String BUNDLE_KEY = "story_knowledge:bundle:";
+    private static final String CHANNEL = "story_knowledge_invalidation";
+
+    private static final Duration LOCAL_TTL = Duration.ofSeconds(30);
+    private static final long LOCAL_MAX_SIZE = 2_000;
+    private static final Duration BUNDLE_TTL = Duration.ofHours(1);
+    /** 版本号保留远长于知识包，过期重置后不会命中旧版本的 key */
+    private static final Duration VERSION_TTL = Duration.ofDays(30);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StoryWikiPageRepository pageRepository;
+    private final StoryWikiCharacterRepository wikiCharacterRepository;
+    private final StoryWikiTimelineEventRepository timelineEventRepository;
+    private final StoryCharacterRepository characterRepository;
+    private final StoryTermRepository termRepository;
+    private final StoryReadmeRepository readmeRepository;
+    private final Cache<Long, StoryKnowledgeBundle> local = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterWrite(LOCAL_TTL)
+            .build();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadMillis = new LongAdder();
+
+    public StoryKnowledgeCache(RedisTemplate<String, String> redisTemplate,
+                               ObjectMapper objectMapper,
+                               RedisMessageListenerContainer listenerContainer,
+                               PlatformTransactionManager transactionManager,
+                               StoryWikiPageRepository pageRepository,
+                               StoryWikiCharacterRepository wikiCharacterRepository,
+                               StoryWikiTimelineEventRepository timelineEventRepository,
+                               StoryCharacterRepository characterRepository,
+                               StoryTermRepository termRepository,
+                               StoryReadmeRepository readmeRepository) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.pageRepository = pageRepository;
+        this.wikiCharacterRepository = wikiCharacterRepository;
+        this.timelineEventRepository = timelineEventRepository;
+        this.characterRepository = characterRepository;
+        this.termRepository = termRepository;
+        this.readmeRepository = readmeRepository;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    // ==================== 读取 ====================
+
+    public StoryKnowledgeBundle get(Long storyId) {
+        StoryKnowledgeBundle cached = local.getIfPresent(storyId);
+        if (cached != null) {
+            localHits.increment();
+            return cached;
+        }
+        long version = readVersion(storyId);
+        if (version >= 0) {
+            StoryKnowledgeBundle remote = readRedis(storyId, version);
+            if (remote != null) {
+                redisHits.increment();
+                putLocal(remote);
+                return remote;
+            }
+        }
+        StoryKnowledgeBundle loaded = load(storyId, version);
+        if (version >= 0) {
+            writeRedis(loaded);
+        }
+        putLocal(loaded);
+        return loaded;
+    }
+
+    /**
+     * 放入本机缓存，版本号已不是当前版本时跳过（失效先于本次写入发生，写入会让旧知识包再留存一个 TTL）
+     */
+    private void putLocal(StoryKnowledgeBundle bundle) {
+        if (bundle.version() >= 0 && readVersion(bundle.storyId()) != bundle.version()) {
+            return;
+        }
+        local.put(bundle.storyId(), bundle);
+    }
+
+    private StoryKnowledgeBundle load(Long storyId, long version) {
+        long start = System.currentTimeMillis();
+        StoryKnowledgeBundle bundle = readOnlyTransaction.execute(status -> new StoryKnowledgeBundle(
+                storyId,
+                version,
+                pageRepository.findByStoryIdOrderBySortOrderAsc(storyId).stream().map(WikiPageResponse::fromEntity).toList(),
+                wikiCharacterRepository.findByStoryIdOrderBySortOrderAsc(storyId).stream().map(WikiCharacterResponse::fromEntity).toList(),
+                timelineEventRepository.findByStoryIdOrderBySortOrderAsc(storyId).stream().map(WikiTimelineEventResponse::fromEntity).toList(),
+                characterRepository.findByStory_IdOrderBySortOrderAsc(storyId).stream().map(StoryCharacterResponse::fromEntity).toList(),
+                termRepository.findByStory_IdOrderBySortOrderAsc(storyId).stream().map(StoryTermResponse::fromEntity).toList(),
+                readmeRepository.findByStory_Id(storyId).map(StoryReadme::getContentMarkdown).orElse("")));
+        loads.increment();
+        loadMillis.add(System.currentTimeMillis() - start);
+        return bundle;
+    }
+
+    /**
+     * 当前版本号；Redis 不可用时返回 -1
+     */
+    private long readVersion(Long storyId) {
+        try {
+            String raw = redisTemplate.opsForValue().get(VERSION_KEY + storyId);
+            return raw != null ? Long.parseLong(raw) : 0;
+        } catch (Exception e) {
+            logger.debug("Story knowledge version unavailable for story {}: {}", storyId, e.getMessage());
+            return -1;
+        }
+    }
+
+    private StoryKnowledgeBundle readRedis(Long storyId, long version) {
+        try {
+            String raw = redisTemplate.opsForValue().get(BUNDLE_KEY + storyId + ":" + version);
+            return raw != null ? objectMapper.readValue(raw, StoryKnowledgeBundle.class) : null;
+        } catch (Exception e) {
+            logger.debug("Story knowledge read failed for story {}: {}", storyId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(StoryKnowledgeBundle bundle) {
+        try {
+            redisTemplate.opsForValue().set(BUNDLE_KEY + bundle.storyId() + ":" + bundle.version(),
+                    objectMapper.writeValueAsString(bundle), BUNDLE_TTL);
+        } catch (Exception e) {
+            logger.debug("Story knowledge write failed for story {}: {}", bundle.storyId(), e.getMessage());
+        }
+    }
+
+    // ==================== 失效 ====================
+
+    /**
+     * Wiki/设定变更的事务提交后递增版本号并通知各节点（无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKnowledgeChanged(StoryKnowledgeChangedEvent event) {
+        if (event.storyId() == null) {
+            return;
+        }
+        try {
+            // 先递增版本号再清本机缓存：清除之后写入的只能是新版本（见 putLocal）
+            redisTemplate.opsForValue().increment(VERSION_KEY + event.storyId());
+            redisTemplate.expire(VERSION_KEY + event.storyId(), VERSION_TTL);
+            redisTemplate.convertAndSend(CHANNEL, String.valueOf(event.storyId()));
+        } catch (Exception e) {
+            logger.debug("Story knowledge invalidation failed for story {}: {}", event.storyId(), e.getMessage());
+        }
+        local.invalidate(event.storyId());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            local.invalidate(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException ignored) {
+        }
+    }
+
+    /**
+     * 缓存统计：L1/L2 命中、加载次数与平均加载耗时
+     */
+    public Map<String, Object> stats() {
+        long loadCount = loads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("localHits", localHits.sum());
+        stats.put("redisHits", redisHits.sum());
+        stats.put("loads", loadCount);
+        stats.put("avgLoadMillis", loadCount > 0 ? loadMillis.sum() / loadCount : 0);
+        stats.put("localSize", local.estimatedSize());
+        return stats;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.api.story.knowledge;
+
+/**
+ * 小说的 Wiki 或设定（角色、专有名词、README）变更事件，事务提交后失效知识包缓存
+ */
+public record StoryKnowledgeChangedEvent(Long storyId) {
+}
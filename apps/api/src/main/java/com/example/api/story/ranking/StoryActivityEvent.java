@@ -0,0 +1,36 @@
+package com.example.api.story.ranking;
+
+/**
+ * 小说互动事件（阅读、Star、Fork），用于增量维护发现页排行
+ *
+ * @param storyId 小说ID
+ * @param type    互动类型
+ * @param viewer  阅读者标识（用户名或 IP），仅 READ 使用，同一阅读者在去重窗口内只计一次
+ */
+public record StoryActivityEvent(Long storyId, Type type, String viewer) {
+
+    public StoryActivityEvent(Long storyId, Type type) {
+        this(storyId, type, null);
+    }
+
+    public enum Type {
+        READ(1),
+        STAR(3),
+        UNSTAR(-3),
+        FORK(5),
+        UNFORK(-5),
+        /** 小说删除，从所有排行中移除 */
+        DELETE(0);
+
+        /** 计入热度的权重 */
+        private final double weight;
+
+        Type(double weight) {
+            this.weight = weight;
+        }
+
+        public double weight() {
+            return weight;
+        }
+    }
+}
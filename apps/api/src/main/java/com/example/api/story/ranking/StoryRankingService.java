@@ -0,0 +1,303 @@
+package com.example.api.story.ranking;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.api.story.Story;
+import com.example.api.story.StoryRepository;
+import com.example.api.story.dto.StoryListItemResponse;
+
+/**
+ * 发现页排行（趋势 / 热门 / 最多 Fork），由互动事件增量维护在 Redis 有序集合中，读取为 O(log n + k)。
+ * <p>
+ * 时间衰减采用「前向衰减」：事件分值 = 权重 × 2^((事件时间 - 基准时间) / 半衰期)，
+ * 越新的事件分值越大，集合内排序等价于按当前时间衰减后的得分排序，无需定时重算所有小说。
+ * 分值随时间指数增长，因此定期把基准时间前移并整体缩放（ZUNIONSTORE WEIGHTS），同时裁剪低分长尾。
+ * <p>
+ * 计分与缩放都在 Lua 脚本中执行，脚本内读取 Redis 中的基准时间：缩放与写入新基准时间是一个原子操作，
+ * 任何节点的计分要么发生在缩放之前（按旧基准计分、随后一起缩放），要么之后（按新基准计分），
+ * 不会出现按旧基准计算的大分值写进已缩放的集合。
+ */
+@Service
+public class StoryRankingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoryRankingService.class);
+
+    private static final String TRENDING_KEY = "story_rank:trending";
+    private static final String HOT_KEY = "story_rank:hot";
+    private static final String FORKS_KEY = "story_rank:forks";
+    private static final String EPOCH_KEY = "story_rank:epoch";
+    private static final String READ_DEDUPE_PREFIX = "story_rank:read:";
+
+    /** 基准时间超过该间隔后前移并缩放分值 */
+    private static final Duration REBASE_INTERVAL = Duration.ofDays(7);
+    /** 每个排行最多保留的小说数 */
+    private static final long MAX_ENTRIES = 10_000;
+    /** 缩放后低于该分值的条目视为已冷却，移除 */
+    private static final double MIN_SCORE = 0.01;
+    private static final int MAX_LIMIT = 50;
+
+    /**
+     * 计分：KEYS = epoch, trending, hot, forks；ARGV = member, weight, now, 趋势半衰期秒, 热门半衰期秒, fork 增量。
+     * 基准时间缺失时以 now 为基准；fork 数减到 0 及以下时移出最多 Fork 排行
+     */
+    private static final DefaultRedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[3]) "
+                    + "local epoch = tonumber(redis.call('get', KEYS[1]) or now) "
+                    + "local weight = tonumber(ARGV[2]) "
+                    + "redis.call('zincrby', KEYS[2], weight * 2 ^ ((now - epoch) / tonumber(ARGV[4])), ARGV[1]) "
+                    + "redis.call('zincrby', KEYS[3], weight * 2 ^ ((now - epoch) / tonumber(ARGV[5])), ARGV[1]) "
+                    + "if ARGV[6] ~= '0' then "
+                    + "  local forks = tonumber(redis.call('zincrby', KEYS[4], ARGV[6], ARGV[1])) "
+                    + "  if forks <= 0 then redis.call('zrem', KEYS[4], ARGV[1]) end "
+                    + "end "
+                    + "return epoch",
+            Long.class);
+
+    /**
+     * 前移基准时间：KEYS = epoch, trending, hot；ARGV = now, 趋势半衰期秒, 热门半衰期秒, 前移间隔秒, 最低分值, 最大条目数。
+     * 未到间隔返回 -1，否则缩放两个集合、裁剪长尾并写入新基准时间，返回前移的秒数
+     */
+    private static final DefaultRedisScript<Long> REBASE_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) "
+                    + "local epoch = tonumber(redis.call('get', KEYS[1])) "
+                    + "if not epoch then redis.call('set', KEYS[1], ARGV[1]) return 0 end "
+                    + "local dt = now - epoch "
+                    + "if dt < tonumber(ARGV[4]) then return -1 end "
+                    + "for i = 2, 3 do "
+                    + "  local factor = 2 ^ (-dt / tonumber(ARGV[i])) "
+                    + "  redis.call('zunionstore', KEYS[i], 1, KEYS[i], 'WEIGHTS', string.format('%.17g', factor)) "
+                    + "  redis.call('zremrangebyscore', KEYS[i], '-inf', ARGV[5]) "
+                    + "  redis.call('zremrangebyrank', KEYS[i], 0, -tonumber(ARGV[6]) - 1) "
+                    + "end "
+                    + "redis.call('set', KEYS[1], ARGV[1]) "
+                    + "return dt",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final StoryRepository storyRepository;
+    private final Duration trendingHalfLife;
+    private final Duration hotHalfLife;
+    private final Duration readDedupeWindow;
+
+    /** 基准时间（秒），与 Redis 中的 story_rank:epoch 同步；仅用于启动时从数据库初始化，计分以 Redis 中的值为准 */
+    private volatile long epochSeconds;
+
+    public StoryRankingService(RedisTemplate<String, String> redisTemplate,
+                               StoryRepository storyRepository,
+                               @Value("${story.ranking.trending-half-life:PT6H}") Duration trendingHalfLife,
+                               @Value("${story.ranking.hot-half-life:PT72H}") Duration hotHalfLife,
+                               @Value("${story.ranking.read-dedupe-window:PT1H}") Duration readDedupeWindow) {
+        this.redisTemplate = redisTemplate;
+        this.storyRepository = storyRepository;
+        this.trendingHalfLife = trendingHalfLife;
+        this.hotHalfLife = hotHalfLife;
+        this.readDedupeWindow = readDedupeWindow;
+        this.epochSeconds = Instant.now().getEpochSecond();
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 互动事件提交后异步计入排行（Redis 不可用时丢弃，不影响业务）。
+     * 阅读按阅读者去重：同一用户/IP 在窗口内重复打开同一本小说只计一次，无法识别阅读者的阅读不计分
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onActivity(StoryActivityEvent event) {
+        if (event.storyId() == null) {
+            return;
+        }
+        String member = event.storyId().toString();
+        String forkIncrement = switch (event.type()) {
+            case FORK -> "1";
+            case UNFORK -> "-1";
+            default -> "0";
+        };
+        try {
+            if (event.type() == StoryActivityEvent.Type.DELETE) {
+                redisTemplate.opsForZSet().remove(TRENDING_KEY, member);
+                redisTemplate.opsForZSet().remove(HOT_KEY, member);
+                redisTemplate.opsForZSet().remove(FORKS_KEY, member);
+                return;
+            }
+            if (event.type() == StoryActivityEvent.Type.READ && !firstReadInWindow(member, event.viewer())) {
+                return;
+            }
+            redisTemplate.execute(RECORD_SCRIPT, List.of(EPOCH_KEY, TRENDING_KEY, HOT_KEY, FORKS_KEY),
+                    member,
+                    String.valueOf(event.type().weight()),
+                    String.valueOf(Instant.now().getEpochSecond()),
+                    String.valueOf(trendingHalfLife.toSeconds()),
+                    String.valueOf(hotHalfLife.toSeconds()),
+                    forkIncrement);
+        } catch (Exception e) {
+            logger.debug("Failed to record story activity {}: {}", event, e.getMessage());
+        }
+    }
+
+    private boolean firstReadInWindow(String member, String viewer) {
+        if (viewer == null || viewer.isBlank()) {
+            return false;
+        }
+        Boolean first = redisTemplate.opsForValue()
+                .setIfAbsent(READ_DEDUPE_PREFIX + member + ":" + viewer, "1", readDedupeWindow);
+        return Boolean.TRUE.equals(first);
+    }
+
+    private double boost(long nowSeconds, Duration halfLife) {
+        return Math.pow(2, (double) (nowSeconds - epochSeconds) / halfLife.toSeconds());
+    }
+
+    // ==================== 读取 ====================
+
+    @Transactional(readOnly = true)
+    public List<StoryListItemResponse> trending(int limit) {
+        return top(TRENDING_KEY, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StoryListItemResponse> hot(int limit) {
+        return top(HOT_KEY, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StoryListItemResponse> mostForked(int limit) {
+        return top(FORKS_KEY, limit);
+    }
+
+    /**
+     * 取排行前 limit 本已发布的小说；多取一些以跳过未发布的条目。
+     * 取消发布可能只是暂时的，这里只跳过不移除；删除的小说由 DELETE 事件移出排行
+     */
+    private List<StoryListItemResponse> top(String key, int limit) {
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Set<String> members;
+        try {
+            members = redisTemplate.opsForZSet().reverseRange(key, 0, n * 2L - 1);
+        } catch (Exception e) {
+            logger.warn("Failed to read story ranking {}: {}", key, e.getMessage());
+            return List.of();
+        }
+        if (members == null || members.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = members.stream().map(Long::valueOf).toList();
+        Map<Long, Story> byId = new HashMap<>();
+        for (Story story : storyRepository.findByIdInAndPublishedTrue(ids)) {
+            byId.put(story.getId(), story);
+        }
+        List<StoryListItemResponse> result = new ArrayList<>(n);
+        for (Long id : ids) {
+            Story story = byId.get(id);
+            if (story != null && result.size() < n) {
+                result.add(StoryListItemResponse.fromEntity(story));
+            }
+        }
+        return result;
+    }
+
+    // ==================== 维护 ====================
+
+    /**
+     * 启动时同步基准时间；排行为空时（首次部署、Redis 清空）用数据库中的 Star/Fork 数初始化
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            Boolean created = redisTemplate.opsForValue().setIfAbsent(EPOCH_KEY, String.valueOf(epochSeconds));
+            if (!Boolean.TRUE.equals(created)) {
+                syncEpoch();
+            }
+            Long size = redisTemplate.opsForZSet().zCard(HOT_KEY);
+            if (size == null || size == 0) {
+                seedFromDatabase();
+            }
+        } catch (Exception e) {
+            logger.warn("Story ranking initialization skipped: {}", e.getMessage());
+        }
+    }
+
+    private void seedFromDatabase() {
+        long now = Instant.now().getEpochSecond();
+        Set<ZSetOperations.TypedTuple<String>> trending = new HashSet<>();
+        Set<ZSetOperations.TypedTuple<String>> hot = new HashSet<>();
+        Set<ZSetOperations.TypedTuple<String>> forks = new HashSet<>();
+        for (Object[] row : storyRepository.findPopularityCounts()) {
+            String member = row[0].toString();
+            int stars = row[1] != null ? ((Number) row[1]).intValue() : 0;
+            int forkCount = row[2] != null ? ((Number) row[2]).intValue() : 0;
+            double weight = stars * StoryActivityEvent.Type.STAR.weight() + forkCount * StoryActivityEvent.Type.FORK.weight();
+            if (weight <= 0) {
+                continue;
+            }
+            trending.add(new DefaultTypedTuple<>(member, weight * boost(now, trendingHalfLife)));
+            hot.add(new DefaultTypedTuple<>(member, weight * boost(now, hotHalfLife)));
+            if (forkCount > 0) {
+                forks.add(new DefaultTypedTuple<>(member, (double) forkCount));
+            }
+        }
+        ZSetOperations<String, String> zset = redisTemplate.opsForZSet();
+        if (!trending.isEmpty()) {
+            zset.add(TRENDING_KEY, trending);
+            zset.add(HOT_KEY, hot);
+        }
+        if (!forks.isEmpty()) {
+            zset.add(FORKS_KEY, forks);
+        }
+        logger.info("Seeded story rankings from database ({} stories)", hot.size());
+    }
+
+    /**
+     * 每分钟检查一次；基准时间到期时前移并整体缩放分值（脚本内判断是否到期，多个节点同时执行也只会缩放一次）
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void maintain() {
+        try {
+            long now = Instant.now().getEpochSecond();
+            Long shifted = redisTemplate.execute(REBASE_SCRIPT, List.of(EPOCH_KEY, TRENDING_KEY, HOT_KEY),
+                    String.valueOf(now),
+                    String.valueOf(trendingHalfLife.toSeconds()),
+                    String.valueOf(hotHalfLife.toSeconds()),
+                    String.valueOf(REBASE_INTERVAL.toSeconds()),
+                    String.valueOf(MIN_SCORE),
+                    String.valueOf(MAX_ENTRIES));
+            if (shifted == null || shifted < 0) {
+                return;
+            }
+            redisTemplate.opsForZSet().removeRange(FORKS_KEY, 0, -MAX_ENTRIES - 1);
+            epochSeconds = now;
+            logger.info("Story ranking epoch rebased to {}", Instant.ofEpochSecond(now));
+        } catch (Exception e) {
+            logger.debug("Story ranking maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void syncEpoch() {
+        String raw = redisTemplate.opsForValue().get(EPOCH_KEY);
+        if (raw != null) {
+            epochSeconds = Long.parseLong(raw);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.api.story.revision;
+
+import java.util.List;
+
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.api.story.StoryChapterService;
+import com.example.api.story.dto.PublishChapterResponse;
+import com.example.api.story.revision.dto.ChapterRevisionContentResponse;
+import com.example.api.story.revision.dto.ChapterRevisionResponse;
+
+@RestController
+@RequestMapping("/api/stories/{storyId}/chapters/{chapterId}/revisions")
+public class ChapterRevisionController {
+
+    private final ChapterRevisionService revisionService;
+    private final StoryChapterService chapterService;
+
+    public ChapterRevisionController(ChapterRevisionService revisionService, StoryChapterService chapterService) {
+        this.revisionService = revisionService;
+        this.chapterService = chapterService;
+    }
+
+    /**
+     * 版本列表（新版本在前，不含正文）
+     */
+    @GetMapping
+    public List<ChapterRevisionResponse> list(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long storyId,
+            @PathVariable Long chapterId) {
+        return revisionService.list(userDetails.getUsername(), storyId, chapterId);
+    }
+
+    /**
+     * 某个版本的正文
+     */
+    @GetMapping("/{revisionNo}")
+    public ChapterRevisionContentResponse get(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long storyId,
+            @PathVariable Long chapterId,
+            @PathVariable int revisionNo) {
+        return revisionService.get(userDetails.getUsername(), storyId, chapterId, revisionNo);
+    }
+
+    /**
+     * 恢复到某个版本（按一次正文修改处理，会记录为新版本）
+     */
+    @PostMapping("/{revisionNo}/restore")
+    public PublishChapterResponse restore(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long storyId,
+            @PathVariable Long chapterId,
+            @PathVariable int revisionNo) {
+        return chapterService.restoreRevision(userDetails.getUsername(), storyId, chapterId, revisionNo);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.api.story.revision;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.api.common.ApiException;
+import com.example.api.story.Story;
+import com.example.api.story.StoryChapter;
+import com.example.api.story.StoryChapterRepository;
+import com.example.api.story.StoryRepository;
+import com.example.api.story.diff.TextDelta;
+import com.example.api.story.revision.dto.ChapterRevisionContentResponse;
+import com.example.api.story.revision.dto.ChapterRevisionResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 章节版本历史：每次正文变化记录一个版本，每隔 snapshotInterval 个版本存一次全文，其余存相对上一版本的差异。
+ * <ul>
+ *   <li>还原：从不晚于目标的最近快照起依次应用差异，最多 snapshotInterval - 1 个，并用哈希校验结果</li>
+ *   <li>差异过大（编辑距离超限或不比全文小）或上一版本与变化前正文不一致时直接存快照</li>
+ *   <li>功能上线前的章节在第一次修改时补记修改前的正文为第 1 版</li>
+ *   <li>定时合并：超过保留期且不在最近 minKeep 个之内的版本删除，保留下来的最早版本改存快照</li>
+ * </ul>
+ */
+@Service
+public class ChapterRevisionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChapterRevisionService.class);
+
+    /** 词元级编辑距离上限，超过即存快照 */
+    private static final int MAX_TOKEN_EDITS = 2000;
+    /** 每次定时合并处理的章节数 */
+    private static final int GC_BATCH_SIZE = 100;
+    private static final TypeReference<List<Object>> OPS = new TypeReference<>() {
+    };
+
+    private final StoryChapterRevisionRepository revisionRepository;
+    private final StoryChapterRepository chapterRepository;
+    private final StoryRepository storyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int snapshotInterval;
+    private final Duration retention;
+    private final int minKeep;
+
+    public ChapterRevisionService(StoryChapterRevisionRepository revisionRepository,
+                                  StoryChapterRepository chapterRepository,
+                                  StoryRepository storyRepository,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${story.revisions.snapshot-interval:10}") int snapshotInterval,
+                                  @Value("${story.revisions.retention:P90D}") Duration retention,
+                                  @Value("${story.revisions.min-keep:20}") int minKeep) {
+        this.revisionRepository = revisionRepository;
+        this.chapterRepository = chapterRepository;
+        this.storyRepository = storyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        this.retention = retention;
+        this.minKeep = Math.max(1, minKeep);
+    }
+
+    // ==================== 记录 ====================
+
+    /**
+     * 章节正文变化后记录当前正文为新版本（与最新版本相同时不记录）。
+     * previousContent 为变化前的正文，新建章节传 null。
+     * 调用方已锁定章节行，最新版本也加锁读取，并发保存依次取得版本号
+     */
+    @Transactional
+    public void record(StoryChapter chapter, String previousContent, Long editorId) {
+        String content = chapter.getContentMarkdown() != null ? chapter.getContentMarkdown() : "";
+        String hash = TextDelta.hash(content);
+        StoryChapterRevision latest = revisionRepository.findTopByChapterIdOrderByRevisionNoDesc(chapter.getId()).orElse(null);
+        if (latest == null && previousContent != null) {
+            latest = revisionRepository.save(StoryChapterRevision.snapshot(chapter.getId(), 1, chapter.getTitle(),
+                    StoryChapter.countWords(previousContent), null, previousContent, TextDelta.hash(previousContent)));
+        }
+        if (latest != null && latest.getContentHash().equals(hash)) {
+            return;
+        }
+
+        StoryChapterRevision revision = null;
+        if (latest != null && latest.getChainLength() + 1 < snapshotInterval
+                && previousContent != null && latest.getContentHash().equals(TextDelta.hash(previousContent))) {
+            String delta = encodeDelta(previousContent, content);
+            if (delta != null) {
+                revision = StoryChapterRevision.delta(latest, chapter.getTitle(), chapter.getWordCount(), editorId, delta, hash);
+            }
+        }
+        if (revision == null) {
+            revision = StoryChapterRevision.snapshot(chapter.getId(), latest != null ? latest.getRevisionNo() + 1 : 1,
+                    chapter.getTitle(), chapter.getWordCount(), editorId, content, hash);
+        }
+        revisionRepository.save(revision);
+    }
+
+    /**
+     * 差异 JSON；差异过大或不比全文小时返回 null
+     */
+    private String encodeDelta(String previousContent, String content) {
+        List<Object> ops = TextDelta.between(previousContent, content, MAX_TOKEN_EDITS);
+        if (ops == null) {
+            return null;
+        }
+        try {
+            String delta = objectMapper.writeValueAsString(ops);
+            return delta.getBytes(StandardCharsets.UTF_8).length < content.getBytes(StandardCharsets.UTF_8).length ? delta : null;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 删除章节的全部版本
+     */
+    @Transactional
+    public void deleteAll(Long chapterId) {
+        revisionRepository.deleteByChapterId(chapterId);
+    }
+
+    // ==================== 读取 ====================
+
+    @Transactional(readOnly = true)
+    public List<ChapterRevisionResponse> list(String username, Long storyId, Long chapterId) {
+        requireChapter(username, storyId, chapterId);
+        return revisionRepository.listByChapterId(chapterId);
+    }
+
+    @Transactional(readOnly = true)
+    public ChapterRevisionContentResponse get(String username, Long storyId, Long chapterId, int revisionNo) {
+        requireChapter(username, storyId, chapterId);
+        return load(chapterId, revisionNo);
+    }
+
+    /**
+     * 某个版本的标题与全文（调用方已校验权限）
+     */
+    @Transactional(readOnly = true)
+    public ChapterRevisionContentResponse load(Long chapterId, int revisionNo) {
+        StoryChapterRevision revision = revisionRepository.findByChapterIdAndRevisionNo(chapterId, revisionNo)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "版本不存在"));
+        return new ChapterRevisionContentResponse(chapterId, revisionNo, revision.getTitle(),
+                reconstruct(revision), revision.getWordCount(), revision.getCreatedAt());
+    }
+
+    private String reconstruct(StoryChapterRevision target) {
+        if (target.isSnapshot()) {
+            return target.getBody();
+        }
+        Long chapterId = target.getChapterId();
+        StoryChapterRevision base = revisionRepository
+                .findTopByChapterIdAndSnapshotTrueAndRevisionNoLessThanEqualOrderByRevisionNoDesc(chapterId, target.getRevisionNo())
+                .orElseThrow(() -> new IllegalStateException("No snapshot before revision " + target.getRevisionNo()
+                        + " of chapter " + chapterId));
+        String content = base.getBody();
+        for (StoryChapterRevision delta : revisionRepository.findByChapterIdAndRevisionNoBetweenOrderByRevisionNoAsc(
+                chapterId, base.getRevisionNo() + 1, target.getRevisionNo())) {
+            try {
+                content = TextDelta.apply(content, objectMapper.readValue(delta.getBody(), OPS));
+            } catch (Exception e) {
+                throw new IllegalStateException("Corrupted revision " + delta.getRevisionNo() + " of chapter " + chapterId, e);
+            }
+        }
+        if (!TextDelta.hash(content).equals(target.getContentHash())) {
+            throw new IllegalStateException("Revision " + target.getRevisionNo() + " of chapter " + chapterId
+                    + " does not match its hash");
+        }
+        return content;
+    }
+
+    private void requireChapter(String username, Long storyId, Long chapterId) {
+        Story story = storyRepository.findByIdAndAuthorUsername(storyId, username)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "小说不存在"));
+        chapterRepository.findByIdAndStoryId(chapterId, story.getId())
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "章节不存在"));
+    }
+
+    // ==================== 合并 ====================
+
+    @Scheduled(cron = "${story.revisions.gc-cron:0 0 4 * * *}")
+    public void squashOldRevisions() {
+        Instant cutoff = Instant.now().minus(retention);
+        int chapters = 0;
+        int deleted = 0;
+        while (true) {
+            List<Long> candidates = revisionRepository.findSquashCandidates(minKeep, cutoff, PageRequest.of(0, GC_BATCH_SIZE));
+            int batchDeleted = 0;
+            for (Long chapterId : candidates) {
+                try {
+                    Integer removed = transactionTemplate.execute(status -> squash(chapterId, cutoff));
+                    batchDeleted += removed != null ? removed : 0;
+                    chapters++;
+                } catch (Exception e) {
+                    logger.warn("Failed to squash revisions of chapter {}: {}", chapterId, e.getMessage());
+                }
+            }
+            deleted += batchDeleted;
+            // 合并后的章节不再是候选；本批没有进展时停止，避免反复处理失败的章节
+            if (candidates.size() < GC_BATCH_SIZE || batchDeleted == 0) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Squashed {} old revisions of {} chapters", deleted, chapters);
+        }
+    }
+
+    /**
+     * 删除保留范围之前的版本：保留期内的版本与最近 minKeep 个版本保留，保留下来的最早版本改存快照
+     */
+    private int squash(Long chapterId, Instant cutoff) {
+        StoryChapterRevision latest = revisionRepository.findTopByChapterIdOrderByRevisionNoDesc(chapterId).orElse(null);
+        if (latest == null) {
+            return 0;
+        }
+        Integer firstRecent = revisionRepository.findFirstRevisionNoSince(chapterId, cutoff);
+        int keepFrom = Math.min(firstRecent != null ? firstRecent : latest.getRevisionNo(),
+                latest.getRevisionNo() - minKeep + 1);
+        StoryChapterRevision keep = revisionRepository.findByChapterIdAndRevisionNo(chapterId, keepFrom).orElse(null);
+        if (keep == null) {
+            return 0;
+        }
+        if (!keep.isSnapshot()) {
+            keep.toSnapshot(reconstruct(keep));
+            revisionRepository.save(keep);
+        }
+        return revisionRepository.deleteBefore(chapterId, keepFrom);
+    }
+}
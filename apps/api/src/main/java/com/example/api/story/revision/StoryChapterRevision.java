@@ -0,0 +1,129 @@
+package com.example.api.story.revision;
+
+import com.example.api.common.BaseEntity;
+import com.example.api.common.CompressedTextConverter;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * 章节正文的一个历史版本。
+ * <p>
+ * 快照版本的 body 为全文；差异版本的 body 为相对上一版本的词元级差异
+ * （{@link com.example.api.story.diff.TextDelta} 的 JSON）。两者都压缩存储。
+ * chainLength 为距最近快照的差异版本数，达到快照间隔时下一个版本存快照，因此还原任一版本最多应用间隔 - 1 个差异。
+ */
+@Entity
+@Table(
+        name = "story_chapter_revisions",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_chapter_revisions_chapter_no", columnNames = {"chapter_id", "revision_no"})
+        })
+public class StoryChapterRevision extends BaseEntity {
+
+    @Column(name = "chapter_id", nullable = false)
+    private Long chapterId;
+
+    @Column(name = "revision_no", nullable = false)
+    private int revisionNo;
+
+    @Column(nullable = false)
+    private boolean snapshot;
+
+    @Column(name = "chain_length", nullable = false)
+    private int chainLength;
+
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
+    private String body;
+
+    /** 该版本全文的 SHA-256，还原后校验 */
+    @Column(name = "content_hash", nullable = false, columnDefinition = "CHAR(64) CHARACTER SET ascii")
+    private String contentHash;
+
+    @Column(nullable = false, length = 200)
+    private String title;
+
+    @Column(name = "word_count", nullable = false)
+    private int wordCount;
+
+    /** 保存该版本的用户 */
+    @Column(name = "editor_id")
+    private Long editorId;
+
+    protected StoryChapterRevision() {
+    }
+
+    private StoryChapterRevision(Long chapterId, int revisionNo, String title, int wordCount, Long editorId, String contentHash) {
+        this.chapterId = chapterId;
+        this.revisionNo = revisionNo;
+        this.title = title;
+        this.wordCount = wordCount;
+        this.editorId = editorId;
+        this.contentHash = contentHash;
+    }
+
+    static StoryChapterRevision snapshot(Long chapterId, int revisionNo, String title, int wordCount, Long editorId,
+                                         String content, String contentHash) {
+        StoryChapterRevision revision = new StoryChapterRevision(chapterId, revisionNo, title, wordCount, editorId, contentHash);
+        revision.toSnapshot(content);
+        return revision;
+    }
+
+    static StoryChapterRevision delta(StoryChapterRevision previous, String title, int wordCount, Long editorId,
+                                      String delta, String contentHash) {
+        StoryChapterRevision revision = new StoryChapterRevision(previous.chapterId, previous.revisionNo + 1,
+                title, wordCount, editorId, contentHash);
+        revision.body = delta;
+        revision.chainLength = previous.chainLength + 1;
+        return revision;
+    }
+
+    /**
+     * 改存全文（之前的版本被合并删除时，保留下来的最早版本须为快照）
+     */
+    void toSnapshot(String content) {
+        this.snapshot = true;
+        this.chainLength = 0;
+        this.body = content;
+    }
+
+    public Long getChapterId() {
+        return chapterId;
+    }
+
+    public int getRevisionNo() {
+        return revisionNo;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public int getChainLength() {
+        return chainLength;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public Long getEditorId() {
+        return editorId;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.api.story.revision;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.api.story.revision.dto.ChapterRevisionResponse;
+
+@Repository
+public interface StoryChapterRevisionRepository extends JpaRepository<StoryChapterRevision, Long> {
+
+    /**
+     * 最新版本，加锁读取（读到已提交的最新版本号，用于分配下一个版本号）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<StoryChapterRevision> findTopByChapterIdOrderByRevisionNoDesc(Long chapterId);
+
+    Optional<StoryChapterRevision> findByChapterIdAndRevisionNo(Long chapterId, int revisionNo);
+
+    /**
+     * 不晚于指定版本的最近快照（还原的起点）
+     */
+    Optional<StoryChapterRevision> findTopByChapterIdAndSnapshotTrueAndRevisionNoLessThanEqualOrderByRevisionNoDesc(
+            Long chapterId, int revisionNo);
+
+    List<StoryChapterRevision> findByChapterIdAndRevisionNoBetweenOrderByRevisionNoAsc(Long chapterId, int from, int to);
+
+    /**
+     * 版本列表（只查元数据，不读正文）
+     */
+    @Query("SELECT new com.example.api.story.revision.dto.ChapterRevisionResponse(r.revisionNo, r.snapshot, r.title, " +
+           "r.wordCount, r.editorId, u.username, r.createdAt) " +
+           "FROM StoryChapterRevision r LEFT JOIN User u ON u.id = r.editorId " +
+           "WHERE r.chapterId = :chapterId ORDER BY r.revisionNo DESC")
+    List<ChapterRevisionResponse> listByChapterId(@Param("chapterId") Long chapterId);
+
+    /**
+     * 可合并的章节：版本数超过最少保留数，且最早的版本已超过保留期
+     */
+    @Query("SELECT r.chapterId FROM StoryChapterRevision r GROUP BY r.chapterId " +
+           "HAVING COUNT(r) > :minKeep AND MIN(r.createdAt) < :cutoff")
+    List<Long> findSquashCandidates(@Param("minKeep") long minKeep, @Param("cutoff") Instant cutoff, Pageable pageable);
+
+    /**
+     * 保留期内的最早版本号；没有时为 null
+     */
+    @Query("SELECT MIN(r.revisionNo) FROM StoryChapterRevision r WHERE r.chapterId = :chapterId AND r.createdAt >= :cutoff")
+    Integer findFirstRevisionNoSince(@Param("chapterId") Long chapterId, @Param("cutoff") Instant cutoff);
+
+    @Modifying
+    @Query("DELETE FROM StoryChapterRevision r WHERE r.chapterId = :chapterId AND r.revisionNo < :revisionNo")
+    int deleteBefore(@Param("chapterId") Long chapterId, @Param("revisionNo") int revisionNo);
+
+    @Modifying
+    @Query("DELETE FROM StoryChapterRevision r WHERE r.chapterId = :chapterId")
+    int deleteByChapterId(@Param("chapterId") Long chapterId);
+}
@@ -0,0 +1,16 @@
+package com.example.api.story.revision.dto;
+
+import java.time.Instant;
+
+/**
+ * 某个版本的完整正文
+ */
+public record ChapterRevisionContentResponse(
+        Long chapterId,
+        int revisionNo,
+        String title,
+        String contentMarkdown,
+        int wordCount,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.api.story.revision.dto;
+
+import java.time.Instant;
+
+/**
+ * 版本列表项（不含正文）
+ */
+public record ChapterRevisionResponse(
+        int revisionNo,
+        boolean snapshot,
+        String title,
+        int wordCount,
+        Long editorId,
+        String editorName,
+        Instant createdAt
+) {
+}
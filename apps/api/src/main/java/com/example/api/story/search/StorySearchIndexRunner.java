@@ -0,0 +1,48 @@
+package com.example.api.story.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * 搜索索引维护：
+ * <ul>
+ *   <li>离线重建：java -jar api.jar --rebuild-search-index，重建完成后退出</li>
+ *   <li>首次部署：索引表为空时在后台重建一次</li>
+ * </ul>
+ */
+@Component
+public class StorySearchIndexRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorySearchIndexRunner.class);
+    private static final String REBUILD_OPTION = "rebuild-search-index";
+
+    private final StorySearchService storySearchService;
+    private final ConfigurableApplicationContext context;
+
+    public StorySearchIndexRunner(StorySearchService storySearchService, ConfigurableApplicationContext context) {
+        this.storySearchService = storySearchService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(REBUILD_OPTION)) {
+            int indexed = storySearchService.rebuildAll();
+            logger.info("Search index rebuild finished ({} stories), exiting", indexed);
+            System.exit(SpringApplication.exit(context, () -> 0));
+            return;
+        }
+        try {
+            if (storySearchService.isIndexEmpty()) {
+                Thread.ofVirtual().name("story-search-rebuild").start(storySearchService::rebuildAll);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to check story search index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.api.story.search;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.api.story.Story;
+import com.example.api.story.StoryChapter;
+import com.example.api.story.StoryChapterRepository;
+import com.example.api.story.StoryRepository;
+
+/**
+ * 小说全文搜索：基于 story_search_terms 倒排表（中文按 bigram 切分），替代 LIKE '%q%' 全表扫描。
+ * <ul>
+ *   <li>检索：所有查询词项都命中的小说，按加权词频之和排序</li>
+ *   <li>同步：小说创建/更新/删除及章节发布变更后，在事务提交后重建该小说的索引行</li>
+ *   <li>重建：{@link #rebuildAll()}，写入新表后原子换表，重建期间检索仍使用旧索引；可通过启动参数 --rebuild-search-index 离线执行</li>
+ * </ul>
+ */
+@Service
+public class StorySearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorySearchService.class);
+
+    /** 单次检索最多返回的候选数量（分页、标签分面都基于这批候选） */
+    public static final int MAX_CANDIDATES = 1000;
+
+    private static final int WEIGHT_TITLE = 10;
+    private static final int WEIGHT_TAG = 6;
+    private static final int WEIGHT_CHAPTER_TITLE = 3;
+    private static final int WEIGHT_SUMMARY = 2;
+    private static final int WEIGHT_CHAPTER_CONTENT = 1;
+    /** 单本小说参与索引的章节正文总字数上限 */
+    private static final int MAX_CHAPTER_CONTENT_CHARS = 20000;
+    private static final int REBUILD_PAGE_SIZE = 100;
+
+    private static final String TABLE = "story_search_terms";
+    private static final String REBUILD_TABLE = "story_search_terms_rebuild";
+    private static final String OLD_TABLE = "story_search_terms_old";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StoryRepository storyRepository;
+    private final StoryChapterRepository storyChapterRepository;
+    private final TransactionTemplate indexTransaction;
+    private final boolean indexChapterContent;
+    /** 重建期间增量索引过的小说，它们写进的是旧表，换表后需要补建 */
+    private final Set<Long> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    public StorySearchService(JdbcTemplate jdbcTemplate,
+                              StoryRepository storyRepository,
+                              StoryChapterRepository storyChapterRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${search.index-chapter-content:false}") boolean indexChapterContent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.storyRepository = storyRepository;
+        this.storyChapterRepository = storyChapterRepository;
+        this.indexTransaction = new TransactionTemplate(transactionManager);
+        this.indexTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.indexChapterContent = indexChapterContent;
+    }
+
+    /**
+     * 检索已发布小说，返回按相关度排序的小说ID（最多 {@link #MAX_CANDIDATES} 个）
+     */
+    public List<Long> search(String query) {
+        return searchAfter(query, null, null, MAX_CANDIDATES).stream().map(Hit::storyId).toList();
+    }
+
+    /**
+     * 按相关度 keyset 分页检索：返回排在 (afterScore, afterId) 之后的最多 limit 条命中；
+     * afterScore 为 null 时从第一条开始。排序为 SUM(weight) DESC, story_id DESC
+     */
+    public List<Hit> searchAfter(String query, Integer afterScore, Long afterId, int limit) {
+        List<String> terms = StorySearchTokenizer.queryTerms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder sql = new StringBuilder("SELECT story_id, SUM(weight) AS score FROM " + TABLE)
+                .append(" WHERE term IN (").append(placeholders(terms.size())).append(") ")
+                .append("GROUP BY story_id HAVING COUNT(*) = ? ");
+        List<Object> args = new ArrayList<>(terms);
+        args.add(terms.size());
+        if (afterScore != null) {
+            sql.append("AND (SUM(weight) < ? OR (SUM(weight) = ? AND story_id < ?)) ");
+            args.add(afterScore);
+            args.add(afterScore);
+            args.add(afterId);
+        }
+        sql.append("ORDER BY score DESC, story_id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> new Hit(rs.getLong("story_id"), rs.getInt("score")), args.toArray());
+    }
+
+    /**
+     * 命中全部查询词项的小说数
+     */
+    public long count(String query) {
+        List<String> terms = StorySearchTokenizer.queryTerms(query);
+        if (terms.isEmpty()) {
+            return 0;
+        }
+        String sql = "SELECT COUNT(*) FROM (SELECT story_id FROM " + TABLE + " WHERE term IN ("
+                + placeholders(terms.size()) + ") GROUP BY story_id HAVING COUNT(*) = ?) hits";
+        List<Object> args = new ArrayList<>(terms);
+        args.add(terms.size());
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    /**
+     * 在当前事务提交后重建该小说的索引（无事务时立即执行）；索引失败不影响业务写入
+     */
+    public void reindexAfterCommit(Long storyId) {
+        if (storyId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reindexQuietly(storyId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reindexQuietly(storyId);
+            }
+        });
+    }
+
+    /**
+     * 重建全部已发布小说的索引：写入新表，完成后 RENAME TABLE 原子换表，重建期间检索不受影响。
+     * 重建期间变更的小说（本机增量索引过的，以及任意节点上 updated_at 晚于开始时间的）在换表后补建
+     */
+    public synchronized int rebuildAll() {
+        long start = System.currentTimeMillis();
+        Instant since = Instant.now();
+        touchedDuringRebuild.clear();
+        rebuilding = true;
+        int indexed = 0;
+        try {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + REBUILD_TABLE);
+            jdbcTemplate.execute("CREATE TABLE " + REBUILD_TABLE + " LIKE " + TABLE);
+            int page = 0;
+            while (true) {
+                List<Long> ids = storyRepository.findPublishedIds(
+                        PageRequest.of(page++, REBUILD_PAGE_SIZE, Sort.by("id")));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                for (Long id : ids) {
+                    reindexQuietly(REBUILD_TABLE, id);
+                    indexed++;
+                }
+            }
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + OLD_TABLE);
+            jdbcTemplate.execute("RENAME TABLE " + TABLE + " TO " + OLD_TABLE + ", " + REBUILD_TABLE + " TO " + TABLE);
+            jdbcTemplate.execute("DROP TABLE " + OLD_TABLE);
+        } finally {
+            rebuilding = false;
+        }
+        Set<Long> catchUp = new LinkedHashSet<>(touchedDuringRebuild);
+        touchedDuringRebuild.clear();
+        catchUp.addAll(storyRepository.findIdsUpdatedSince(since));
+        catchUp.forEach(this::reindexQuietly);
+        logger.info("Rebuilt story search index: {} stories in {}ms, {} re-indexed after swap",
+                indexed, System.currentTimeMillis() - start, catchUp.size());
+        return indexed;
+    }
+
+    /**
+     * 索引是否为空（首次部署时用于判断是否需要重建）
+     */
+    public boolean isIndexEmpty() {
+        return jdbcTemplate.queryForList("SELECT story_id FROM " + TABLE + " LIMIT 1", Long.class).isEmpty();
+    }
+
+    private void reindexQuietly(Long storyId) {
+        if (rebuilding) {
+            touchedDuringRebuild.add(storyId);
+        }
+        reindexQuietly(TABLE, storyId);
+    }
+
+    private void reindexQuietly(String table, Long storyId) {
+        try {
+            indexTransaction.executeWithoutResult(status -> reindex(table, storyId));
+        } catch (Exception e) {
+            logger.warn("Failed to index story {} for search: {}", storyId, e.getMessage());
+        }
+    }
+
+    /**
+     * 一条命中：小说ID与相关度（加权词频之和）
+     */
+    public record Hit(long storyId, int score) {
+    }
+
+    private void reindex(String table, Long storyId) {
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE story_id = ?", storyId);
+        Story story = storyRepository.findByIdAndPublishedTrue(storyId).orElse(null);
+        if (story == null) {
+            return;
+        }
+        Map<String, Integer> terms = new HashMap<>();
+        StorySearchTokenizer.accumulate(story.getTitle(), WEIGHT_TITLE, terms);
+        StorySearchTokenizer.accumulate(story.getStorySummary(), WEIGHT_SUMMARY, terms);
+        if (story.getTags() != null) {
+            for (String tag : story.getTags()) {
+                StorySearchTokenizer.accumulate(tag, WEIGHT_TAG, terms);
+            }
+        }
+        if (indexChapterContent) {
+            int contentBudget = MAX_CHAPTER_CONTENT_CHARS;
+            for (StoryChapter chapter : storyChapterRepository.findByStoryIdAndPublishedTrueOrderBySortOrderAsc(storyId)) {
+                StorySearchTokenizer.accumulate(chapter.getTitle(), WEIGHT_CHAPTER_TITLE, terms);
+                String content = chapter.getContentMarkdown();
+                if (content != null && contentBudget > 0) {
+                    String slice = content.length() > contentBudget ? content.substring(0, contentBudget) : content;
+                    StorySearchTokenizer.accumulate(slice, WEIGHT_CHAPTER_CONTENT, terms);
+                    contentBudget -= slice.length();
+                }
+            }
+        } else {
+            // 只索引章节标题时不加载正文
+            for (String chapterTitle : storyChapterRepository.findPublishedTitlesByStoryId(storyId)) {
+                StorySearchTokenizer.accumulate(chapterTitle, WEIGHT_CHAPTER_TITLE, terms);
+            }
+        }
+        if (terms.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(terms.size());
+        terms.forEach((term, weight) -> rows.add(new Object[] { term, storyId, weight }));
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (term, story_id, weight) VALUES (?, ?, ?)", rows);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.api.story.search;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * 小说搜索倒排索引：每个（词项, 小说）一行，weight 为按字段加权后的词频。
+ * 只索引已发布的小说；读写通过 {@link StorySearchService} 批量 JDBC 完成，实体仅用于描述表结构。
+ */
+@Entity
+@IdClass(StorySearchTerm.Key.class)
+@Table(
+        name = "story_search_terms",
+        indexes = {
+                @Index(name = "idx_story_search_terms_term", columnList = "term, story_id"),
+                @Index(name = "idx_story_search_terms_story", columnList = "story_id")
+        }
+)
+public class StorySearchTerm {
+
+    @Id
+    @Column(name = "term", nullable = false, length = StorySearchTokenizer.MAX_TERM_LENGTH)
+    private String term;
+
+    @Id
+    @Column(name = "story_id", nullable = false)
+    private Long storyId;
+
+    @Column(name = "weight", nullable = false)
+    private int weight;
+
+    protected StorySearchTerm() {
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public Long getStoryId() {
+        return storyId;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public static class Key implements Serializable {
+
+        private String term;
+        private Long storyId;
+
+        public Key() {
+        }
+
+        public Key(String term, Long storyId) {
+            this.term = term;
+            this.storyId = storyId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(term, key.term) && Objects.equals(storyId, key.storyId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(term, storyId);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.api.story.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 搜索分词：中日韩文字按单字 + 相邻双字（bigram）切分，其他字母数字按单词切分。
+ * <ul>
+ *   <li>索引：中文同时写入单字和双字；英文单词写入整词及 1~20 字符的前缀（支持前缀匹配，含单个字母）</li>
+ *   <li>查询：中文只有一个字时用单字，否则用双字；英文用整词，超过 20 字符时截为 20 字符的前缀
+ *       （长词只索引到 20 字符的前缀，查询不能比索引更长）</li>
+ * </ul>
+ * 文本先做 NFKC 规范化（全角转半角）并转小写。按码点切分，扩展区汉字等代理对字符算作一个字。
+ */
+public final class StorySearchTokenizer {
+
+    /** 词项最大长度，与 story_search_terms.term 列长度一致 */
+    public static final int MAX_TERM_LENGTH = 32;
+    /** 英文前缀索引的最大长度，也是英文查询词项的最大长度 */
+    static final int MAX_PREFIX_LENGTH = 20;
+    /** 单次查询最多使用的词项数 */
+    public static final int MAX_QUERY_TERMS = 32;
+
+    private StorySearchTokenizer() {
+    }
+
+    /**
+     * 将文本的索引词项按权重累加到 terms 中
+     */
+    public static void accumulate(String text, int weight, Map<String, Integer> terms) {
+        for (Run run : split(text)) {
+            int[] cps = run.codePoints();
+            if (run.cjk()) {
+                for (int i = 0; i < cps.length; i++) {
+                    terms.merge(gram(cps, i, 1), weight, Integer::sum);
+                    if (i + 1 < cps.length) {
+                        terms.merge(gram(cps, i, 2), weight, Integer::sum);
+                    }
+                }
+            } else {
+                int prefixEnd = Math.min(cps.length - 1, MAX_PREFIX_LENGTH);
+                for (int end = 1; end <= prefixEnd; end++) {
+                    terms.merge(gram(cps, 0, end), weight, Integer::sum);
+                }
+                terms.merge(gram(cps, 0, Math.min(cps.length, MAX_TERM_LENGTH)), weight, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * 查询词项（去重，保持顺序）
+     */
+    public static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (Run run : split(query)) {
+            int[] cps = run.codePoints();
+            if (run.cjk()) {
+                if (cps.length == 1) {
+                    terms.add(gram(cps, 0, 1));
+                }
+                for (int i = 0; i + 1 < cps.length; i++) {
+                    terms.add(gram(cps, i, 2));
+                }
+            } else {
+                terms.add(gram(cps, 0, Math.min(cps.length, MAX_PREFIX_LENGTH)));
+            }
+        }
+        List<String> result = new ArrayList<>(terms);
+        return result.size() > MAX_QUERY_TERMS ? result.subList(0, MAX_QUERY_TERMS) : result;
+    }
+
+    /** 从 start 开始的 length 个码点（term 列按字符计长度，与码点一致） */
+    private static String gram(int[] cps, int start, int length) {
+        return new String(cps, start, length);
+    }
+
+    private static List<Run> split(String text) {
+        List<Run> runs = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return runs;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder current = new StringBuilder();
+        boolean currentCjk = false;
+        int i = 0;
+        while (i < normalized.length()) {
+            int cp = normalized.codePointAt(i);
+            i += Character.charCount(cp);
+            boolean cjk = isCjk(cp);
+            if (!cjk && !Character.isLetterOrDigit(cp)) {
+                flush(current, currentCjk, runs);
+                continue;
+            }
+            if (current.length() > 0 && cjk != currentCjk) {
+                flush(current, currentCjk, runs);
+            }
+            currentCjk = cjk;
+            current.appendCodePoint(cp);
+        }
+        flush(current, currentCjk, runs);
+        return runs;
+    }
+
+    private static void flush(StringBuilder current, boolean cjk, List<Run> runs) {
+        if (current.length() > 0) {
+            runs.add(new Run(current.codePoints().toArray(), cjk));
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private record Run(int[] codePoints, boolean cjk) {
+    }
+}
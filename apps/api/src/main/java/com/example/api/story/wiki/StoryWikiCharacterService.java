@@ -3,8 +3,10 @@ package com.example.api.story.wiki;
 import com.example.api.common.ApiException;
 import com.example.api.story.Story;
 import com.example.api.story.StoryRepository;
+import com.example.api.story.knowledge.StoryKnowledgeChangedEvent;
 import com.example.api.story.wiki.dto.StoryWikiCharacterCreateRequest;
 import com.example.api.story.wiki.dto.StoryWikiCharacterResponse;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,10 +19,13 @@ public class StoryWikiCharacterService {
 
     private final StoryWikiCharacterRepository repository;
     private final StoryRepository storyRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public StoryWikiCharacterService(StoryWikiCharacterRepository repository, StoryRepository storyRepository) {
+    public StoryWikiCharacterService(StoryWikiCharacterRepository repository, StoryRepository storyRepository,
+                 ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
         this.storyRepository = storyRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -66,6 +71,7 @@ public class StoryWikiCharacterService {
         character.setContentMarkdown(request.contentMarkdown());
         character.setSortOrder(request.sortOrder() != null ? request.sortOrder() : 0);
 
+        eventPublisher.publishEvent(new StoryKnowledgeChangedEvent(storyId));
         return toResponse(repository.save(character));
     }
 
@@ -77,6 +83,7 @@ public class StoryWikiCharacterService {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限删除此角色");
         }
         repository.delete(character);
+        eventPublisher.publishEvent(new StoryKnowledgeChangedEvent(storyId));
     }
 
     private StoryWikiCharacterResponse toResponse(StoryWikiCharacter character) {
@@ -1,8 +1,10 @@
 package com.example.api.story.wiki;
 
 import com.example.api.common.ApiException;
+import com.example.api.common.ResourceVersion;
 import com.example.api.story.Story;
 import com.example.api.story.StoryRepository;
+import com.example.api.story.knowledge.StoryKnowledgeBundle;
 import com.example.api.story.wiki.dto.*;
 import com.example.api.user.User;
 import com.example.api.user.UserRepository;
@@ -11,6 +13,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -30,6 +33,25 @@ public class StoryWikiController {
         this.userRepository = userRepository;
     }
 
+    // ========== 知识包 ==========
+
+    /**
+     * Wiki 页面、角色档案、时间线与设定（角色、专有名词、README）一次返回，版本未变时 304；
+     * 设定仅作者可见，因此只对作者开放
+     */
+    @GetMapping("/bundle")
+    public StoryKnowledgeBundle getBundle(@PathVariable Long storyId,
+                                          @AuthenticationPrincipal UserDetails userDetails,
+                                          ServletWebRequest request) {
+        checkAuthorPermission(storyId, userDetails);
+        StoryKnowledgeBundle bundle = wikiService.getBundle(storyId);
+        ResourceVersion version = wikiService.getBundleVersion(bundle);
+        if (version != null && version.notModified(request, ResourceVersion.PRIVATE)) {
+            return null;
+        }
+        return bundle;
+    }
+
     // ========== Wiki 页面 ==========
 
     @GetMapping("/pages")
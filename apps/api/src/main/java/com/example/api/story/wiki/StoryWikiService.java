@@ -1,16 +1,24 @@
 package com.example.api.story.wiki;
 
 import com.example.api.common.ApiException;
+import com.example.api.common.ResourceVersion;
 import com.example.api.story.Story;
 import com.example.api.story.StoryRepository;
+import com.example.api.story.knowledge.StoryKnowledgeBundle;
+import com.example.api.story.knowledge.StoryKnowledgeCache;
+import com.example.api.story.knowledge.StoryKnowledgeChangedEvent;
 import com.example.api.story.wiki.dto.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Wiki 页面、角色档案、时间线的读写。读取走 {@link StoryKnowledgeCache} 的知识包，写入后发布
+ * {@link StoryKnowledgeChangedEvent} 失效缓存。
+ */
 @Service
 public class StoryWikiService {
 
@@ -18,31 +26,53 @@ public class StoryWikiService {
     private final StoryWikiCharacterRepository characterRepository;
     private final StoryWikiTimelineEventRepository timelineEventRepository;
     private final StoryRepository storyRepository;
+    private final StoryKnowledgeCache knowledgeCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public StoryWikiService(StoryWikiPageRepository pageRepository,
                            StoryWikiCharacterRepository characterRepository,
                            StoryWikiTimelineEventRepository timelineEventRepository,
-                           StoryRepository storyRepository) {
+                           StoryRepository storyRepository,
+                           StoryKnowledgeCache knowledgeCache,
+                           ApplicationEventPublisher eventPublisher) {
         this.pageRepository = pageRepository;
         this.characterRepository = characterRepository;
         this.timelineEventRepository = timelineEventRepository;
         this.storyRepository = storyRepository;
+        this.knowledgeCache = knowledgeCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 整本小说的知识包（Wiki + 设定），供界面一次取全
+     */
+    public StoryKnowledgeBundle getBundle(Long storyId) {
+        return knowledgeCache.get(storyId);
+    }
+
+    /**
+     * 知识包版本，取自返回的这份知识包本身（本机缓存可能略旧于 Redis 版本号，ETag 须与正文一致）；
+     * Redis 不可用时知识包没有版本号，返回 null，不做条件请求
+     */
+    public ResourceVersion getBundleVersion(StoryKnowledgeBundle bundle) {
+        return bundle.version() >= 0 ? ResourceVersion.of(null, "knowledge", bundle.storyId(), bundle.version()) : null;
+    }
+
+    private void knowledgeChanged(Long storyId) {
+        eventPublisher.publishEvent(new StoryKnowledgeChangedEvent(storyId));
     }
 
     // ========== Wiki 页面 ==========
 
-    @Transactional(readOnly = true)
     public List<WikiPageResponse> getPages(Long storyId) {
-        return pageRepository.findByStoryIdOrderBySortOrderAsc(storyId).stream()
-                .map(WikiPageResponse::fromEntity)
-                .collect(Collectors.toList());
+        return knowledgeCache.get(storyId).pages();
     }
 
-    @Transactional(readOnly = true)
     public WikiPageResponse getPage(Long storyId, String slug) {
-        StoryWikiPage page = pageRepository.findByStoryIdAndSlug(storyId, slug)
+        return knowledgeCache.get(storyId).pages().stream()
+                .filter(page -> slug.equals(page.slug()))
+                .findFirst()
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Wiki页面不存在"));
-        return WikiPageResponse.fromEntity(page);
     }
 
     @Transactional
@@ -60,6 +90,7 @@ public class StoryWikiService {
         page.setCategory(category);
         page.setSortOrder(sortOrder != null ? sortOrder : 0);
 
+        knowledgeChanged(storyId);
         return WikiPageResponse.fromEntity(pageRepository.save(page));
     }
 
@@ -74,28 +105,27 @@ public class StoryWikiService {
         if (category != null) page.setCategory(category);
         if (sortOrder != null) page.setSortOrder(sortOrder);
 
+        knowledgeChanged(storyId);
         return WikiPageResponse.fromEntity(pageRepository.save(page));
     }
 
     @Transactional
     public void deletePage(Long storyId, String slug) {
         pageRepository.deleteByStoryIdAndSlug(storyId, slug);
+        knowledgeChanged(storyId);
     }
 
     // ========== 角色档案 ==========
 
-    @Transactional(readOnly = true)
     public List<WikiCharacterResponse> getCharacters(Long storyId) {
-        return characterRepository.findByStoryIdOrderBySortOrderAsc(storyId).stream()
-                .map(WikiCharacterResponse::fromEntity)
-                .collect(Collectors.toList());
+        return knowledgeCache.get(storyId).wikiCharacters();
     }
 
-    @Transactional(readOnly = true)
     public WikiCharacterResponse getCharacter(Long storyId, String name) {
-        StoryWikiCharacter character = characterRepository.findByStoryIdAndName(storyId, name)
+        return knowledgeCache.get(storyId).wikiCharacters().stream()
+                .filter(character -> name.equals(character.name()))
+                .findFirst()
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "角色不存在"));
-        return WikiCharacterResponse.fromEntity(character);
     }
 
     @Transactional
@@ -125,6 +155,7 @@ public class StoryWikiService {
         character.setContentMarkdown(contentMarkdown);
         character.setSortOrder(sortOrder != null ? sortOrder : 0);
 
+        knowledgeChanged(storyId);
         return WikiCharacterResponse.fromEntity(characterRepository.save(character));
     }
 
@@ -150,6 +181,7 @@ public class StoryWikiService {
         if (contentMarkdown != null) character.setContentMarkdown(contentMarkdown);
         if (sortOrder != null) character.setSortOrder(sortOrder);
 
+        knowledgeChanged(storyId);
         return WikiCharacterResponse.fromEntity(characterRepository.save(character));
     }
 
@@ -158,15 +190,13 @@ public class StoryWikiService {
         StoryWikiCharacter character = characterRepository.findByStoryIdAndName(storyId, name)
                 .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "角色不存在"));
         characterRepository.delete(character);
+        knowledgeChanged(storyId);
     }
 
     // ========== 时间线事件 ==========
 
-    @Transactional(readOnly = true)
     public List<WikiTimelineEventResponse> getTimelineEvents(Long storyId) {
-        return timelineEventRepository.findByStoryIdOrderBySortOrderAsc(storyId).stream()
-                .map(WikiTimelineEventResponse::fromEntity)
-                .collect(Collectors.toList());
+        return knowledgeCache.get(storyId).timelineEvents();
     }
 
     @Transactional
@@ -182,6 +212,7 @@ public class StoryWikiService {
         event.setRelatedCharacters(relatedCharacters);
         event.setSortOrder(sortOrder != null ? sortOrder : 0);
 
+        knowledgeChanged(storyId);
         return WikiTimelineEventResponse.fromEntity(timelineEventRepository.save(event));
     }
 
@@ -199,11 +230,15 @@ public class StoryWikiService {
         if (relatedCharacters != null) event.setRelatedCharacters(relatedCharacters);
         if (sortOrder != null) event.setSortOrder(sortOrder);
 
+        knowledgeChanged(event.getStory().getId());
         return WikiTimelineEventResponse.fromEntity(timelineEventRepository.save(event));
     }
 
     @Transactional
     public void deleteTimelineEvent(Long eventId) {
-        timelineEventRepository.deleteById(eventId);
+        timelineEventRepository.findById(eventId).ifPresent(event -> {
+            timelineEventRepository.delete(event);
+            knowledgeChanged(event.getStory().getId());
+        });
     }
 }
@@ -3,8 +3,10 @@ package com.example.api.story.wiki;
 import com.example.api.common.ApiException;
 import com.example.api.story.Story;
 import com.example.api.story.StoryRepository;
+import com.example.api.story.knowledge.StoryKnowledgeChangedEvent;
 import com.example.api.story.wiki.dto.StoryWikiTimelineEventCreateRequest;
 import com.example.api.story.wiki.dto.StoryWikiTimelineEventResponse;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,10 +19,13 @@ public class StoryWikiTimelineEventService {
 
     private final StoryWikiTimelineEventRepository repository;
     private final StoryRepository storyRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public StoryWikiTimelineEventService(StoryWikiTimelineEventRepository repository, StoryRepository storyRepository) {
+    public StoryWikiTimelineEventService(StoryWikiTimelineEventRepository repository, StoryRepository storyRepository,
+                 ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
         this.storyRepository = storyRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -48,6 +53,7 @@ public class StoryWikiTimelineEventService {
         event.setRelatedCharacters(request.relatedCharacters());
         event.setSortOrder(request.sortOrder() != null ? request.sortOrder() : 0);
 
+        eventPublisher.publishEvent(new StoryKnowledgeChangedEvent(storyId));
         return toResponse(repository.save(event));
     }
 
@@ -59,6 +65,7 @@ public class StoryWikiTimelineEventService {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限删除此事件");
         }
         repository.delete(event);
+        eventPublisher.publishEvent(new StoryKnowledgeChangedEvent(storyId));
     }
 
     private StoryWikiTimelineEventResponse toResponse(StoryWikiTimelineEvent event) {
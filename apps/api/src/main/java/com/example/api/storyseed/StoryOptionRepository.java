@@ -3,8 +3,18 @@ package com.example.api.storyseed;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface StoryOptionRepository extends JpaRepository<StoryOption, Long> {
 
     List<StoryOption> findByBranchPoint_IdOrderBySortOrderAsc(Long branchPointId);
+
+    /**
+     * 原子增加选项被选择次数（StoryCounterBuffer 批量落库）
+     */
+    @Modifying
+    @Query("UPDATE StoryOption o SET o.selectionCount = o.selectionCount + :delta WHERE o.id = :optionId")
+    void addSelectionCount(@Param("optionId") Long optionId, @Param("delta") int delta);
 }
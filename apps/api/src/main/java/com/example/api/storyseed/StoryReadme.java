@@ -1,9 +1,11 @@
 package com.example.api.storyseed;
 
 import com.example.api.common.BaseEntity;
+import com.example.api.common.CompressedTextConverter;
 import com.example.api.story.Story;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Index;
@@ -28,7 +30,9 @@ public class StoryReadme extends BaseEntity {
     @JoinColumn(name = "story_id")
     private Story story;
 
-    @Column(columnDefinition = "LONGTEXT")
+    /** 压缩存储（见 {@link CompressedTextConverter}） */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "LONGBLOB")
     private String contentMarkdown;
 
     protected StoryReadme() {
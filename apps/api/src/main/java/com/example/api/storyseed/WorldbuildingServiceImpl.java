@@ -2,6 +2,7 @@ package com.example.api.storyseed;
 
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -9,6 +10,8 @@ import org.springframework.transaction.annotation.Transactional;
 import com.example.api.common.ApiException;
 import com.example.api.story.Story;
 import com.example.api.story.StoryRepository;
+import com.example.api.story.knowledge.StoryKnowledgeCache;
+import com.example.api.story.knowledge.StoryKnowledgeChangedEvent;
 import com.example.api.storyseed.dto.StoryCharacterCreateRequest;
 import com.example.api.storyseed.dto.StoryCharacterResponse;
 import com.example.api.storyseed.dto.StoryCharacterUpdateRequest;
@@ -17,6 +20,10 @@ import com.example.api.storyseed.dto.StoryTermCreateRequest;
 import com.example.api.storyseed.dto.StoryTermResponse;
 import com.example.api.storyseed.dto.StoryTermUpdateRequest;
 
+/**
+ * 作者维护的设定（角色、专有名词、README）。列表与 README 读取走 {@link StoryKnowledgeCache} 的知识包，
+ * 写入后发布 {@link StoryKnowledgeChangedEvent} 失效缓存。
+ */
 @Service
 public class WorldbuildingServiceImpl implements WorldbuildingService {
 
@@ -24,15 +31,25 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
     private final StoryCharacterRepository storyCharacterRepository;
     private final StoryTermRepository storyTermRepository;
     private final StoryReadmeRepository storyReadmeRepository;
+    private final StoryKnowledgeCache knowledgeCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public WorldbuildingServiceImpl(StoryRepository storyRepository,
             StoryCharacterRepository storyCharacterRepository,
             StoryTermRepository storyTermRepository,
-            StoryReadmeRepository storyReadmeRepository) {
+            StoryReadmeRepository storyReadmeRepository,
+            StoryKnowledgeCache knowledgeCache,
+            ApplicationEventPublisher eventPublisher) {
         this.storyRepository = storyRepository;
         this.storyCharacterRepository = storyCharacterRepository;
         this.storyTermRepository = storyTermRepository;
         this.storyReadmeRepository = storyReadmeRepository;
+        this.knowledgeCache = knowledgeCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    private void knowledgeChanged(Long storyId) {
+        eventPublisher.publishEvent(new StoryKnowledgeChangedEvent(storyId));
     }
 
     private void ensureAuthor(String username, Long storyId) {
@@ -47,9 +64,7 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
     @Transactional(readOnly = true)
     public List<StoryCharacterResponse> listCharacters(String username, Long storyId) {
         ensureAuthor(username, storyId);
-        return storyCharacterRepository.findByStory_IdOrderBySortOrderAsc(storyId).stream()
-                .map(this::toCharacterResponse)
-                .toList();
+        return knowledgeCache.get(storyId).characters();
     }
 
     @Override
@@ -63,7 +78,8 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
         StoryCharacter c = new StoryCharacter(story, request.name(), request.sortOrder());
         c.setDescription(request.description() != null ? request.description().trim() : null);
         StoryCharacter saved = storyCharacterRepository.save(c);
-        return toCharacterResponse(saved);
+        knowledgeChanged(storyId);
+        return StoryCharacterResponse.fromEntity(saved);
     }
 
     @Override
@@ -80,7 +96,8 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
         c.setName(request.name());
         c.setDescription(request.description() != null ? request.description().trim() : null);
         c.setSortOrder(request.sortOrder());
-        return toCharacterResponse(c);
+        knowledgeChanged(storyId);
+        return StoryCharacterResponse.fromEntity(c);
     }
 
     @Override
@@ -95,15 +112,14 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
         storyCharacterRepository.delete(c);
+        knowledgeChanged(storyId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<StoryTermResponse> listTerms(String username, Long storyId) {
         ensureAuthor(username, storyId);
-        return storyTermRepository.findByStory_IdOrderBySortOrderAsc(storyId).stream()
-                .map(this::toTermResponse)
-                .toList();
+        return knowledgeCache.get(storyId).terms();
     }
 
     @Override
@@ -117,7 +133,8 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
         StoryTerm t = new StoryTerm(story, request.termType(), request.name(), request.sortOrder());
         t.setDefinition(request.definition() != null ? request.definition().trim() : null);
         StoryTerm saved = storyTermRepository.save(t);
-        return toTermResponse(saved);
+        knowledgeChanged(storyId);
+        return StoryTermResponse.fromEntity(saved);
     }
 
     @Override
@@ -135,7 +152,8 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
         t.setName(request.name());
         t.setDefinition(request.definition() != null ? request.definition().trim() : null);
         t.setSortOrder(request.sortOrder());
-        return toTermResponse(t);
+        knowledgeChanged(storyId);
+        return StoryTermResponse.fromEntity(t);
     }
 
     @Override
@@ -150,15 +168,14 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
             throw new ApiException(HttpStatus.FORBIDDEN, "无权限");
         }
         storyTermRepository.delete(t);
+        knowledgeChanged(storyId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public String getReadme(String username, Long storyId) {
         ensureAuthor(username, storyId);
-        return storyReadmeRepository.findByStory_Id(storyId)
-                .map(StoryReadme::getContentMarkdown)
-                .orElse("");
+        return knowledgeCache.get(storyId).readme();
     }
 
     @Override
@@ -176,25 +193,7 @@ public class WorldbuildingServiceImpl implements WorldbuildingService {
                 });
         readme.setContentMarkdown(request.contentMarkdown() != null ? request.contentMarkdown() : "");
         storyReadmeRepository.save(readme);
+        knowledgeChanged(storyId);
         return readme.getContentMarkdown();
     }
-
-    private StoryCharacterResponse toCharacterResponse(StoryCharacter c) {
-        return new StoryCharacterResponse(
-                c.getId(),
-                c.getStory() != null ? c.getStory().getId() : null,
-                c.getName(),
-                c.getDescription(),
-                c.getSortOrder());
-    }
-
-    private StoryTermResponse toTermResponse(StoryTerm t) {
-        return new StoryTermResponse(
-                t.getId(),
-                t.getStory() != null ? t.getStory().getId() : null,
-                t.getTermType(),
-                t.getName(),
-                t.getDefinition(),
-                t.getSortOrder());
-    }
 }
@@ -1,5 +1,7 @@
 package com.example.api.storyseed.dto;
 
+import com.example.api.storyseed.StoryCharacter;
+
 public record StoryCharacterResponse(
         Long id,
         Long storySeedId,
@@ -7,4 +9,12 @@ public record StoryCharacterResponse(
         String description,
         int sortOrder
 ) {
+    public static StoryCharacterResponse fromEntity(StoryCharacter c) {
+        return new StoryCharacterResponse(
+                c.getId(),
+                c.getStory() != null ? c.getStory().getId() : null,
+                c.getName(),
+                c.getDescription(),
+                c.getSortOrder());
+    }
 }
@@ -1,5 +1,7 @@
 package com.example.api.storyseed.dto;
 
+import com.example.api.storyseed.StoryTerm;
+
 public record StoryTermResponse(
         Long id,
         Long storySeedId,
@@ -8,4 +10,13 @@ public record StoryTermResponse(
         String definition,
         int sortOrder
 ) {
+    public static StoryTermResponse fromEntity(StoryTerm t) {
+        return new StoryTermResponse(
+                t.getId(),
+                t.getStory() != null ? t.getStory().getId() : null,
+                t.getTermType(),
+                t.getName(),
+                t.getDefinition(),
+                t.getSortOrder());
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.api.tag;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * 标签 → 小说关联（按规范化标签去重），主键 (tag_id, story_id) 即按标签查小说的索引。
+ * 与 story_tags（小说上的展示标签）同步写入，读写通过 {@link TagServiceImpl} 的 JDBC 完成。
+ */
+@Entity
+@IdClass(StoryTagLink.Key.class)
+@Table(
+        name = "story_tag_links",
+        indexes = @Index(name = "idx_story_tag_links_story", columnList = "story_id"))
+public class StoryTagLink {
+
+    @Id
+    @Column(name = "tag_id", nullable = false)
+    private Long tagId;
+
+    @Id
+    @Column(name = "story_id", nullable = false)
+    private Long storyId;
+
+    protected StoryTagLink() {
+    }
+
+    public Long getTagId() {
+        return tagId;
+    }
+
+    public Long getStoryId() {
+        return storyId;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long tagId;
+        private Long storyId;
+
+        public Key() {
+        }
+
+        public Key(Long tagId, Long storyId) {
+            this.tagId = tagId;
+            this.storyId = storyId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(tagId, key.tagId) && Objects.equals(storyId, key.storyId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tagId, storyId);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.api.tag;
+
+import com.example.api.common.BaseEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * 标签字典：name_key 为规范化（NFKC、去空白、小写）后的唯一键，name 为首次出现时的展示名。
+ * story_count 为使用该标签的已发布小说数，由 {@link TagService#syncStoryTags} 按增量维护，标签云直接读取。
+ */
+@Entity
+@Table(
+        name = "tags",
+        indexes = {
+                @Index(name = "uk_tags_name_key", columnList = "name_key", unique = true),
+                @Index(name = "idx_tags_story_count", columnList = "story_count")
+        })
+public class Tag extends BaseEntity {
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(name = "name_key", nullable = false, length = 100)
+    private String nameKey;
+
+    @Column(name = "story_count", nullable = false)
+    private long storyCount = 0;
+
+    protected Tag() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNameKey() {
+        return nameKey;
+    }
+
+    public long getStoryCount() {
+        return storyCount;
+    }
+}
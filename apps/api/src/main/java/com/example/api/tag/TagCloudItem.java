@@ -0,0 +1,7 @@
+package com.example.api.tag;
+
+/**
+ * 标签云条目：level 为 1～5 的字号档位（按使用次数对数缩放）
+ */
+public record TagCloudItem(String name, long count, int level) {
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -20,4 +21,12 @@ public class TagController {
     public List<TagResponse> list() {
         return tagService.listAllWithCount();
     }
+
+    /**
+     * 标签云（使用次数最多的标签，按名称排序）
+     */
+    @GetMapping("/cloud")
+    public List<TagCloudItem> cloud(@RequestParam(defaultValue = "50") int limit) {
+        return tagService.cloud(limit);
+    }
 }
@@ -0,0 +1,92 @@
+package com.example.api.tag;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.api.story.cache.StoryChangedEvent;
+
+/**
+ * 标签关联回填（V28 建表后的历史数据）：规范化键必须与 {@link TagServiceImpl#canonicalKey} 一致（含 NFKC），
+ * SQL 的 LOWER(TRIM()) 做不到，因此在启动时由应用逐本调用 {@link TagService#syncStoryTags} 回填：
+ * <ul>
+ *   <li>有 story_tags 但没有任何 story_tag_links 的小说</li>
+ *   <li>关联到规范化键与应用侧不一致的标签的小说（早期按 SQL 规则回填的数据），重新同步后旧标签使用次数归零、不再展示</li>
+ * </ul>
+ * 两类都为空时只有两次查询，之后的启动几乎没有开销。
+ */
+@Component
+public class TagLinkBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagLinkBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TagService tagService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TagLinkBackfill(JdbcTemplate jdbcTemplate, TagService tagService, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tagService = tagService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread.ofVirtual().name("tag-link-backfill").start(this::backfill);
+    }
+
+    void backfill() {
+        try {
+            Set<Long> storyIds = new LinkedHashSet<>(jdbcTemplate.queryForList(
+                    "SELECT DISTINCT st.story_id FROM story_tags st "
+                            + "WHERE NOT EXISTS (SELECT 1 FROM story_tag_links l WHERE l.story_id = st.story_id)",
+                    Long.class));
+            storyIds.addAll(storiesWithStaleKeys());
+            if (storyIds.isEmpty()) {
+                return;
+            }
+            int synced = 0;
+            for (Long storyId : storyIds) {
+                try {
+                    List<String> tags = jdbcTemplate.queryForList(
+                            "SELECT tag FROM story_tags WHERE story_id = ?", String.class, storyId);
+                    boolean published = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                            "SELECT published FROM stories WHERE id = ?", Boolean.class, storyId));
+                    tagService.syncStoryTags(storyId, tags, published, published);
+                    synced++;
+                } catch (Exception e) {
+                    logger.warn("Failed to backfill tag links of story {}: {}", storyId, e.getMessage());
+                }
+            }
+            // 标签云、按标签列表的缓存随列表版本失效
+            eventPublisher.publishEvent(new StoryChangedEvent(null, null, true));
+            logger.info("Backfilled tag links for {} stories", synced);
+        } catch (Exception e) {
+            logger.warn("Tag link backfill skipped: {}", e.getMessage());
+        }
+    }
+
+    private List<Long> storiesWithStaleKeys() {
+        List<Long> staleTagIds = jdbcTemplate.query("SELECT id, name, name_key FROM tags WHERE story_count > 0",
+                (rs, rowNum) -> TagServiceImpl.canonicalKey(rs.getString("name")).equals(rs.getString("name_key"))
+                        ? null : rs.getLong("id"))
+                .stream()
+                .filter(id -> id != null)
+                .toList();
+        if (staleTagIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(staleTagIds.size(), "?"));
+        return jdbcTemplate.queryForList("SELECT DISTINCT story_id FROM story_tag_links WHERE tag_id IN (" + placeholders + ")",
+                Long.class, staleTagIds.toArray());
+    }
+}
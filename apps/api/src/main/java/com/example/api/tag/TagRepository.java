@@ -0,0 +1,26 @@
+package com.example.api.tag;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface TagRepository extends JpaRepository<Tag, Long> {
+
+    Optional<Tag> findByNameKey(String nameKey);
+
+    /**
+     * 被已发布小说使用的标签，按使用次数降序
+     */
+    List<Tag> findByStoryCountGreaterThanOrderByStoryCountDescNameAsc(long minCount);
+
+    /**
+     * 标签前缀匹配（搜索建议，prefix 为规范化后的键，%、_、! 需以 ! 转义）
+     */
+    @Query("SELECT t.name FROM Tag t WHERE t.storyCount > 0 AND t.nameKey LIKE CONCAT(:prefix, '%') ESCAPE '!' " +
+           "ORDER BY t.storyCount DESC")
+    List<String> suggestNames(@Param("prefix") String prefix, Pageable pageable);
+}
@@ -5,4 +5,23 @@ import java.util.List;
 public interface TagService {
 
     List<TagResponse> listAllWithCount();
+
+    /**
+     * 标签云：使用次数最多的 limit 个标签及字号档位
+     */
+    List<TagCloudItem> cloud(int limit);
+
+    /**
+     * 已发布小说使用的全部标签名
+     */
+    List<String> listNames();
+
+    /**
+     * 同步小说的标签关联并按增量更新受影响标签的使用次数（只计已发布小说）；需在小说写入（并 flush）后、同一事务内调用。
+     * 小说已删除时传空列表、published 传 false。
+     *
+     * @param wasPublished 上次同步时小说是否已发布（决定旧关联是否已计入使用次数）
+     * @param published    小说当前是否已发布
+     */
+    void syncStoryTags(Long storyId, List<String> tags, boolean wasPublished, boolean published);
 }
@@ -1,27 +1,142 @@
 package com.example.api.tag;
 
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.example.api.story.StoryRepository;
+import com.example.api.story.cache.StoryCache;
 
 @Service
 public class TagServiceImpl implements TagService {
 
-    private final StoryRepository storyRepository;
+    private static final int MAX_CLOUD_SIZE = 200;
+    private static final int CLOUD_LEVELS = 5;
 
-    public TagServiceImpl(StoryRepository storyRepository) {
-        this.storyRepository = storyRepository;
+    private final TagRepository tagRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StoryCache storyCache;
+
+    public TagServiceImpl(TagRepository tagRepository, JdbcTemplate jdbcTemplate, StoryCache storyCache) {
+        this.tagRepository = tagRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.storyCache = storyCache;
+    }
+
+    /**
+     * 标签规范化键：NFKC、去首尾空白、小写（大小写、全半角不同的标签视为同一个）
+     */
+    public static String canonicalKey(String tag) {
+        if (tag == null) {
+            return "";
+        }
+        return Normalizer.normalize(tag, Normalizer.Form.NFKC).trim().toLowerCase(Locale.ROOT);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<TagResponse> listAllWithCount() {
-        List<Object[]> rows = storyRepository.findAllTagCounts();
-        return rows.stream()
-                .map(row -> new TagResponse((String) row[0], ((Number) row[1]).longValue()))
+        // 使用次数已预计算在 tags.story_count，无需 GROUP BY；结果随列表缓存版本失效
+        return storyCache.getTagCounts(() -> tagRepository.findByStoryCountGreaterThanOrderByStoryCountDescNameAsc(0).stream()
+                .map(tag -> new TagResponse(tag.getName(), tag.getStoryCount()))
+                .toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TagCloudItem> cloud(int limit) {
+        List<TagResponse> tags = listAllWithCount();
+        List<TagResponse> top = tags.subList(0, Math.min(tags.size(), Math.max(1, Math.min(limit, MAX_CLOUD_SIZE))));
+        if (top.isEmpty()) {
+            return List.of();
+        }
+        double max = Math.log1p(top.get(0).count());
+        double min = Math.log1p(top.get(top.size() - 1).count());
+        List<TagCloudItem> cloud = new ArrayList<>(top.size());
+        for (TagResponse tag : top) {
+            int level = max > min
+                    ? 1 + (int) Math.round((Math.log1p(tag.count()) - min) / (max - min) * (CLOUD_LEVELS - 1))
+                    : CLOUD_LEVELS;
+            cloud.add(new TagCloudItem(tag.name(), tag.count(), level));
+        }
+        cloud.sort((a, b) -> a.name().compareTo(b.name()));
+        return cloud;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> listNames() {
+        return listAllWithCount().stream().map(TagResponse::name).sorted().toList();
+    }
+
+    @Override
+    @Transactional
+    public void syncStoryTags(Long storyId, List<String> tags, boolean wasPublished, boolean published) {
+        Set<Long> previous = new TreeSet<>(jdbcTemplate.queryForList(
+                "SELECT tag_id FROM story_tag_links WHERE story_id = ?", Long.class, storyId));
+
+        // 按规范化键排序创建标签，并发同步时加锁顺序一致
+        Map<String, String> byKey = new TreeMap<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                String key = canonicalKey(tag);
+                if (!key.isEmpty()) {
+                    byKey.putIfAbsent(key, tag.trim());
+                }
+            }
+        }
+        Set<Long> current = new TreeSet<>();
+        byKey.forEach((key, name) -> current.add(resolveTagId(key, name)));
+
+        // 只删除/插入有变化的关联
+        List<Long> removed = previous.stream().filter(id -> !current.contains(id)).toList();
+        List<Object[]> added = current.stream()
+                .filter(id -> !previous.contains(id))
+                .map(id -> new Object[] { id, storyId })
                 .toList();
+        if (!removed.isEmpty()) {
+            String placeholders = String.join(",", Collections.nCopies(removed.size(), "?"));
+            List<Object> args = new ArrayList<>(removed.size() + 1);
+            args.add(storyId);
+            args.addAll(removed);
+            jdbcTemplate.update("DELETE FROM story_tag_links WHERE story_id = ? AND tag_id IN (" + placeholders + ")",
+                    args.toArray());
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO story_tag_links (tag_id, story_id) VALUES (?, ?)", added);
+        }
+
+        // 使用次数按增量更新：只计已发布小说，旧计入集合与新计入集合的差即为各标签的 ±1。
+        // 按标签ID升序逐行更新，不再在事务里 COUNT 关联表，并发同步时不会交叉加锁而死锁
+        Set<Long> affected = new TreeSet<>(previous);
+        affected.addAll(current);
+        List<Object[]> deltas = new ArrayList<>();
+        for (Long tagId : affected) {
+            int delta = (published && current.contains(tagId) ? 1 : 0) - (wasPublished && previous.contains(tagId) ? 1 : 0);
+            if (delta != 0) {
+                deltas.add(new Object[] { delta, tagId });
+            }
+        }
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE tags SET story_count = GREATEST(story_count + ?, 0) WHERE id = ?", deltas);
+        }
+    }
+
+    /**
+     * 取标签ID，不存在时创建；INSERT IGNORE 避免并发创建同名标签时唯一键冲突导致事务回滚
+     */
+    private Long resolveTagId(String key, String name) {
+        jdbcTemplate.update("INSERT IGNORE INTO tags (name, name_key, story_count, created_at, updated_at) "
+                + "VALUES (?, ?, 0, NOW(6), NOW(6))", name, key);
+        return jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name_key = ?", Long.class, key);
     }
 }
@@ -0,0 +1,34 @@
+-- ============================================
+-- 阅读副本改为只追加的事件模型：回退不再删除章节，只移动 HEAD
+-- ============================================
+
+-- 1. reader_forks 增加 HEAD 指针
+ALTER TABLE reader_forks ADD COLUMN IF NOT EXISTS head_commit_id BIGINT NULL COMMENT '当前 HEAD 章节 ID（NULL 表示位于故事开头）';
+ALTER TABLE reader_forks ADD COLUMN IF NOT EXISTS head_depth INT NULL COMMENT 'HEAD 路径上的章节数（NULL 表示旧数据，按线性历史处理）';
+
+-- 2. 回填已有数据：旧数据的历史是线性的，HEAD 即最后一个章节
+UPDATE reader_forks rf
+SET rf.head_commit_id = (
+        SELECT c.id FROM story_commits c
+        WHERE c.fork_id = rf.id
+        ORDER BY c.sort_order DESC, c.id DESC
+        LIMIT 1),
+    rf.head_depth = (
+        SELECT COUNT(*) FROM story_commits c
+        WHERE c.fork_id = rf.id)
+WHERE rf.head_depth IS NULL;
+
+-- 3. 事件表（只追加）
+CREATE TABLE IF NOT EXISTS reader_fork_events (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    created_at TIMESTAMP(6) NOT NULL COMMENT '创建时间',
+    updated_at TIMESTAMP(6) NOT NULL COMMENT '更新时间',
+    fork_id BIGINT NOT NULL COMMENT '读者 fork ID',
+    event_type VARCHAR(20) NOT NULL COMMENT '事件类型：CHOOSE/REDO/ROLLBACK/CHECKOUT/BOOKMARK',
+    commit_id BIGINT NULL COMMENT '事件涉及的章节 ID',
+    previous_head_commit_id BIGINT NULL COMMENT '事件发生前的 HEAD',
+    head_commit_id BIGINT NULL COMMENT '事件发生后的 HEAD（NULL 表示故事开头）',
+    head_depth INT NOT NULL DEFAULT 0 COMMENT '事件发生后 HEAD 路径上的章节数',
+    INDEX idx_reader_fork_events_fork_id (fork_id, id),
+    CONSTRAINT fk_reader_fork_events_fork FOREIGN KEY (fork_id) REFERENCES reader_forks(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='阅读副本事件表（只追加）';
@@ -0,0 +1,25 @@
+-- ============================================
+-- 回填 reader_forks.story_id：列表接口不再按标题逐条查找对应小说
+-- ============================================
+
+-- V20 已按 stories.seed_id 回填；剩余的旧 fork 按种子标题匹配小说（同名取最早创建的一本）
+CREATE TEMPORARY TABLE tmp_reader_fork_story AS
+SELECT rf.id AS fork_id, rf.reader_id, s.story_id
+FROM reader_forks rf
+JOIN story_seeds ss ON rf.story_seed_id = ss.id
+JOIN (SELECT title, MIN(id) AS story_id FROM stories GROUP BY title) s ON s.title = ss.title
+WHERE rf.story_id IS NULL;
+
+-- 同一读者的多个 fork 匹配到同一小说时只回填最早的一个；该读者已有该小说的 fork 时不回填，
+-- 避免违反 (story_id, reader_id) 唯一约束。未回填的 fork 由接口按种子标题兜底
+UPDATE reader_forks rf
+JOIN (
+    SELECT reader_id, story_id, MIN(fork_id) AS fork_id
+    FROM tmp_reader_fork_story
+    GROUP BY reader_id, story_id
+) t ON t.fork_id = rf.id
+LEFT JOIN reader_forks other ON other.story_id = t.story_id AND other.reader_id = t.reader_id
+SET rf.story_id = t.story_id
+WHERE other.id IS NULL;
+
+DROP TEMPORARY TABLE tmp_reader_fork_story;
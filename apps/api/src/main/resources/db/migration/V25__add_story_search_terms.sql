@@ -0,0 +1,17 @@
+-- ============================================
+-- 小说全文搜索倒排表：替代 LIKE '%q%' 全表扫描
+-- 中文按单字 + 双字（bigram）切分，英文按单词及前缀切分，只索引已发布的小说
+-- 表创建后首次启动时自动重建索引，也可执行 java -jar api.jar --rebuild-search-index 离线重建
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS story_search_terms (
+    term VARCHAR(32) NOT NULL COMMENT '词项（已规范化、小写）',
+    story_id BIGINT NOT NULL COMMENT '小说 ID',
+    weight INT NOT NULL COMMENT '按字段加权后的词频（标题 10、标签 6、章节标题 3、简介 2、章节正文 1）',
+    PRIMARY KEY (term, story_id),
+    INDEX idx_story_search_terms_story (story_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin COMMENT='小说搜索倒排索引';
+
+-- 搜索建议：标题、标签前缀匹配
+CREATE INDEX IF NOT EXISTS idx_stories_published_title ON stories (published, title);
+CREATE INDEX IF NOT EXISTS idx_story_tags_tag ON story_tags (tag);
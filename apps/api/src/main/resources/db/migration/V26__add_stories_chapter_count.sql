@@ -0,0 +1,11 @@
+-- ============================================
+-- stories 增加冗余章节数，列表页不再逐条 COUNT story_chapters
+-- 由章节新增/删除原子维护（UPDATE ... SET chapter_count = chapter_count ± 1），定时任务按实际数量校正
+-- 是否有章节由 chapter_count > 0 判断
+-- ============================================
+
+ALTER TABLE stories ADD COLUMN IF NOT EXISTS chapter_count INT NOT NULL DEFAULT 0 COMMENT '章节数（冗余计数）';
+
+UPDATE stories s
+LEFT JOIN (SELECT story_id, COUNT(*) AS cnt FROM story_chapters GROUP BY story_id) c ON c.story_id = s.id
+SET s.chapter_count = COALESCE(c.cnt, 0);
@@ -0,0 +1,13 @@
+-- ============================================
+-- 游标分页（keyset）索引：列表按 (created_at, id) 倒序从游标之后取下一页，不再使用 OFFSET
+-- ============================================
+
+-- 已发布小说列表（全部 / 已完成 / 待续写）
+CREATE INDEX IF NOT EXISTS idx_stories_published_created ON stories (published, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_stories_published_open_source_created ON stories (published, is_open_source, created_at, id);
+
+-- 作者小说库
+CREATE INDEX IF NOT EXISTS idx_stories_author_created ON stories (author_id, created_at, id);
+
+-- 标签列表：按标签定位小说 ID
+CREATE INDEX IF NOT EXISTS idx_story_tags_tag_story ON story_tags (tag, story_id);
@@ -0,0 +1,42 @@
+-- ============================================
+-- 标签规范化：tags 字典（规范化键 + 预计算使用次数）+ story_tag_links 关联表
+-- story_tags 仍保存小说上的展示标签；按标签查小说、标签云、标签建议改走新表
+-- 规范化键 = 小写、去首尾空白（应用侧另做 NFKC，历史数据以此为准，后续写入时自动校正）
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS tags (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(100) NOT NULL COMMENT '展示名（首次出现时的写法）',
+    name_key VARCHAR(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL COMMENT '规范化键（小写）',
+    story_count BIGINT NOT NULL DEFAULT 0 COMMENT '使用该标签的已发布小说数',
+    created_at DATETIME(6) NOT NULL COMMENT '创建时间',
+    updated_at DATETIME(6) NOT NULL COMMENT '更新时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_tags_name_key (name_key),
+    INDEX idx_tags_story_count (story_count)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='标签字典';
+
+CREATE TABLE IF NOT EXISTS story_tag_links (
+    tag_id BIGINT NOT NULL COMMENT '标签 ID',
+    story_id BIGINT NOT NULL COMMENT '小说 ID',
+    PRIMARY KEY (tag_id, story_id),
+    INDEX idx_story_tag_links_story (story_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='标签与小说关联（按规范化标签去重）';
+
+-- 从 story_tags 迁移
+INSERT IGNORE INTO tags (name, name_key, story_count, created_at, updated_at)
+SELECT MIN(TRIM(tag)), LOWER(TRIM(tag)), 0, NOW(6), NOW(6)
+FROM story_tags
+WHERE TRIM(tag) <> ''
+GROUP BY LOWER(TRIM(tag));
+
+INSERT IGNORE INTO story_tag_links (tag_id, story_id)
+SELECT t.id, st.story_id
+FROM story_tags st
+JOIN tags t ON t.name_key = LOWER(TRIM(st.tag));
+
+UPDATE tags t
+SET story_count = (
+    SELECT COUNT(*) FROM story_tag_links l JOIN stories s ON s.id = l.story_id
+    WHERE l.tag_id = t.id AND s.published = TRUE
+);
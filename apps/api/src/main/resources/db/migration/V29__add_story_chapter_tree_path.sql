@@ -0,0 +1,28 @@
+-- ============================================
+-- story_chapters 增加物化路径索引，替代递归 CTE 查询分支树
+-- ancestor_path：根到父章节的ID路径（如 /12/45/，根章节为 /），子树 = 前缀范围扫描，祖先 = 解析路径后主键查询
+-- depth：层级（根章节为 0）
+-- word_count：字数冗余列，树形展示不再加载正文
+-- ============================================
+
+ALTER TABLE story_chapters ADD COLUMN IF NOT EXISTS ancestor_path VARCHAR(3000) CHARACTER SET ascii NOT NULL DEFAULT '/' COMMENT '祖先路径（根到父章节ID）';
+ALTER TABLE story_chapters ADD COLUMN IF NOT EXISTS depth INT NOT NULL DEFAULT 0 COMMENT '层级（根为0）';
+ALTER TABLE story_chapters ADD COLUMN IF NOT EXISTS word_count INT NOT NULL DEFAULT 0 COMMENT '字数（冗余）';
+
+CREATE INDEX IF NOT EXISTS idx_story_chapters_story_path ON story_chapters (story_id, ancestor_path);
+
+-- 回填路径与层级（一次性递归，之后由应用维护）
+UPDATE story_chapters c
+JOIN (
+    WITH RECURSIVE t (id, path, lvl) AS (
+        SELECT id, CAST('/' AS CHAR(3000) CHARACTER SET ascii), 0 FROM story_chapters WHERE parent_chapter_id IS NULL
+        UNION ALL
+        SELECT ch.id, CONCAT(t.path, t.id, '/'), t.lvl + 1 FROM story_chapters ch JOIN t ON ch.parent_chapter_id = t.id
+    )
+    SELECT id, path, lvl FROM t
+) p ON p.id = c.id
+SET c.ancestor_path = p.path, c.depth = p.lvl;
+
+-- 回填字数（与 StoryChapter.countWords 相同规则：去掉 Markdown 标记和空白）
+UPDATE story_chapters
+SET word_count = CHAR_LENGTH(REGEXP_REPLACE(COALESCE(content_markdown, ''), '[#*_`\\[\\](){}|>-]|\\s', ''));
@@ -0,0 +1,16 @@
+-- ============================================
+-- 章节正文拆到独立表 story_chapter_contents（与章节共享主键），
+-- 列表、分支树、排序、贡献者统计等只读 story_chapters 元数据行，不再带出正文
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS story_chapter_contents (
+    chapter_id BIGINT NOT NULL PRIMARY KEY COMMENT '章节ID',
+    content_markdown LONGTEXT COMMENT '章节正文（Markdown）',
+    CONSTRAINT fk_story_chapter_contents_chapter FOREIGN KEY (chapter_id) REFERENCES story_chapters (id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='章节正文';
+
+-- 迁移已有正文（应用已先行建表并写入的新章节保持不变）
+INSERT IGNORE INTO story_chapter_contents (chapter_id, content_markdown)
+SELECT id, content_markdown FROM story_chapters;
+
+ALTER TABLE story_chapters DROP COLUMN IF EXISTS content_markdown;
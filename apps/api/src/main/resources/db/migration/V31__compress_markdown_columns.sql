@@ -0,0 +1,9 @@
+-- ============================================
+-- 大段正文改为 BLOB，由 CompressedTextConverter 压缩存储（首字节为格式版本：0x00 原文，0x01 deflate）
+-- 改类型不改字节：已有 UTF-8 原文保持可读，应用启动后由 CompressedTextMigrator 在后台逐批压缩
+-- ============================================
+
+ALTER TABLE story_chapter_contents MODIFY COLUMN content_markdown LONGBLOB COMMENT '章节正文（压缩存储）';
+ALTER TABLE story_commits MODIFY COLUMN content_markdown LONGBLOB NOT NULL COMMENT '提交正文（压缩存储）';
+ALTER TABLE story_readme MODIFY COLUMN content_markdown LONGBLOB COMMENT '设定文档（压缩存储）';
+ALTER TABLE story_commit_summaries MODIFY COLUMN medium_summary MEDIUMBLOB COMMENT '中等长度摘要（压缩存储）';
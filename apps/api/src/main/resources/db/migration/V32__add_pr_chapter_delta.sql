@@ -0,0 +1,11 @@
+-- ============================================
+-- 分支小说章节按差异存储：相对原小说同序号章节的词元级差异（压缩存储），记录基准章节与基准正文哈希
+-- 已有章节保持全文存储，下次修改时由 PrChapterContentStore 决定是否改存差异
+-- ============================================
+
+ALTER TABLE story_pr_chapters
+    ADD COLUMN IF NOT EXISTS base_chapter_id BIGINT NULL COMMENT '差异的基准章节ID（全文存储时为空）',
+    ADD COLUMN IF NOT EXISTS base_content_hash CHAR(64) CHARACTER SET ascii NULL COMMENT '基准正文 SHA-256',
+    ADD COLUMN IF NOT EXISTS content_delta LONGBLOB NULL COMMENT '相对基准正文的差异（压缩存储）';
+
+CREATE INDEX IF NOT EXISTS idx_pr_chapters_base_chapter ON story_pr_chapters (base_chapter_id);
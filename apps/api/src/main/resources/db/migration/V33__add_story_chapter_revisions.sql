@@ -0,0 +1,20 @@
+-- ============================================
+-- 章节版本历史：每隔若干版本存一次全文快照，其余存相对上一版本的差异（均压缩存储）
+-- 已有章节不回填，第一次修改时由 ChapterRevisionService 补记修改前的正文为第 1 版
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS story_chapter_revisions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    chapter_id BIGINT NOT NULL COMMENT '章节ID',
+    revision_no INT NOT NULL COMMENT '版本号（章节内从 1 递增）',
+    snapshot BOOLEAN NOT NULL COMMENT '是否为全文快照',
+    chain_length INT NOT NULL COMMENT '距最近快照的差异版本数',
+    body LONGBLOB NOT NULL COMMENT '快照全文或相对上一版本的差异（压缩存储）',
+    content_hash CHAR(64) CHARACTER SET ascii NOT NULL COMMENT '该版本全文 SHA-256',
+    title VARCHAR(200) NOT NULL COMMENT '保存时的章节标题',
+    word_count INT NOT NULL COMMENT '字数',
+    editor_id BIGINT NULL COMMENT '保存该版本的用户',
+    created_at TIMESTAMP(6) NOT NULL COMMENT '创建时间',
+    updated_at TIMESTAMP(6) NOT NULL COMMENT '更新时间',
+    UNIQUE KEY uk_chapter_revisions_chapter_no (chapter_id, revision_no)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='章节版本历史';
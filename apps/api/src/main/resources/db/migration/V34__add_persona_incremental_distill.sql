@@ -0,0 +1,9 @@
+-- ============================================
+-- 作者分身增量提炼：记录已并入画像的作品（ID、标题、标题+简介指纹），
+-- 之后只把新增/修改/下架的作品交给大模型合并；连续增量合并达到上限后再全量重提炼
+-- ============================================
+
+ALTER TABLE user_persona_profile
+    ADD COLUMN IF NOT EXISTS folded_stories LONGTEXT NULL COMMENT '已并入画像的作品（JSON：作品ID -> 标题与指纹）',
+    ADD COLUMN IF NOT EXISTS incremental_merges INT NOT NULL DEFAULT 0 COMMENT '上次全量提炼后的增量合并次数',
+    ADD COLUMN IF NOT EXISTS full_distilled_at TIMESTAMP(6) NULL COMMENT '上次全量提炼时间';
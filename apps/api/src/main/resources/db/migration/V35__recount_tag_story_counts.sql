@@ -0,0 +1,11 @@
+-- ============================================
+-- 标签使用次数改为增量维护（story_count ± 1），此处按关联表整体重算一次作为基准
+-- V28 的 SQL 回填按 LOWER(TRIM()) 生成规范化键，与应用侧（NFKC + 去空白 + 小写）不一致的部分
+-- 由 TagLinkBackfill 在启动时逐本重新同步
+-- ============================================
+
+UPDATE tags t
+SET story_count = (
+    SELECT COUNT(*) FROM story_tag_links l JOIN stories s ON s.id = l.story_id
+    WHERE l.tag_id = t.id AND s.published = TRUE
+);
@@ -0,0 +1,81 @@
+package com.example.api.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * 正文压缩的读写 CPU 开销与节省的存储字节（即数据库 I/O 与缓冲池占用）对比。
+ * 默认不运行：BENCHMARK=true ./gradlew test --tests '*CompressedTextConverterBenchmark'
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class CompressedTextConverterBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURE_ROUNDS = 10_000;
+
+    private static final String[] SENTENCES = {
+            "夜色沉沉，城墙上的火把被风吹得忽明忽暗。",
+            "她握紧了手中的剑，指节因为用力而发白。",
+            "“你终于来了。”老人头也不回地说道，声音沙哑而平静。",
+            "远处传来一阵急促的马蹄声，像是有人在追赶什么。",
+            "他想起十年前那个雨夜，想起师父临终前的那句话。",
+            "街道两旁的灯笼一盏接一盏地亮起，映得青石板路一片昏黄。",
+            "没有人知道，那封信里究竟写了些什么。",
+            "风停了，四下里静得只剩下彼此的呼吸声。",
+    };
+
+    @Test
+    void encodeDecodeCostVersusBytesSaved() {
+        for (int kb : new int[] { 1, 4, 16, 64 }) {
+            run(prose(kb * 1024, kb));
+        }
+    }
+
+    private static void run(String text) {
+        int rawBytes = text.getBytes(StandardCharsets.UTF_8).length;
+        byte[] stored = CompressedTextConverter.encode(text);
+        assertThat(CompressedTextConverter.decode(stored)).isEqualTo(text);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            CompressedTextConverter.decode(CompressedTextConverter.encode(text));
+        }
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += CompressedTextConverter.encode(text).length;
+        }
+        long encodeNanos = (System.nanoTime() - start) / MEASURE_ROUNDS;
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += CompressedTextConverter.decode(stored).length();
+        }
+        long decodeNanos = (System.nanoTime() - start) / MEASURE_ROUNDS;
+
+        long saved = rawBytes - stored.length;
+        System.out.printf("raw=%6dB stored=%6dB ratio=%.2f saved=%6dB | encode=%7.1fus decode=%6.1fus"
+                        + " | decode us per KB saved=%.2f (sink=%d)%n",
+                rawBytes, stored.length, (double) stored.length / rawBytes, saved,
+                encodeNanos / 1000.0, decodeNanos / 1000.0,
+                saved > 0 ? decodeNanos / 1000.0 / (saved / 1024.0) : Double.NaN, sink);
+    }
+
+    /**
+     * 以常见句式随机拼接的中文正文，重复度接近真实章节（比单句循环更难压缩）
+     */
+    private static String prose(int targetBytes, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        while (sb.toString().getBytes(StandardCharsets.UTF_8).length < targetBytes) {
+            sb.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+            if (random.nextInt(4) == 0) {
+                sb.append("\n\n");
+            }
+        }
+        return sb.toString();
+    }
+}
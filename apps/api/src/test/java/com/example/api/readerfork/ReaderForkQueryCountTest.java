@@ -0,0 +1,115 @@
+package com.example.api.readerfork;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.example.api.ai.AiChatService;
+import com.example.api.rag.CommitSummaryService;
+import com.example.api.rag.EntityGraphService;
+import com.example.api.rag.EntityRecognitionService;
+import com.example.api.rag.HybridRAGPromptBuilder;
+import com.example.api.rag.LayeredPromptBuilderV2;
+import com.example.api.rag.TimelineService;
+import com.example.api.readerfork.dto.ReaderForkResponse;
+import com.example.api.story.Story;
+import com.example.api.story.counter.StoryCounterBuffer;
+import com.example.api.story.deletion.StoryDeletionService;
+import com.example.api.storyseed.StorySeed;
+import com.example.api.support.QueryCountTest;
+import com.example.api.support.StatementCounter;
+import com.example.api.user.User;
+
+/**
+ * 我的阅读副本列表：语句数不随副本数增长（未回填 story_id 的旧副本按标题一次查出）
+ */
+@QueryCountTest
+@Import(ReaderForkServiceImpl.class)
+class ReaderForkQueryCountTest {
+
+    private static final int FORKS = 5;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private StatementCounter counter;
+    @Autowired
+    private ReaderForkService readerForkService;
+
+    @MockBean
+    private AiChatService aiChatService;
+    @MockBean
+    private CommitSummaryService commitSummaryService;
+    @MockBean
+    private EntityRecognitionService entityRecognitionService;
+    @MockBean
+    private EntityGraphService entityGraphService;
+    @MockBean
+    private TimelineService timelineService;
+    @MockBean
+    private LayeredPromptBuilderV2 layeredPromptBuilder;
+    @MockBean
+    private HybridRAGPromptBuilder hybridRAGPromptBuilder;
+    @MockBean
+    private ReaderForkGenerationGuard generationGuard;
+    @MockBean
+    private StoryCounterBuffer counterBuffer;
+    @MockBean
+    private StoryDeletionService storyDeletionService;
+
+    private User author;
+    private User reader;
+
+    @BeforeEach
+    void setUp() {
+        author = em.persist(new User("author", "author@example.com", "x"));
+        reader = em.persist(new User("reader", "reader@example.com", "x"));
+        for (int i = 0; i < FORKS; i++) {
+            Story story = em.persist(new Story("小说" + i, "story-" + i, true, author));
+            em.persist(new ReaderFork(story, reader));
+        }
+    }
+
+    @Test
+    void listMyForksUsesConstantStatements() {
+        StatementCounter.Counted<List<ReaderForkResponse>> counted =
+                counter.count(() -> readerForkService.listMyForks("reader"));
+
+        assertThat(counted.result()).hasSize(FORKS);
+        assertThat(counted.result()).allSatisfy(f -> assertThat(f.storyId()).isNotNull());
+        // 一条 JOIN 取副本及其 storySeed、story、reader
+        assertThat(counted.statements()).isEqualTo(1);
+    }
+
+    @Test
+    void legacyForksResolveStoryIdInOneQuery() {
+        Story story = em.persist(new Story("旧种子", "legacy-story", true, author));
+        for (int i = 0; i < FORKS; i++) {
+            StorySeed seed = em.persist(new StorySeed(i < 2 ? "旧种子" : "种子" + i, "seed-" + i, "开头", true, author));
+            em.persist(new ReaderFork(seed, reader));
+        }
+
+        StatementCounter.Counted<List<ReaderForkResponse>> counted =
+                counter.count(() -> readerForkService.listMyForks("reader"));
+
+        Map<Long, ReaderForkResponse> bySeed = counted.result().stream()
+                .filter(f -> f.storySeedId() != null)
+                .collect(Collectors.toMap(ReaderForkResponse::storySeedId, Function.identity()));
+        assertThat(bySeed.values())
+                .filteredOn(f -> "旧种子".equals(f.storySeedTitle()))
+                .hasSize(2)
+                .allSatisfy(f -> assertThat(f.storyId()).isEqualTo(story.getId()));
+        // 副本列表一条 + 按标题批量查小说一条，与旧副本数量无关
+        assertThat(counted.statements()).isEqualTo(2);
+    }
+}
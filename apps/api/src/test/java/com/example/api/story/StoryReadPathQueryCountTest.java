@@ -0,0 +1,122 @@
+package com.example.api.story;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.example.api.readerfork.ReaderFork;
+import com.example.api.readerfork.ReaderForkRepository;
+import com.example.api.story.cache.StoryCache;
+import com.example.api.story.counter.StoryCounterBuffer;
+import com.example.api.story.deletion.StoryDeletionService;
+import com.example.api.story.dto.CursorPage;
+import com.example.api.story.dto.StoryListItemResponse;
+import com.example.api.story.search.StorySearchService;
+import com.example.api.support.QueryCountTest;
+import com.example.api.support.StatementCounter;
+import com.example.api.tag.TagService;
+import com.example.api.user.User;
+import com.example.api.user.UserRepository;
+
+/**
+ * 小说热点读路径的语句数：列表项投影、Star 检查、经 fork 访问小说都不随数据量多查
+ */
+@QueryCountTest
+@Import(StoryServiceImpl.class)
+class StoryReadPathQueryCountTest {
+
+    private static final int STORIES = 12;
+    private static final int PAGE_SIZE = 5;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private StatementCounter counter;
+    @Autowired
+    private StoryService storyService;
+    @Autowired
+    private StoryStarRepository storyStarRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ReaderForkRepository readerForkRepository;
+
+    @MockBean
+    private StoryDeletionService storyDeletionService;
+    @MockBean
+    private StorySearchService storySearchService;
+    @MockBean
+    private StoryCache storyCache;
+    @MockBean
+    private StoryCounterBuffer counterBuffer;
+    @MockBean
+    private TagService tagService;
+
+    private User reader;
+    private Story first;
+
+    @BeforeEach
+    void setUp() {
+        User author = em.persist(new User("author", "author@example.com", "x"));
+        reader = em.persist(new User("reader", "reader@example.com", "x"));
+        for (int i = 0; i < STORIES; i++) {
+            Story story = new Story("小说" + i, "story-" + i, true, author);
+            story.setTags(new ArrayList<>(List.of("玄幻", "标签" + i)));
+            story = em.persist(story);
+            if (first == null) {
+                first = story;
+            }
+        }
+        em.persist(new StoryStar(first, reader));
+        em.persist(new ReaderFork(first, reader));
+    }
+
+    @Test
+    void cursorListUsesProjectionAndOneTagQuery() {
+        StatementCounter.Counted<CursorPage<StoryListItemResponse>> counted =
+                counter.count(() -> storyService.scrollPublished(null, null, PAGE_SIZE, false));
+
+        assertThat(counted.result().content()).hasSize(PAGE_SIZE);
+        assertThat(counted.result().content()).allSatisfy(item -> {
+            assertThat(item.tags()).contains("玄幻");
+            assertThat(item.authorUsername()).isEqualTo("author");
+        });
+        // keyset 取 ID、列表项投影、批量取标签
+        assertThat(counted.statements()).isEqualTo(3);
+
+        StatementCounter.Counted<CursorPage<StoryListItemResponse>> next =
+                counter.count(() -> storyService.scrollPublished(null, counted.result().nextCursor(), PAGE_SIZE, false));
+        assertThat(next.result().content()).hasSize(PAGE_SIZE);
+        assertThat(next.statements()).isEqualTo(3);
+    }
+
+    @Test
+    void starCheckIsIdOnly() {
+        StatementCounter.Counted<Boolean> counted = counter.count(() -> userRepository.findIdByUsername("reader")
+                .map(userId -> storyStarRepository.existsByStoryIdAndUserId(first.getId(), userId))
+                .orElse(false));
+
+        assertThat(counted.result()).isTrue();
+        assertThat(counted.statements()).isEqualTo(2);
+    }
+
+    @Test
+    void forkToStoryNavigationDoesNotLoadTags() {
+        StatementCounter.Counted<String> counted = counter.count(() -> readerForkRepository
+                .findByStory_IdAndReader_Id(first.getId(), reader.getId())
+                .map(fork -> fork.getStory().getTitle())
+                .orElse(null));
+
+        assertThat(counted.result()).isEqualTo(first.getTitle());
+        // fork、story、reader 一条 JOIN；标签为懒加载，不再额外查询 story_tags
+        assertThat(counted.statements()).isEqualTo(1);
+    }
+}
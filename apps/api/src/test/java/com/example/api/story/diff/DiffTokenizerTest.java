@@ -0,0 +1,38 @@
+package com.example.api.story.diff;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 差异分词：无损、中文逐字、英文/数字成词、换行单独成词、CRLF 与结尾换行
+ */
+class DiffTokenizerTest {
+
+    @Test
+    void tokensConcatenateBackToTheOriginal() {
+        for (String text : new String[] { "", "三体 Hello, world 42!\n\n  缩进\t行\n", "a\r\nb\r\n", "结尾换行\n", "𠀀𠀁abc" }) {
+            assertThat(String.join("", DiffTokenizer.tokenize(text))).isEqualTo(text);
+        }
+    }
+
+    @Test
+    void cjkIsOneTokenPerCharacterAndWordsStayWhole() {
+        assertThat(DiffTokenizer.tokenize("三体abc 42。"))
+                .containsExactly("三", "体", "abc", " ", "42", "。");
+    }
+
+    @Test
+    void newlinesAreSeparateFromOtherWhitespace() {
+        assertThat(DiffTokenizer.tokenize("a \t\n\nb")).containsExactly("a", " \t", "\n", "\n", "b");
+        assertThat(DiffTokenizer.tokenize("a\r\nb")).containsExactly("a", "\r", "\n", "b");
+    }
+
+    @Test
+    void linesKeepTrailingEmptyLineAndCarriageReturns() {
+        assertThat(DiffTokenizer.lines("a\nb")).containsExactly("a", "b");
+        assertThat(DiffTokenizer.lines("a\nb\n")).containsExactly("a", "b", "");
+        assertThat(DiffTokenizer.lines("a\r\nb")).containsExactly("a\r", "b");
+        assertThat(DiffTokenizer.lines("")).isEmpty();
+    }
+}
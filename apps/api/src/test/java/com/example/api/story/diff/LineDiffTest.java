@@ -0,0 +1,99 @@
+package com.example.api.story.diff;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.api.story.dto.StoryPrChapterDiffResponse.DiffHunk;
+import com.example.api.story.dto.StoryPrChapterDiffResponse.DiffLine;
+
+/**
+ * 行级差异：hunk 的起始行号与行数、上下文行、相邻改动合并、结尾换行与 CRLF
+ */
+class LineDiffTest {
+
+    private static String lines(int from, int to) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            lines.add("第" + i + "行");
+        }
+        return String.join("\n", lines);
+    }
+
+    private static List<String> ops(DiffHunk hunk) {
+        return hunk.lines().stream().map(line -> line.op() + line.text()).toList();
+    }
+
+    @Test
+    void equalTextHasNoHunks() {
+        assertThat(LineDiff.hunks(lines(1, 5), lines(1, 5), 3)).isEmpty();
+    }
+
+    @Test
+    void insertOnly() {
+        List<DiffHunk> hunks = LineDiff.hunks("a\nb\nc", "a\nb\nX\nc", 1);
+        assertThat(hunks).hasSize(1);
+        DiffHunk hunk = hunks.get(0);
+        assertThat(hunk.baseStart()).isEqualTo(2);
+        assertThat(hunk.baseCount()).isEqualTo(2);
+        assertThat(hunk.prStart()).isEqualTo(2);
+        assertThat(hunk.prCount()).isEqualTo(3);
+        assertThat(ops(hunk)).containsExactly(" b", "+X", " c");
+    }
+
+    @Test
+    void deleteOnly() {
+        List<DiffHunk> hunks = LineDiff.hunks("a\nb\nc\nd", "a\nd", 1);
+        assertThat(hunks).hasSize(1);
+        assertThat(ops(hunks.get(0))).containsExactly(" a", "-b", "-c", " d");
+        assertThat(hunks.get(0).baseCount()).isEqualTo(4);
+        assertThat(hunks.get(0).prCount()).isEqualTo(2);
+    }
+
+    @Test
+    void distantChangesAreSeparateHunksAndCloseOnesMerge() {
+        String base = lines(1, 20);
+        String far = base.replace("第2行", "改2").replace("第18行", "改18");
+        List<DiffHunk> hunks = LineDiff.hunks(base, far, 3);
+        assertThat(hunks).hasSize(2);
+        assertThat(hunks.get(0).baseStart()).isEqualTo(1);
+        assertThat(ops(hunks.get(0))).containsExactly(" 第1行", "-第2行", "+改2", " 第3行", " 第4行", " 第5行");
+        assertThat(hunks.get(1).baseStart()).isEqualTo(15);
+        assertThat(hunks.get(1).prStart()).isEqualTo(15);
+
+        String near = base.replace("第5行", "改5").replace("第10行", "改10");
+        assertThat(LineDiff.hunks(base, near, 3)).hasSize(1);
+    }
+
+    @Test
+    void changesMergeExactlyWhenTheirContextsTouch() {
+        String base = lines(1, 20);
+        // 中间相等行数 = 2×context：合并；再多一行：拆开
+        assertThat(LineDiff.hunks(base, base.replace("第5行", "改5").replace("第12行", "改12"), 3)).hasSize(1);
+        assertThat(LineDiff.hunks(base, base.replace("第5行", "改5").replace("第13行", "改13"), 3)).hasSize(2);
+        assertThat(LineDiff.hunks("a\nb", "X\nb", 0)).hasSize(1);
+    }
+
+    @Test
+    void trailingNewlineAndCrlfShowAsLineChanges() {
+        List<DiffHunk> trailing = LineDiff.hunks("a\nb", "a\nb\n", 0);
+        assertThat(trailing).hasSize(1);
+        assertThat(ops(trailing.get(0))).containsExactly("+");
+
+        List<DiffHunk> crlf = LineDiff.hunks("a\nb", "a\r\nb", 0);
+        assertThat(crlf).hasSize(1);
+        assertThat(ops(crlf.get(0))).containsExactly("-a", "+a\r");
+    }
+
+    @Test
+    void emptyBaseIsAllInserted() {
+        List<DiffHunk> hunks = LineDiff.hunks("", "a\nb", 3);
+        assertThat(hunks).hasSize(1);
+        assertThat(hunks.get(0).lines()).extracting(DiffLine::op).containsOnly(DiffLine.INSERT);
+        assertThat(hunks.get(0).baseCount()).isZero();
+        assertThat(hunks.get(0).prCount()).isEqualTo(2);
+    }
+}
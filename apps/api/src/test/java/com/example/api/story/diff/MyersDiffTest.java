@@ -0,0 +1,102 @@
+package com.example.api.story.diff;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.api.story.diff.MyersDiff.Op;
+import com.example.api.story.diff.MyersDiff.Run;
+
+/**
+ * Myers 差异：相等、纯插入、纯删除、交错修改都能按编辑脚本把原序列还原为新序列，且编辑数最少
+ */
+class MyersDiffTest {
+
+    private static List<String> chars(String s) {
+        return s.chars().mapToObj(c -> String.valueOf((char) c)).toList();
+    }
+
+    /** 按编辑脚本从 a 生成 b，同时校验 EQUAL 段两边确实相等、两个序列都恰好消耗完 */
+    private static List<String> replay(List<String> a, List<String> b, List<Run> runs) {
+        List<String> out = new ArrayList<>();
+        int ai = 0;
+        int bi = 0;
+        for (Run run : runs) {
+            assertThat(run.count()).isPositive();
+            for (int i = 0; i < run.count(); i++) {
+                switch (run.op()) {
+                    case EQUAL -> {
+                        assertThat(a.get(ai)).isEqualTo(b.get(bi));
+                        out.add(a.get(ai++));
+                        bi++;
+                    }
+                    case DELETE -> ai++;
+                    case INSERT -> out.add(b.get(bi++));
+                }
+            }
+        }
+        assertThat(ai).isEqualTo(a.size());
+        assertThat(bi).isEqualTo(b.size());
+        return out;
+    }
+
+    private static int edits(List<Run> runs) {
+        return runs.stream().filter(r -> r.op() != Op.EQUAL).mapToInt(Run::count).sum();
+    }
+
+    @Test
+    void equalSequencesAreOneEqualRun() {
+        List<String> a = chars("三体人");
+        assertThat(MyersDiff.diff(a, a, 10)).containsExactly(new Run(Op.EQUAL, 3));
+        assertThat(MyersDiff.diff(List.of(), List.of(), 10)).isEmpty();
+    }
+
+    @Test
+    void insertOnly() {
+        List<String> a = chars("abd");
+        List<String> b = chars("abcd");
+        List<Run> runs = MyersDiff.diff(a, b, 10);
+        assertThat(runs).containsExactly(new Run(Op.EQUAL, 2), new Run(Op.INSERT, 1), new Run(Op.EQUAL, 1));
+        assertThat(MyersDiff.diff(List.of(), b, 10)).containsExactly(new Run(Op.INSERT, 4));
+    }
+
+    @Test
+    void deleteOnly() {
+        List<String> a = chars("abcd");
+        List<String> b = chars("ad");
+        assertThat(MyersDiff.diff(a, b, 10))
+                .containsExactly(new Run(Op.EQUAL, 1), new Run(Op.DELETE, 2), new Run(Op.EQUAL, 1));
+        assertThat(MyersDiff.diff(a, List.of(), 10)).containsExactly(new Run(Op.DELETE, 4));
+    }
+
+    @Test
+    void interleavedEditsReplayWithMinimalEditCount() {
+        // 论文中的例子：ABCABBA -> CBABAC，最短编辑距离为 5
+        List<String> a = chars("ABCABBA");
+        List<String> b = chars("CBABAC");
+        List<Run> runs = MyersDiff.diff(a, b, 100);
+        assertThat(replay(a, b, runs)).isEqualTo(b);
+        assertThat(edits(runs)).isEqualTo(5);
+
+        List<String> c = chars("夜色沉沉，城墙上的火把忽明忽暗。");
+        List<String> d = chars("夜色深沉，城头的火把被风吹得忽明忽暗！");
+        assertThat(replay(c, d, MyersDiff.diff(c, d, 100))).isEqualTo(d);
+    }
+
+    @Test
+    void adjacentRunsOfTheSameOpAreMerged() {
+        List<Run> runs = MyersDiff.diff(chars("xxxx"), chars("yyyy"), 100);
+        for (int i = 1; i < runs.size(); i++) {
+            assertThat(runs.get(i).op()).isNotEqualTo(runs.get(i - 1).op());
+        }
+    }
+
+    @Test
+    void givesUpBeyondMaxEdits() {
+        assertThat(MyersDiff.diff(chars("abcdef"), chars("uvwxyz"), 3)).isNull();
+        assertThat(MyersDiff.diff(chars("abcdef"), chars("abXdef"), 2)).isNotNull();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.api.story.diff;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.api.common.ApiException;
+import com.example.api.story.Story;
+import com.example.api.story.StoryChapter;
+import com.example.api.story.StoryChapterRepository;
+import com.example.api.story.StoryPrChapter;
+import com.example.api.story.StoryPrChapterRepository;
+import com.example.api.story.StoryPrNovel;
+import com.example.api.story.dto.StoryPrChapterDiffResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 分支章节正文存储：小改动存差异且能还原、差异过大或没有基准时存全文、基准变化时报冲突、基准修改前还原为全文
+ */
+class PrChapterContentStoreTest {
+
+    private static final long STORY_ID = 1L;
+    private static final long BASE_ID = 10L;
+    private static final String BASE_CONTENT = """
+            夜色沉沉，城墙上的火把被风吹得忽明忽暗。
+            她握紧了手中的剑，指节因为用力而发白。
+            “你终于来了。”老人头也不回地说道，声音沙哑而平静。
+            远处传来一阵急促的马蹄声，像是有人在追赶什么。
+            他想起十年前那个雨夜，想起师父临终前的那句话。
+            """;
+
+    private StoryChapterRepository chapterRepository;
+    private StoryPrChapterRepository prChapterRepository;
+    private PrChapterContentStore store;
+    private StoryChapter base;
+
+    @BeforeEach
+    void setUp() {
+        chapterRepository = mock(StoryChapterRepository.class);
+        prChapterRepository = mock(StoryPrChapterRepository.class);
+        store = new PrChapterContentStore(chapterRepository, prChapterRepository, new ObjectMapper());
+        base = new StoryChapter(null, 1, "第1章", BASE_CONTENT);
+        ReflectionTestUtils.setField(base, "id", BASE_ID);
+        when(chapterRepository.findWithContentByStoryIdAndSortOrderForUpdate(anyLong(), anyInt())).thenReturn(List.of(base));
+        when(chapterRepository.findWithContentByStoryIdAndSortOrder(anyLong(), anyInt())).thenReturn(List.of(base));
+        when(chapterRepository.findWithContentByIdIn(any())).thenAnswer(invocation -> List.of(base));
+    }
+
+    private static StoryPrChapter prChapter() {
+        Story story = mock(Story.class);
+        when(story.getId()).thenReturn(STORY_ID);
+        StoryPrNovel prNovel = mock(StoryPrNovel.class);
+        when(prNovel.getStory()).thenReturn(story);
+        StoryPrChapter chapter = new StoryPrChapter(prNovel, 1, "第1章");
+        ReflectionTestUtils.setField(chapter, "id", 100L);
+        return chapter;
+    }
+
+    @Test
+    void smallEditsAreStoredAsDeltaAndReadBack() {
+        String content = BASE_CONTENT.replace("老人", "老者").replace("雨夜", "雪夜") + "尾声。\n";
+        StoryPrChapter chapter = prChapter();
+
+        store.write(chapter, content);
+
+        assertThat(chapter.isDeltaStored()).isTrue();
+        assertThat(chapter.getContentMarkdown()).isNull();
+        assertThat(chapter.getBaseChapterId()).isEqualTo(BASE_ID);
+        assertThat(chapter.getBaseContentHash()).isEqualTo(TextDelta.hash(BASE_CONTENT));
+        assertThat(store.read(chapter)).isEqualTo(content);
+    }
+
+    @Test
+    void largeRewritesAreStoredAsFullText() {
+        String content = "完全不同的一章。\n".repeat(20);
+        StoryPrChapter chapter = prChapter();
+
+        store.write(chapter, content);
+
+        assertThat(chapter.isDeltaStored()).isFalse();
+        assertThat(chapter.getContentMarkdown()).isEqualTo(content);
+        assertThat(store.read(chapter)).isEqualTo(content);
+    }
+
+    @Test
+    void withoutABaseChapterTheFullTextIsStored() {
+        when(chapterRepository.findWithContentByStoryIdAndSortOrderForUpdate(anyLong(), anyInt())).thenReturn(List.of());
+        StoryPrChapter chapter = prChapter();
+
+        store.write(chapter, BASE_CONTENT);
+
+        assertThat(chapter.isDeltaStored()).isFalse();
+        assertThat(chapter.getContentMarkdown()).isEqualTo(BASE_CONTENT);
+    }
+
+    @Test
+    void readingADeltaWhoseBaseChangedIsAConflict() {
+        StoryPrChapter chapter = prChapter();
+        store.write(chapter, BASE_CONTENT + "尾声。\n");
+        base.setContentMarkdown(BASE_CONTENT + "作者改了基准。\n");
+
+        assertThatThrownBy(() -> store.read(chapter))
+                .isInstanceOfSatisfying(ApiException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void materializeForBaseRestoresFullTextBeforeTheBaseChanges() {
+        String content = BASE_CONTENT.replace("火把", "灯笼");
+        StoryPrChapter chapter = prChapter();
+        store.write(chapter, content);
+        when(prChapterRepository.findByBaseChapterIdAndContentDeltaIsNotNull(BASE_ID)).thenReturn(List.of(chapter));
+
+        store.materializeForBase(BASE_ID, BASE_CONTENT);
+
+        assertThat(chapter.isDeltaStored()).isFalse();
+        assertThat(chapter.getContentMarkdown()).isEqualTo(content);
+    }
+
+    @Test
+    void reviewDiffCountsChangedLines() {
+        String content = BASE_CONTENT.replace("老人", "老者") + "尾声。\n";
+        StoryPrChapter chapter = prChapter();
+        store.write(chapter, content);
+
+        StoryPrChapterDiffResponse diff = store.diff(chapter);
+
+        assertThat(diff.baseChapterId()).isEqualTo(BASE_ID);
+        assertThat(diff.deltaStored()).isTrue();
+        assertThat(diff.addedLines()).isEqualTo(2);
+        assertThat(diff.removedLines()).isEqualTo(1);
+    }
+}
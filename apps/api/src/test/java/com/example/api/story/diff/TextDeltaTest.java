@@ -0,0 +1,66 @@
+package com.example.api.story.diff;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 词元级差异：apply(base, between(base, target)) == target，差异过大返回 null，基准不符时拒绝还原
+ */
+class TextDeltaTest {
+
+    private static final String BASE = "夜色沉沉，城墙上的火把被风吹得忽明忽暗。\n\n她握紧了手中的剑。\n";
+
+    private static void assertRoundTrip(String base, String target) {
+        List<Object> ops = TextDelta.between(base, target, 1000);
+        assertThat(ops).isNotNull();
+        assertThat(TextDelta.apply(base, ops)).isEqualTo(target);
+    }
+
+    @Test
+    void roundTrips() {
+        assertRoundTrip(BASE, BASE);
+        assertRoundTrip(BASE, BASE + "远处传来一阵急促的马蹄声。\n");
+        assertRoundTrip(BASE, "她握紧了手中的剑。\n");
+        assertRoundTrip(BASE, "夜色深沉，城头的火把忽明忽暗！\n\n他握紧了手中的刀。\n尾声");
+        assertRoundTrip("", BASE);
+        assertRoundTrip(BASE, "");
+    }
+
+    @Test
+    void roundTripsLineEndingChanges() {
+        assertRoundTrip(BASE, BASE.replace("\n", "\r\n"));
+        assertRoundTrip(BASE.replace("\n", "\r\n"), BASE);
+        assertRoundTrip(BASE, BASE.substring(0, BASE.length() - 1));
+        assertRoundTrip("没有结尾换行", "没有结尾换行\n");
+    }
+
+    @Test
+    void encodesKeepSkipAndInsert() {
+        assertThat(TextDelta.between("甲乙丙", "甲乙丙", 10)).containsExactly(3);
+        assertThat(TextDelta.between("甲乙丙", "甲丁丙", 10)).containsExactly(1, -1, "丁", 1);
+        assertThat(TextDelta.between("甲乙", "甲乙丙丁", 10)).containsExactly(2, "丙丁");
+        assertThat(TextDelta.between("甲乙丙丁", "甲乙", 10)).containsExactly(2, -2);
+    }
+
+    @Test
+    void returnsNullWhenEditsExceedTheLimit() {
+        assertThat(TextDelta.between("甲乙丙丁戊", "子丑寅卯辰", 3)).isNull();
+    }
+
+    @Test
+    void rejectsADeltaThatDoesNotCoverTheBase() {
+        List<Object> ops = TextDelta.between("甲乙丙", "甲丁丙", 10);
+        assertThatThrownBy(() -> TextDelta.apply("甲乙", ops)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TextDelta.apply("甲乙丙丁", ops)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void hashIsStableAndContentSensitive() {
+        assertThat(TextDelta.hash(BASE)).isEqualTo(TextDelta.hash(new String(BASE))).hasSize(64);
+        assertThat(TextDelta.hash(BASE)).isNotEqualTo(TextDelta.hash(BASE + " "));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.api.story.revision;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.api.common.ApiException;
+import com.example.api.story.Story;
+import com.example.api.story.StoryChapter;
+import com.example.api.story.StoryChapterRepository;
+import com.example.api.story.StoryRepository;
+import com.example.api.support.QueryCountTest;
+import com.example.api.user.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 章节版本历史：版本号连续、按快照间隔存快照、快照 + 差异链还原出每个版本的原文、合并后剩余版本仍能逐一还原
+ */
+@QueryCountTest
+class ChapterRevisionServiceTest {
+
+    private static final int SNAPSHOT_INTERVAL = 3;
+    private static final int MIN_KEEP = 3;
+    /** 保留期为负：截止时间在未来，所有版本都已过保留期，合并只受 MIN_KEEP 约束 */
+    private static final Duration ALL_EXPIRED = Duration.ofMinutes(-1);
+
+    private static final String OPENING = """
+            夜色沉沉，城墙上的火把被风吹得忽明忽暗。
+            她握紧了手中的剑，指节因为用力而发白。
+            “你终于来了。”老人头也不回地说道，声音沙哑而平静。
+            """;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private StoryChapterRevisionRepository revisionRepository;
+    @Autowired
+    private StoryChapterRepository chapterRepository;
+    @Autowired
+    private StoryRepository storyRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ChapterRevisionService service;
+    private User author;
+    private StoryChapter chapter;
+    /** 每次保存的正文，下标 = 版本号 - 1 */
+    private final List<String> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new ChapterRevisionService(revisionRepository, chapterRepository, storyRepository,
+                new ObjectMapper(), transactionManager, SNAPSHOT_INTERVAL, ALL_EXPIRED, MIN_KEEP);
+        author = em.persist(new User("author", "author@example.com", "x"));
+        Story story = em.persist(new Story("小说", "story", true, author));
+        chapter = em.persist(new StoryChapter(story, author, 1, "第1章", OPENING));
+        service.record(chapter, null, author.getId());
+        saved.add(OPENING);
+    }
+
+    /** 模拟章节服务的一次保存：改正文后记录版本 */
+    private void save(String content) {
+        String previous = chapter.getContentMarkdown();
+        chapter.setContentMarkdown(content);
+        service.record(chapter, previous, author.getId());
+        saved.add(content);
+    }
+
+    private void saveEdits(int count) {
+        for (int i = 1; i <= count; i++) {
+            save(saved.get(saved.size() - 1) + "第" + i + "次修改，远处传来一阵急促的马蹄声。\n");
+        }
+    }
+
+    private List<StoryChapterRevision> revisions() {
+        return revisionRepository.findByChapterIdAndRevisionNoBetweenOrderByRevisionNoAsc(chapter.getId(), 1, Integer.MAX_VALUE);
+    }
+
+    private void assertEveryRevisionRebuildsFrom(int firstRevisionNo) {
+        for (int revisionNo = firstRevisionNo; revisionNo <= saved.size(); revisionNo++) {
+            assertThat(service.load(chapter.getId(), revisionNo).contentMarkdown())
+                    .as("revision %d", revisionNo)
+                    .isEqualTo(saved.get(revisionNo - 1));
+        }
+    }
+
+    @Test
+    void revisionsAreNumberedConsecutivelyAndUnchangedSavesAreSkipped() {
+        saveEdits(2);
+        chapter.setTitle("新标题");
+        service.record(chapter, chapter.getContentMarkdown(), author.getId());
+
+        assertThat(revisions()).extracting(StoryChapterRevision::getRevisionNo).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void snapshotIsStoredEverySnapshotIntervalRevisions() {
+        saveEdits(6);
+
+        List<StoryChapterRevision> revisions = revisions();
+        assertThat(revisions).extracting(StoryChapterRevision::isSnapshot)
+                .containsExactly(true, false, false, true, false, false, true);
+        assertThat(revisions).extracting(StoryChapterRevision::getChainLength)
+                .containsExactly(0, 1, 2, 0, 1, 2, 0);
+    }
+
+    @Test
+    void everyRevisionRebuildsFromItsSnapshotAndDeltaChain() {
+        saveEdits(4);
+        save(saved.get(saved.size() - 1).replace("老人", "老者").replace("火把", "灯笼"));
+        save(saved.get(saved.size() - 1).replace("\n", "\r\n"));
+        saveEdits(2);
+
+        assertEveryRevisionRebuildsFrom(1);
+    }
+
+    @Test
+    void largeRewritesAreStoredAsSnapshotsMidChain() {
+        saveEdits(1);
+        // 词元数超过编辑距离上限，差异放弃
+        save("完全重写的一章。\n".repeat(300));
+
+        List<StoryChapterRevision> revisions = revisions();
+        assertThat(revisions.get(2).isSnapshot()).isTrue();
+        assertEveryRevisionRebuildsFrom(1);
+    }
+
+    @Test
+    void chaptersWithoutHistoryRecordThePreviousContentAsRevisionOne() {
+        em.getEntityManager().createQuery("DELETE FROM StoryChapterRevision").executeUpdate();
+        saved.clear();
+        saved.add(chapter.getContentMarkdown());
+
+        save(OPENING + "补记之后的第一次修改。\n");
+
+        assertThat(revisions()).extracting(StoryChapterRevision::getRevisionNo).containsExactly(1, 2);
+        assertEveryRevisionRebuildsFrom(1);
+    }
+
+    @Test
+    void squashKeepsTheLatestRevisionsAndEachStillRebuildsToTheSavedText() {
+        saveEdits(6);
+
+        service.squashOldRevisions();
+        em.flush();
+
+        // 7 个版本保留最近 3 个（5、6、7），第 5 版原为差异，改存快照
+        List<StoryChapterRevision> revisions = revisions();
+        assertThat(revisions).extracting(StoryChapterRevision::getRevisionNo).containsExactly(5, 6, 7);
+        assertThat(revisions.get(0).isSnapshot()).isTrue();
+        assertEveryRevisionRebuildsFrom(5);
+        assertThatThrownBy(() -> service.load(chapter.getId(), 4))
+                .isInstanceOfSatisfying(ApiException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+
+        // 合并后继续保存，版本号接着递增
+        saveEdits(1);
+        assertThat(revisionRepository.findTopByChapterIdOrderByRevisionNoDesc(chapter.getId()))
+                .map(StoryChapterRevision::getRevisionNo).contains(8);
+        assertEveryRevisionRebuildsFrom(5);
+    }
+}
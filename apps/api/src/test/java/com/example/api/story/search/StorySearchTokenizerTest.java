@@ -0,0 +1,74 @@
+package com.example.api.story.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 分词：中文单字 + 双字、按码点切分、英文前缀（含单个字母）、长词截断后查询仍能命中索引
+ */
+class StorySearchTokenizerTest {
+
+    private static Map<String, Integer> index(String text) {
+        Map<String, Integer> terms = new HashMap<>();
+        StorySearchTokenizer.accumulate(text, 1, terms);
+        return terms;
+    }
+
+    @Test
+    void cjkIndexesUnigramsAndBigrams() {
+        assertThat(index("三体人")).containsOnlyKeys("三", "体", "人", "三体", "体人");
+    }
+
+    @Test
+    void cjkQueryUsesBigramsOrSingleCharacter() {
+        assertThat(StorySearchTokenizer.queryTerms("三体人")).containsExactly("三体", "体人");
+        assertThat(StorySearchTokenizer.queryTerms("龙")).containsExactly("龙");
+    }
+
+    @Test
+    void supplementaryCharactersCountAsOneCodePoint() {
+        String a = new String(Character.toChars(0x20000));
+        String b = new String(Character.toChars(0x20001));
+        assertThat(index(a + b)).containsOnlyKeys(a, b, a + b);
+        assertThat(StorySearchTokenizer.queryTerms(a)).containsExactly(a);
+        assertThat(StorySearchTokenizer.queryTerms(a + b)).containsExactly(a + b);
+    }
+
+    @Test
+    void latinWordsIndexEveryPrefixIncludingSingleLetters() {
+        assertThat(index("Hello")).containsOnlyKeys("h", "he", "hel", "hell", "hello");
+        assertThat(index("a")).containsOnlyKeys("a");
+        assertThat(StorySearchTokenizer.queryTerms("a")).containsExactly("a");
+    }
+
+    @Test
+    void fullWidthAndCaseAreNormalized() {
+        assertThat(StorySearchTokenizer.queryTerms("ＡＢＣ")).containsExactly("abc");
+        assertThat(StorySearchTokenizer.queryTerms("abc三体")).containsExactly("abc", "三体");
+    }
+
+    @Test
+    void longWordsAreTruncatedAndLongQueriesStillMatchTheIndex() {
+        String word = "x".repeat(10) + "y".repeat(30);
+        Map<String, Integer> indexed = index(word);
+        assertThat(indexed).containsKey(word.substring(0, StorySearchTokenizer.MAX_TERM_LENGTH));
+        assertThat(indexed.keySet()).allMatch(t -> t.length() <= StorySearchTokenizer.MAX_TERM_LENGTH);
+
+        for (int length = 1; length <= StorySearchTokenizer.MAX_TERM_LENGTH; length++) {
+            List<String> query = StorySearchTokenizer.queryTerms(word.substring(0, length));
+            assertThat(query).hasSize(1);
+            assertThat(indexed).containsKey(query.get(0));
+        }
+    }
+
+    @Test
+    void queryTermsAreCapped() {
+        String text = "一二三四五六七八九十甲乙丙丁戊己庚辛壬癸子丑寅卯辰巳午未申酉戌亥春夏秋冬";
+        assertThat(StorySearchTokenizer.queryTerms(text)).hasSize(StorySearchTokenizer.MAX_QUERY_TERMS);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.api.support;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 热点读路径的语句数回归测试：JPA 切片 + H2（MariaDB 兼容模式），开启 Hibernate 统计，
+ * 被测服务通过 {@code @Import} 引入，非 JPA 依赖用 {@code @MockBean} 替代
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("querycount")
+@Import(StatementCounter.class)
+public @interface QueryCountTest {
+}
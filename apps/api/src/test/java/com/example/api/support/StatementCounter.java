@@ -0,0 +1,35 @@
+package com.example.api.support;
+
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * 统计一段代码发出的 JDBC 语句数。执行前 flush 并清空持久化上下文，
+ * 保证被测代码从数据库读取，而不是命中准备数据时留在一级缓存中的实体
+ */
+public class StatementCounter {
+
+    private final EntityManager entityManager;
+    private final Statistics statistics;
+
+    public StatementCounter(EntityManager entityManager, EntityManagerFactory entityManagerFactory) {
+        this.entityManager = entityManager;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public <T> Counted<T> count(Supplier<T> action) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        T result = action.get();
+        return new Counted<>(result, statistics.getPrepareStatementCount());
+    }
+
+    public record Counted<T>(T result, long statements) {
+    }
+}